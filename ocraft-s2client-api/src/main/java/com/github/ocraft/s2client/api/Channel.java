@@ -44,4 +44,25 @@ public interface Channel {
     boolean ready();
 
     void onConnectionLost(Runnable onConnectionLost);
+
+    /**
+     * @return Number of requests written to the channel but not yet consumed by the connection.
+     */
+    default int inputQueueDepth() {
+        return 0;
+    }
+
+    /**
+     * @return Number of responses written to the channel but not yet consumed by the client.
+     */
+    default int outputQueueDepth() {
+        return 0;
+    }
+
+    /**
+     * @return Number of requests waiting for the connection to be sent.
+     */
+    default int requestQueueDepth() {
+        return 0;
+    }
 }
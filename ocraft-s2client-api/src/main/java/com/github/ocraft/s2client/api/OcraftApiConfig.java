@@ -75,6 +75,10 @@ public final class OcraftApiConfig {
     public static final String CLIENT_BUFFER_SIZE_RESPONSE_STREAM = CLIENT_BUFFER_SIZE_RESPONSE + ".stream";
     public static final String CLIENT_BUFFER_SIZE_RESPONSE_BACKPRESSURE = CLIENT_BUFFER_SIZE_RESPONSE + ".backpressure";
     public static final String CLIENT_TRACED = CLIENT + ".traced";
+    public static final String CLIENT_TRACER = CLIENT + ".tracer";
+    public static final String CLIENT_TRACER_RING_BUFFER_SIZE = CLIENT_TRACER + ".ringBufferSize";
+    public static final String CLIENT_TRACER_PAYLOAD_SAMPLING = CLIENT_TRACER + ".payloadSampling";
+    public static final String CLIENT_TRACER_PAYLOAD_QUEUE = CLIENT_TRACER + ".payloadQueue";
 
     private static Config config = ConfigFactory.load();
 
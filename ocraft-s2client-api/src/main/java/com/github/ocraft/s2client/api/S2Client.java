@@ -26,8 +26,10 @@ package com.github.ocraft.s2client.api;
  * #L%
  */
 
+import SC2APIProtocol.Sc2Api;
 import com.github.ocraft.s2client.api.controller.S2Controller;
 import com.github.ocraft.s2client.api.log.DataFlowTracer;
+import com.github.ocraft.s2client.api.metrics.ClientMetrics;
 import com.github.ocraft.s2client.api.syntax.OptionsSyntax;
 import com.github.ocraft.s2client.api.syntax.S2ClientSyntax;
 import com.github.ocraft.s2client.api.syntax.StartSyntax;
@@ -38,6 +40,7 @@ import com.github.ocraft.s2client.protocol.RequestSerializer;
 import com.github.ocraft.s2client.protocol.ResponseParser;
 import com.github.ocraft.s2client.protocol.request.Request;
 import com.github.ocraft.s2client.protocol.response.Response;
+import com.github.ocraft.s2client.protocol.response.ResponseConverter;
 import com.github.ocraft.s2client.protocol.response.ResponseError;
 import com.github.ocraft.s2client.protocol.response.ResponseType;
 import io.reactivex.BackpressureStrategy;
@@ -73,6 +76,7 @@ public class S2Client extends DefaultSubscriber<Response> {
     private final AtomicBoolean done = new AtomicBoolean(false);
     private final boolean traced;
     private final DataFlowTracer tracer;
+    private final ClientMetrics metrics;
     private final Phaser await = new Phaser(1);
     private final S2Controller game;
 
@@ -86,6 +90,7 @@ public class S2Client extends DefaultSubscriber<Response> {
         private S2Controller game;
         private DataFlowTracer tracer = new DataFlowTracer();
         private Runnable onConnectionLost;
+        private ClientMetrics metrics = ClientMetrics.NONE;
 
         @Override
         public OptionsSyntax connectTo(String gameListenIp, Integer gameListenPort) {
@@ -121,6 +126,12 @@ public class S2Client extends DefaultSubscriber<Response> {
             return this;
         }
 
+        @Override
+        public OptionsSyntax withMetrics(ClientMetrics metrics) {
+            if (isSet(metrics)) this.metrics = metrics;
+            return this;
+        }
+
         @Override
         public WithTracerSyntax traced(Boolean traced) {
             if (isSet(traced)) this.traced = traced;
@@ -155,12 +166,16 @@ public class S2Client extends DefaultSubscriber<Response> {
         connectTimeoutInMillis = builder.connectTimeoutInMillis;
         traced = builder.traced;
         tracer = builder.tracer;
+        metrics = builder.metrics;
         game = builder.game;
 
         log.info("Starting: {}", this);
 
         Channel channel = channelProvider.getChannel();
         channel.onConnectionLost(builder.onConnectionLost);
+        metrics.gauge("channel.input.queue", channel::inputQueueDepth);
+        metrics.gauge("channel.output.queue", channel::outputQueueDepth);
+        metrics.gauge("channel.request.queue", channel::requestQueueDepth);
         responseStream = channel.outputStream().mergeWith(channel.errorStream())
                 .map(this::prepareResponse)
                 .toFlowable(BackpressureStrategy.ERROR)
@@ -184,8 +199,13 @@ public class S2Client extends DefaultSubscriber<Response> {
 
     private Response prepareResponse(byte[] responseBytes) {
         try {
-            Response response = new ResponseParser().apply(responseBytes);
-            if (traced) tracer.fire(response);
+            long parseStart = System.nanoTime();
+            Sc2Api.Response sc2ApiResponse = new ResponseParser().parse(responseBytes);
+            long conversionStart = System.nanoTime();
+            Response response = new ResponseConverter().apply(sc2ApiResponse);
+            metrics.onResponse(
+                    response, responseBytes.length, conversionStart - parseStart, System.nanoTime() - conversionStart);
+            if (traced) tracer.fire(response, responseBytes);
             return response;
         } catch (IllegalArgumentException e) {
             throw new ResponseParseException(e);
@@ -199,8 +219,11 @@ public class S2Client extends DefaultSubscriber<Response> {
     public <T extends Request> void request(T requestData) {
         if (!done.get()) {
             require("request", requestData);
-            if (traced) tracer.fire(requestData);
-            channelProvider.getChannel().input(new RequestSerializer().apply(requestData));
+            long serializationStart = System.nanoTime();
+            byte[] requestBytes = new RequestSerializer().apply(requestData);
+            metrics.onRequest(requestData, requestBytes.length, System.nanoTime() - serializationStart);
+            if (traced) tracer.fire(requestData, requestBytes);
+            channelProvider.getChannel().input(requestBytes);
         } else {
             throw new IllegalStateException("Client is already stopped.");
         }
@@ -312,6 +335,10 @@ public class S2Client extends DefaultSubscriber<Response> {
         return traced;
     }
 
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
     public S2Client untilReady() throws TimeoutException {
         return untilReady(() -> {
         });
@@ -0,0 +1,427 @@
+package com.github.ocraft.s2client.api.log;
+
+/*-
+ * #%L
+ * ocraft-s2client-api
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.api.OcraftApiConfig;
+import com.github.ocraft.s2client.protocol.game.GameStatus;
+import com.github.ocraft.s2client.protocol.request.Request;
+import com.github.ocraft.s2client.protocol.response.Response;
+import com.github.ocraft.s2client.protocol.response.ResponseType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.github.ocraft.s2client.api.OcraftApiConfig.cfg;
+import static com.github.ocraft.s2client.protocol.Preconditions.isSet;
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+import static java.lang.String.format;
+
+/**
+ * Tracer suitable for production use. For every request and response only the metadata (direction, type, id, size,
+ * timestamp and game status) is written into a preallocated, lock-free ring buffer guarded by a per slot seqlock.
+ * Raw protobuf payloads can be additionally dumped to a file for every n-th message; the dump is performed on a
+ * separate thread and messages are dropped (and counted) rather than blocking the client when the writer cannot keep
+ * up.
+ * <p>
+ * Payload file format (big endian, repeated until EOF): direction (byte), id (int), nanoTime (long),
+ * length (int), payload (length bytes).
+ */
+public class BinaryDataFlowTracer extends DataFlowTracer implements AutoCloseable {
+
+    private static final int NO_SIZE = -1;
+
+    public enum Direction {
+        REQUEST,
+        RESPONSE
+    }
+
+    public static final class Record {
+        private final Direction direction;
+        private final ResponseType type;
+        private final int id;
+        private final int size;
+        private final long nanoTime;
+        private final GameStatus status;
+
+        private Record(Direction direction, ResponseType type, int id, int size, long nanoTime, GameStatus status) {
+            this.direction = direction;
+            this.type = type;
+            this.id = id;
+            this.size = size;
+            this.nanoTime = nanoTime;
+            this.status = status;
+        }
+
+        public Direction getDirection() {
+            return direction;
+        }
+
+        public ResponseType getType() {
+            return type;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return size of the serialized message in bytes or -1 if it was unknown at the moment of tracing
+         */
+        public int getSize() {
+            return size;
+        }
+
+        public long getNanoTime() {
+            return nanoTime;
+        }
+
+        public GameStatus getStatus() {
+            return status;
+        }
+
+        @Override
+        public String toString() {
+            return "Record{" +
+                    "direction=" + direction +
+                    ", type=" + type +
+                    ", id=" + id +
+                    ", size=" + size +
+                    ", nanoTime=" + nanoTime +
+                    ", status=" + status +
+                    '}';
+        }
+    }
+
+    public static final class Builder {
+        private int ringBufferSize = cfg().getInt(OcraftApiConfig.CLIENT_TRACER_RING_BUFFER_SIZE);
+        private int payloadSampling = cfg().getInt(OcraftApiConfig.CLIENT_TRACER_PAYLOAD_SAMPLING);
+        private int payloadQueueSize = cfg().getInt(OcraftApiConfig.CLIENT_TRACER_PAYLOAD_QUEUE);
+        private Path payloadFile;
+
+        private Builder() {
+        }
+
+        /**
+         * @param ringBufferSize number of the most recent records kept in memory, rounded up to the power of two
+         */
+        public Builder ringBufferSize(int ringBufferSize) {
+            this.ringBufferSize = ringBufferSize;
+            return this;
+        }
+
+        /**
+         * @param everyNth dumps payload of every n-th message, 0 disables payload dump
+         */
+        public Builder payloadSampling(int everyNth) {
+            this.payloadSampling = everyNth;
+            return this;
+        }
+
+        public Builder payloadQueueSize(int payloadQueueSize) {
+            this.payloadQueueSize = payloadQueueSize;
+            return this;
+        }
+
+        public Builder dumpPayloadsTo(Path payloadFile) {
+            this.payloadFile = payloadFile;
+            return this;
+        }
+
+        public BinaryDataFlowTracer build() {
+            if (ringBufferSize <= 0) throw new IllegalArgumentException("ring buffer size must be greater than 0");
+            if (payloadSampling < 0) throw new IllegalArgumentException("payload sampling must not be negative");
+            if (payloadSampling > 0) {
+                require("payload file", payloadFile);
+                if (payloadQueueSize <= 0) {
+                    throw new IllegalArgumentException("payload queue size must be greater than 0");
+                }
+            }
+            return new BinaryDataFlowTracer(this);
+        }
+    }
+
+    private final Logger log = LoggerFactory.getLogger(BinaryDataFlowTracer.class);
+
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicLongArray versions;
+    private final AtomicLong droppedRecords = new AtomicLong();
+    private final long[] nanoTimes;
+    private final int[] ids;
+    private final int[] sizes;
+    private final byte[] directions;
+    private final byte[] types;
+    private final byte[] statuses;
+
+    private final int payloadSampling;
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private final AtomicLong droppedPayloads = new AtomicLong();
+    private final PayloadWriter payloadWriter;
+
+    public static Builder binaryTracer() {
+        return new Builder();
+    }
+
+    private BinaryDataFlowTracer(Builder builder) {
+        int capacity = Integer.highestOneBit(builder.ringBufferSize);
+        if (capacity < builder.ringBufferSize) capacity <<= 1;
+        mask = capacity - 1;
+        versions = new AtomicLongArray(capacity);
+        nanoTimes = new long[capacity];
+        ids = new int[capacity];
+        sizes = new int[capacity];
+        directions = new byte[capacity];
+        types = new byte[capacity];
+        statuses = new byte[capacity];
+
+        payloadSampling = builder.payloadSampling;
+        payloadWriter = payloadSampling > 0
+                ? new PayloadWriter(builder.payloadFile, builder.payloadQueueSize)
+                : null;
+    }
+
+    @Override
+    public <T extends Request> void fire(T request) {
+        record(Direction.REQUEST, request.responseType(), request.getId(), request.getNanoTime(),
+                GameStatus.UNKNOWN, null);
+    }
+
+    @Override
+    public <T extends Response> void fire(T response) {
+        record(Direction.RESPONSE, response.getType(), response.getId(), response.getNanoTime(),
+                response.getStatus(), null);
+    }
+
+    @Override
+    public <T extends Request> void fire(T request, byte[] requestBytes) {
+        record(Direction.REQUEST, request.responseType(), request.getId(), request.getNanoTime(),
+                GameStatus.UNKNOWN, requestBytes);
+    }
+
+    @Override
+    public <T extends Response> void fire(T response, byte[] responseBytes) {
+        record(Direction.RESPONSE, response.getType(), response.getId(), response.getNanoTime(),
+                response.getStatus(), responseBytes);
+    }
+
+    private void record(
+            Direction direction, ResponseType type, int id, long nanoTime, GameStatus status, byte[] payload) {
+        store(cursor.getAndIncrement(), direction, type, id, nanoTime, status, payload);
+
+        if (isSet(payloadWriter) && isSet(payload) && sampleCounter.getAndIncrement() % payloadSampling == 0) {
+            if (!payloadWriter.offer(new Payload(direction, id, nanoTime, payload))) {
+                droppedPayloads.incrementAndGet();
+            }
+        }
+    }
+
+    private void store(
+            long sequence, Direction direction, ResponseType type, int id, long nanoTime, GameStatus status,
+            byte[] payload) {
+        int slot = (int) (sequence & mask);
+
+        // Seqlock: the version of the slot is odd while a record is written and even once it is published. A writer
+        // never waits: it drops its record when a newer record already claimed the slot, or when the slot is being
+        // written by another writer that was lapped by the whole ring buffer.
+        long writing = writingVersion(sequence);
+        long current = versions.get(slot);
+        if (current >= writing || (current & 1L) == 1L || !versions.compareAndSet(slot, current, writing)) {
+            droppedRecords.incrementAndGet();
+            return;
+        }
+        VarHandle.releaseFence();
+        nanoTimes[slot] = nanoTime;
+        ids[slot] = id;
+        sizes[slot] = isSet(payload) ? payload.length : NO_SIZE;
+        directions[slot] = (byte) direction.ordinal();
+        types[slot] = (byte) type.ordinal();
+        statuses[slot] = (byte) status.ordinal();
+        versions.set(slot, writing + 1);
+    }
+
+    private static long writingVersion(long sequence) {
+        return 2 * sequence + 1;
+    }
+
+    /**
+     * @return the most recent records (up to the ring buffer capacity) in the order they were traced. Records being
+     * overwritten concurrently are skipped.
+     */
+    public List<Record> records() {
+        long end = cursor.get();
+        long start = Math.max(0, end - (mask + 1));
+        List<Record> records = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            int slot = (int) (sequence & mask);
+            long published = writingVersion(sequence) + 1;
+            if (versions.get(slot) != published) continue;
+            long nanoTime = nanoTimes[slot];
+            int id = ids[slot];
+            int size = sizes[slot];
+            byte direction = directions[slot];
+            byte type = types[slot];
+            byte status = statuses[slot];
+            // Keeps the reads of the record before the check that no writer claimed the slot in the meantime.
+            VarHandle.acquireFence();
+            if (versions.get(slot) != published) continue;
+            records.add(new Record(
+                    Direction.values()[direction],
+                    ResponseType.values()[type],
+                    id,
+                    size,
+                    nanoTime,
+                    GameStatus.values()[status]));
+        }
+        return records;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public long recordedCount() {
+        return cursor.get();
+    }
+
+    /**
+     * @return number of records dropped because their slot already held a newer record, or was still being written
+     * by a writer lapped by the whole ring buffer (the newest records then miss one record per drop)
+     */
+    public long droppedRecordCount() {
+        return droppedRecords.get();
+    }
+
+    public long droppedPayloadCount() {
+        return droppedPayloads.get();
+    }
+
+    /**
+     * Stops the payload writer after all queued payloads are flushed.
+     */
+    @Override
+    public void close() {
+        if (isSet(payloadWriter)) payloadWriter.close();
+    }
+
+    private static final class Payload {
+        private final Direction direction;
+        private final int id;
+        private final long nanoTime;
+        private final byte[] bytes;
+
+        private Payload(Direction direction, int id, long nanoTime, byte[] bytes) {
+            this.direction = direction;
+            this.id = id;
+            this.nanoTime = nanoTime;
+            this.bytes = bytes;
+        }
+    }
+
+    private final class PayloadWriter implements Runnable {
+        private static final long POLL_TIMEOUT_IN_MILLIS = 100L;
+
+        private final BlockingQueue<Payload> queue;
+        private final AtomicBoolean running = new AtomicBoolean(true);
+        private final DataOutputStream output;
+        private final Thread thread;
+
+        private PayloadWriter(Path payloadFile, int queueSize) {
+            try {
+                this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(payloadFile)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(format("Unable to open payload file: %s", payloadFile), e);
+            }
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+            this.thread = new Thread(this, "ocraft-tracer-payload-writer");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        private boolean offer(Payload payload) {
+            return running.get() && queue.offer(payload);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running.get() || !queue.isEmpty()) {
+                    Payload payload = queue.poll(POLL_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+                    if (isSet(payload)) write(payload);
+                }
+            } catch (InterruptedException e) {
+                log.debug("Payload writer was interrupted.", e);
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                log.error("Payload writer failed.", e);
+                running.set(false);
+            } finally {
+                closeOutput();
+            }
+        }
+
+        private void write(Payload payload) throws IOException {
+            output.writeByte(payload.direction.ordinal());
+            output.writeInt(payload.id);
+            output.writeLong(payload.nanoTime);
+            output.writeInt(payload.bytes.length);
+            output.write(payload.bytes);
+        }
+
+        private void closeOutput() {
+            try {
+                output.close();
+            } catch (IOException e) {
+                log.error("Unable to close payload file.", e);
+            }
+        }
+
+        private void close() {
+            running.set(false);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                log.debug("Thread was interrupted.", e);
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
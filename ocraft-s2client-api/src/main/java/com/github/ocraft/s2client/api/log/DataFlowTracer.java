@@ -41,4 +41,12 @@ public class DataFlowTracer {
     public <T extends Response> void fire(T response) {
         log.trace("{}", response);
     }
+
+    public <T extends Request> void fire(T request, byte[] requestBytes) {
+        fire(request);
+    }
+
+    public <T extends Response> void fire(T response, byte[] responseBytes) {
+        fire(response);
+    }
 }
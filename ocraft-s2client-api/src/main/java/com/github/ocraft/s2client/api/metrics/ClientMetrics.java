@@ -0,0 +1,82 @@
+package com.github.ocraft.s2client.api.metrics;
+
+/*-
+ * #%L
+ * ocraft-s2client-api
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.request.Request;
+import com.github.ocraft.s2client.protocol.response.Response;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Instrumentation surface of the client stack. All callbacks are invoked on the hot path (request sending, response
+ * parsing, bot step) so implementations must be cheap and thread safe. Default implementation ignores everything.
+ *
+ * @see HistogramMetrics
+ */
+public interface ClientMetrics {
+
+    ClientMetrics NONE = new ClientMetrics() {
+    };
+
+    /**
+     * Called after request was serialized and is about to be sent.
+     *
+     * @param request            The request.
+     * @param sizeInBytes        Size of the serialized request.
+     * @param serializationNanos Time spent on serialization.
+     */
+    default void onRequest(Request request, int sizeInBytes, long serializationNanos) {
+    }
+
+    /**
+     * Called after response was received and converted.
+     *
+     * @param response        The response.
+     * @param sizeInBytes     Size of the received message.
+     * @param parseNanos      Time spent on protobuf parsing.
+     * @param conversionNanos Time spent on conversion from protobuf to protocol objects.
+     */
+    default void onResponse(Response response, int sizeInBytes, long parseNanos, long conversionNanos) {
+    }
+
+    /**
+     * Called after the bot's onStep function returned.
+     *
+     * @param durationNanos Time spent in the bot's onStep function.
+     */
+    default void onStep(long durationNanos) {
+    }
+
+    /**
+     * Registers gauge (i.e. queue depth) sampled at the moment of taking a snapshot.
+     *
+     * @param name  The gauge name.
+     * @param gauge The gauge value supplier.
+     */
+    default void gauge(String name, IntSupplier gauge) {
+    }
+}
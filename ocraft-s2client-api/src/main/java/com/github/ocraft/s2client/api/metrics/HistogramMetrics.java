@@ -0,0 +1,191 @@
+package com.github.ocraft.s2client.api.metrics;
+
+/*-
+ * #%L
+ * ocraft-s2client-api
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.request.Request;
+import com.github.ocraft.s2client.protocol.response.Response;
+import com.github.ocraft.s2client.protocol.response.ResponseType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.isSet;
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Metrics implementation backed by {@link LatencyHistogram}s. Latencies are kept per {@link ResponseType}, snapshots
+ * can be taken on demand or exported periodically.
+ */
+public class HistogramMetrics implements ClientMetrics, AutoCloseable {
+
+    private static final int IN_FLIGHT_CAPACITY = 1024;
+    private static final int IN_FLIGHT_MASK = IN_FLIGHT_CAPACITY - 1;
+    private static final int NO_REQUEST = 0;
+
+    private final Logger log = LoggerFactory.getLogger(HistogramMetrics.class);
+
+    private final LatencyHistogram[] roundTrip = histograms();
+    private final LatencyHistogram[] serialization = histograms();
+    private final LatencyHistogram[] parse = histograms();
+    private final LatencyHistogram[] conversion = histograms();
+    private final LatencyHistogram onStep = new LatencyHistogram();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final Map<String, IntSupplier> gauges = new ConcurrentHashMap<>();
+
+    // Requests waiting for response indexed by request id, ids are sequential so the collisions are unlikely.
+    private final AtomicIntegerArray inFlightIds = new AtomicIntegerArray(IN_FLIGHT_CAPACITY);
+    private final AtomicLongArray inFlightNanoTimes = new AtomicLongArray(IN_FLIGHT_CAPACITY);
+
+    private ScheduledExecutorService reporter;
+
+    private static LatencyHistogram[] histograms() {
+        LatencyHistogram[] histograms = new LatencyHistogram[ResponseType.values().length];
+        for (int i = 0; i < histograms.length; i++) histograms[i] = new LatencyHistogram();
+        return histograms;
+    }
+
+    @Override
+    public void onRequest(Request request, int sizeInBytes, long serializationNanos) {
+        int slot = request.getId() & IN_FLIGHT_MASK;
+        inFlightNanoTimes.set(slot, request.getNanoTime());
+        inFlightIds.set(slot, request.getId());
+        serialization[request.responseType().ordinal()].record(serializationNanos);
+        bytesOut.add(sizeInBytes);
+    }
+
+    @Override
+    public void onResponse(Response response, int sizeInBytes, long parseNanos, long conversionNanos) {
+        int type = response.getType().ordinal();
+        int slot = response.getId() & IN_FLIGHT_MASK;
+        if (response.getId() != NO_REQUEST && inFlightIds.compareAndSet(slot, response.getId(), NO_REQUEST)) {
+            roundTrip[type].record(response.getNanoTime() - inFlightNanoTimes.get(slot));
+        }
+        parse[type].record(parseNanos);
+        conversion[type].record(conversionNanos);
+        bytesIn.add(sizeInBytes);
+    }
+
+    @Override
+    public void onStep(long durationNanos) {
+        onStep.record(durationNanos);
+    }
+
+    @Override
+    public void gauge(String name, IntSupplier gauge) {
+        require("gauge name", name);
+        require("gauge", gauge);
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * @return Cumulative metrics since the creation.
+     */
+    public MetricsSnapshot snapshot() {
+        return snapshot(false);
+    }
+
+    /**
+     * @return Metrics gathered since the previous reset. Byte counters and gauges are not reset.
+     */
+    public MetricsSnapshot snapshotAndReset() {
+        return snapshot(true);
+    }
+
+    private MetricsSnapshot snapshot(boolean reset) {
+        Map<String, Integer> gaugeValues = new LinkedHashMap<>();
+        gauges.forEach((name, gauge) -> gaugeValues.put(name, gauge.getAsInt()));
+        return new MetricsSnapshot(
+                System.currentTimeMillis(),
+                snapshotOf(roundTrip, reset),
+                snapshotOf(serialization, reset),
+                snapshotOf(parse, reset),
+                snapshotOf(conversion, reset),
+                reset ? onStep.snapshotAndReset() : onStep.snapshot(),
+                bytesIn.sum(),
+                bytesOut.sum(),
+                gaugeValues);
+    }
+
+    private static Map<ResponseType, LatencySnapshot> snapshotOf(LatencyHistogram[] histograms, boolean reset) {
+        Map<ResponseType, LatencySnapshot> snapshots = new EnumMap<>(ResponseType.class);
+        for (ResponseType type : ResponseType.values()) {
+            LatencyHistogram histogram = histograms[type.ordinal()];
+            LatencySnapshot snapshot = reset ? histogram.snapshotAndReset() : histogram.snapshot();
+            if (snapshot.getCount() > 0) snapshots.put(type, snapshot);
+        }
+        return snapshots;
+    }
+
+    /**
+     * Exports interval snapshots (see {@link #snapshotAndReset()}) to the consumer on a background thread.
+     *
+     * @param periodInMillis Export period.
+     * @param exporter       Consumer of snapshots, i.e. adapter to the monitoring system.
+     */
+    public synchronized HistogramMetrics reportEvery(long periodInMillis, Consumer<MetricsSnapshot> exporter) {
+        require("exporter", exporter);
+        if (periodInMillis <= 0) throw new IllegalArgumentException("period must be greater than 0");
+        close();
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ocraft-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> {
+            try {
+                exporter.accept(snapshotAndReset());
+            } catch (Exception e) {
+                log.error("Metrics export failed.", e);
+            }
+        }, periodInMillis, periodInMillis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * Stops periodic export.
+     */
+    @Override
+    public synchronized void close() {
+        if (isSet(reporter)) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.ocraft.s2client.api.metrics;
+
+/*-
+ * #%L
+ * ocraft-s2client-api
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram of non negative values (i.e. nanoseconds). Every power of two is split into
+ * 8 linear sub buckets so reported percentiles are within 12.5% of the recorded values. Recording does not allocate.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(indexOf(v));
+        sum.add(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    public LatencySnapshot snapshot() {
+        long[] buckets = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) buckets[i] = counts.get(i);
+        return summarize(buckets, sum.sum(), max.get());
+    }
+
+    /**
+     * Takes snapshot of values recorded since the last reset. Values recorded concurrently with the reset may be
+     * attributed to the next interval.
+     */
+    public LatencySnapshot snapshotAndReset() {
+        long[] buckets = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) buckets[i] = counts.getAndSet(i, 0);
+        return summarize(buckets, sum.sumThenReset(), max.getAndSet(0));
+    }
+
+    // The total is summed from the buckets of the snapshot, so it always matches the percentiles computed from them.
+    private static LatencySnapshot summarize(long[] buckets, long sum, long max) {
+        long total = 0;
+        for (long bucket : buckets) total += bucket;
+        if (total == 0) return LatencySnapshot.EMPTY;
+        return new LatencySnapshot(
+                total,
+                sum / total,
+                percentile(buckets, total, 0.5, max),
+                percentile(buckets, total, 0.9, max),
+                percentile(buckets, total, 0.99, max),
+                max);
+    }
+
+    private static long percentile(long[] buckets, long total, double percentile, long max) {
+        long rank = (long) Math.ceil(percentile * total);
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += buckets[i];
+            if (cumulative >= rank) return Math.min(upperBoundOf(i), max);
+        }
+        return max;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.ocraft.s2client.api.metrics;
+
+/*-
+ * #%L
+ * ocraft-s2client-api
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+
+public final class LatencySnapshot {
+
+    static final LatencySnapshot EMPTY = new LatencySnapshot(0, 0, 0, 0, 0, 0);
+
+    private final long count;
+    private final long mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long max;
+
+    LatencySnapshot(long count, long mean, long p50, long p90, long p99, long max) {
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMean() {
+        return mean;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        LatencySnapshot that = (LatencySnapshot) o;
+
+        return count == that.count && mean == that.mean && p50 == that.p50 && p90 == that.p90 &&
+                p99 == that.p99 && max == that.max;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(count);
+        result = 31 * result + Long.hashCode(mean);
+        result = 31 * result + Long.hashCode(p50);
+        result = 31 * result + Long.hashCode(p90);
+        result = 31 * result + Long.hashCode(p99);
+        result = 31 * result + Long.hashCode(max);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "count=" + count +
+                ", meanUs=" + TimeUnit.NANOSECONDS.toMicros(mean) +
+                ", p50Us=" + TimeUnit.NANOSECONDS.toMicros(p50) +
+                ", p90Us=" + TimeUnit.NANOSECONDS.toMicros(p90) +
+                ", p99Us=" + TimeUnit.NANOSECONDS.toMicros(p99) +
+                ", maxUs=" + TimeUnit.NANOSECONDS.toMicros(max) +
+                '}';
+    }
+}
@@ -0,0 +1,123 @@
+package com.github.ocraft.s2client.api.metrics;
+
+/*-
+ * #%L
+ * ocraft-s2client-api
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.response.ResponseType;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable view of the client metrics. All latencies are in nanoseconds.
+ */
+public final class MetricsSnapshot {
+
+    private final long timestampInMillis;
+    private final Map<ResponseType, LatencySnapshot> roundTrip;
+    private final Map<ResponseType, LatencySnapshot> serialization;
+    private final Map<ResponseType, LatencySnapshot> parse;
+    private final Map<ResponseType, LatencySnapshot> conversion;
+    private final LatencySnapshot onStep;
+    private final long bytesIn;
+    private final long bytesOut;
+    private final Map<String, Integer> gauges;
+
+    MetricsSnapshot(
+            long timestampInMillis,
+            Map<ResponseType, LatencySnapshot> roundTrip,
+            Map<ResponseType, LatencySnapshot> serialization,
+            Map<ResponseType, LatencySnapshot> parse,
+            Map<ResponseType, LatencySnapshot> conversion,
+            LatencySnapshot onStep,
+            long bytesIn,
+            long bytesOut,
+            Map<String, Integer> gauges) {
+        this.timestampInMillis = timestampInMillis;
+        this.roundTrip = Collections.unmodifiableMap(roundTrip);
+        this.serialization = Collections.unmodifiableMap(serialization);
+        this.parse = Collections.unmodifiableMap(parse);
+        this.conversion = Collections.unmodifiableMap(conversion);
+        this.onStep = onStep;
+        this.bytesIn = bytesIn;
+        this.bytesOut = bytesOut;
+        this.gauges = Collections.unmodifiableMap(gauges);
+    }
+
+    public long getTimestampInMillis() {
+        return timestampInMillis;
+    }
+
+    /**
+     * Time from the request creation to the moment the matching response was converted.
+     */
+    public Map<ResponseType, LatencySnapshot> getRoundTrip() {
+        return roundTrip;
+    }
+
+    public Map<ResponseType, LatencySnapshot> getSerialization() {
+        return serialization;
+    }
+
+    public Map<ResponseType, LatencySnapshot> getParse() {
+        return parse;
+    }
+
+    public Map<ResponseType, LatencySnapshot> getConversion() {
+        return conversion;
+    }
+
+    public LatencySnapshot getOnStep() {
+        return onStep;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public Map<String, Integer> getGauges() {
+        return gauges;
+    }
+
+    @Override
+    public String toString() {
+        return "MetricsSnapshot{" +
+                "timestampInMillis=" + timestampInMillis +
+                ", roundTrip=" + roundTrip +
+                ", serialization=" + serialization +
+                ", parse=" + parse +
+                ", conversion=" + conversion +
+                ", onStep=" + onStep +
+                ", bytesIn=" + bytesIn +
+                ", bytesOut=" + bytesOut +
+                ", gauges=" + gauges +
+                '}';
+    }
+}
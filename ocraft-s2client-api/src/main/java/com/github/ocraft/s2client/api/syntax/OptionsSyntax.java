@@ -26,10 +26,14 @@ package com.github.ocraft.s2client.api.syntax;
  * #L%
  */
 
+import com.github.ocraft.s2client.api.metrics.ClientMetrics;
+
 public interface OptionsSyntax extends TracedSyntax {
     OptionsSyntax requestTimeout(Integer timeoutInMillis);
 
     OptionsSyntax connectTimeout(Integer timeoutInMillis);
 
     OptionsSyntax onConnectionLost(Runnable callback);
+
+    OptionsSyntax withMetrics(ClientMetrics metrics);
 }
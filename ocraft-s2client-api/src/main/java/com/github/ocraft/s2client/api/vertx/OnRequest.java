@@ -84,6 +84,10 @@ class OnRequest extends DefaultObserver<byte[]> implements ConnectionHandler {
         drain();
     }
 
+    int queueDepth() {
+        return counter.get();
+    }
+
     private void drain() {
         while (connected.get() && !queue.isEmpty()) {
             byte[] msg = queue.poll();
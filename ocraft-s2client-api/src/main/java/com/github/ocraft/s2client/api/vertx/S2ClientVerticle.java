@@ -59,6 +59,7 @@ class S2ClientVerticle extends AbstractVerticle {
     S2ClientVerticle(VertxChannel channel) {
         this.channel = channel;
         this.onRequest = new OnRequest(channel);
+        channel.requestQueueDepth(onRequest::queueDepth);
         channel.inputStream().subscribe(onRequest);
     }
 
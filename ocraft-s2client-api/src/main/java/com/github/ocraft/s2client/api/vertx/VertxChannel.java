@@ -38,6 +38,8 @@ import org.slf4j.LoggerFactory;
 
 import java.nio.BufferOverflowException;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
 
 import static com.github.ocraft.s2client.api.OcraftApiConfig.*;
 import static com.github.ocraft.s2client.protocol.Preconditions.isSet;
@@ -54,8 +56,11 @@ public class VertxChannel implements Channel {
     private final Subject<byte[]> errorStream = PublishSubject.<byte[]>create().toSerialized();
     private final MessageProducer<byte[]> inputMessageProducer;
     private final MessageProducer<byte[]> outputMessageProducer;
+    private final AtomicInteger inputPending = new AtomicInteger();
+    private final AtomicInteger outputPending = new AtomicInteger();
     private volatile boolean connected;
     private Runnable onConnectionLost;
+    private IntSupplier requestQueueDepth = () -> 0;
 
     static VertxChannel from(EventBus eventBus) {
         return new VertxChannel(eventBus);
@@ -80,17 +85,22 @@ public class VertxChannel implements Channel {
                 .<byte[]>consumer(OUTPUT_STREAM)
                 .toObservable()
                 .map(Message::body)
+                .doOnNext(msg -> outputPending.decrementAndGet())
                 .doOnComplete(errorStream::onComplete);
     }
 
     private Observable<byte[]> initInputStream(EventBus eventBus) {
         log.debug("registering event bus consumer [{}] for input stream", INPUT_STREAM);
-        return eventBus.<byte[]>consumer(INPUT_STREAM).toObservable().map(Message::body);
+        return eventBus.<byte[]>consumer(INPUT_STREAM)
+                .toObservable()
+                .map(Message::body)
+                .doOnNext(msg -> inputPending.decrementAndGet());
     }
 
     @Override
     public void input(byte[] inputBytes) {
         if (!inputMessageProducer.writeQueueFull()) {
+            inputPending.incrementAndGet();
             inputMessageProducer.write(inputBytes);
         } else {
             throw new BufferOverflowException();
@@ -100,6 +110,7 @@ public class VertxChannel implements Channel {
     @Override
     public void output(byte[] outputBytes) {
         if (!outputMessageProducer.writeQueueFull()) {
+            outputPending.incrementAndGet();
             outputMessageProducer.write(outputBytes);
         } else {
             throw new BufferOverflowException();
@@ -136,6 +147,25 @@ public class VertxChannel implements Channel {
         this.onConnectionLost = onConnectionLost;
     }
 
+    @Override
+    public int inputQueueDepth() {
+        return inputPending.get();
+    }
+
+    @Override
+    public int outputQueueDepth() {
+        return outputPending.get();
+    }
+
+    @Override
+    public int requestQueueDepth() {
+        return requestQueueDepth.getAsInt();
+    }
+
+    void requestQueueDepth(IntSupplier requestQueueDepth) {
+        this.requestQueueDepth = requestQueueDepth;
+    }
+
     void connected() {
         if (!connected) {
             connected = true;
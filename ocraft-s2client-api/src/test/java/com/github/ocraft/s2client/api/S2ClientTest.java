@@ -73,8 +73,8 @@ class S2ClientTest {
         client.channel().output(sc2ApiResponse);
         delay(200);
 
-        verify(tracer).fire(ping);
-        verify(tracer).fire(any(ResponsePing.class));
+        verify(tracer).fire(eq(ping), any(byte[].class));
+        verify(tracer).fire(any(ResponsePing.class), eq(sc2ApiResponse));
 
         client.stop();
     }
@@ -0,0 +1,141 @@
+package com.github.ocraft.s2client.api.log;
+
+/*-
+ * #%L
+ * ocraft-s2client-api
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.RequestSerializer;
+import com.github.ocraft.s2client.protocol.ResponseParser;
+import com.github.ocraft.s2client.protocol.game.GameStatus;
+import com.github.ocraft.s2client.protocol.request.RequestPing;
+import com.github.ocraft.s2client.protocol.response.Response;
+import com.github.ocraft.s2client.protocol.response.ResponseType;
+import com.github.ocraft.s2client.test.MultiThreadedStressTester;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.github.ocraft.s2client.api.log.BinaryDataFlowTracer.binaryTracer;
+import static com.github.ocraft.s2client.protocol.request.Requests.ping;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class BinaryDataFlowTracerTest {
+
+    private static final byte[] sc2ApiResponse = new byte[]{
+            -102, 1, 56, 10, 12, 51, 46, 49, 55, 46, 49, 46, 53, 55, 50, 49, 56, 18, 32, 51, 70, 50, 70, 67, 69, 68, 48,
+            56, 55, 57, 56, 68, 56, 51, 66, 56, 55, 51, 66, 53, 53, 52, 51, 66, 69, 70, 65, 54, 67, 52, 66, 24, -126,
+            -65, 3, 32, -45, -69, 3};
+
+    @Test
+    void recordsMetadataOfRequestsAndResponses() {
+        BinaryDataFlowTracer tracer = binaryTracer().ringBufferSize(8).build();
+        RequestPing ping = ping();
+        byte[] pingBytes = new RequestSerializer().apply(ping);
+        Response response = new ResponseParser().apply(sc2ApiResponse);
+
+        tracer.fire(ping, pingBytes);
+        tracer.fire(response, sc2ApiResponse);
+
+        List<BinaryDataFlowTracer.Record> records = tracer.records();
+        assertThat(records).hasSize(2);
+        assertThat(records.get(0).getDirection()).isEqualTo(BinaryDataFlowTracer.Direction.REQUEST);
+        assertThat(records.get(0).getType()).isEqualTo(ResponseType.PING);
+        assertThat(records.get(0).getId()).isEqualTo(ping.getId());
+        assertThat(records.get(0).getSize()).isEqualTo(pingBytes.length);
+        assertThat(records.get(0).getNanoTime()).isEqualTo(ping.getNanoTime());
+        assertThat(records.get(1).getDirection()).isEqualTo(BinaryDataFlowTracer.Direction.RESPONSE);
+        assertThat(records.get(1).getType()).isEqualTo(ResponseType.PING);
+        assertThat(records.get(1).getSize()).isEqualTo(sc2ApiResponse.length);
+        assertThat(records.get(1).getStatus()).isEqualTo(response.getStatus());
+    }
+
+    @Test
+    void keepsOnlyTheMostRecentRecords() {
+        BinaryDataFlowTracer tracer = binaryTracer().ringBufferSize(5).build();
+        for (int i = 0; i < 20; i++) tracer.fire(ping());
+
+        List<BinaryDataFlowTracer.Record> records = tracer.records();
+
+        assertThat(tracer.capacity()).as("capacity rounded to power of two").isEqualTo(8);
+        assertThat(tracer.recordedCount()).isEqualTo(20);
+        assertThat(tracer.droppedRecordCount()).isZero();
+        assertThat(records).hasSize(8);
+        assertThat(records).extracting(BinaryDataFlowTracer.Record::getId).isSorted();
+        assertThat(records).allMatch(record -> record.getSize() == -1 && record.getStatus() == GameStatus.UNKNOWN);
+    }
+
+    @Test
+    void isSafeToUseFromManyThreads() throws InterruptedException {
+        BinaryDataFlowTracer tracer = binaryTracer().ringBufferSize(1024).build();
+        MultiThreadedStressTester stressTester = new MultiThreadedStressTester(4, 1000);
+
+        stressTester.stress(() -> tracer.fire(ping()));
+
+        assertThat(stressTester.errorOccurred()).as("error occurred").isFalse();
+        assertThat(tracer.recordedCount()).isEqualTo(stressTester.totalActionCount());
+        // A writer never waits, the record of a writer lapping a stalled one is dropped and counted instead.
+        List<BinaryDataFlowTracer.Record> records = tracer.records();
+        assertThat(records.size()).isBetween((int) Math.max(0, 1024 - tracer.droppedRecordCount()), 1024);
+        assertThat(records).allSatisfy(record -> assertThat(record.getType()).isEqualTo(ResponseType.PING));
+    }
+
+    @Test
+    void dumpsSampledPayloadsInBinaryForm() throws IOException {
+        Path payloadFile = Files.createTempFile("ocraft-tracer", ".bin");
+        try {
+            BinaryDataFlowTracer tracer = binaryTracer().payloadSampling(2).dumpPayloadsTo(payloadFile).build();
+            Response response = new ResponseParser().apply(sc2ApiResponse);
+            for (int i = 0; i < 4; i++) tracer.fire(response, sc2ApiResponse);
+            tracer.close();
+
+            try (DataInputStream input = new DataInputStream(Files.newInputStream(payloadFile))) {
+                for (int i = 0; i < 2; i++) {
+                    assertThat(input.readByte()).isEqualTo((byte) BinaryDataFlowTracer.Direction.RESPONSE.ordinal());
+                    assertThat(input.readInt()).isEqualTo(response.getId());
+                    assertThat(input.readLong()).isEqualTo(response.getNanoTime());
+                    byte[] payload = new byte[input.readInt()];
+                    input.readFully(payload);
+                    assertThat(payload).isEqualTo(sc2ApiResponse);
+                }
+                assertThat(input.read()).as("end of payload file").isEqualTo(-1);
+            }
+            assertThat(tracer.droppedPayloadCount()).isZero();
+        } finally {
+            Files.deleteIfExists(payloadFile);
+        }
+    }
+
+    @Test
+    void throwsExceptionWhenPayloadFileIsNotSetForSampling() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> binaryTracer().payloadSampling(1).build())
+                .withMessage("payload file is required");
+    }
+}
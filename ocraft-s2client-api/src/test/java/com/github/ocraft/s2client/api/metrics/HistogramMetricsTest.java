@@ -0,0 +1,136 @@
+package com.github.ocraft.s2client.api.metrics;
+
+/*-
+ * #%L
+ * ocraft-s2client-api
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Sc2Api;
+import com.github.ocraft.s2client.protocol.request.RequestPing;
+import com.github.ocraft.s2client.protocol.response.ResponsePing;
+import com.github.ocraft.s2client.protocol.response.ResponseType;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.ocraft.s2client.protocol.request.Requests.ping;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class HistogramMetricsTest {
+
+    @Test
+    void histogramReportsPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) histogram.record(i * 1000L);
+
+        LatencySnapshot snapshot = histogram.snapshot();
+
+        assertThat(snapshot.getCount()).isEqualTo(1000);
+        assertThat(snapshot.getMean()).isEqualTo(500500L);
+        assertThat(snapshot.getMax()).isEqualTo(1000000L);
+        assertThat(snapshot.getP50()).isBetween(500000L, 562500L);
+        assertThat(snapshot.getP90()).isBetween(900000L, 1000000L);
+        assertThat(snapshot.getP99()).isBetween(990000L, 1000000L);
+    }
+
+    @Test
+    void histogramBucketsCoverWholeRangeOfValues() {
+        for (long value : new long[]{0, 1, 7, 8, 9, 15, 16, 1023, 1024, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertThat(LatencyHistogram.upperBoundOf(index)).as("upper bound of %d", value).isGreaterThanOrEqualTo(value);
+            if (index > 0) {
+                assertThat(LatencyHistogram.upperBoundOf(index - 1)).as("lower bound of %d", value).isLessThan(value);
+            }
+        }
+    }
+
+    @Test
+    void resetsIntervalMetrics() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+
+        assertThat(histogram.snapshotAndReset().getCount()).isEqualTo(1);
+        assertThat(histogram.snapshot()).isEqualTo(LatencySnapshot.EMPTY);
+    }
+
+    @Test
+    void measuresRoundTripOfMatchingRequestAndResponse() {
+        HistogramMetrics metrics = new HistogramMetrics();
+        RequestPing ping = ping();
+
+        metrics.onRequest(ping, 10, 1000);
+        metrics.onResponse(responsePingFor(ping), 100, 2000, 3000);
+        metrics.onResponse(responsePingFor(ping), 100, 2000, 3000);
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertThat(snapshot.getRoundTrip()).containsOnlyKeys(ResponseType.PING);
+        assertThat(snapshot.getRoundTrip().get(ResponseType.PING).getCount()).as("duplicated response").isEqualTo(1);
+        assertThat(snapshot.getSerialization().get(ResponseType.PING).getMax()).isEqualTo(1000);
+        assertThat(snapshot.getParse().get(ResponseType.PING).getCount()).isEqualTo(2);
+        assertThat(snapshot.getConversion().get(ResponseType.PING).getMax()).isEqualTo(3000);
+        assertThat(snapshot.getBytesOut()).isEqualTo(10);
+        assertThat(snapshot.getBytesIn()).isEqualTo(200);
+    }
+
+    @Test
+    void samplesGaugesOnSnapshot() {
+        HistogramMetrics metrics = new HistogramMetrics();
+        int[] depth = {3};
+        metrics.gauge("queue", () -> depth[0]);
+
+        assertThat(metrics.snapshot().getGauges()).containsEntry("queue", 3);
+        depth[0] = 5;
+        assertThat(metrics.snapshot().getGauges()).containsEntry("queue", 5);
+    }
+
+    @Test
+    void exportsSnapshotsPeriodically() throws Exception {
+        CompletableFuture<MetricsSnapshot> exported = new CompletableFuture<>();
+        try (HistogramMetrics metrics = new HistogramMetrics()) {
+            metrics.onStep(TimeUnit.MILLISECONDS.toNanos(5));
+            metrics.reportEvery(10, exported::complete);
+
+            assertThat(exported.get(5, TimeUnit.SECONDS).getOnStep().getCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void throwsExceptionWhenExportPeriodIsNotPositive() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new HistogramMetrics().reportEvery(0, snapshot -> {
+                }))
+                .withMessage("period must be greater than 0");
+    }
+
+    private static ResponsePing responsePingFor(RequestPing ping) {
+        return ResponsePing.from(Sc2Api.Response.newBuilder()
+                .setId(ping.getId())
+                .setStatus(Sc2Api.Status.launched)
+                .setPing(Sc2Api.ResponsePing.newBuilder()
+                        .setGameVersion("4.7.1").setDataVersion("DATA").setDataBuild(1).setBaseBuild(1))
+                .build());
+    }
+}
@@ -0,0 +1,154 @@
+package com.github.ocraft.s2client.bot;
+
+/*-
+ * #%L
+ * ocraft-s2client-benchmark
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Data;
+import com.github.ocraft.s2client.bot.planning.BuildOrder;
+import com.github.ocraft.s2client.bot.planning.BuildOrderSearchResult;
+import com.github.ocraft.s2client.bot.planning.BuildOrderSimulator;
+import com.github.ocraft.s2client.bot.planning.EconomyState;
+import com.github.ocraft.s2client.bot.planning.ProductionData;
+import com.github.ocraft.s2client.protocol.data.UnitTypeData;
+import com.github.ocraft.s2client.protocol.data.Units;
+import com.github.ocraft.s2client.protocol.data.UpgradeData;
+import com.github.ocraft.s2client.protocol.data.Upgrades;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Fork(value = 1, warmups = 1)
+@Threads(1)
+public class BuildOrderBenchmark {
+
+    private static final int CANDIDATE_COUNT = 1000;
+    private static final int ORDER_LENGTH = 20;
+
+    @State(Scope.Benchmark)
+    public static class Context {
+
+        @Param({"1", "4"})
+        private int parallelism;
+
+        private ForkJoinPool pool;
+        private BuildOrderSimulator simulator;
+        private EconomyState start;
+        private List<BuildOrder> candidates;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            ProductionData data = ProductionData.compile(
+                    Arrays.asList(
+                            unitType(Units.TERRAN_SCV, 50, 272, 1, 0, null),
+                            unitType(Units.TERRAN_SUPPLY_DEPOT, 100, 480, 0, 8, null),
+                            unitType(Units.TERRAN_BARRACKS, 150, 1040, 0, 0, Units.TERRAN_SUPPLY_DEPOT),
+                            unitType(Units.TERRAN_MARINE, 50, 400, 1, 0, Units.TERRAN_BARRACKS)),
+                    Collections.singletonList(UpgradeData.from(Data.UpgradeData.newBuilder()
+                            .setUpgradeId(Upgrades.STIMPACK.getUpgradeId())
+                            .setName(Upgrades.STIMPACK.name())
+                            .setMineralCost(100)
+                            .setResearchTime(2240)
+                            .build())));
+            pool = new ForkJoinPool(parallelism);
+            simulator = BuildOrderSimulator.builder(data).withPool(pool).build();
+            start = new EconomyState(data)
+                    .setMinerals(50)
+                    .setIncomePerMinute(660, 0)
+                    .setSupply(12, 15)
+                    .setProductionSlots(3)
+                    .addOwned(data.itemOf(Units.TERRAN_SCV), 12);
+            int[] items = {
+                    data.itemOf(Units.TERRAN_SCV),
+                    data.itemOf(Units.TERRAN_SUPPLY_DEPOT),
+                    data.itemOf(Units.TERRAN_BARRACKS),
+                    data.itemOf(Units.TERRAN_MARINE),
+                    data.itemOf(Upgrades.STIMPACK)};
+            Random random = new Random(1);
+            candidates = new ArrayList<>();
+            for (int i = 0; i < CANDIDATE_COUNT; i++) {
+                int[] order = new int[ORDER_LENGTH];
+                for (int j = 0; j < ORDER_LENGTH; j++) order[j] = items[random.nextInt(items.length)];
+                candidates.add(BuildOrder.of(order));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void doTearDown() {
+            pool.shutdown();
+        }
+
+        private static UnitTypeData unitType(
+                Units type, int minerals, float buildTime, float food, float foodProvided, Units techRequirement) {
+            Data.UnitTypeData.Builder builder = Data.UnitTypeData.newBuilder()
+                    .setUnitId(type.getUnitTypeId())
+                    .setName(type.name())
+                    .setMineralCost(minerals)
+                    .setBuildTime(buildTime)
+                    .setFoodRequired(food)
+                    .setFoodProvided(foodProvided);
+            if (techRequirement != null) builder.setTechRequirement(techRequirement.getUnitTypeId());
+            return UnitTypeData.from(builder.build());
+        }
+    }
+
+    @Benchmark
+    public long sequential(Context ctx) {
+        long best = Long.MAX_VALUE;
+        for (BuildOrder candidate : ctx.candidates) {
+            long completion = ctx.simulator.simulate(ctx.start, candidate);
+            if (completion != BuildOrderSimulator.INFEASIBLE) best = Math.min(best, completion);
+        }
+        return best;
+    }
+
+    @Benchmark
+    public BuildOrderSearchResult search(Context ctx) {
+        return ctx.simulator.search(ctx.start, ctx.candidates, 0, TimeUnit.MILLISECONDS);
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        Options options = new OptionsBuilder()
+                .include(BuildOrderBenchmark.class.getSimpleName())
+                .shouldFailOnError(true).shouldDoGC(true).build();
+
+        new Runner(options).run();
+
+        System.exit(1);
+    }
+}
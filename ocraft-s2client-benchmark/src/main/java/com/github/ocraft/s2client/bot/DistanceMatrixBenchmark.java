@@ -0,0 +1,141 @@
+package com.github.ocraft.s2client.bot;
+
+/*-
+ * #%L
+ * ocraft-s2client-benchmark
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.spatial.PointArray;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Fork(value = 1, warmups = 1)
+@Threads(1)
+public class DistanceMatrixBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Context {
+
+        @Param({"200"})
+        private int unitCount;
+
+        private List<Unit> own;
+        private List<Unit> enemy;
+        private PointArray ownPoints;
+        private PointArray enemyPoints;
+        private float[] matrix;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            Random random = new Random(1);
+            own = units(random, Raw.Alliance.Self);
+            enemy = units(random, Raw.Alliance.Enemy);
+            ownPoints = new PointArray(unitCount);
+            enemyPoints = new PointArray(unitCount);
+            matrix = new float[unitCount * unitCount];
+        }
+
+        private List<Unit> units(Random random, Raw.Alliance alliance) {
+            List<Unit> units = new ArrayList<>();
+            for (int i = 0; i < unitCount; i++) {
+                units.add(Unit.from(Raw.Unit.newBuilder()
+                        .setDisplayType(Raw.DisplayType.Visible)
+                        .setAlliance(alliance)
+                        .setTag(random.nextLong() & Long.MAX_VALUE)
+                        .setUnitType(48)
+                        .setOwner(1)
+                        .setPos(Common.Point.newBuilder()
+                                .setX(random.nextFloat() * 200).setY(random.nextFloat() * 200).setZ(10.0f))
+                        .setFacing(random.nextFloat())
+                        .setRadius(0.375f)
+                        .setBuildProgress(1.0f)
+                        .build()));
+            }
+            return units;
+        }
+    }
+
+    // Positions copied into reused primitive arrays every step, matrix reused.
+    @Benchmark
+    public float[] pointArray(Context ctx) {
+        ctx.ownPoints.clear();
+        ctx.enemyPoints.clear();
+        ctx.ownPoints.addAll(ctx.own);
+        ctx.enemyPoints.addAll(ctx.enemy);
+        return ctx.ownPoints.distanceMatrix(ctx.enemyPoints, ctx.matrix);
+    }
+
+    @Benchmark
+    public float[] unitCoordinates(Context ctx) {
+        int columns = ctx.enemy.size();
+        float[] matrix = ctx.matrix;
+        for (int row = 0; row < ctx.own.size(); row++) {
+            Unit unit = ctx.own.get(row);
+            float x = unit.getX();
+            float y = unit.getY();
+            for (int column = 0; column < columns; column++) {
+                matrix[row * columns + column] = (float) Math.sqrt(ctx.enemy.get(column).distanceSquared(x, y));
+            }
+        }
+        return matrix;
+    }
+
+    // The same matrix computed with the value objects, as bot code does with the protocol types alone.
+    @Benchmark
+    public double[][] point2d(Context ctx) {
+        double[][] matrix = new double[ctx.own.size()][ctx.enemy.size()];
+        for (int row = 0; row < ctx.own.size(); row++) {
+            Point2d from = ctx.own.get(row).getPosition().toPoint2d();
+            for (int column = 0; column < ctx.enemy.size(); column++) {
+                matrix[row][column] = from.distance(ctx.enemy.get(column).getPosition().toPoint2d());
+            }
+        }
+        return matrix;
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        Options options = new OptionsBuilder()
+                .include(DistanceMatrixBenchmark.class.getSimpleName())
+                .shouldFailOnError(true).shouldDoGC(true).build();
+
+        new Runner(options).run();
+
+        System.exit(1);
+    }
+}
@@ -0,0 +1,184 @@
+package com.github.ocraft.s2client.bot;
+
+/*-
+ * #%L
+ * ocraft-s2client-benchmark
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Spatial;
+import com.github.ocraft.s2client.bot.tensor.FeatureLayerEncoder;
+import com.github.ocraft.s2client.bot.tensor.LayerEncoding;
+import com.github.ocraft.s2client.bot.tensor.Layout;
+import com.github.ocraft.s2client.protocol.observation.spatial.FeatureLayers;
+import com.github.ocraft.s2client.protocol.observation.spatial.ImageData;
+import com.google.protobuf.ByteString;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Fork(value = 1, warmups = 1)
+@Threads(1)
+public class FeatureLayerEncoderBenchmark {
+
+    private static final int PLAYER_RELATIVE_CLASSES = 5;
+    private static final int VISIBILITY_CLASSES = 4;
+
+    @State(Scope.Benchmark)
+    public static class Context {
+
+        @Param({"64", "84", "256"})
+        private int resolution;
+
+        private FeatureLayers featureLayers;
+        private FeatureLayerEncoder<FeatureLayers> channelsFirst;
+        private FeatureLayerEncoder<FeatureLayers> channelsLast;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            Random random = new Random(1);
+            featureLayers = FeatureLayers.from(Spatial.FeatureLayers.newBuilder()
+                    .setHeightMap(image(random, 8))
+                    .setVisibilityMap(image(random, 8))
+                    .setCreep(image(random, 1))
+                    .setPower(image(random, 1))
+                    .setPlayerId(image(random, 8))
+                    .setUnitType(image(random, 32))
+                    .setSelected(image(random, 1))
+                    .setUnitHitPoints(image(random, 32))
+                    .setUnitHitPointsRatio(image(random, 8))
+                    .setUnitEnergy(image(random, 32))
+                    .setUnitShields(image(random, 32))
+                    .setPlayerRelative(image(random, 8))
+                    .setUnitDensityAa(image(random, 8))
+                    .setUnitDensity(image(random, 8))
+                    .build());
+            channelsFirst = encoder(Layout.CHANNELS_FIRST);
+            channelsLast = encoder(Layout.CHANNELS_LAST);
+        }
+
+        private FeatureLayerEncoder<FeatureLayers> encoder(Layout layout) {
+            return FeatureLayerEncoder.<FeatureLayers>builder(resolution, resolution)
+                    .layer(FeatureLayers::getHeightMap, LayerEncoding.normalized(255.0f))
+                    .layer(FeatureLayers::getVisibilityMap, LayerEncoding.oneHot(VISIBILITY_CLASSES))
+                    .layer(FeatureLayers::getCreep, LayerEncoding.raw())
+                    .layer(FeatureLayers::getPower, LayerEncoding.raw())
+                    .layer(FeatureLayers::getSelected, LayerEncoding.raw())
+                    .layer(FeatureLayers::getPlayerRelative, LayerEncoding.oneHot(PLAYER_RELATIVE_CLASSES))
+                    .layer(FeatureLayers::getUnitHitPointsRatio, LayerEncoding.normalized(255.0f))
+                    .layer(FeatureLayers::getUnitType, LayerEncoding.raw())
+                    .layout(layout)
+                    .build();
+        }
+
+        private Common.ImageData image(Random random, int bitsPerPixel) {
+            byte[] data = new byte[resolution * resolution * bitsPerPixel / 8];
+            random.nextBytes(data);
+            if (bitsPerPixel == 8) {
+                for (int i = 0; i < data.length; i++) data[i] = (byte) (data[i] & 0x03);
+            }
+            return Common.ImageData.newBuilder()
+                    .setBitsPerPixel(bitsPerPixel)
+                    .setSize(Common.Size2DI.newBuilder().setX(resolution).setY(resolution))
+                    .setData(ByteString.copyFrom(data))
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public FloatBuffer encodeChannelsFirst(Context ctx) {
+        return ctx.channelsFirst.encode(ctx.featureLayers);
+    }
+
+    @Benchmark
+    public FloatBuffer encodeChannelsLast(Context ctx) {
+        return ctx.channelsLast.encode(ctx.featureLayers);
+    }
+
+    // The same tensor built the usual way: byte copy of every layer and per pixel unpacking to a new array.
+    @Benchmark
+    public float[] unpackWithGetData(Context ctx) {
+        FeatureLayers layers = ctx.featureLayers;
+        int pixels = ctx.resolution * ctx.resolution;
+        float[] tensor = new float[ctx.channelsFirst.getChannels() * pixels];
+        int offset = 0;
+        offset = unpack(layers.getHeightMap(), tensor, offset, 1.0f / 255.0f);
+        offset = unpackOneHot(layers.getVisibilityMap(), tensor, offset, VISIBILITY_CLASSES);
+        offset = unpack(layers.getCreep(), tensor, offset, 1.0f);
+        offset = unpack(layers.getPower(), tensor, offset, 1.0f);
+        offset = unpack(layers.getSelected(), tensor, offset, 1.0f);
+        offset = unpackOneHot(layers.getPlayerRelative(), tensor, offset, PLAYER_RELATIVE_CLASSES);
+        offset = unpack(layers.getUnitHitPointsRatio(), tensor, offset, 1.0f / 255.0f);
+        unpack(layers.getUnitType(), tensor, offset, 1.0f);
+        return tensor;
+    }
+
+    private static int unpack(ImageData image, float[] tensor, int offset, float scale) {
+        byte[] data = image.getData();
+        int pixels = image.getSize().getX() * image.getSize().getY();
+        for (int i = 0; i < pixels; i++) tensor[offset + i] = value(image, data, i) * scale;
+        return offset + pixels;
+    }
+
+    private static int unpackOneHot(ImageData image, float[] tensor, int offset, int classes) {
+        byte[] data = image.getData();
+        int pixels = image.getSize().getX() * image.getSize().getY();
+        for (int i = 0; i < pixels; i++) {
+            int value = value(image, data, i);
+            if (value < classes) tensor[offset + value * pixels + i] = 1.0f;
+        }
+        return offset + classes * pixels;
+    }
+
+    private static int value(ImageData image, byte[] data, int i) {
+        switch (image.getBitsPerPixel()) {
+            case 1:
+                return (data[i / 8] >> (i % 8)) & 0x1;
+            case 32:
+                return (data[i * 4] & 0xFF) | (data[i * 4 + 1] & 0xFF) << 8 |
+                        (data[i * 4 + 2] & 0xFF) << 16 | (data[i * 4 + 3] & 0xFF) << 24;
+            default:
+                return data[i] & 0xFF;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        Options options = new OptionsBuilder()
+                .include(FeatureLayerEncoderBenchmark.class.getSimpleName())
+                .shouldFailOnError(true).shouldDoGC(true).build();
+
+        new Runner(options).run();
+
+        System.exit(1);
+    }
+}
@@ -0,0 +1,182 @@
+package com.github.ocraft.s2client.bot;
+
+/*-
+ * #%L
+ * ocraft-s2client-benchmark
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Data;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.bot.analysis.InfluenceMap;
+import com.github.ocraft.s2client.bot.combat.CombatData;
+import com.github.ocraft.s2client.protocol.data.UnitTypeData;
+import com.github.ocraft.s2client.protocol.data.Units;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Fork(value = 1, warmups = 1)
+@Threads(1)
+public class InfluenceMapBenchmark {
+
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 176;
+    private static final int UNITS = 200;
+    private static final int FRAMES = 64;
+    private static final Units[] TYPES = {Units.TERRAN_MARINE, Units.PROTOSS_STALKER, Units.TERRAN_SIEGE_TANK_SIEGED};
+
+    @State(Scope.Benchmark)
+    public static class Context {
+
+        private CombatData combatData;
+        private List<List<Unit>> frames;
+        private int frame;
+        private InfluenceMap influenceMap;
+        private float[] ground;
+        private float[] air;
+
+        // An enemy army of 200 units, half of it static (sieged, holding position), half walking across the map.
+        @Setup(Level.Trial)
+        public void doSetup() {
+            combatData = CombatData.compile(Arrays.asList(
+                    unitType(Units.TERRAN_MARINE, Data.Weapon.TargetType.Any, 6, 5, 0.61f),
+                    unitType(Units.PROTOSS_STALKER, Data.Weapon.TargetType.Any, 13, 6, 1.34f),
+                    unitType(Units.TERRAN_SIEGE_TANK_SIEGED, Data.Weapon.TargetType.Ground, 40, 13, 2.14f)));
+            Random random = new Random(42);
+            float[] x = new float[UNITS];
+            float[] y = new float[UNITS];
+            for (int i = 0; i < UNITS; i++) {
+                x[i] = 40 + random.nextFloat() * 120;
+                y[i] = 40 + random.nextFloat() * 96;
+            }
+            frames = new ArrayList<>(FRAMES);
+            for (int f = 0; f < FRAMES; f++) {
+                List<Unit> units = new ArrayList<>(UNITS);
+                for (int i = 0; i < UNITS; i++) {
+                    // Moving units walk back and forth, about half a cell per frame.
+                    float offset = i % 2 == 0 ? 0.0f : (f < FRAMES / 2 ? f : FRAMES - f) * 0.5f;
+                    units.add(unit(i + 1, TYPES[i % TYPES.length], x[i] + offset, y[i]));
+                }
+                frames.add(units);
+            }
+            influenceMap = InfluenceMap.of(WIDTH, HEIGHT, combatData);
+            ground = new float[WIDTH * HEIGHT];
+            air = new float[WIDTH * HEIGHT];
+        }
+
+        private static Unit unit(long tag, Units type, float x, float y) {
+            return Unit.from(Raw.Unit.newBuilder()
+                    .setDisplayType(Raw.DisplayType.Visible)
+                    .setAlliance(Raw.Alliance.Enemy)
+                    .setTag(tag)
+                    .setUnitType(type.getUnitTypeId())
+                    .setOwner(2)
+                    .setPos(Common.Point.newBuilder().setX(x).setY(y).setZ(0.0f))
+                    .setFacing(0.0f)
+                    .setRadius(0.5f)
+                    .setBuildProgress(1.0f)
+                    .setDetectRange(0.0f)
+                    .setAttackUpgradeLevel(0)
+                    .build());
+        }
+
+        private static UnitTypeData unitType(
+                Units type, Data.Weapon.TargetType targetType, float damage, float range, float speed) {
+            return UnitTypeData.from(Data.UnitTypeData.newBuilder()
+                    .setUnitId(type.getUnitTypeId())
+                    .setName(type.name())
+                    .addWeapons(Data.Weapon.newBuilder()
+                            .setType(targetType)
+                            .setDamage(damage)
+                            .setAttacks(1)
+                            .setRange(range)
+                            .setSpeed(speed))
+                    .build());
+        }
+
+        private List<Unit> nextFrame() {
+            List<Unit> units = frames.get(frame);
+            frame = (frame + 1) % FRAMES;
+            return units;
+        }
+    }
+
+    // Float grids cleared and stamped from scratch for every unit, every frame.
+    @Benchmark
+    public float fullRebuild(Context ctx) {
+        List<Unit> units = ctx.nextFrame();
+        Arrays.fill(ctx.ground, 0.0f);
+        Arrays.fill(ctx.air, 0.0f);
+        for (Unit unit : units) {
+            int type = unit.getType().getUnitTypeId();
+            float groundDps = ctx.combatData.damagePerSecond(type, 0, -1, false, 0.0f);
+            float airDps = ctx.combatData.damagePerSecond(type, 0, -1, true, 0.0f);
+            float radius = Math.max(ctx.combatData.getRange(type, false), ctx.combatData.getRange(type, true))
+                    + unit.getRadius();
+            int minX = Math.max(0, (int) (unit.getX() - radius));
+            int maxX = Math.min(WIDTH - 1, (int) (unit.getX() + radius));
+            int maxY = Math.min(HEIGHT - 1, (int) (unit.getY() + radius));
+            for (int y = Math.max(0, (int) (unit.getY() - radius)); y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    float dx = x + 0.5f - unit.getX();
+                    float dy = y + 0.5f - unit.getY();
+                    if (dx * dx + dy * dy > radius * radius) continue;
+                    ctx.ground[y * WIDTH + x] += groundDps;
+                    ctx.air[y * WIDTH + x] += airDps;
+                }
+            }
+        }
+        return ctx.ground[88 * WIDTH + 100] + ctx.air[88 * WIDTH + 100];
+    }
+
+    @Benchmark
+    public float incrementalUpdate(Context ctx) {
+        ctx.influenceMap.update(ctx.nextFrame());
+        return ctx.influenceMap.get(InfluenceMap.Layer.GROUND, 100, 88)
+                + ctx.influenceMap.get(InfluenceMap.Layer.AIR, 100, 88);
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        Options options = new OptionsBuilder()
+                .include(InfluenceMapBenchmark.class.getSimpleName())
+                .shouldFailOnError(true).shouldDoGC(true).build();
+
+        new Runner(options).run();
+
+        System.exit(1);
+    }
+}
@@ -0,0 +1,196 @@
+package com.github.ocraft.s2client.bot;
+
+/*-
+ * #%L
+ * ocraft-s2client-benchmark
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.bot.analysis.MapStateTracker;
+import com.github.ocraft.s2client.protocol.observation.raw.MapState;
+import com.github.ocraft.s2client.protocol.observation.spatial.ImageData;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.google.protobuf.ByteString;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Fork(value = 1, warmups = 1)
+@Threads(1)
+public class MapStateTrackerBenchmark {
+
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 176;
+    private static final int FRAMES = 16;
+    private static final long NOT_SEEN_LOOPS = 1000;
+
+    @State(Scope.Benchmark)
+    public static class Context {
+
+        private MapState[] frames;
+        private long[] lastSeen;
+        private MapStateTracker tracker;
+        private int frame;
+        private long gameLoop;
+
+        // Frames of a moving army (a visible window sliding over the map, leaving fog behind) and spreading creep.
+        @Setup(Level.Trial)
+        public void doSetup() {
+            frames = new MapState[FRAMES];
+            for (int f = 0; f < FRAMES; f++) {
+                byte[] visibility = new byte[WIDTH * HEIGHT];
+                byte[] creep = new byte[WIDTH * HEIGHT / 8];
+                for (int y = 0; y < HEIGHT; y++) {
+                    for (int x = 0; x < WIDTH; x++) {
+                        int i = y * WIDTH + x;
+                        boolean seen = x >= f * 4 && x < f * 4 + 40 && y < 80;
+                        visibility[i] = (byte) (seen ? 2 : (x < f * 4 && y < 80 ? 1 : 0));
+                        if (x > 150 && y > 120 + (f % 4) && (x * 31 + y * 17) % 10 > 0) creep[i / 8] |= 1 << (i % 8);
+                    }
+                }
+                frames[f] = MapState.from(Raw.MapState.newBuilder()
+                        .setVisibility(image(8, visibility))
+                        .setCreep(image(1, creep))
+                        .build());
+            }
+            lastSeen = new long[WIDTH * HEIGHT];
+            tracker = MapStateTracker.of(WIDTH, HEIGHT);
+        }
+
+        private static Common.ImageData image(int bitsPerPixel, byte[] data) {
+            return Common.ImageData.newBuilder()
+                    .setBitsPerPixel(bitsPerPixel)
+                    .setSize(Common.Size2DI.newBuilder().setX(WIDTH).setY(HEIGHT))
+                    .setData(ByteString.copyFrom(data))
+                    .build();
+        }
+
+        private MapState nextFrame() {
+            gameLoop += 16;
+            MapState mapState = frames[frame];
+            frame = (frame + 1) % FRAMES;
+            return mapState;
+        }
+    }
+
+    // Frames of a fully scouted map, with a small patch of fog moving over it.
+    @State(Scope.Benchmark)
+    public static class MostlyVisibleContext {
+
+        private MapState[] frames;
+        private MapStateTracker tracker;
+        private int frame;
+        private long gameLoop;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            frames = new MapState[FRAMES];
+            for (int f = 0; f < FRAMES; f++) {
+                byte[] visibility = new byte[WIDTH * HEIGHT];
+                for (int y = 0; y < HEIGHT; y++) {
+                    for (int x = 0; x < WIDTH; x++) {
+                        boolean fogged = x >= f * 8 && x < f * 8 + 8 && y < 8;
+                        visibility[y * WIDTH + x] = (byte) (fogged ? 1 : 2);
+                    }
+                }
+                frames[f] = MapState.from(Raw.MapState.newBuilder()
+                        .setVisibility(Context.image(8, visibility))
+                        .setCreep(Context.image(1, new byte[WIDTH * HEIGHT / 8]))
+                        .build());
+            }
+            tracker = MapStateTracker.of(WIDTH, HEIGHT);
+        }
+
+        private MapState nextFrame() {
+            gameLoop += 16;
+            MapState mapState = frames[frame];
+            frame = (frame + 1) % FRAMES;
+            return mapState;
+        }
+    }
+
+    // Point sampling of every cell, as done through ObservationInterface#getVisibility and #hasCreep.
+    @Benchmark
+    public int sampleEveryCell(Context ctx) {
+        MapState mapState = ctx.nextFrame();
+        int notSeen = 0;
+        int creep = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                Point2d point = Point2d.of(x + 0.5f, y + 0.5f);
+                int i = y * WIDTH + x;
+                if (mapState.getVisibility().sample(point, ImageData.Origin.BOTTOM_LEFT) == 2) {
+                    ctx.lastSeen[i] = ctx.gameLoop;
+                } else if (ctx.gameLoop - ctx.lastSeen[i] >= NOT_SEEN_LOOPS) {
+                    notSeen++;
+                }
+                if (mapState.getCreep().sample(point, ImageData.Origin.BOTTOM_LEFT) == 1) creep++;
+            }
+        }
+        return notSeen + creep;
+    }
+
+    @Benchmark
+    public int trackerUpdate(Context ctx) {
+        MapState mapState = ctx.nextFrame();
+        ctx.tracker.update(ctx.gameLoop, mapState, ImageData.Origin.BOTTOM_LEFT);
+        return ctx.tracker.getChangedVisibilityCount() + ctx.tracker.getCreepCellCount();
+    }
+
+    @Benchmark
+    public int trackerUpdateAndNotSeenCells(Context ctx) {
+        MapState mapState = ctx.nextFrame();
+        ctx.tracker.update(ctx.gameLoop, mapState, ImageData.Origin.BOTTOM_LEFT);
+        int[] notSeen = new int[1];
+        ctx.tracker.forEachCellNotSeenFor(NOT_SEEN_LOOPS, (x, y) -> notSeen[0]++);
+        return notSeen[0] + ctx.tracker.getCreepCellCount();
+    }
+
+    @Benchmark
+    public int trackerUpdateAndNotSeenCellsMostlyVisible(MostlyVisibleContext ctx) {
+        MapState mapState = ctx.nextFrame();
+        ctx.tracker.update(ctx.gameLoop, mapState, ImageData.Origin.BOTTOM_LEFT);
+        int[] notSeen = new int[1];
+        ctx.tracker.forEachCellNotSeenFor(NOT_SEEN_LOOPS, (x, y) -> notSeen[0]++);
+        return notSeen[0];
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        Options options = new OptionsBuilder()
+                .include(MapStateTrackerBenchmark.class.getSimpleName())
+                .shouldFailOnError(true).shouldDoGC(true).build();
+
+        new Runner(options).run();
+
+        System.exit(1);
+    }
+}
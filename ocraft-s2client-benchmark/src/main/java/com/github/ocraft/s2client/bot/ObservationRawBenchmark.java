@@ -0,0 +1,139 @@
+package com.github.ocraft.s2client.bot;
+
+/*-
+ * #%L
+ * ocraft-s2client-benchmark
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.protocol.observation.raw.ObservationRaw;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import com.google.protobuf.ByteString;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toSet;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Fork(value = 1, warmups = 1)
+@Threads(1)
+public class ObservationRawBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Context {
+
+        @Param({"400"})
+        private int unitCount;
+
+        private Raw.ObservationRaw sc2ApiObservationRaw;
+        private Map<Tag, Unit> pool;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            Random random = new Random(1);
+            Raw.ObservationRaw.Builder builder = Raw.ObservationRaw.newBuilder()
+                    .setPlayer(Raw.PlayerRaw.newBuilder()
+                            .setCamera(Common.Point.newBuilder().setX(100.0f).setY(100.0f).setZ(0.0f)))
+                    .setMapState(Raw.MapState.newBuilder()
+                            .setVisibility(Common.ImageData.newBuilder()
+                                    .setBitsPerPixel(8)
+                                    .setSize(Common.Size2DI.newBuilder().setX(1).setY(1))
+                                    .setData(ByteString.copyFrom(new byte[1])))
+                            .setCreep(Common.ImageData.newBuilder()
+                                    .setBitsPerPixel(1)
+                                    .setSize(Common.Size2DI.newBuilder().setX(8).setY(1))
+                                    .setData(ByteString.copyFrom(new byte[1]))));
+            for (int i = 0; i < unitCount; i++) {
+                builder.addUnits(Raw.Unit.newBuilder()
+                        .setDisplayType(Raw.DisplayType.Visible)
+                        .setAlliance(random.nextBoolean() ? Raw.Alliance.Self : Raw.Alliance.Enemy)
+                        .setTag(random.nextLong() & Long.MAX_VALUE)
+                        .setUnitType(48)
+                        .setOwner(1)
+                        .setPos(Common.Point.newBuilder()
+                                .setX(random.nextFloat() * 200).setY(random.nextFloat() * 200).setZ(10.0f))
+                        .setFacing(random.nextFloat())
+                        .setRadius(0.375f)
+                        .setBuildProgress(1.0f)
+                        .setHealth(random.nextInt(45) + 1)
+                        .setHealthMax(45)
+                        .addBuffIds(27)
+                        .addOrders(Raw.UnitOrder.newBuilder()
+                                .setAbilityId(16)
+                                .setTargetWorldSpacePos(Common.Point.newBuilder()
+                                        .setX(random.nextFloat() * 200).setY(random.nextFloat() * 200)))
+                        .build());
+            }
+            sc2ApiObservationRaw = builder.build();
+            pool = new HashMap<>();
+        }
+    }
+
+    // Conversion as done before: every unit hashed into a set, then iterated into the tag keyed pool.
+    @Benchmark
+    public Map<Tag, Unit> hashedSet(Context ctx) {
+        Set<Unit> units = ctx.sc2ApiObservationRaw.getUnitsList().stream()
+                .filter(Raw.Unit::hasTag)
+                .map(Unit::from)
+                .collect(toSet());
+        ctx.pool.clear();
+        for (Unit unit : units) ctx.pool.put(unit.getTag(), unit);
+        return ctx.pool;
+    }
+
+    @Benchmark
+    public Map<Tag, Unit> orderedList(Context ctx) {
+        List<Unit> units = ObservationRaw.from(ctx.sc2ApiObservationRaw).getUnits();
+        ctx.pool.clear();
+        for (int i = 0, n = units.size(); i < n; i++) {
+            Unit unit = units.get(i);
+            ctx.pool.put(unit.getTag(), unit);
+        }
+        return ctx.pool;
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        Options options = new OptionsBuilder()
+                .include(ObservationRawBenchmark.class.getSimpleName())
+                .shouldFailOnError(true).shouldDoGC(true).build();
+
+        new Runner(options).run();
+
+        System.exit(1);
+    }
+}
@@ -0,0 +1,147 @@
+package com.github.ocraft.s2client.bot;
+
+/*-
+ * #%L
+ * ocraft-s2client-benchmark
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.bot.parallel.DecisionResult;
+import com.github.ocraft.s2client.bot.parallel.ParallelDecisions;
+import com.github.ocraft.s2client.bot.parallel.UnitCommandBatch;
+import com.github.ocraft.s2client.bot.parallel.UnitPartitioner;
+import com.github.ocraft.s2client.bot.parallel.UnitPolicy;
+import com.github.ocraft.s2client.protocol.data.Abilities;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Fork(value = 1, warmups = 1)
+@Threads(1)
+public class ParallelDecisionsBenchmark {
+
+    private static final int UNIT_COUNT = 500;
+
+    @State(Scope.Benchmark)
+    public static class Context {
+
+        @Param({"1", "2", "4", "8"})
+        private int parallelism;
+
+        private List<Unit> units;
+        private List<Unit> enemies;
+        private ForkJoinPool pool;
+        private ParallelDecisions<Boolean> unpartitioned;
+        private ParallelDecisions<Long> bySpatialCell;
+        private UnitPolicy attackNearest;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            Random random = new Random(1);
+            units = units(random, Raw.Alliance.Self, 1);
+            enemies = units(random, Raw.Alliance.Enemy, UNIT_COUNT + 1);
+            attackNearest = (unit, snapshot, commands) -> {
+                Unit nearest = null;
+                double nearestDistance = Double.MAX_VALUE;
+                for (Unit enemy : enemies) {
+                    double distance = unit.getPosition().distance(enemy.getPosition());
+                    if (distance < nearestDistance) {
+                        nearestDistance = distance;
+                        nearest = enemy;
+                    }
+                }
+                commands.unitCommand(unit, Abilities.ATTACK, nearest, false);
+            };
+            pool = new ForkJoinPool(parallelism);
+            unpartitioned = ParallelDecisions.unpartitioned()
+                    .withPolicy(attackNearest)
+                    .withPool(pool)
+                    .build();
+            bySpatialCell = ParallelDecisions.partitionedBy(UnitPartitioner.bySpatialCell(32))
+                    .withPolicy(attackNearest)
+                    .withPool(pool)
+                    .build();
+        }
+
+        @TearDown(Level.Trial)
+        public void doTearDown() {
+            pool.shutdown();
+        }
+
+        private static List<Unit> units(Random random, Raw.Alliance alliance, long firstTag) {
+            List<Unit> units = new ArrayList<>();
+            for (int i = 0; i < UNIT_COUNT; i++) {
+                units.add(Unit.from(Fixtures.sc2ApiUnit().toBuilder()
+                        .setTag(firstTag + i)
+                        .setAlliance(alliance)
+                        .setPos(Common.Point.newBuilder()
+                                .setX(random.nextFloat() * 200)
+                                .setY(random.nextFloat() * 200)
+                                .setZ(0))
+                        .build()));
+            }
+            return units;
+        }
+    }
+
+    @Benchmark
+    public UnitCommandBatch sequential(Context ctx) {
+        UnitCommandBatch commands = new UnitCommandBatch();
+        for (Unit unit : ctx.units) ctx.attackNearest.decide(unit, null, commands);
+        return commands;
+    }
+
+    @Benchmark
+    public DecisionResult parallel(Context ctx) {
+        return ctx.unpartitioned.decide(null, ctx.units);
+    }
+
+    @Benchmark
+    public DecisionResult parallelBySpatialCell(Context ctx) {
+        return ctx.bySpatialCell.decide(null, ctx.units);
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        Options options = new OptionsBuilder()
+                .include(ParallelDecisionsBenchmark.class.getSimpleName())
+                .shouldFailOnError(true).shouldDoGC(true).build();
+
+        new Runner(options).run();
+
+        System.exit(1);
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.ocraft.s2client.bot;
+
+/*-
+ * #%L
+ * ocraft-s2client-benchmark
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.bot.tensor.UnitEncoder;
+import com.github.ocraft.s2client.bot.tensor.UnitFeature;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Fork(value = 1, warmups = 1)
+@Threads(1)
+public class UnitEncoderBenchmark {
+
+    private static final int MAX_UNITS = 512;
+
+    @State(Scope.Benchmark)
+    public static class Context {
+
+        @Param({"50", "200", "400"})
+        private int unitCount;
+
+        private Set<Unit> units;
+        private UnitEncoder encoder;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            Random random = new Random(1);
+            units = new HashSet<>();
+            for (int i = 0; i < unitCount; i++) {
+                units.add(Unit.from(Raw.Unit.newBuilder()
+                        .setDisplayType(Raw.DisplayType.Visible)
+                        .setAlliance(random.nextBoolean() ? Raw.Alliance.Self : Raw.Alliance.Enemy)
+                        .setTag(random.nextLong() & Long.MAX_VALUE)
+                        .setUnitType(48)
+                        .setOwner(1)
+                        .setPos(Common.Point.newBuilder()
+                                .setX(random.nextFloat() * 200).setY(random.nextFloat() * 200).setZ(10.0f))
+                        .setFacing(random.nextFloat())
+                        .setRadius(0.375f)
+                        .setBuildProgress(1.0f)
+                        .setHealth(random.nextInt(45) + 1)
+                        .setHealthMax(45)
+                        .setEnergy(random.nextInt(50))
+                        .setEnergyMax(200)
+                        .build()));
+            }
+            encoder = UnitEncoder.builder(MAX_UNITS)
+                    .features(UnitFeature.TYPE, UnitFeature.ALLIANCE, UnitFeature.X, UnitFeature.Y,
+                            UnitFeature.HEALTH_RATIO, UnitFeature.SHIELD_RATIO, UnitFeature.ENERGY_RATIO,
+                            UnitFeature.ORDER_ABILITY, UnitFeature.BUFF_COUNT, UnitFeature.FLYING)
+                    .directBuffer()
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public int encode(Context ctx) {
+        return ctx.encoder.encode(ctx.units);
+    }
+
+    // The same matrix built with a sorted copy of units and the Optional getters.
+    @Benchmark
+    public float[] encodeWithOptionals(Context ctx) {
+        List<Unit> units = new ArrayList<>(ctx.units);
+        units.sort(Comparator.comparing(unit -> unit.getTag().getValue()));
+        int columns = 10;
+        float[] matrix = new float[MAX_UNITS * columns];
+        for (int row = 0; row < Math.min(units.size(), MAX_UNITS); row++) {
+            Unit unit = units.get(row);
+            int offset = row * columns;
+            matrix[offset] = unit.getType().getUnitTypeId();
+            matrix[offset + 1] = unit.getAlliance().ordinal();
+            matrix[offset + 2] = unit.getPosition().getX();
+            matrix[offset + 3] = unit.getPosition().getY();
+            matrix[offset + 4] = ratio(unit.getHealth(), unit.getHealthMax());
+            matrix[offset + 5] = ratio(unit.getShield(), unit.getShieldMax());
+            matrix[offset + 6] = ratio(unit.getEnergy(), unit.getEnergyMax());
+            matrix[offset + 7] = unit.getOrders().stream()
+                    .findFirst().map(order -> order.getAbility().getAbilityId()).orElse(0);
+            matrix[offset + 8] = unit.getBuffs().size();
+            matrix[offset + 9] = unit.getFlying().orElse(false) ? 1.0f : 0.0f;
+        }
+        return matrix;
+    }
+
+    private static float ratio(Optional<Float> value, Optional<Float> max) {
+        return max.filter(m -> m > 0.0f).map(m -> value.orElse(0.0f) / m).orElse(0.0f);
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        Options options = new OptionsBuilder()
+                .include(UnitEncoderBenchmark.class.getSimpleName())
+                .shouldFailOnError(true).shouldDoGC(true).build();
+
+        new Runner(options).run();
+
+        System.exit(1);
+    }
+}
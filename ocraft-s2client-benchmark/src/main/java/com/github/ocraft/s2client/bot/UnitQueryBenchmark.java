@@ -0,0 +1,178 @@
+package com.github.ocraft.s2client.bot;
+
+/*-
+ * #%L
+ * ocraft-s2client-benchmark
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.bot.gateway.UnitIndex;
+import com.github.ocraft.s2client.bot.gateway.UnitQuery;
+import com.github.ocraft.s2client.protocol.data.Units;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Fork(value = 1, warmups = 1)
+@Threads(1)
+public class UnitQueryBenchmark {
+
+    private static final Point2d BASE = Point2d.of(40, 40);
+    private static final float BASE_RADIUS = 20.0f;
+
+    @State(Scope.Benchmark)
+    public static class Context {
+
+        private Map<Tag, UnitInPool> existingPool;
+        private UnitIndex index;
+
+        private final UnitQuery idleWorkers = UnitQuery.units()
+                .alliance(Alliance.SELF).ofType(Units.TERRAN_SCV).idle().build();
+        private final UnitQuery marines = UnitQuery.units()
+                .alliance(Alliance.SELF).ofType(Units.TERRAN_MARINE).build();
+        private final UnitQuery enemiesNearBase = UnitQuery.units()
+                .alliance(Alliance.ENEMY).within(BASE, BASE_RADIUS).build();
+        private final UnitQuery army = UnitQuery.units()
+                .alliance(Alliance.SELF).ofType(Units.TERRAN_MARINE, Units.TERRAN_MARAUDER).build();
+        private final UnitQuery minerals = UnitQuery.units()
+                .alliance(Alliance.NEUTRAL).ofType(Units.NEUTRAL_MINERAL_FIELD).build();
+
+        // A mid game observation: 60 workers and 90 army units of our own, 200 enemies and 50 mineral fields.
+        @Setup(Level.Trial)
+        public void doSetup() {
+            Random random = new Random(42);
+            existingPool = new HashMap<>();
+            long tag = 1;
+            for (int i = 0; i < 60; i++) add(tag++, Raw.Alliance.Self, Units.TERRAN_SCV, i % 4 == 0, random);
+            for (int i = 0; i < 60; i++) add(tag++, Raw.Alliance.Self, Units.TERRAN_MARINE, false, random);
+            for (int i = 0; i < 30; i++) add(tag++, Raw.Alliance.Self, Units.TERRAN_MARAUDER, false, random);
+            for (int i = 0; i < 200; i++) add(tag++, Raw.Alliance.Enemy, Units.ZERG_ZERGLING, false, random);
+            for (int i = 0; i < 50; i++) add(tag++, Raw.Alliance.Neutral, Units.NEUTRAL_MINERAL_FIELD, true, random);
+            index = UnitIndex.of(existingPool.values());
+        }
+
+        private void add(long tag, Raw.Alliance alliance, Units type, boolean idle, Random random) {
+            Raw.Unit.Builder unit = Raw.Unit.newBuilder()
+                    .setDisplayType(Raw.DisplayType.Visible)
+                    .setAlliance(alliance)
+                    .setTag(tag)
+                    .setUnitType(type.getUnitTypeId())
+                    .setOwner(1)
+                    .setPos(Common.Point.newBuilder()
+                            .setX(10 + random.nextFloat() * 180)
+                            .setY(10 + random.nextFloat() * 150)
+                            .setZ(0.0f))
+                    .setFacing(0.0f)
+                    .setRadius(0.5f)
+                    .setBuildProgress(1.0f)
+                    .setHealth(40.0f);
+            if (!idle) {
+                unit.addOrders(Raw.UnitOrder.newBuilder()
+                        .setAbilityId(1)
+                        .setTargetWorldSpacePos(Common.Point.newBuilder().setX(100).setY(100).setZ(0)));
+            }
+            existingPool.put(Tag.of(tag), new UnitInPool(Tag.of(tag)).update(Unit.from(unit.build()), 0, true));
+        }
+    }
+
+    // Mirrors ObservationInterface#getUnits(Alliance, Predicate): a full scan of the pool and a new list per query.
+    private static List<UnitInPool> getUnits(Context ctx, Alliance alliance, Predicate<UnitInPool> filter) {
+        List<UnitInPool> units = new ArrayList<>();
+        ctx.existingPool.forEach((tag, unitInPool) -> {
+            if (unitInPool.getUnit().filter(unit -> unit.getAlliance().equals(alliance)).isPresent() &&
+                    filter.test(unitInPool)) {
+                units.add(unitInPool);
+            }
+        });
+        return units;
+    }
+
+    private static boolean isIdle(UnitInPool unitInPool) {
+        return unitInPool.unit().getOrders().isEmpty();
+    }
+
+    private static boolean isNearBase(UnitInPool unitInPool) {
+        return unitInPool.unit().getPosition().toPoint2d().distance(BASE) <= BASE_RADIUS;
+    }
+
+    // The queries of a typical step, with the predicate based api.
+    @Benchmark
+    public int predicateQueries(Context ctx) {
+        return getUnits(ctx, Alliance.SELF, UnitInPool.isUnit(Units.TERRAN_SCV).and(UnitQueryBenchmark::isIdle)).size()
+                + getUnits(ctx, Alliance.SELF, UnitInPool.isUnit(Units.TERRAN_MARINE)).size()
+                + getUnits(ctx, Alliance.ENEMY, UnitQueryBenchmark::isNearBase).size()
+                + getUnits(ctx, Alliance.SELF,
+                UnitInPool.isUnit(Units.TERRAN_MARINE).or(UnitInPool.isUnit(Units.TERRAN_MARAUDER))).size()
+                + getUnits(ctx, Alliance.NEUTRAL, UnitInPool.isUnit(Units.NEUTRAL_MINERAL_FIELD)).size();
+    }
+
+    // The same queries, including the index built once per step by the unit pool.
+    @Benchmark
+    public int indexedQueries(Context ctx) {
+        return queries(ctx, UnitIndex.of(ctx.existingPool.values()));
+    }
+
+    // The same queries on an index already built by an earlier query of the step.
+    @Benchmark
+    public int indexedQueriesOnBuiltIndex(Context ctx) {
+        return queries(ctx, ctx.index);
+    }
+
+    private static int queries(Context ctx, UnitIndex index) {
+        return index.getUnits(ctx.idleWorkers).size()
+                + index.getUnits(ctx.marines).size()
+                + index.getUnits(ctx.enemiesNearBase).size()
+                + index.getUnits(ctx.army).size()
+                + index.getUnits(ctx.minerals).size();
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        Options options = new OptionsBuilder()
+                .include(UnitQueryBenchmark.class.getSimpleName())
+                .shouldFailOnError(true).shouldDoGC(true).build();
+
+        new Runner(options).run();
+
+        System.exit(1);
+    }
+}
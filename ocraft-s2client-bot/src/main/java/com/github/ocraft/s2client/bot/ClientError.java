@@ -81,4 +81,9 @@ public enum ClientError {
      * A replay was attempted to be loaded in the wrong game version.
      */
     WRONG_GAME_VERSION,
+
+    /**
+     * A feature layer action targets a point outside of the screen or minimap resolution. The action is not sent.
+     */
+    INVALID_SPATIAL_ACTION,
 }
@@ -38,6 +38,7 @@ public final class OcraftBotConfig {
     public static final String BOT_MAP = BOT + ".map";
     public static final String BOT_REPLAY_RECOVERY = BOT + ".replayRecovery";
     public static final String BOT_TRACED = BOT + ".traced";
+    public static final String BOT_REALTIME_BACKGROUND_STEP = BOT + ".realtimeBackgroundStep";
 
     private static Config config = ConfigFactory.load();
 
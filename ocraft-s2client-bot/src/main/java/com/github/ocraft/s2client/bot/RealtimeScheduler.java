@@ -0,0 +1,151 @@
+package com.github.ocraft.s2client.bot;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+import com.github.ocraft.s2client.bot.gateway.ControlInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.isSet;
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Steps the agent in realtime. Instead of asking for the current observation it waits (on the game side) for the next
+ * game loop the agent is interested in, so the agent never processes the same frame twice. When the agent falls behind
+ * the game the next observation is the most recent one and the frames in between are dropped.
+ * <p>
+ * In background mode the agent's step runs on its own thread. The coordinator doesn't block on it longer than one
+ * step of the game so other agents are served in the meantime.
+ */
+class RealtimeScheduler {
+
+    private final Logger log = LoggerFactory.getLogger(RealtimeScheduler.class);
+
+    private final S2Agent agent;
+    private final int stepSize;
+    private final boolean background;
+    private final RealtimeStats stats = new RealtimeStats();
+    private ExecutorService executor;
+    private Future<?> pendingStep;
+    private int nextGameLoop = -1;
+
+    RealtimeScheduler(S2Agent agent, int stepSize, boolean background) {
+        require("agent", agent);
+        if (stepSize < 1) throw new IllegalArgumentException("step size must be greater than 0");
+        this.agent = agent;
+        this.stepSize = stepSize;
+        this.background = background;
+    }
+
+    void update() {
+        if (isSet(pendingStep) && !awaitPendingStep()) {
+            stats.onBusy();
+            return;
+        }
+
+        ControlInterface control = agent.control();
+        int requestedGameLoop = nextGameLoop;
+        if (requestedGameLoop < 0) {
+            control.getObservation();
+        } else {
+            control.getObservation(requestedGameLoop);
+        }
+        long observedGameLoop = agent.observation().getGameLoop();
+        if (requestedGameLoop >= 0) stats.onFrame(requestedGameLoop, observedGameLoop, stepSize);
+        nextGameLoop = (int) observedGameLoop + stepSize;
+
+        if (background && control.isInGame()) {
+            pendingStep = executor().submit(this::step);
+            return;
+        }
+
+        step();
+        if (!control.isInGame()) {
+            // Game loops of the next game start over.
+            nextGameLoop = -1;
+            agent.onGameEnd();
+            if (control.isMultiplayer()) control.requestLeaveGame();  // Only for multiplayer.
+        }
+    }
+
+    private boolean awaitPendingStep() {
+        try {
+            pendingStep.get(stepSize * RealtimeStats.GAME_LOOP_NANOS, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            log.error("Agent step failed.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        pendingStep = null;
+        return true;
+    }
+
+    private void step() {
+        long stepStart = System.nanoTime();
+        ActionInterface actions = agent.actions();
+        agent.control().issueEvents(actions.commands());
+        actions.sendActions();
+        stats.onStep(System.nanoTime() - stepStart, stepSize);
+    }
+
+    private ExecutorService executor() {
+        if (!isSet(executor)) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ocraft-realtime-step");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    RealtimeStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Forgets the game loop and the statistics of the previous game, called when a game is joined or left.
+     */
+    void reset() {
+        if (isSet(pendingStep)) {
+            pendingStep.cancel(true);
+            pendingStep = null;
+        }
+        nextGameLoop = -1;
+        stats.reset();
+    }
+
+    void stop() {
+        if (isSet(executor)) executor.shutdownNow();
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.ocraft.s2client.bot;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Frame statistics of the agent playing in realtime. Frame lag is the number of game loops between the loop the agent
+ * asked for and the loop of the received observation, dropped frames are the steps skipped because of that lag.
+ */
+public final class RealtimeStats {
+
+    /**
+     * Time of one game loop at the "faster" game speed (22.4 game loops per second).
+     */
+    public static final long GAME_LOOP_NANOS = (long) (TimeUnit.SECONDS.toNanos(1) / 22.4);
+
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong maxFrameLag = new AtomicLong();
+    private final AtomicLong overBudgetSteps = new AtomicLong();
+    private final AtomicLong busyUpdates = new AtomicLong();
+    private final AtomicLong maxStepNanos = new AtomicLong();
+    private volatile long lastFrameLag;
+    private volatile long lastStepNanos;
+
+    void onFrame(int requestedGameLoop, long observedGameLoop, int stepSize) {
+        long lag = Math.max(0, observedGameLoop - requestedGameLoop);
+        frames.incrementAndGet();
+        droppedFrames.addAndGet(lag / Math.max(1, stepSize));
+        maxFrameLag.accumulateAndGet(lag, Math::max);
+        lastFrameLag = lag;
+    }
+
+    void onStep(long stepNanos, int stepSize) {
+        if (stepNanos > stepSize * GAME_LOOP_NANOS) overBudgetSteps.incrementAndGet();
+        maxStepNanos.accumulateAndGet(stepNanos, Math::max);
+        lastStepNanos = stepNanos;
+    }
+
+    void onBusy() {
+        busyUpdates.incrementAndGet();
+    }
+
+    void reset() {
+        frames.set(0);
+        droppedFrames.set(0);
+        maxFrameLag.set(0);
+        overBudgetSteps.set(0);
+        busyUpdates.set(0);
+        maxStepNanos.set(0);
+        lastFrameLag = 0;
+        lastStepNanos = 0;
+    }
+
+    /**
+     * @return Number of observations processed by the agent.
+     */
+    public long getFrames() {
+        return frames.get();
+    }
+
+    /**
+     * @return Number of steps skipped because the agent was behind the game.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * @return Lag (in game loops) of the most recent observation.
+     */
+    public long getLastFrameLag() {
+        return lastFrameLag;
+    }
+
+    public long getMaxFrameLag() {
+        return maxFrameLag.get();
+    }
+
+    /**
+     * @return Number of steps that took longer than the step size in realtime.
+     */
+    public long getOverBudgetSteps() {
+        return overBudgetSteps.get();
+    }
+
+    /**
+     * @return Number of coordinator updates that found the agent still computing the previous step.
+     */
+    public long getBusyUpdates() {
+        return busyUpdates.get();
+    }
+
+    public long getLastStepNanos() {
+        return lastStepNanos;
+    }
+
+    public long getMaxStepNanos() {
+        return maxStepNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return "RealtimeStats{" +
+                "frames=" + getFrames() +
+                ", droppedFrames=" + getDroppedFrames() +
+                ", lastFrameLag=" + lastFrameLag +
+                ", maxFrameLag=" + getMaxFrameLag() +
+                ", overBudgetSteps=" + getOverBudgetSteps() +
+                ", busyUpdates=" + getBusyUpdates() +
+                ", lastStepNanos=" + lastStepNanos +
+                ", maxStepNanos=" + getMaxStepNanos() +
+                '}';
+    }
+}
@@ -28,9 +28,15 @@ package com.github.ocraft.s2client.bot;
 
 import com.github.ocraft.s2client.api.OcraftApiConfig;
 import com.github.ocraft.s2client.api.controller.ExecutableParser;
+import com.github.ocraft.s2client.api.metrics.ClientMetrics;
 import com.github.ocraft.s2client.bot.gateway.ActionInterface;
 import com.github.ocraft.s2client.bot.gateway.AppState;
 import com.github.ocraft.s2client.bot.gateway.ControlInterface;
+import com.github.ocraft.s2client.bot.gateway.ReplayControlInterface;
+import com.github.ocraft.s2client.bot.replay.ReplayIndex;
+import com.github.ocraft.s2client.bot.replay.ReplayIndexEntry;
+import com.github.ocraft.s2client.bot.replay.ReplayScanResult;
+import com.github.ocraft.s2client.bot.replay.ReplayScanner;
 import com.github.ocraft.s2client.bot.setting.*;
 import com.github.ocraft.s2client.bot.syntax.SettingsSyntax;
 import com.github.ocraft.s2client.bot.syntax.StartGameSyntax;
@@ -50,7 +56,9 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import static com.github.ocraft.s2client.protocol.Constants.nothing;
@@ -77,6 +85,8 @@ public class S2Coordinator {
 
     private final boolean useGeneralizedAbilityId;
 
+    private final Map<S2Agent, RealtimeScheduler> realtimeSchedulers = new ConcurrentHashMap<>();
+
 
     private S2Coordinator(Builder builder) {
         oneOfIsNotEmpty("agents or replay observers", builder.agents, builder.replayObservers);
@@ -345,6 +355,18 @@ public class S2Coordinator {
             return this;
         }
 
+        @Override
+        public SettingsSyntax setMetrics(ClientMetrics metrics) {
+            if (isSet(metrics)) processSettings.setMetrics(metrics);
+            return this;
+        }
+
+        @Override
+        public SettingsSyntax setRealtimeBackgroundStep(Boolean value) {
+            if (isSet(value)) processSettings.setRealtimeBackgroundStep(value);
+            return this;
+        }
+
         @Override
         public SettingsSyntax setTmpDir(Path tmpDirPath) {
             if (isSet(tmpDirPath)) processSettings.setTmpDir(tmpDirPath);
@@ -569,6 +591,7 @@ public class S2Coordinator {
      * Joins agents to the game
      */
     public S2Coordinator joinGame() {
+        resetRealtimeSchedulers();
         Map<S2Agent, Maybe<Response>> waitForJoin = new HashMap<>();
         agents.forEach(agent -> waitForJoin.put(agent, agent.control().requestJoinGame(
                 gameSettings.playerSettingsFor(agent).orElseThrow(required("player settings")),
@@ -622,8 +645,11 @@ public class S2Coordinator {
      * <p>
      * Real time applications will perform the following:
      * <ol>
-     * <li>The Observation is directly requested. The process will block while waiting for it.</li>
-     * <li>The Observation is parsed and client events are dispatched.</li>
+     * <li>The Observation of the next game loop (after the step size) is requested. The process will block while
+     * waiting for it. If the agent is behind the game the most recent Observation is returned and stale frames are
+     * dropped.</li>
+     * <li>The Observation is parsed and client events are dispatched (in background if enabled, see
+     * {@link SettingsSyntax#setRealtimeBackgroundStep(Boolean)}).</li>
      * <li>Unit actions batched from the ActionInterface are dispatched.</li>
      * </ol>
      *
@@ -700,19 +726,24 @@ public class S2Coordinator {
             if (control.pollLeaveGame()) return;
             if (control.isFinishedGame()) return;
 
-            ActionInterface actions = agent.actions();
             // This agent shouldn't call step since it's real time.
-            control.getObservation();
-            control.issueEvents(actions.commands());
-            actions.sendActions();
-
-            if (!control.isInGame()) {
-                agent.onGameEnd();
-                if (control.isMultiplayer()) control.requestLeaveGame();  // Only for multiplayer.
-            }
+            realtimeSchedulers.computeIfAbsent(agent, a -> new RealtimeScheduler(
+                    a, processSettings.getStepSize(), processSettings.getRealtimeBackgroundStep())
+            ).update();
         };
     }
 
+    /**
+     * Gets frame statistics (frame lag, dropped frames, step duration) of the agent playing in realtime.
+     *
+     * @param agent The agent.
+     * @return Statistics of the current game (reset when a game is joined or left) or empty if the agent wasn't
+     * stepped in realtime.
+     */
+    public Optional<RealtimeStats> getRealtimeStats(S2Agent agent) {
+        return Optional.ofNullable(realtimeSchedulers.get(agent)).map(RealtimeScheduler::getStats);
+    }
+
     private void stepAgents() {
         if (agents.size() == 1) {
             stepAgent().accept(agents.get(0));
@@ -750,8 +781,8 @@ public class S2Coordinator {
         }
         ActionInterface actions = agent.actions();
         control.issueEvents(actions.commands());
+        // Feature layer actions are queued with the raw ones, one request sends both.
         actions.sendActions();
-        agent.actionsFeatureLayer().sendActions();
     }
 
     private void runParallel(Consumer<S2Agent> step) {
@@ -942,6 +973,12 @@ public class S2Coordinator {
     public void leaveGame() {
         // TODO p.picheta to test
         agents.forEach(agent -> agent.control().requestLeaveGame());
+        resetRealtimeSchedulers();
+    }
+
+    // Realtime schedulers outlive a game, the game loop they wait for must not be carried over to the next one.
+    private void resetRealtimeSchedulers() {
+        realtimeSchedulers.values().forEach(RealtimeScheduler::reset);
     }
 
     // Status.
@@ -967,6 +1004,37 @@ public class S2Coordinator {
 
     // Replay specific.
 
+    /**
+     * Indexes metadata of the replays to process with all replay observers concurrently (only replays that are new or
+     * modified since the previous scan are requested) and saves the index. Should be called before the first
+     * {@link #update()}, when the replay observers are not in game.
+     *
+     * @param indexFile The file with the replay index, created if it does not exist.
+     * @return The updated index.
+     */
+    public ReplayIndex indexReplays(Path indexFile) throws IOException {
+        require("index file", indexFile);
+        if (replayObservers.isEmpty()) throw new IllegalStateException("replay observers are required");
+        ReplayIndex replayIndex = ReplayIndex.load(indexFile);
+        List<ReplayControlInterface> instances = new ArrayList<>();
+        replayObservers.forEach(replayObserver -> instances.add(replayObserver.replayControl()));
+        ReplayScanResult result = new ReplayScanner(instances).scan(replayIndex, replaySettings.getReplayFiles());
+        log.info("Replays indexed: {}", result);
+        replayIndex.save(indexFile);
+        return replayIndex;
+    }
+
+    /**
+     * Keeps only the replays with metadata in the index accepted by the filter.
+     *
+     * @param replayIndex The index of replays, see {@link #indexReplays(Path)}.
+     * @param filter      The filter applied to the replay metadata.
+     */
+    public S2Coordinator selectReplays(ReplayIndex replayIndex, Predicate<ReplayIndexEntry> filter) {
+        replaySettings.selectReplays(replayIndex, filter);
+        return this;
+    }
+
     /**
      * Saves replays to a file.
      *
@@ -1019,6 +1087,7 @@ public class S2Coordinator {
     }
 
     public void quit() {
+        realtimeSchedulers.values().forEach(RealtimeScheduler::stop);
         agents.forEach(agent -> agent.control().quit());
         replayObservers.forEach(replayObserver -> replayObserver.control().quit());
     }
@@ -0,0 +1,303 @@
+package com.github.ocraft.s2client.bot.analysis;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.combat.CombatData;
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.protocol.game.raw.StartRaw;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.spatial.Size2dI;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Threat of enemy units per map cell, in layers: damage per second against ground and air units and the number of
+ * detectors covering the cell.
+ * <p>
+ * Each unit contributes a stamp (a disc of its weapon range plus its radius) to the layers. The map is updated
+ * incrementally: a stamp is subtracted and added again only when the unit changes cell or its threat changes, so a
+ * step costs the cells of the stamps that moved instead of the whole map. Values are kept in fixed point, adding and
+ * subtracting stamps never leaves rounding residue.
+ * <p>
+ * Not thread safe.
+ */
+public final class InfluenceMap {
+
+    public enum Layer {
+        GROUND,
+        AIR,
+        DETECTION
+    }
+
+    private static final int LAYERS = Layer.values().length;
+    private static final float SCALE = 256.0f;
+
+    private final int width;
+    private final int height;
+    private final CombatData combatData;
+    private final int[][] layers;
+    private final Map<Tag, Stamp> stamps = new HashMap<>();
+    private long generation;
+
+    private static final class Stamp {
+        private int cellX;
+        private int cellY;
+        private float radius;
+        private float detectRange;
+        private final int[] values = new int[LAYERS];
+        private long generation;
+        private boolean updated;
+    }
+
+    private InfluenceMap(int width, int height, CombatData combatData) {
+        this.width = width;
+        this.height = height;
+        this.combatData = combatData;
+        this.layers = new int[LAYERS][width * height];
+    }
+
+    public static InfluenceMap of(int width, int height, CombatData combatData) {
+        require("combat data", combatData);
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("map size must be greater than 0");
+        return new InfluenceMap(width, height, combatData);
+    }
+
+    /**
+     * @return influence map of the size of the current game map.
+     */
+    public static InfluenceMap from(ObservationInterface observation, CombatData combatData) {
+        require("observation", observation);
+        StartRaw startRaw = observation.getGameInfo().getStartRaw()
+                .orElseThrow(() -> new IllegalStateException("start raw is required"));
+        Size2dI size = startRaw.getMapSize();
+        return of(size.getX(), size.getY(), combatData);
+    }
+
+    /**
+     * Stamps the enemy units and removes the stamps of units of the previous update missing from the collection (dead
+     * or out of vision).
+     * Units of other alliances are ignored, incomplete structures contribute detection only.
+     */
+    public void update(Collection<Unit> units) {
+        require("units", units);
+        generation++;
+        for (Unit unit : units) {
+            if (unit.getAlliance() != Alliance.ENEMY) continue;
+            int type = unit.getType().getUnitTypeId();
+            boolean complete = unit.getBuildProgress() >= 1.0f;
+            int attackUpgrade = unit.getAttackUpgradeLevel().orElse(0);
+            float ground = complete ? combatData.damagePerSecond(type, attackUpgrade, -1, false, 0.0f) : 0.0f;
+            float air = complete ? combatData.damagePerSecond(type, attackUpgrade, -1, true, 0.0f) : 0.0f;
+            float range = Math.max(
+                    ground > 0.0f ? combatData.getRange(type, false) : 0.0f,
+                    air > 0.0f ? combatData.getRange(type, true) : 0.0f);
+            float radius = ground > 0.0f || air > 0.0f ? range + unit.getRadius() : 0.0f;
+            stamp(unit.getTag(), unit.getX(), unit.getY(), radius, ground, air, unit.getDetectRange().orElse(0.0f))
+                    .updated = true;
+        }
+        Iterator<Stamp> iterator = stamps.values().iterator();
+        while (iterator.hasNext()) {
+            Stamp stamp = iterator.next();
+            if (stamp.updated && stamp.generation != generation) {
+                apply(stamp, -1);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Stamps (or moves the stamp of) a unit with explicit threat values, e.g. a remembered enemy out of vision. The
+     * stamp is kept until removed or until the unit is passed to {@link #update(Collection)}.
+     *
+     * @param radius Radius of the ground and air threat around the unit.
+     * @param detectRange Radius of the detection around the unit, 0 for units that are not detectors.
+     */
+    public void put(Tag tag, float x, float y, float radius, float groundDps, float airDps, float detectRange) {
+        require("tag", tag);
+        stamp(tag, x, y, radius, groundDps, airDps, detectRange).updated = false;
+    }
+
+    private Stamp stamp(Tag tag, float x, float y, float radius, float groundDps, float airDps, float detectRange) {
+        Stamp stamp = stamps.get(tag);
+        int cellX = clamp((int) x, width);
+        int cellY = clamp((int) y, height);
+        int ground = Math.round(groundDps * SCALE);
+        int air = Math.round(airDps * SCALE);
+        int detection = detectRange > 0.0f ? 1 : 0;
+        if (stamp == null) {
+            stamp = new Stamp();
+            stamps.put(tag, stamp);
+        } else if (stamp.cellX == cellX && stamp.cellY == cellY && stamp.radius == radius
+                && stamp.detectRange == detectRange
+                && stamp.values[Layer.GROUND.ordinal()] == ground && stamp.values[Layer.AIR.ordinal()] == air) {
+            stamp.generation = generation;
+            return stamp;
+        } else {
+            apply(stamp, -1);
+        }
+        stamp.cellX = cellX;
+        stamp.cellY = cellY;
+        stamp.radius = radius;
+        stamp.detectRange = detectRange;
+        stamp.values[Layer.GROUND.ordinal()] = ground;
+        stamp.values[Layer.AIR.ordinal()] = air;
+        stamp.values[Layer.DETECTION.ordinal()] = detection;
+        stamp.generation = generation;
+        apply(stamp, 1);
+        return stamp;
+    }
+
+    /**
+     * @return true if the unit had a stamp.
+     */
+    public boolean remove(Tag tag) {
+        require("tag", tag);
+        Stamp stamp = stamps.remove(tag);
+        if (stamp == null) return false;
+        apply(stamp, -1);
+        return true;
+    }
+
+    public void clear() {
+        stamps.clear();
+        for (int[] layer : layers) Arrays.fill(layer, 0);
+    }
+
+    private void apply(Stamp stamp, int sign) {
+        int ground = stamp.values[Layer.GROUND.ordinal()] * sign;
+        int air = stamp.values[Layer.AIR.ordinal()] * sign;
+        if (ground != 0) addDisc(layers[Layer.GROUND.ordinal()], stamp.cellX, stamp.cellY, stamp.radius, ground);
+        if (air != 0) addDisc(layers[Layer.AIR.ordinal()], stamp.cellX, stamp.cellY, stamp.radius, air);
+        int detection = stamp.values[Layer.DETECTION.ordinal()] * sign;
+        if (detection != 0) {
+            addDisc(layers[Layer.DETECTION.ordinal()], stamp.cellX, stamp.cellY, stamp.detectRange, detection);
+        }
+    }
+
+    // Adds the value to the cells whose center is within the radius of the center of the given cell, row by row.
+    private void addDisc(int[] layer, int cellX, int cellY, float radius, int value) {
+        int reach = (int) radius;
+        int minY = Math.max(0, cellY - reach);
+        int maxY = Math.min(height - 1, cellY + reach);
+        float radiusSquared = radius * radius;
+        for (int y = minY; y <= maxY; y++) {
+            int dy = y - cellY;
+            int span = (int) Math.sqrt(radiusSquared - dy * dy);
+            int from = y * width + Math.max(0, cellX - span);
+            int to = y * width + Math.min(width - 1, cellX + span);
+            for (int i = from; i <= to; i++) layer[i] += value;
+        }
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.min(size - 1, Math.max(0, value));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return number of stamped units.
+     */
+    public int size() {
+        return stamps.size();
+    }
+
+    /**
+     * @return damage per second (or number of detectors) at the cell, 0 outside of the map.
+     */
+    public float get(Layer layer, int x, int y) {
+        require("layer", layer);
+        if (x < 0 || y < 0 || x >= width || y >= height) return 0.0f;
+        int value = layers[layer.ordinal()][y * width + x];
+        return layer == Layer.DETECTION ? value : value / SCALE;
+    }
+
+    public float get(Layer layer, Point2d point) {
+        require("point", point);
+        return get(layer, (int) point.getX(), (int) point.getY());
+    }
+
+    public boolean isDetected(Point2d point) {
+        return get(Layer.DETECTION, point) > 0.0f;
+    }
+
+    /**
+     * @return center of the cell with the lowest value within the radius, the closest to the point on ties.
+     */
+    public Optional<Point2d> findSafestCell(Layer layer, Point2d point, float radius) {
+        return findSafestCell(layer, point, radius, null);
+    }
+
+    /**
+     * @return center of the pathable cell with the lowest value within the radius, the closest to the point on ties.
+     */
+    public Optional<Point2d> findSafestCell(Layer layer, Point2d point, float radius, MapGrid grid) {
+        require("layer", layer);
+        require("point", point);
+        int[] values = layers[layer.ordinal()];
+        int centerX = (int) point.getX();
+        int centerY = (int) point.getY();
+        int reach = (int) radius;
+        float radiusSquared = radius * radius;
+        int best = -1;
+        int bestValue = Integer.MAX_VALUE;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int y = Math.max(0, centerY - reach); y <= Math.min(height - 1, centerY + reach); y++) {
+            int dy = y - centerY;
+            int span = (int) Math.sqrt(radiusSquared - dy * dy);
+            for (int x = Math.max(0, centerX - span); x <= Math.min(width - 1, centerX + span); x++) {
+                int i = y * width + x;
+                int dx = x - centerX;
+                int distance = dx * dx + dy * dy;
+                if (values[i] > bestValue || values[i] == bestValue && distance >= bestDistance) continue;
+                if (grid != null && !grid.isPathable(x, y)) continue;
+                best = i;
+                bestValue = values[i];
+                bestDistance = distance;
+            }
+        }
+        return best < 0
+                ? Optional.empty()
+                : Optional.of(Point2d.of(best % width + 0.5f, best / width + 0.5f));
+    }
+}
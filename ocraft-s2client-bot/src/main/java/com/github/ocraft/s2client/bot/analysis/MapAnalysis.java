@@ -0,0 +1,323 @@
+package com.github.ocraft.s2client.bot.analysis;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.spatial.Point;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Immutable result of the {@link MapAnalyzer}. Depends only on the map and the game data version so it can be
+ * shared by all agents and persisted between games (see {@link MapAnalysisCache}).
+ */
+public final class MapAnalysis {
+
+    static final int FORMAT_VERSION = 1;
+    static final int NO_REGION = 0;
+
+    private final String mapName;
+    private final String dataVersion;
+    private final List<Point> expansions;
+    private final List<Region> regions;
+    private final List<Ramp> ramps;
+    private final List<Chokepoint> chokepoints;
+    private final int width;
+    private final int height;
+    private final short[] regionIds;
+
+    MapAnalysis(
+            String mapName,
+            String dataVersion,
+            List<Point> expansions,
+            List<Region> regions,
+            List<Ramp> ramps,
+            List<Chokepoint> chokepoints,
+            int width,
+            int height,
+            short[] regionIds) {
+        this.mapName = mapName;
+        this.dataVersion = dataVersion;
+        this.expansions = Collections.unmodifiableList(new ArrayList<>(expansions));
+        this.regions = Collections.unmodifiableList(new ArrayList<>(regions));
+        this.ramps = Collections.unmodifiableList(new ArrayList<>(ramps));
+        this.chokepoints = Collections.unmodifiableList(new ArrayList<>(chokepoints));
+        this.width = width;
+        this.height = height;
+        this.regionIds = regionIds;
+    }
+
+    public String getMapName() {
+        return mapName;
+    }
+
+    public String getDataVersion() {
+        return dataVersion;
+    }
+
+    /**
+     * @return Town hall locations, one for each resource cluster in the order of the resource units.
+     */
+    public List<Point> getExpansions() {
+        return expansions;
+    }
+
+    public List<Region> getRegions() {
+        return regions;
+    }
+
+    public List<Ramp> getRamps() {
+        return ramps;
+    }
+
+    public List<Chokepoint> getChokepoints() {
+        return chokepoints;
+    }
+
+    /**
+     * @return Region containing the point, empty for unbuildable terrain (ramps, cliffs, out of map).
+     */
+    public Optional<Region> getRegion(Point2d point) {
+        int x = (int) point.getX();
+        int y = (int) point.getY();
+        if (point.getX() < 0 || point.getY() < 0 || x >= width || y >= height) return Optional.empty();
+        int id = regionIds[y * width + x];
+        return id == NO_REGION ? Optional.empty() : Optional.of(regions.get(id - 1));
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Id of the region containing the cell {@code y * width + x}, {@link #NO_REGION} for none.
+     */
+    int getRegionId(int cell) {
+        return regionIds[cell];
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(mapName);
+        out.writeUTF(dataVersion);
+        out.writeInt(expansions.size());
+        for (Point expansion : expansions) {
+            out.writeFloat(expansion.getX());
+            out.writeFloat(expansion.getY());
+            out.writeFloat(expansion.getZ());
+        }
+        out.writeInt(regions.size());
+        for (Region region : regions) {
+            writePoint(out, region.center);
+            out.writeInt(region.area);
+            out.writeFloat(region.height);
+        }
+        out.writeInt(ramps.size());
+        for (Ramp ramp : ramps) {
+            writePoint(out, ramp.center);
+            out.writeInt(ramp.area);
+            out.writeInt(ramp.upperRegionId);
+            out.writeInt(ramp.lowerRegionId);
+        }
+        out.writeInt(chokepoints.size());
+        for (Chokepoint chokepoint : chokepoints) {
+            writePoint(out, chokepoint.center);
+            out.writeFloat(chokepoint.width);
+        }
+        out.writeInt(width);
+        out.writeInt(height);
+        for (short regionId : regionIds) out.writeShort(regionId);
+    }
+
+    static MapAnalysis readFrom(DataInput in) throws IOException {
+        int formatVersion = in.readInt();
+        if (formatVersion != FORMAT_VERSION) throw new IOException("unsupported format version: " + formatVersion);
+        String mapName = in.readUTF();
+        String dataVersion = in.readUTF();
+        List<Point> expansions = new ArrayList<>();
+        for (int i = 0, n = in.readInt(); i < n; i++) {
+            expansions.add(Point.of(in.readFloat(), in.readFloat(), in.readFloat()));
+        }
+        List<Region> regions = new ArrayList<>();
+        for (int i = 0, n = in.readInt(); i < n; i++) {
+            regions.add(new Region(i + 1, readPoint(in), in.readInt(), in.readFloat()));
+        }
+        List<Ramp> ramps = new ArrayList<>();
+        for (int i = 0, n = in.readInt(); i < n; i++) {
+            ramps.add(new Ramp(readPoint(in), in.readInt(), in.readInt(), in.readInt()));
+        }
+        List<Chokepoint> chokepoints = new ArrayList<>();
+        for (int i = 0, n = in.readInt(); i < n; i++) {
+            chokepoints.add(new Chokepoint(readPoint(in), in.readFloat()));
+        }
+        int width = in.readInt();
+        int height = in.readInt();
+        short[] regionIds = new short[width * height];
+        for (int i = 0; i < regionIds.length; i++) regionIds[i] = in.readShort();
+        return new MapAnalysis(mapName, dataVersion, expansions, regions, ramps, chokepoints, width, height, regionIds);
+    }
+
+    private static void writePoint(DataOutput out, Point2d point) throws IOException {
+        out.writeFloat(point.getX());
+        out.writeFloat(point.getY());
+    }
+
+    private static Point2d readPoint(DataInput in) throws IOException {
+        return Point2d.of(in.readFloat(), in.readFloat());
+    }
+
+    @Override
+    public String toString() {
+        return "MapAnalysis{" +
+                "mapName='" + mapName + '\'' +
+                ", dataVersion='" + dataVersion + '\'' +
+                ", expansions=" + expansions.size() +
+                ", regions=" + regions.size() +
+                ", ramps=" + ramps.size() +
+                ", chokepoints=" + chokepoints.size() +
+                '}';
+    }
+
+    /**
+     * Connected area of buildable terrain on the same height level.
+     */
+    public static final class Region {
+        private final int id;
+        private final Point2d center;
+        private final int area;
+        private final float height;
+
+        Region(int id, Point2d center, int area, float height) {
+            this.id = id;
+            this.center = center;
+            this.area = area;
+            this.height = height;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public Point2d getCenter() {
+            return center;
+        }
+
+        /**
+         * @return Number of grid cells.
+         */
+        public int getArea() {
+            return area;
+        }
+
+        public float getHeight() {
+            return height;
+        }
+
+        @Override
+        public String toString() {
+            return "Region{id=" + id + ", center=" + center + ", area=" + area + ", height=" + height + '}';
+        }
+    }
+
+    /**
+     * Pathable but unbuildable slope connecting regions on different height levels.
+     */
+    public static final class Ramp {
+        private final Point2d center;
+        private final int area;
+        private final int upperRegionId;
+        private final int lowerRegionId;
+
+        Ramp(Point2d center, int area, int upperRegionId, int lowerRegionId) {
+            this.center = center;
+            this.area = area;
+            this.upperRegionId = upperRegionId;
+            this.lowerRegionId = lowerRegionId;
+        }
+
+        public Point2d getCenter() {
+            return center;
+        }
+
+        public int getArea() {
+            return area;
+        }
+
+        public int getUpperRegionId() {
+            return upperRegionId;
+        }
+
+        public int getLowerRegionId() {
+            return lowerRegionId;
+        }
+
+        @Override
+        public String toString() {
+            return "Ramp{center=" + center + ", area=" + area +
+                    ", upperRegionId=" + upperRegionId + ", lowerRegionId=" + lowerRegionId + '}';
+        }
+    }
+
+    /**
+     * Narrow passage of pathable terrain.
+     */
+    public static final class Chokepoint {
+        private final Point2d center;
+        private final float width;
+
+        Chokepoint(Point2d center, float width) {
+            this.center = center;
+            this.width = width;
+        }
+
+        public Point2d getCenter() {
+            return center;
+        }
+
+        /**
+         * @return Width of the passage in grid cells.
+         */
+        public float getWidth() {
+            return width;
+        }
+
+        @Override
+        public String toString() {
+            return "Chokepoint{center=" + center + ", width=" + width + '}';
+        }
+    }
+}
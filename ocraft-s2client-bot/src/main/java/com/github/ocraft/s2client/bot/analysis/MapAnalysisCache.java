@@ -0,0 +1,161 @@
+package com.github.ocraft.s2client.bot.analysis;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.S2Agent;
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.isSet;
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Two level cache of {@link MapAnalysis} keyed by map name and game data version: analyses are kept in memory and
+ * persisted as files in the cache directory, so the analysis of a map is computed once and then loaded in the
+ * following games. One instance should be shared by all agents of the process. Unreadable or outdated files are
+ * treated as missing and overwritten.
+ */
+public class MapAnalysisCache {
+
+    private static final String FILE_EXTENSION = ".analysis";
+
+    private final Logger log = LoggerFactory.getLogger(MapAnalysisCache.class);
+
+    private final Path directory;
+    private final Map<String, MapAnalysis> analyses = new ConcurrentHashMap<>();
+
+    public MapAnalysisCache(Path directory) {
+        require("cache directory", directory);
+        this.directory = directory;
+    }
+
+    public Optional<MapAnalysis> get(String mapName, String dataVersion) {
+        require("map name", mapName);
+        require("data version", dataVersion);
+        String key = keyOf(mapName, dataVersion);
+        MapAnalysis analysis = analyses.get(key);
+        if (isSet(analysis)) return Optional.of(analysis);
+
+        Optional<MapAnalysis> loaded = load(key, mapName, dataVersion);
+        loaded.ifPresent(loadedAnalysis -> analyses.putIfAbsent(key, loadedAnalysis));
+        return loaded;
+    }
+
+    public void put(MapAnalysis analysis) {
+        require("map analysis", analysis);
+        String key = keyOf(analysis.getMapName(), analysis.getDataVersion());
+        analyses.put(key, analysis);
+        save(key, analysis);
+    }
+
+    /**
+     * Returns the cached analysis of the map or computes it. Concurrent calls for the same map wait for the analysis
+     * started by the first one instead of analyzing the map again.
+     */
+    public MapAnalysis getOrAnalyze(String mapName, String dataVersion, Supplier<MapAnalysis> analyzer) {
+        require("map name", mapName);
+        require("data version", dataVersion);
+        require("analyzer", analyzer);
+        MapAnalysis cached = analyses.get(keyOf(mapName, dataVersion));
+        if (isSet(cached)) return cached;
+        return analyses.computeIfAbsent(keyOf(mapName, dataVersion), key -> {
+            Optional<MapAnalysis> loaded = load(key, mapName, dataVersion);
+            if (loaded.isPresent()) return loaded.get();
+            MapAnalysis analysis = analyzer.get();
+            require("map analysis", analysis);
+            save(keyOf(analysis.getMapName(), analysis.getDataVersion()), analysis);
+            return analysis;
+        });
+    }
+
+    /**
+     * Returns analysis of the map the agent is playing on, analyzes the map if it is not cached yet. Should be
+     * called at the start of the game (i.e. in {@link S2Agent#onGameStart()}).
+     */
+    public MapAnalysis getOrAnalyze(S2Agent agent) {
+        require("agent", agent);
+        ObservationInterface observation = agent.observation();
+        String dataVersion = agent.control().proto().getDataVersion();
+        return getOrAnalyze(
+                observation.getGameInfo().getMapName(),
+                dataVersion,
+                () -> new MapAnalyzer().analyze(observation, dataVersion));
+    }
+
+    public void clear() {
+        analyses.clear();
+    }
+
+    private Optional<MapAnalysis> load(String key, String mapName, String dataVersion) {
+        return load(key).filter(loadedAnalysis -> mapName.equals(loadedAnalysis.getMapName()) &&
+                dataVersion.equals(loadedAnalysis.getDataVersion()));
+    }
+
+    private Optional<MapAnalysis> load(String key) {
+        Path file = directory.resolve(key + FILE_EXTENSION);
+        if (!Files.isRegularFile(file)) return Optional.empty();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return Optional.of(MapAnalysis.readFrom(in));
+        } catch (IOException e) {
+            log.warn("Cannot read map analysis from {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void save(String key, MapAnalysis analysis) {
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, key, ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                    analysis.writeTo(out);
+                }
+                Files.move(temporary, directory.resolve(key + FILE_EXTENSION),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            log.warn("Cannot write map analysis to {}: {}", directory, e.getMessage());
+        }
+    }
+
+    static String keyOf(String mapName, String dataVersion) {
+        return (mapName + "_" + dataVersion).replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
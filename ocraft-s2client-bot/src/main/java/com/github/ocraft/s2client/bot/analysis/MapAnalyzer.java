@@ -0,0 +1,351 @@
+package com.github.ocraft.s2client.bot.analysis;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.gateway.ExpansionParameters;
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.QueryInterface;
+import com.github.ocraft.s2client.bot.gateway.Resources;
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.spatial.Point;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Computes expansion locations, regions, ramps and chokepoints from the static map grids and the resource units
+ * visible at the start of the game. Everything is computed locally, no queries are sent to the game.
+ * <p>
+ * Resources are clustered the same way as in {@link QueryInterface#calculateExpansionLocations}, but instead of
+ * placement queries the town hall footprint is checked against the placement grid and the resource exclusion zone.
+ */
+public final class MapAnalyzer {
+
+    static final float TOWN_HALL_HALF_SIZE = 2.5f;
+    private static final float RESOURCE_GAP = 3.0f;
+    private static final float MAX_TOWN_HALL_DISTANCE = 10.0f;
+    private static final float REGION_HEIGHT_TOLERANCE = 0.5f;
+    private static final float RAMP_MIN_HEIGHT_DIFFERENCE = 1.0f;
+    private static final int MIN_REGION_AREA = 16;
+    private static final int MAX_CHOKEPOINT_WIDTH = 6;
+    private static final int MIN_CHOKEPOINT_CELLS = 2;
+    private static final float DIAGONAL = (float) Math.sqrt(2.0);
+
+    private static final int[][] NEIGHBOURS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    // Pairs of perpendicular directions.
+    private static final int[][] SPANS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+    private final ExpansionParameters parameters;
+
+    public MapAnalyzer() {
+        this(ExpansionParameters.preset());
+    }
+
+    public MapAnalyzer(ExpansionParameters parameters) {
+        require("expansion parameters", parameters);
+        this.parameters = parameters;
+    }
+
+    /**
+     * Analyzes the map of the current game. Should be called at the start of the game when all resources are
+     * still on the map.
+     */
+    public MapAnalysis analyze(ObservationInterface observation, String dataVersion) {
+        return analyze(
+                observation.getGameInfo().getMapName(),
+                dataVersion,
+                MapGrid.from(observation),
+                observation.getUnits(Resources.isResource()));
+    }
+
+    /**
+     * @param resources Mineral fields and vespene geysers of the map (see {@link Resources#isResource()}).
+     */
+    public MapAnalysis analyze(String mapName, String dataVersion, MapGrid grid, List<UnitInPool> resources) {
+        require("map name", mapName);
+        require("data version", dataVersion);
+        require("grid", grid);
+        require("resources", resources);
+
+        short[] regionIds = new short[grid.getWidth() * grid.getHeight()];
+        List<MapAnalysis.Region> regions = regions(grid, regionIds);
+        return new MapAnalysis(
+                mapName,
+                dataVersion,
+                expansions(grid, resources),
+                regions,
+                ramps(grid, regionIds, regions),
+                chokepoints(grid),
+                grid.getWidth(),
+                grid.getHeight(),
+                regionIds);
+    }
+
+    private List<Point> expansions(MapGrid grid, List<UnitInPool> fields) {
+        Map<Point, List<UnitInPool>> clusters = QueryInterface.cluster(fields, parameters.getClusterDistance());
+
+        List<Point> expansions = new ArrayList<>();
+        for (Map.Entry<Point, List<UnitInPool>> cluster : clusters.entrySet()) {
+            Point2d center = cluster.getKey().toPoint2d();
+            List<Unit> nearby = nearbyResources(fields, center);
+
+            Point2d closest = null;
+            double distance = Double.MAX_VALUE;
+            int minX = (int) Math.floor(center.getX() - MAX_TOWN_HALL_DISTANCE);
+            int minY = (int) Math.floor(center.getY() - MAX_TOWN_HALL_DISTANCE);
+            int maxX = (int) Math.ceil(center.getX() + MAX_TOWN_HALL_DISTANCE);
+            int maxY = (int) Math.ceil(center.getY() + MAX_TOWN_HALL_DISTANCE);
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    Point2d candidate = Point2d.of(x + 0.5f, y + 0.5f);
+                    double d = candidate.distance(center);
+                    if (d > MAX_TOWN_HALL_DISTANCE || d >= distance) continue;
+                    if (canPlaceTownHall(grid, candidate, nearby)) {
+                        distance = d;
+                        closest = candidate;
+                    }
+                }
+            }
+
+            if (closest != null) {
+                expansions.add(Point.of(
+                        closest.getX(),
+                        closest.getY(),
+                        cluster.getValue().get(0).unit().getPosition().getZ()));
+            }
+        }
+        return expansions;
+    }
+
+    private static List<Unit> nearbyResources(List<UnitInPool> fields, Point2d center) {
+        double reach = MAX_TOWN_HALL_DISTANCE + TOWN_HALL_HALF_SIZE + RESOURCE_GAP + 2.0;
+        List<Unit> nearby = new ArrayList<>();
+        for (UnitInPool field : fields) {
+            if (field.unit().getPosition().toPoint2d().distance(center) <= reach) nearby.add(field.unit());
+        }
+        return nearby;
+    }
+
+    static boolean canPlaceTownHall(MapGrid grid, Point2d center, List<Unit> resources) {
+        int left = (int) Math.floor(center.getX() - TOWN_HALL_HALF_SIZE);
+        int bottom = (int) Math.floor(center.getY() - TOWN_HALL_HALF_SIZE);
+        int size = (int) (2 * TOWN_HALL_HALF_SIZE);
+        for (int y = bottom; y < bottom + size; y++) {
+            for (int x = left; x < left + size; x++) {
+                if (!grid.isPlaceable(x, y)) return false;
+            }
+        }
+        return isClearOfResources(center, TOWN_HALL_HALF_SIZE, resources);
+    }
+
+    // Town halls can't be placed closer than 3 cells to the resource footprint.
+    static boolean isClearOfResources(Point2d center, float halfSize, List<Unit> resources) {
+        for (Unit resource : resources) {
+            Point position = resource.getPosition();
+            if (Math.abs(center.getX() - position.getX()) < halfSize + resourceHalfWidth(resource) + RESOURCE_GAP &&
+                    Math.abs(center.getY() - position.getY()) < halfSize + resourceHalfHeight(resource) + RESOURCE_GAP) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static float resourceHalfWidth(Unit resource) {
+        return Resources.isVespeneGeyser(resource.getType()) ? 1.5f : 1.0f;
+    }
+
+    static float resourceHalfHeight(Unit resource) {
+        return Resources.isVespeneGeyser(resource.getType()) ? 1.5f : 0.5f;
+    }
+
+    private static List<MapAnalysis.Region> regions(MapGrid grid, short[] regionIds) {
+        int width = grid.getWidth();
+        boolean[] buildable = new boolean[regionIds.length];
+        for (int i = 0; i < buildable.length; i++) {
+            buildable[i] = grid.isPathable(i % width, i / width) && grid.isPlaceable(i % width, i / width);
+        }
+
+        List<MapAnalysis.Region> regions = new ArrayList<>();
+        boolean[] visited = new boolean[regionIds.length];
+        int[] cells = new int[regionIds.length];
+        for (int start = 0; start < buildable.length && regions.size() < Short.MAX_VALUE; start++) {
+            if (!buildable[start] || visited[start]) continue;
+            int area = floodFill(grid, buildable, visited, start, REGION_HEIGHT_TOLERANCE, cells);
+            if (area < MIN_REGION_AREA) continue;
+
+            int id = regions.size() + 1;
+            double sumX = 0;
+            double sumY = 0;
+            double sumHeight = 0;
+            for (int i = 0; i < area; i++) {
+                int x = cells[i] % width;
+                int y = cells[i] / width;
+                regionIds[cells[i]] = (short) id;
+                sumX += x;
+                sumY += y;
+                sumHeight += grid.heightAt(x, y);
+            }
+            regions.add(new MapAnalysis.Region(
+                    id, centerOf(sumX, sumY, area), area, (float) (sumHeight / area)));
+        }
+        return regions;
+    }
+
+    private static List<MapAnalysis.Ramp> ramps(MapGrid grid, short[] regionIds, List<MapAnalysis.Region> regions) {
+        int width = grid.getWidth();
+        boolean[] slope = new boolean[regionIds.length];
+        for (int i = 0; i < slope.length; i++) {
+            slope[i] = grid.isPathable(i % width, i / width) && !grid.isPlaceable(i % width, i / width);
+        }
+
+        List<MapAnalysis.Ramp> ramps = new ArrayList<>();
+        boolean[] visited = new boolean[regionIds.length];
+        int[] cells = new int[regionIds.length];
+        for (int start = 0; start < slope.length; start++) {
+            if (!slope[start] || visited[start]) continue;
+            int area = floodFill(grid, slope, visited, start, Float.MAX_VALUE, cells);
+
+            MapAnalysis.Region upper = null;
+            MapAnalysis.Region lower = null;
+            double sumX = 0;
+            double sumY = 0;
+            for (int i = 0; i < area; i++) {
+                int x = cells[i] % width;
+                int y = cells[i] / width;
+                sumX += x;
+                sumY += y;
+                for (int[] neighbour : NEIGHBOURS) {
+                    int nx = x + neighbour[0];
+                    int ny = y + neighbour[1];
+                    if (!grid.contains(nx, ny)) continue;
+                    int regionId = regionIds[ny * width + nx];
+                    if (regionId == MapAnalysis.NO_REGION) continue;
+                    MapAnalysis.Region region = regions.get(regionId - 1);
+                    if (upper == null || region.getHeight() > upper.getHeight()) upper = region;
+                    if (lower == null || region.getHeight() < lower.getHeight()) lower = region;
+                }
+            }
+            if (upper != null && upper.getHeight() - lower.getHeight() >= RAMP_MIN_HEIGHT_DIFFERENCE) {
+                ramps.add(new MapAnalysis.Ramp(centerOf(sumX, sumY, area), area, upper.getId(), lower.getId()));
+            }
+        }
+        return ramps;
+    }
+
+    private static List<MapAnalysis.Chokepoint> chokepoints(MapGrid grid) {
+        int width = grid.getWidth();
+        int cellCount = width * grid.getHeight();
+        boolean[] narrow = new boolean[cellCount];
+        float[] widths = new float[cellCount];
+        for (int i = 0; i < cellCount; i++) {
+            int x = i % width;
+            int y = i / width;
+            if (!grid.isPathable(x, y)) continue;
+            float narrowest = Float.MAX_VALUE;
+            for (int s = 0; s < SPANS.length; s++) {
+                int[] span = SPANS[s];
+                int forward = run(grid, x, y, span[0], span[1]);
+                int backward = run(grid, x, y, -span[0], -span[1]);
+                if (forward > MAX_CHOKEPOINT_WIDTH || backward > MAX_CHOKEPOINT_WIDTH) continue;
+                // The passage has to continue in the perpendicular direction, otherwise it is a corner or a dead end.
+                int[] across = SPANS[s ^ 1];
+                if (run(grid, x, y, across[0], across[1]) <= MAX_CHOKEPOINT_WIDTH ||
+                        run(grid, x, y, -across[0], -across[1]) <= MAX_CHOKEPOINT_WIDTH) {
+                    continue;
+                }
+                float spanWidth = (forward + backward + 1) * (span[0] != 0 && span[1] != 0 ? DIAGONAL : 1.0f);
+                narrowest = Math.min(narrowest, spanWidth);
+            }
+            narrow[i] = narrowest <= MAX_CHOKEPOINT_WIDTH;
+            widths[i] = narrowest;
+        }
+
+        List<MapAnalysis.Chokepoint> chokepoints = new ArrayList<>();
+        boolean[] visited = new boolean[cellCount];
+        int[] cells = new int[cellCount];
+        for (int start = 0; start < cellCount; start++) {
+            if (!narrow[start] || visited[start]) continue;
+            int area = floodFill(grid, narrow, visited, start, Float.MAX_VALUE, cells);
+            if (area < MIN_CHOKEPOINT_CELLS) continue;
+
+            double sumX = 0;
+            double sumY = 0;
+            float chokeWidth = Float.MAX_VALUE;
+            for (int i = 0; i < area; i++) {
+                sumX += cells[i] % width;
+                sumY += cells[i] / width;
+                chokeWidth = Math.min(chokeWidth, widths[cells[i]]);
+            }
+            chokepoints.add(new MapAnalysis.Chokepoint(centerOf(sumX, sumY, area), chokeWidth));
+        }
+        return chokepoints;
+    }
+
+    // Number of consecutive pathable cells in the direction, stops counting after the maximal chokepoint width.
+    private static int run(MapGrid grid, int x, int y, int dx, int dy) {
+        int count = 0;
+        while (count <= MAX_CHOKEPOINT_WIDTH && grid.isPathable(x + (count + 1) * dx, y + (count + 1) * dy)) {
+            count++;
+        }
+        return count;
+    }
+
+    // 4-connected flood fill, visited cells are stored in the cells array. Returns the number of visited cells.
+    private static int floodFill(
+            MapGrid grid, boolean[] mask, boolean[] visited, int start, float heightTolerance, int[] cells) {
+        int width = grid.getWidth();
+        int tail = 0;
+        cells[tail++] = start;
+        visited[start] = true;
+        for (int head = 0; head < tail; head++) {
+            int x = cells[head] % width;
+            int y = cells[head] / width;
+            float height = grid.heightAt(x, y);
+            for (int[] neighbour : NEIGHBOURS) {
+                int nx = x + neighbour[0];
+                int ny = y + neighbour[1];
+                if (!grid.contains(nx, ny)) continue;
+                int next = ny * width + nx;
+                if (visited[next] || !mask[next] || Math.abs(grid.heightAt(nx, ny) - height) > heightTolerance) {
+                    continue;
+                }
+                visited[next] = true;
+                cells[tail++] = next;
+            }
+        }
+        return tail;
+    }
+
+    private static Point2d centerOf(double sumX, double sumY, int area) {
+        return Point2d.of((float) (sumX / area) + 0.5f, (float) (sumY / area) + 0.5f);
+    }
+}
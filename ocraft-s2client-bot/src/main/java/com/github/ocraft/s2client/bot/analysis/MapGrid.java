@@ -0,0 +1,116 @@
+package com.github.ocraft.s2client.bot.analysis;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.protocol.game.raw.StartRaw;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.spatial.Size2dI;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Static terrain of the map (pathing, placement and height) decoded from the {@link StartRaw} images into flat
+ * arrays indexed by {@code y * width + x}. Cells outside of the map are neither pathable nor placeable.
+ */
+public final class MapGrid {
+
+    private final int width;
+    private final int height;
+    private final boolean[] pathable;
+    private final boolean[] placeable;
+    private final float[] heights;
+
+    private MapGrid(int width, int height, boolean[] pathable, boolean[] placeable, float[] heights) {
+        this.width = width;
+        this.height = height;
+        this.pathable = pathable;
+        this.placeable = placeable;
+        this.heights = heights;
+    }
+
+    public static MapGrid of(int width, int height, boolean[] pathable, boolean[] placeable, float[] heights) {
+        require("pathable", pathable);
+        require("placeable", placeable);
+        require("heights", heights);
+        int cells = width * height;
+        if (width <= 0 || height <= 0 ||
+                pathable.length != cells || placeable.length != cells || heights.length != cells) {
+            throw new IllegalArgumentException("grid arrays must have width * height cells");
+        }
+        return new MapGrid(width, height, pathable.clone(), placeable.clone(), heights.clone());
+    }
+
+    /**
+     * Decodes grids of the current game. Sampling goes through the observation so image origin and height scale
+     * of the game version are respected.
+     */
+    public static MapGrid from(ObservationInterface observation) {
+        StartRaw startRaw = observation.getGameInfo().getStartRaw()
+                .orElseThrow(() -> new IllegalStateException("start raw is required"));
+        Size2dI size = startRaw.getPathingGrid().getSize();
+        int width = size.getX();
+        int height = size.getY();
+        boolean[] pathable = new boolean[width * height];
+        boolean[] placeable = new boolean[width * height];
+        float[] heights = new float[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                Point2d cellCenter = Point2d.of(x + 0.5f, y + 0.5f);
+                int i = y * width + x;
+                pathable[i] = observation.isPathable(cellCenter);
+                placeable[i] = observation.isPlacable(cellCenter);
+                heights[i] = observation.terrainHeight(cellCenter);
+            }
+        }
+        return new MapGrid(width, height, pathable, placeable, heights);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean contains(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    public boolean isPathable(int x, int y) {
+        return contains(x, y) && pathable[y * width + x];
+    }
+
+    public boolean isPlaceable(int x, int y) {
+        return contains(x, y) && placeable[y * width + x];
+    }
+
+    public float heightAt(int x, int y) {
+        return contains(x, y) ? heights[y * width + x] : 0.0f;
+    }
+}
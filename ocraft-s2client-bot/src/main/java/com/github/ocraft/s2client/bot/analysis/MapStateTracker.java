@@ -0,0 +1,577 @@
+package com.github.ocraft.s2client.bot.analysis;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.protocol.observation.Observation;
+import com.github.ocraft.s2client.protocol.observation.raw.MapState;
+import com.github.ocraft.s2client.protocol.observation.raw.ObservationRaw;
+import com.github.ocraft.s2client.protocol.observation.raw.Visibility;
+import com.github.ocraft.s2client.protocol.observation.spatial.ImageData;
+import com.github.ocraft.s2client.protocol.spatial.Size2dI;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.isSet;
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Visibility and creep of the map tracked from frame to frame. Every {@link #update} decodes the {@link MapState}
+ * images into bit grids indexed by {@code y * width + x} (bottom left origin, like {@link MapGrid}) and XORs them with
+ * the previous frame word by word, so the bookkeeping (changed cells, last seen loop, visible and creep counts, creep
+ * frontier, region aggregates) costs only the changed cells:
+ * <pre>{@code
+ * MapStateTracker tracker = MapStateTracker.of(analysis);
+ * ...
+ * tracker.update(observation());
+ * tracker.forEachCellNotSeenFor(2000, (x, y) -> scoutTargets.add(x, y));
+ * }</pre>
+ * Fogged and hidden cells have the last loop they were seen at, cells never seen have {@link #NEVER}. Full hidden
+ * cells are reported as hidden. Not thread safe.
+ */
+public final class MapStateTracker {
+
+    /**
+     * Last seen loop of cells that were never visible.
+     */
+    public static final long NEVER = -1L;
+
+    private static final int VISIBILITY_FOGGED = 1;
+    private static final int VISIBILITY_VISIBLE = 2;
+
+    @FunctionalInterface
+    public interface CellConsumer {
+        void accept(int x, int y);
+    }
+
+    private final int width;
+    private final int height;
+    private final int cellCount;
+    private final int wordCount;
+    private final MapAnalysis analysis;
+
+    private long[] visible;
+    private long[] explored;
+    private long[] creep;
+    private long[] nextVisible;
+    private long[] nextExplored;
+    private long[] nextCreep;
+    private final long[] changedVisibility;
+    private final long[] changedCreep;
+    private final long[] creepFrontier;
+    private final long[] lastSeen;
+    private final byte[] pixels;
+
+    // Cells in the order they stopped being visible, the loop at which they were seen last is non-decreasing. Entries
+    // before the head were dropped, stale entries (cells seen again since) are dropped off the front as they are met.
+    private int[] hiddenCells;
+    private long[] hiddenLoops;
+    private int hiddenHead;
+    private int hiddenCount;
+
+    private final int[] visibleByRegion;
+    private final int[] creepByRegion;
+    private final int[] areaByRegion;
+
+    private long gameLoop = NEVER;
+    private int visibleCount;
+    private int creepCount;
+    private int creepFrontierCount;
+    private int changedVisibilityCount;
+    private int changedCreepCount;
+
+    private MapStateTracker(int width, int height, MapAnalysis analysis) {
+        this.width = width;
+        this.height = height;
+        this.analysis = analysis;
+        cellCount = width * height;
+        wordCount = (cellCount + Long.SIZE - 1) / Long.SIZE;
+        visible = new long[wordCount];
+        explored = new long[wordCount];
+        creep = new long[wordCount];
+        nextVisible = new long[wordCount];
+        nextExplored = new long[wordCount];
+        nextCreep = new long[wordCount];
+        changedVisibility = new long[wordCount];
+        changedCreep = new long[wordCount];
+        creepFrontier = new long[wordCount];
+        lastSeen = new long[cellCount];
+        pixels = new byte[cellCount];
+        hiddenCells = new int[cellCount * 2];
+        hiddenLoops = new long[cellCount * 2];
+
+        int regionCount = isSet(analysis) ? analysis.getRegions().size() + 1 : 1;
+        visibleByRegion = new int[regionCount];
+        creepByRegion = new int[regionCount];
+        areaByRegion = new int[regionCount];
+        if (isSet(analysis)) {
+            for (int cell = 0; cell < cellCount; cell++) areaByRegion[analysis.getRegionId(cell)]++;
+        }
+        reset();
+    }
+
+    public static MapStateTracker of(int width, int height) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("map size must be greater than 0");
+        return new MapStateTracker(width, height, null);
+    }
+
+    /**
+     * Tracker with visibility and creep aggregates of the regions of the analysis.
+     */
+    public static MapStateTracker of(MapAnalysis analysis) {
+        require("map analysis", analysis);
+        return new MapStateTracker(analysis.getWidth(), analysis.getHeight(), analysis);
+    }
+
+    private void reset() {
+        gameLoop = NEVER;
+        Arrays.fill(visible, 0L);
+        Arrays.fill(explored, 0L);
+        Arrays.fill(creep, 0L);
+        Arrays.fill(changedVisibility, 0L);
+        Arrays.fill(changedCreep, 0L);
+        Arrays.fill(creepFrontier, 0L);
+        Arrays.fill(lastSeen, NEVER);
+        for (int cell = 0; cell < cellCount; cell++) {
+            hiddenCells[cell] = cell;
+            hiddenLoops[cell] = NEVER;
+        }
+        hiddenHead = 0;
+        hiddenCount = cellCount;
+        Arrays.fill(visibleByRegion, 0);
+        Arrays.fill(creepByRegion, 0);
+        visibleCount = 0;
+        creepCount = 0;
+        creepFrontierCount = 0;
+        changedVisibilityCount = 0;
+        changedCreepCount = 0;
+    }
+
+    /**
+     * Updates the tracker with the map state of the current observation.
+     */
+    public void update(ObservationInterface observation) {
+        require("observation", observation);
+        MapState mapState = Optional.ofNullable(observation.getRawObservation())
+                .flatMap(Observation::getRaw)
+                .map(ObservationRaw::getMapState)
+                .orElseThrow(() -> new IllegalStateException("map state is required"));
+        update(observation.getGameLoop(), mapState, observation.getImageOrigin());
+    }
+
+    /**
+     * Updates the tracker with the map state observed at the game loop. A game loop earlier than the last one starts
+     * tracking from scratch (e.g. a new game).
+     *
+     * @param origin Origin of the images in the game version, see {@link ObservationInterface#getImageOrigin()}.
+     */
+    public void update(long gameLoop, MapState mapState, ImageData.Origin origin) {
+        require("map state", mapState);
+        require("origin", origin);
+        requireSize(mapState.getVisibility(), "visibility");
+        requireSize(mapState.getCreep(), "creep");
+        if (gameLoop < this.gameLoop) reset();
+
+        decodeVisibility(mapState.getVisibility(), origin);
+        decodeBits(mapState.getCreep(), origin, nextCreep);
+
+        long previousLoop = this.gameLoop;
+        this.gameLoop = gameLoop;
+        diffVisibility(previousLoop);
+        diffCreep();
+    }
+
+    private void requireSize(ImageData image, String name) {
+        Size2dI size = image.getSize();
+        if (size.getX() != width || size.getY() != height) {
+            throw new IllegalArgumentException(
+                    name + " size " + size.getX() + "x" + size.getY() + " doesn't match map size " +
+                            width + "x" + height);
+        }
+    }
+
+    private void decodeVisibility(ImageData image, ImageData.Origin origin) {
+        ByteBuffer data = image.getDataBuffer();
+        if (image.getBitsPerPixel() != Byte.SIZE) {
+            decodeVisibilityPixels(data, image.getBitsPerPixel(), origin);
+            return;
+        }
+        data.get(pixels, 0, cellCount);
+        long visibleWord = 0L;
+        long exploredWord = 0L;
+        int cell = 0;
+        for (int y = 0; y < height; y++) {
+            int row = imageRow(y, origin) * width;
+            for (int x = 0; x < width; x++) {
+                int value = pixels[row + x];
+                long bit = 1L << cell;
+                if (value == VISIBILITY_VISIBLE) {
+                    visibleWord |= bit;
+                    exploredWord |= bit;
+                } else if (value == VISIBILITY_FOGGED) {
+                    exploredWord |= bit;
+                }
+                if ((++cell & 63) == 0) {
+                    nextVisible[(cell >>> 6) - 1] = visibleWord;
+                    nextExplored[(cell >>> 6) - 1] = exploredWord;
+                    visibleWord = 0L;
+                    exploredWord = 0L;
+                }
+            }
+        }
+        if ((cellCount & 63) != 0) {
+            nextVisible[wordCount - 1] = visibleWord;
+            nextExplored[wordCount - 1] = exploredWord;
+        }
+    }
+
+    private void decodeVisibilityPixels(ByteBuffer data, int bitsPerPixel, ImageData.Origin origin) {
+        Arrays.fill(nextVisible, 0L);
+        Arrays.fill(nextExplored, 0L);
+        for (int y = 0; y < height; y++) {
+            int row = imageRow(y, origin) * width;
+            for (int x = 0, cell = y * width; x < width; x++, cell++) {
+                int value = value(data, bitsPerPixel, row + x);
+                if (value == VISIBILITY_VISIBLE) {
+                    nextVisible[cell >>> 6] |= 1L << cell;
+                    nextExplored[cell >>> 6] |= 1L << cell;
+                } else if (value == VISIBILITY_FOGGED) {
+                    nextExplored[cell >>> 6] |= 1L << cell;
+                }
+            }
+        }
+    }
+
+    private void decodeBits(ImageData image, ImageData.Origin origin, long[] bits) {
+        ByteBuffer data = image.getDataBuffer();
+        int bitsPerPixel = image.getBitsPerPixel();
+        if (bitsPerPixel == 1 && origin == ImageData.Origin.BOTTOM_LEFT) {
+            // Image bits are already in cell order, least significant bit first: eight bytes make one word.
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            int fullWords = data.remaining() / Long.BYTES;
+            for (int word = 0; word < wordCount; word++) {
+                if (word < fullWords) {
+                    bits[word] = data.getLong(word * Long.BYTES);
+                } else {
+                    long value = 0L;
+                    for (int b = word * Long.BYTES, shift = 0; b < data.remaining() && shift < Long.SIZE; b++) {
+                        value |= (data.get(b) & 0xFFL) << shift;
+                        shift += Byte.SIZE;
+                    }
+                    bits[word] = value;
+                }
+            }
+            int tail = cellCount % Long.SIZE;
+            if (tail != 0) bits[wordCount - 1] &= (1L << tail) - 1;
+            return;
+        }
+        Arrays.fill(bits, 0L);
+        for (int y = 0; y < height; y++) {
+            int row = imageRow(y, origin) * width;
+            for (int x = 0, cell = y * width; x < width; x++, cell++) {
+                if (value(data, bitsPerPixel, row + x) != 0) bits[cell >>> 6] |= 1L << cell;
+            }
+        }
+    }
+
+    private int imageRow(int y, ImageData.Origin origin) {
+        return origin == ImageData.Origin.UPPER_LEFT ? height - 1 - y : y;
+    }
+
+    private static int value(ByteBuffer data, int bitsPerPixel, int index) {
+        return bitsPerPixel == 1
+                ? (data.get(index >>> 3) >> (index & 7)) & 0x1
+                : data.get(index) & 0xFF;
+    }
+
+    private void diffVisibility(long previousLoop) {
+        changedVisibilityCount = 0;
+        for (int word = 0; word < wordCount; word++) {
+            long visibleChanged = visible[word] ^ nextVisible[word];
+            long changed = visibleChanged | (explored[word] ^ nextExplored[word]);
+            changedVisibility[word] = changed;
+            if (changed == 0L) continue;
+            changedVisibilityCount += Long.bitCount(changed);
+
+            for (long lost = visibleChanged & visible[word]; lost != 0L; lost &= lost - 1) {
+                int cell = (word << 6) + Long.numberOfTrailingZeros(lost);
+                lastSeen[cell] = previousLoop;
+                addHidden(cell, previousLoop);
+                visibleByRegion[regionOf(cell)]--;
+                visibleCount--;
+            }
+            for (long gained = visibleChanged & nextVisible[word]; gained != 0L; gained &= gained - 1) {
+                int cell = (word << 6) + Long.numberOfTrailingZeros(gained);
+                visibleByRegion[regionOf(cell)]++;
+                visibleCount++;
+            }
+        }
+        long[] swap = visible;
+        visible = nextVisible;
+        nextVisible = swap;
+        swap = explored;
+        explored = nextExplored;
+        nextExplored = swap;
+    }
+
+    private void addHidden(int cell, long loop) {
+        if (hiddenCount == hiddenCells.length) compactHidden();
+        hiddenCells[hiddenCount] = cell;
+        hiddenLoops[hiddenCount] = loop;
+        hiddenCount++;
+    }
+
+    // Drops entries of cells seen again since and moves the queue to the start, at most one entry per cell stays.
+    private void compactHidden() {
+        int kept = 0;
+        for (int i = hiddenHead; i < hiddenCount; i++) {
+            if (isCurrentHidden(i)) {
+                hiddenCells[kept] = hiddenCells[i];
+                hiddenLoops[kept] = hiddenLoops[i];
+                kept++;
+            }
+        }
+        hiddenHead = 0;
+        hiddenCount = kept;
+    }
+
+    private boolean isCurrentHidden(int entry) {
+        int cell = hiddenCells[entry];
+        return !bit(visible, cell) && lastSeen[cell] == hiddenLoops[entry];
+    }
+
+    private void diffCreep() {
+        changedCreepCount = 0;
+        long[] previous = creep;
+        creep = nextCreep;
+        nextCreep = previous;
+        for (int word = 0; word < wordCount; word++) {
+            long changed = previous[word] ^ creep[word];
+            changedCreep[word] = changed;
+            if (changed == 0L) continue;
+            changedCreepCount += Long.bitCount(changed);
+            for (long bits = changed; bits != 0L; bits &= bits - 1) {
+                int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+                int delta = bit(creep, cell) ? 1 : -1;
+                creepCount += delta;
+                creepByRegion[regionOf(cell)] += delta;
+            }
+        }
+        for (int word = 0; word < wordCount; word++) {
+            for (long bits = changedCreep[word]; bits != 0L; bits &= bits - 1) {
+                int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+                int x = cell % width;
+                int y = cell / width;
+                updateFrontier(x, y);
+                updateFrontier(x - 1, y);
+                updateFrontier(x + 1, y);
+                updateFrontier(x, y - 1);
+                updateFrontier(x, y + 1);
+            }
+        }
+    }
+
+    private void updateFrontier(int x, int y) {
+        if (!contains(x, y)) return;
+        int cell = y * width + x;
+        boolean frontier = bit(creep, cell) && (
+                isCreepFree(x - 1, y) || isCreepFree(x + 1, y) || isCreepFree(x, y - 1) || isCreepFree(x, y + 1));
+        if (frontier != bit(creepFrontier, cell)) {
+            creepFrontier[cell >>> 6] ^= 1L << cell;
+            creepFrontierCount += frontier ? 1 : -1;
+        }
+    }
+
+    private boolean isCreepFree(int x, int y) {
+        return contains(x, y) && !bit(creep, y * width + x);
+    }
+
+    private int regionOf(int cell) {
+        return isSet(analysis) ? analysis.getRegionId(cell) : MapAnalysis.NO_REGION;
+    }
+
+    private static boolean bit(long[] bits, int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0L;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean contains(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    /**
+     * @return Game loop of the last update or {@link #NEVER}.
+     */
+    public long getGameLoop() {
+        return gameLoop;
+    }
+
+    public Visibility getVisibility(int x, int y) {
+        if (!contains(x, y)) return Visibility.FULL_HIDDEN;
+        int cell = y * width + x;
+        if (bit(visible, cell)) return Visibility.VISIBLE;
+        return bit(explored, cell) ? Visibility.FOGGED : Visibility.HIDDEN;
+    }
+
+    public boolean isVisible(int x, int y) {
+        return contains(x, y) && bit(visible, y * width + x);
+    }
+
+    public boolean hasCreep(int x, int y) {
+        return contains(x, y) && bit(creep, y * width + x);
+    }
+
+    /**
+     * @return The current game loop for visible cells, the last loop the cell was visible at otherwise or
+     * {@link #NEVER}.
+     */
+    public long getLastSeenLoop(int x, int y) {
+        if (!contains(x, y)) return NEVER;
+        int cell = y * width + x;
+        return bit(visible, cell) ? gameLoop : lastSeen[cell];
+    }
+
+    public int getVisibleCellCount() {
+        return visibleCount;
+    }
+
+    public float getVisibleFraction() {
+        return (float) visibleCount / cellCount;
+    }
+
+    public int getCreepCellCount() {
+        return creepCount;
+    }
+
+    /**
+     * @return Fraction of the region cells that are visible, 0 for regions of other analyses.
+     */
+    public float getVisibleFraction(MapAnalysis.Region region) {
+        return regionFraction(visibleByRegion, region);
+    }
+
+    /**
+     * @return Fraction of the region cells that have creep, 0 for regions of other analyses.
+     */
+    public float getCreepFraction(MapAnalysis.Region region) {
+        return regionFraction(creepByRegion, region);
+    }
+
+    private float regionFraction(int[] counts, MapAnalysis.Region region) {
+        require("region", region);
+        int id = region.getId();
+        if (id <= MapAnalysis.NO_REGION || id >= counts.length || areaByRegion[id] == 0) return 0.0f;
+        return (float) counts[id] / areaByRegion[id];
+    }
+
+    /**
+     * @return True for cells with creep next to a cell without creep (in the four directions), where creep spreads
+     * or recedes.
+     */
+    public boolean isCreepFrontier(int x, int y) {
+        return contains(x, y) && bit(creepFrontier, y * width + x);
+    }
+
+    public int getCreepFrontierCount() {
+        return creepFrontierCount;
+    }
+
+    public void forEachCreepFrontierCell(CellConsumer consumer) {
+        forEachCell(creepFrontier, consumer);
+    }
+
+    /**
+     * @return Number of cells whose visibility changed in the last update.
+     */
+    public int getChangedVisibilityCount() {
+        return changedVisibilityCount;
+    }
+
+    public void forEachVisibilityChange(CellConsumer consumer) {
+        forEachCell(changedVisibility, consumer);
+    }
+
+    /**
+     * @return Number of cells where creep appeared or disappeared in the last update.
+     */
+    public int getChangedCreepCount() {
+        return changedCreepCount;
+    }
+
+    public void forEachCreepChange(CellConsumer consumer) {
+        forEachCell(changedCreep, consumer);
+    }
+
+    private void forEachCell(long[] bits, CellConsumer consumer) {
+        require("consumer", consumer);
+        for (int word = 0; word < wordCount; word++) {
+            for (long value = bits[word]; value != 0L; value &= value - 1) {
+                int cell = (word << 6) + Long.numberOfTrailingZeros(value);
+                consumer.accept(cell % width, cell / width);
+            }
+        }
+    }
+
+    /**
+     * Visits cells that were not visible during the last {@code loops} game loops (never seen cells first, then from
+     * the longest unseen). Cells are kept in the order they stopped being visible and cells seen again are dropped
+     * the first time they are met, so the cost is proportional to the visited cells rather than to the map size.
+     */
+    public void forEachCellNotSeenFor(long loops, CellConsumer consumer) {
+        require("consumer", consumer);
+        if (loops < 0) throw new IllegalArgumentException("loops must not be negative");
+        long threshold = gameLoop - loops;
+        int end = hiddenHead;
+        while (end < hiddenCount && (hiddenLoops[end] == NEVER || hiddenLoops[end] <= threshold)) end++;
+
+        // Packs the entries still hidden at the end of the visited range, in order, and moves the head past the rest.
+        int kept = end;
+        for (int i = end - 1; i >= hiddenHead; i--) {
+            if (isCurrentHidden(i)) {
+                kept--;
+                hiddenCells[kept] = hiddenCells[i];
+                hiddenLoops[kept] = hiddenLoops[i];
+            }
+        }
+        hiddenHead = kept;
+
+        for (int i = kept; i < end; i++) {
+            int cell = hiddenCells[i];
+            consumer.accept(cell % width, cell / width);
+        }
+    }
+}
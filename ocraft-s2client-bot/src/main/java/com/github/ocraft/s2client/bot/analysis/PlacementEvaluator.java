@@ -0,0 +1,356 @@
+package com.github.ocraft.s2client.bot.analysis;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.QueryInterface;
+import com.github.ocraft.s2client.bot.gateway.Resources;
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.data.*;
+import com.github.ocraft.s2client.protocol.game.Race;
+import com.github.ocraft.s2client.protocol.observation.Observation;
+import com.github.ocraft.s2client.protocol.observation.raw.MapState;
+import com.github.ocraft.s2client.protocol.observation.raw.ObservationRaw;
+import com.github.ocraft.s2client.protocol.observation.raw.PowerSource;
+import com.github.ocraft.s2client.protocol.observation.spatial.ImageData;
+import com.github.ocraft.s2client.protocol.query.QueryBuildingPlacement;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.spatial.Size2dI;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Local replacement of the building placement queries. Footprints of the buildings are checked against the static
+ * placement grid, structures and resources on the map, creep and power fields. The evaluator is an immutable view of
+ * the game state at the moment of creation, so it should be created again in every step it is needed and can be
+ * safely used from many threads.
+ * <p>
+ * Moving units are not treated as obstacles, they are pushed away by the building worker. Gas buildings are not
+ * supported (they are placed on a geyser, not on a point). The results are accurate for the static terrain and
+ * known buildings only (i.e. not for enemy buildings hidden in the fog of war) so positions should be confirmed with
+ * single batched query before issuing the build command (see {@link #confirm(QueryInterface, Ability, List)}).
+ */
+public final class PlacementEvaluator {
+
+    private static final int PARALLEL_SEARCH_CELLS = 4096;
+    private static final Set<Ability> TOWN_HALLS = Set.of(
+            Abilities.BUILD_COMMAND_CENTER, Abilities.BUILD_NEXUS, Abilities.BUILD_HATCHERY);
+    private static final Set<UnitType> CREEP_INDEPENDENT = Set.of(Units.ZERG_HATCHERY, Units.ZERG_EXTRACTOR);
+    private static final Set<UnitType> POWER_INDEPENDENT = Set.of(
+            Units.PROTOSS_NEXUS, Units.PROTOSS_PYLON, Units.PROTOSS_ASSIMILATOR);
+
+    private enum Requirement {
+        NONE, REQUIRED, FORBIDDEN
+    }
+
+    private static final class Footprint {
+        private final float halfSize;
+        private final Requirement creep;
+        private final boolean power;
+
+        private Footprint(float halfSize, Requirement creep, boolean power) {
+            this.halfSize = halfSize;
+            this.creep = creep;
+            this.power = power;
+        }
+
+        private float offset() {
+            return Math.round(2 * halfSize) % 2 == 1 ? 0.5f : 0.0f;
+        }
+    }
+
+    private static final class Candidate {
+        private final Point2d position;
+        private final double cost;
+
+        private Candidate(Point2d position, double cost) {
+            this.position = position;
+            this.cost = cost;
+        }
+    }
+
+    private final MapGrid grid;
+    private final boolean[] blocked;
+    private final boolean[] creep;
+    private final List<PowerSource> powerSources;
+    private final List<Unit> resources;
+    private final Map<Ability, Footprint> footprints;
+
+    private PlacementEvaluator(
+            MapGrid grid,
+            boolean[] blocked,
+            boolean[] creep,
+            List<PowerSource> powerSources,
+            List<Unit> resources,
+            Map<Ability, Footprint> footprints) {
+        this.grid = grid;
+        this.blocked = blocked;
+        this.creep = creep;
+        this.powerSources = powerSources;
+        this.resources = resources;
+        this.footprints = footprints;
+    }
+
+    /**
+     * @param observation Current observation.
+     * @param grid        Static grid of the map, decoded once per game (see {@link MapGrid#from}).
+     */
+    public static PlacementEvaluator from(ObservationInterface observation, MapGrid grid) {
+        require("observation", observation);
+        require("grid", grid);
+
+        Map<UnitType, UnitTypeData> unitTypes = observation.getUnitTypeData(false);
+        Map<Ability, Footprint> footprints = footprints(observation.getAbilityData(false), unitTypes);
+
+        int width = grid.getWidth();
+        boolean[] blocked = new boolean[width * grid.getHeight()];
+        List<Unit> resources = new ArrayList<>();
+        for (UnitInPool unitInPool : observation.getUnits()) {
+            Unit unit = unitInPool.unit();
+            if (unit.getFlying().orElse(false)) continue;
+            if (Resources.isResource(unit.getType())) {
+                resources.add(unit);
+                mark(grid, blocked, unit.getPosition().toPoint2d(),
+                        MapAnalyzer.resourceHalfWidth(unit), MapAnalyzer.resourceHalfHeight(unit));
+            } else if (unit.getAlliance() == Alliance.NEUTRAL || isStructure(unitTypes.get(unit.getType()))) {
+                float halfSize = footprintOf(unit, unitTypes, footprints);
+                mark(grid, blocked, unit.getPosition().toPoint2d(), halfSize, halfSize);
+            }
+        }
+
+        boolean[] creep = creep(observation, grid);
+
+        return new PlacementEvaluator(
+                grid, blocked, creep, new ArrayList<>(observation.getPowerSources()), resources, footprints);
+    }
+
+    // Decodes the creep image row by row (like MapStateTracker) instead of sampling it through the observation cell
+    // by cell.
+    private static boolean[] creep(ObservationInterface observation, MapGrid grid) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        boolean[] creep = new boolean[width * height];
+        Optional<ImageData> creepImage = Optional.ofNullable(observation.getRawObservation())
+                .flatMap(Observation::getRaw)
+                .map(ObservationRaw::getMapState)
+                .map(MapState::getCreep);
+        if (!creepImage.isPresent()) return creep;
+
+        ImageData image = creepImage.get();
+        Size2dI size = image.getSize();
+        if (size.getX() != width || size.getY() != height) {
+            throw new IllegalArgumentException(
+                    "creep size " + size.getX() + "x" + size.getY() + " doesn't match map size " +
+                            width + "x" + height);
+        }
+        ByteBuffer data = image.getDataBuffer();
+        int bitsPerPixel = image.getBitsPerPixel();
+        boolean upperLeft = observation.getImageOrigin() == ImageData.Origin.UPPER_LEFT;
+        for (int y = 0; y < height; y++) {
+            int row = (upperLeft ? height - 1 - y : y) * width;
+            for (int x = 0, cell = y * width; x < width; x++, cell++) {
+                int index = row + x;
+                creep[cell] = bitsPerPixel == 1
+                        ? (data.get(index >>> 3) & (1 << (index & 7))) != 0
+                        : data.get(index) != 0;
+            }
+        }
+        return creep;
+    }
+
+    private static Map<Ability, Footprint> footprints(
+            Map<Ability, AbilityData> abilities, Map<UnitType, UnitTypeData> unitTypes) {
+        Map<Ability, UnitTypeData> buildings = new HashMap<>();
+        unitTypes.values().forEach(data -> data.getAbility().ifPresent(ability -> buildings.put(ability, data)));
+
+        Map<Ability, Footprint> footprints = new HashMap<>();
+        abilities.forEach((ability, data) -> {
+            if (!data.isBuilding() || !data.getFootprintRadius().isPresent()) return;
+            Requirement creep = Requirement.NONE;
+            boolean power = false;
+            UnitTypeData building = buildings.get(ability);
+            if (building != null) {
+                Race race = building.getRace().orElse(Race.NO_RACE);
+                if (race == Race.ZERG && !CREEP_INDEPENDENT.contains(building.getUnitType())) {
+                    creep = Requirement.REQUIRED;
+                } else if (race != Race.ZERG) {
+                    creep = Requirement.FORBIDDEN;
+                }
+                power = race == Race.PROTOSS && !POWER_INDEPENDENT.contains(building.getUnitType());
+            }
+            footprints.put(ability, new Footprint(data.getFootprintRadius().get(), creep, power));
+        });
+        return footprints;
+    }
+
+    private static boolean isStructure(UnitTypeData unitType) {
+        return unitType != null && unitType.getAttributes().contains(UnitAttribute.STRUCTURE);
+    }
+
+    private static float footprintOf(
+            Unit unit, Map<UnitType, UnitTypeData> unitTypes, Map<Ability, Footprint> footprints) {
+        UnitTypeData unitType = unitTypes.get(unit.getType());
+        Footprint footprint = unitType != null ? unitType.getAbility().map(footprints::get).orElse(null) : null;
+        return footprint != null ? footprint.halfSize : (float) Math.floor(unit.getRadius() * 2) / 2;
+    }
+
+    private static void mark(MapGrid grid, boolean[] cells, Point2d center, float halfWidth, float halfHeight) {
+        int left = (int) Math.floor(center.getX() - halfWidth + 0.5f);
+        int bottom = (int) Math.floor(center.getY() - halfHeight + 0.5f);
+        for (int y = bottom; y < bottom + Math.round(2 * halfHeight); y++) {
+            for (int x = left; x < left + Math.round(2 * halfWidth); x++) {
+                if (grid.contains(x, y)) cells[y * grid.getWidth() + x] = true;
+            }
+        }
+    }
+
+    /**
+     * @return Position the building would be placed at by the game when targeted at the given point.
+     */
+    public Point2d snap(Ability ability, Point2d position) {
+        return snap(footprintOf(ability), position);
+    }
+
+    private static Point2d snap(Footprint footprint, Point2d position) {
+        float offset = footprint.offset();
+        return Point2d.of(
+                (float) Math.floor(position.getX() + 0.5f - offset) + offset,
+                (float) Math.floor(position.getY() + 0.5f - offset) + offset);
+    }
+
+    public boolean canPlace(Ability ability, Point2d position) {
+        require("ability", ability);
+        require("position", position);
+        Footprint footprint = footprintOf(ability);
+        return canPlace(ability, footprint, snap(footprint, position));
+    }
+
+    private boolean canPlace(Ability ability, Footprint footprint, Point2d center) {
+        int size = Math.round(2 * footprint.halfSize);
+        int left = (int) Math.floor(center.getX() - footprint.halfSize + 0.5f);
+        int bottom = (int) Math.floor(center.getY() - footprint.halfSize + 0.5f);
+        int width = grid.getWidth();
+        for (int y = bottom; y < bottom + size; y++) {
+            for (int x = left; x < left + size; x++) {
+                if (!grid.isPlaceable(x, y)) return false;
+                int i = y * width + x;
+                if (blocked[i]) return false;
+                if (footprint.creep == Requirement.REQUIRED && !creep[i]) return false;
+                if (footprint.creep == Requirement.FORBIDDEN && creep[i]) return false;
+            }
+        }
+        if (footprint.power && !isPowered(center)) return false;
+        return !TOWN_HALLS.contains(ability) || MapAnalyzer.isClearOfResources(center, footprint.halfSize, resources);
+    }
+
+    private boolean isPowered(Point2d center) {
+        for (PowerSource powerSource : powerSources) {
+            if (powerSource.getPosition().toPoint2d().distance(center) <= powerSource.getRadius()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @see #findPlacements(Ability, Point2d, float, int, ToDoubleFunction)
+     */
+    public List<Point2d> findPlacements(Ability ability, Point2d center, float radius, int limit) {
+        return findPlacements(ability, center, radius, limit, position -> position.distance(center));
+    }
+
+    /**
+     * Scans all positions within the radius and returns the valid ones ordered by cost. Large areas are scanned in
+     * parallel.
+     *
+     * @param ability Build ability.
+     * @param center  Center of the searched area.
+     * @param radius  Radius of the searched area.
+     * @param limit   Maximal number of returned positions.
+     * @param cost    Ranking of the positions, the lower the better.
+     */
+    public List<Point2d> findPlacements(
+            Ability ability, Point2d center, float radius, int limit, ToDoubleFunction<Point2d> cost) {
+        require("ability", ability);
+        require("center", center);
+        require("cost", cost);
+        Footprint footprint = footprintOf(ability);
+        float offset = footprint.offset();
+        int minX = (int) Math.floor(center.getX() - radius);
+        int maxX = (int) Math.ceil(center.getX() + radius);
+        int minY = (int) Math.floor(center.getY() - radius);
+        int maxY = (int) Math.ceil(center.getY() + radius);
+
+        IntStream rows = IntStream.rangeClosed(minY, maxY);
+        if ((long) (maxX - minX + 1) * (maxY - minY + 1) >= PARALLEL_SEARCH_CELLS) rows = rows.parallel();
+        return rows
+                .mapToObj(y -> {
+                    List<Candidate> row = new ArrayList<>();
+                    for (int x = minX; x <= maxX; x++) {
+                        Point2d position = Point2d.of(x + offset, y + offset);
+                        if (position.distance(center) > radius || !canPlace(ability, footprint, position)) continue;
+                        row.add(new Candidate(position, cost.applyAsDouble(position)));
+                    }
+                    return row;
+                })
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingDouble(candidate -> candidate.cost))
+                .limit(limit)
+                .map(candidate -> candidate.position)
+                .collect(toList());
+    }
+
+    /**
+     * Confirms the best positions with a single batched placement query.
+     *
+     * @return First of the positions accepted by the game.
+     */
+    public Optional<Point2d> confirm(QueryInterface query, Ability ability, List<Point2d> positions) {
+        require("query", query);
+        if (positions.isEmpty()) return Optional.empty();
+        List<QueryBuildingPlacement> placements = positions.stream()
+                .map(position -> QueryBuildingPlacement.placeBuilding().useAbility(ability).on(position).build())
+                .collect(toList());
+        List<Boolean> results = query.placement(placements);
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i)) return Optional.of(positions.get(i));
+        }
+        return Optional.empty();
+    }
+
+    private Footprint footprintOf(Ability ability) {
+        Footprint footprint = footprints.get(ability);
+        if (footprint == null) throw new IllegalArgumentException("unknown building ability: " + ability);
+        return footprint;
+    }
+}
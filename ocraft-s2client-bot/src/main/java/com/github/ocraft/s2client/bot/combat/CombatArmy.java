@@ -0,0 +1,177 @@
+package com.github.ocraft.s2client.bot.combat;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.data.UnitType;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Army composition for the combat simulation stored in primitive arrays. Units are attacked in the order they were
+ * added (the whole enemy army focuses the first unit it can hit), so add the units that stand in front first. The
+ * army can be cleared and refilled without allocation. Not thread safe.
+ */
+public final class CombatArmy {
+
+    private static final int DEFAULT_CAPACITY = 32;
+
+    private int size;
+    private int[] types;
+    private float[] health;
+    private float[] shield;
+    private boolean[] flying;
+    private int[] attackUpgrade;
+    private int[] armorUpgrade;
+    private int[] shieldUpgrade;
+
+    public CombatArmy() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CombatArmy(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("capacity must not be negative");
+        types = new int[capacity];
+        health = new float[capacity];
+        shield = new float[capacity];
+        flying = new boolean[capacity];
+        attackUpgrade = new int[capacity];
+        armorUpgrade = new int[capacity];
+        shieldUpgrade = new int[capacity];
+    }
+
+    public static CombatArmy of(Collection<Unit> units) {
+        require("units", units);
+        return new CombatArmy(units.size()).addAll(units);
+    }
+
+    /**
+     * Adds the unit with its current health, shields and upgrade levels.
+     */
+    public CombatArmy add(Unit unit) {
+        require("unit", unit);
+        return add(
+                unit.getType().getUnitTypeId(),
+                unit.getHealthOr(0.0f),
+                unit.getShieldOr(0.0f),
+                unit.isFlying(),
+                unit.getAttackUpgradeLevel().orElse(0),
+                unit.getArmorUpgradeLevel().orElse(0),
+                unit.getShieldUpgradeLevel().orElse(0));
+    }
+
+    public CombatArmy addAll(Collection<Unit> units) {
+        require("units", units);
+        for (Unit unit : units) add(unit);
+        return this;
+    }
+
+    /**
+     * Adds a hypothetical unit without upgrades.
+     */
+    public CombatArmy add(UnitType type, float health, float shield, boolean flying) {
+        require("unit type", type);
+        return add(type.getUnitTypeId(), health, shield, flying, 0, 0, 0);
+    }
+
+    public CombatArmy add(
+            int unitTypeId, float health, float shield, boolean flying,
+            int attackUpgrade, int armorUpgrade, int shieldUpgrade) {
+        if (size == types.length) grow();
+        types[size] = unitTypeId;
+        this.health[size] = health;
+        this.shield[size] = shield;
+        this.flying[size] = flying;
+        this.attackUpgrade[size] = attackUpgrade;
+        this.armorUpgrade[size] = armorUpgrade;
+        this.shieldUpgrade[size] = shieldUpgrade;
+        size++;
+        return this;
+    }
+
+    private void grow() {
+        int capacity = Math.max(DEFAULT_CAPACITY, size * 2);
+        types = Arrays.copyOf(types, capacity);
+        health = Arrays.copyOf(health, capacity);
+        shield = Arrays.copyOf(shield, capacity);
+        flying = Arrays.copyOf(flying, capacity);
+        attackUpgrade = Arrays.copyOf(attackUpgrade, capacity);
+        armorUpgrade = Arrays.copyOf(armorUpgrade, capacity);
+        shieldUpgrade = Arrays.copyOf(shieldUpgrade, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all units, keeps the capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    int getType(int index) {
+        return types[index];
+    }
+
+    float getHealth(int index) {
+        return health[index];
+    }
+
+    float getShield(int index) {
+        return shield[index];
+    }
+
+    boolean isFlying(int index) {
+        return flying[index];
+    }
+
+    int getAttackUpgrade(int index) {
+        return attackUpgrade[index];
+    }
+
+    int getArmorUpgrade(int index) {
+        return armorUpgrade[index];
+    }
+
+    int getShieldUpgrade(int index) {
+        return shieldUpgrade[index];
+    }
+
+    @Override
+    public String toString() {
+        return "CombatArmy{size=" + size + '}';
+    }
+}
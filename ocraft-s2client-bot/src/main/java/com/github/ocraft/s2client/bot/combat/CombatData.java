@@ -0,0 +1,186 @@
+package com.github.ocraft.s2client.bot.combat;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.data.DamageBonus;
+import com.github.ocraft.s2client.protocol.data.UnitAttribute;
+import com.github.ocraft.s2client.protocol.data.UnitType;
+import com.github.ocraft.s2client.protocol.data.UnitTypeData;
+import com.github.ocraft.s2client.protocol.data.Weapon;
+import com.github.ocraft.s2client.protocol.response.ResponseData;
+
+import java.util.Collection;
+import java.util.Map;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Unit and weapon data of a game compiled into flat arrays indexed by unit type id, so the combat simulation never
+ * touches the data maps. Compile once per game (the data does not change during the game). Immutable, safe to share
+ * between threads.
+ * <p>
+ * Each unit type keeps at most one ground and one air weapon. When a unit type has more weapons for the same target
+ * the one with the highest damage per second is used.
+ */
+public final class CombatData {
+
+    static final int GROUND = 0;
+    static final int AIR = 1;
+
+    private static final int ATTRIBUTES = UnitAttribute.values().length;
+    private static final float MIN_DAMAGE = 0.5f;
+
+    private final int typeCount;
+    private final int[] attributes;
+    private final float[] armor;
+    private final int[] value;
+    private final float[] damage;
+    private final int[] attacks;
+    private final float[] cooldown;
+    private final float[] range;
+    private final float[] bonus;
+
+    private CombatData(Collection<UnitTypeData> unitTypes) {
+        int maxId = -1;
+        for (UnitTypeData unitType : unitTypes) maxId = Math.max(maxId, unitType.getUnitType().getUnitTypeId());
+        typeCount = maxId + 1;
+        attributes = new int[typeCount];
+        armor = new float[typeCount];
+        value = new int[typeCount];
+        damage = new float[typeCount * 2];
+        attacks = new int[typeCount * 2];
+        cooldown = new float[typeCount * 2];
+        range = new float[typeCount * 2];
+        bonus = new float[typeCount * 2 * ATTRIBUTES];
+
+        for (UnitTypeData unitType : unitTypes) {
+            int type = unitType.getUnitType().getUnitTypeId();
+            for (UnitAttribute attribute : unitType.getAttributes()) attributes[type] |= 1 << attribute.ordinal();
+            armor[type] = unitType.getArmor().orElse(0.0f);
+            value[type] = unitType.getMineralCost().orElse(0) + unitType.getVespeneCost().orElse(0);
+            Weapon ground = null;
+            Weapon air = null;
+            for (Weapon weapon : unitType.getWeapons()) {
+                if (weapon.getTargetType() != Weapon.TargetType.AIR && isBetter(weapon, ground)) ground = weapon;
+                if (weapon.getTargetType() != Weapon.TargetType.GROUND && isBetter(weapon, air)) air = weapon;
+            }
+            compileWeapon(type * 2 + GROUND, ground);
+            compileWeapon(type * 2 + AIR, air);
+        }
+    }
+
+    private static boolean isBetter(Weapon weapon, Weapon current) {
+        return current == null || damagePerSecond(weapon) > damagePerSecond(current);
+    }
+
+    private static float damagePerSecond(Weapon weapon) {
+        return weapon.getSpeed() > 0.0f ? weapon.getDamage() * weapon.getAttacks() / weapon.getSpeed() : 0.0f;
+    }
+
+    private void compileWeapon(int slot, Weapon weapon) {
+        if (weapon == null || weapon.getSpeed() <= 0.0f) return;
+        damage[slot] = weapon.getDamage();
+        attacks[slot] = weapon.getAttacks();
+        cooldown[slot] = weapon.getSpeed();
+        range[slot] = weapon.getRange();
+        for (DamageBonus damageBonus : weapon.getDamageBonuses()) {
+            bonus[slot * ATTRIBUTES + damageBonus.getAttribute().ordinal()] += damageBonus.getBonus();
+        }
+    }
+
+    public static CombatData compile(Collection<UnitTypeData> unitTypes) {
+        require("unit types", unitTypes);
+        return new CombatData(unitTypes);
+    }
+
+    public static CombatData compile(Map<UnitType, UnitTypeData> unitTypeData) {
+        require("unit type data", unitTypeData);
+        return new CombatData(unitTypeData.values());
+    }
+
+    public static CombatData compile(ResponseData responseData) {
+        require("response data", responseData);
+        return new CombatData(responseData.getUnitTypes());
+    }
+
+    /**
+     * @return true if the unit type is known and has a weapon able to hit given target.
+     */
+    public boolean canAttack(int unitTypeId, boolean flyingTarget) {
+        return isKnown(unitTypeId) && cooldown[unitTypeId * 2 + (flyingTarget ? AIR : GROUND)] > 0.0f;
+    }
+
+    /**
+     * @return range of the weapon used against given target or 0 if the unit type can't attack it.
+     */
+    public float getRange(int unitTypeId, boolean flyingTarget) {
+        return isKnown(unitTypeId) ? range[unitTypeId * 2 + (flyingTarget ? AIR : GROUND)] : 0.0f;
+    }
+
+    public float getArmor(int unitTypeId) {
+        return isKnown(unitTypeId) ? armor[unitTypeId] : 0.0f;
+    }
+
+    /**
+     * @return mineral and vespene cost of the unit type.
+     */
+    public int getValue(int unitTypeId) {
+        return isKnown(unitTypeId) ? value[unitTypeId] : 0;
+    }
+
+    public boolean hasAttribute(int unitTypeId, UnitAttribute attribute) {
+        require("attribute", attribute);
+        return isKnown(unitTypeId) && (attributes[unitTypeId] & (1 << attribute.ordinal())) != 0;
+    }
+
+    /**
+     * Damage per second of the attacker against the target. Each hit deals the weapon damage, plus the bonus for the
+     * target attributes, plus one per attack upgrade level, minus the target armor (at least 0.5 per hit).
+     *
+     * @param targetArmor Armor of the target including upgrades (shield upgrade level when hitting shields).
+     * @return damage per second or 0 if the attacker can't hit the target.
+     */
+    public float damagePerSecond(
+            int attackerTypeId, int attackUpgrade, int targetTypeId, boolean flyingTarget, float targetArmor) {
+        if (!isKnown(attackerTypeId)) return 0.0f;
+        int slot = attackerTypeId * 2 + (flyingTarget ? AIR : GROUND);
+        if (cooldown[slot] <= 0.0f) return 0.0f;
+        float hit = damage[slot] + attackUpgrade;
+        if (isKnown(targetTypeId)) {
+            int targetAttributes = attributes[targetTypeId];
+            for (int attribute = 0, offset = slot * ATTRIBUTES; targetAttributes != 0; attribute++) {
+                if ((targetAttributes & 1) != 0) hit += bonus[offset + attribute];
+                targetAttributes >>>= 1;
+            }
+        }
+        return attacks[slot] * Math.max(MIN_DAMAGE, hit - targetArmor) / cooldown[slot];
+    }
+
+    private boolean isKnown(int unitTypeId) {
+        return unitTypeId >= 0 && unitTypeId < typeCount;
+    }
+}
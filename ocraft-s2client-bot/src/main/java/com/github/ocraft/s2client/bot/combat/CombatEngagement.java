@@ -0,0 +1,64 @@
+package com.github.ocraft.s2client.bot.combat;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Candidate fight for {@link CombatSimulator#predictAll(java.util.List)}. The prediction is written to the engagement,
+ * so a list of engagements can be reused between steps.
+ */
+public final class CombatEngagement {
+
+    private final CombatArmy own;
+    private final CombatArmy enemy;
+    private final CombatPrediction prediction = new CombatPrediction();
+
+    public CombatEngagement(CombatArmy own, CombatArmy enemy) {
+        require("own army", own);
+        require("enemy army", enemy);
+        this.own = own;
+        this.enemy = enemy;
+    }
+
+    public CombatArmy getOwn() {
+        return own;
+    }
+
+    public CombatArmy getEnemy() {
+        return enemy;
+    }
+
+    public CombatPrediction getPrediction() {
+        return prediction;
+    }
+
+    @Override
+    public String toString() {
+        return "CombatEngagement{own=" + own + ", enemy=" + enemy + ", prediction=" + prediction + '}';
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.ocraft.s2client.bot.combat;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+/**
+ * Result of a simulated fight, seen from the own army. Mutable so that the simulator can fill a reused instance.
+ */
+public final class CombatPrediction {
+
+    public enum Outcome {
+        WIN,
+        LOSS,
+        DRAW
+    }
+
+    private Outcome outcome = Outcome.DRAW;
+    private float duration;
+    private int ownSurvivors;
+    private int enemySurvivors;
+    private float ownHitPoints;
+    private float enemyHitPoints;
+    private int ownValue;
+    private int enemyValue;
+
+    void set(
+            Outcome outcome, float duration, int ownSurvivors, int enemySurvivors,
+            float ownHitPoints, float enemyHitPoints, int ownValue, int enemyValue) {
+        this.outcome = outcome;
+        this.duration = duration;
+        this.ownSurvivors = ownSurvivors;
+        this.enemySurvivors = enemySurvivors;
+        this.ownHitPoints = ownHitPoints;
+        this.enemyHitPoints = enemyHitPoints;
+        this.ownValue = ownValue;
+        this.enemyValue = enemyValue;
+    }
+
+    /**
+     * @return WIN if only the own army survived, LOSS if only the enemy survived, DRAW otherwise (both destroyed,
+     * neither able to hurt the other or the time limit reached).
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return simulated game seconds.
+     */
+    public float getDuration() {
+        return duration;
+    }
+
+    public int getOwnSurvivors() {
+        return ownSurvivors;
+    }
+
+    public int getEnemySurvivors() {
+        return enemySurvivors;
+    }
+
+    /**
+     * @return remaining health and shields of the own army.
+     */
+    public float getOwnHitPoints() {
+        return ownHitPoints;
+    }
+
+    /**
+     * @return remaining health and shields of the enemy army.
+     */
+    public float getEnemyHitPoints() {
+        return enemyHitPoints;
+    }
+
+    /**
+     * @return mineral and vespene cost of the surviving own units.
+     */
+    public int getOwnValue() {
+        return ownValue;
+    }
+
+    /**
+     * @return mineral and vespene cost of the surviving enemy units.
+     */
+    public int getEnemyValue() {
+        return enemyValue;
+    }
+
+    @Override
+    public String toString() {
+        return "CombatPrediction{" +
+                "outcome=" + outcome +
+                ", duration=" + duration +
+                ", ownSurvivors=" + ownSurvivors +
+                ", enemySurvivors=" + enemySurvivors +
+                ", ownHitPoints=" + ownHitPoints +
+                ", enemyHitPoints=" + enemyHitPoints +
+                ", ownValue=" + ownValue +
+                ", enemyValue=" + enemyValue +
+                '}';
+    }
+}
@@ -0,0 +1,328 @@
+package com.github.ocraft.s2client.bot.combat;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Predicts the outcome of a fight between two armies:
+ * <pre>{@code
+ * CombatSimulator simulator = CombatSimulator.builder(CombatData.compile(observation().getUnitTypeData(false)))
+ *         .build();
+ *
+ * CombatPrediction prediction = simulator.predict(CombatArmy.of(myArmy), CombatArmy.of(visibleEnemies));
+ * if (prediction.getOutcome() == CombatPrediction.Outcome.LOSS) retreat();
+ * }</pre>
+ * The fight is simulated in fixed time steps with all units in range of each other. Every unit deals its damage per
+ * second to the first living enemy unit it can hit (the armies focus fire in the order the units were added), shields
+ * absorb damage before health. Positions, movement, splash, spells and healing are not simulated.
+ * <p>
+ * The simulator is thread safe. Working arrays are kept per thread, so after the first fights of a thread a prediction
+ * into a reused {@link CombatPrediction} does not allocate.
+ */
+public final class CombatSimulator {
+
+    private static final float DEFAULT_TIME_STEP = 0.25f;
+    private static final float DEFAULT_MAX_DURATION = 60.0f;
+    private static final int DEFAULT_SPLIT_THRESHOLD = 16;
+
+    private final CombatData data;
+    private final float timeStep;
+    private final float maxDuration;
+    private final ForkJoinPool pool;
+    private final int splitThreshold;
+    private final ThreadLocal<Fight> fights = ThreadLocal.withInitial(Fight::new);
+
+    public static final class Builder {
+        private final CombatData data;
+        private float timeStep = DEFAULT_TIME_STEP;
+        private float maxDuration = DEFAULT_MAX_DURATION;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        private int splitThreshold = DEFAULT_SPLIT_THRESHOLD;
+
+        private Builder(CombatData data) {
+            this.data = data;
+        }
+
+        /**
+         * @param timeStep Simulated game seconds per step.
+         */
+        public Builder withTimeStep(float timeStep) {
+            if (!(timeStep > 0.0f)) throw new IllegalArgumentException("time step must be greater than 0");
+            this.timeStep = timeStep;
+            return this;
+        }
+
+        /**
+         * @param maxDuration Game seconds after which the fight is stopped and predicted as a draw.
+         */
+        public Builder withMaxDuration(float maxDuration) {
+            if (!(maxDuration > 0.0f)) throw new IllegalArgumentException("max duration must be greater than 0");
+            this.maxDuration = maxDuration;
+            return this;
+        }
+
+        public Builder withPool(ForkJoinPool pool) {
+            require("pool", pool);
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * @param splitThreshold Maximum number of engagements predicted by one task of a batch.
+         */
+        public Builder withSplitThreshold(int splitThreshold) {
+            if (splitThreshold < 1) throw new IllegalArgumentException("split threshold must be greater than 0");
+            this.splitThreshold = splitThreshold;
+            return this;
+        }
+
+        public CombatSimulator build() {
+            return new CombatSimulator(this);
+        }
+    }
+
+    private CombatSimulator(Builder builder) {
+        data = builder.data;
+        timeStep = builder.timeStep;
+        maxDuration = builder.maxDuration;
+        pool = builder.pool;
+        splitThreshold = builder.splitThreshold;
+    }
+
+    public static Builder builder(CombatData data) {
+        require("combat data", data);
+        return new Builder(data);
+    }
+
+    public CombatPrediction predict(CombatArmy own, CombatArmy enemy) {
+        return predict(own, enemy, new CombatPrediction());
+    }
+
+    /**
+     * @param out Prediction to fill.
+     * @return the filled prediction.
+     */
+    public CombatPrediction predict(CombatArmy own, CombatArmy enemy, CombatPrediction out) {
+        require("own army", own);
+        require("enemy army", enemy);
+        require("prediction", out);
+        fights.get().run(own, enemy, out);
+        return out;
+    }
+
+    /**
+     * Predicts all engagements on the fork/join pool, blocks until done. Each prediction is written to its
+     * engagement.
+     */
+    public void predictAll(List<CombatEngagement> engagements) {
+        require("engagements", engagements);
+        if (engagements.isEmpty()) return;
+        pool.invoke(new PredictEngagements(engagements, 0, engagements.size()));
+    }
+
+    private final class PredictEngagements extends RecursiveAction {
+        private final List<CombatEngagement> engagements;
+        private final int from;
+        private final int to;
+
+        private PredictEngagements(List<CombatEngagement> engagements, int from, int to) {
+            this.engagements = engagements;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > splitThreshold) {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new PredictEngagements(engagements, from, middle),
+                        new PredictEngagements(engagements, middle, to));
+                return;
+            }
+            Fight fight = fights.get();
+            for (int i = from; i < to; i++) {
+                CombatEngagement engagement = engagements.get(i);
+                fight.run(engagement.getOwn(), engagement.getEnemy(), engagement.getPrediction());
+            }
+        }
+    }
+
+    // Working state of one army during a fight.
+    private final class Side {
+        private CombatArmy army;
+        private int alive;
+        private float[] health = new float[0];
+        private float[] shield = new float[0];
+        private float[] pendingShieldDamage = new float[0];
+        private float[] pendingHealthDamage = new float[0];
+        private float[] shieldDps = new float[0];
+        private float[] healthDps = new float[0];
+        private int[] target = new int[0];
+        // First living unit on the ground and in the air (units never revive, so these only move forward).
+        private int firstGround;
+        private int firstAir;
+
+        private void reset(CombatArmy army) {
+            this.army = army;
+            int size = army.size();
+            if (health.length < size) {
+                health = new float[size];
+                shield = new float[size];
+                pendingShieldDamage = new float[size];
+                pendingHealthDamage = new float[size];
+                shieldDps = new float[size];
+                healthDps = new float[size];
+                target = new int[size];
+            }
+            alive = 0;
+            for (int i = 0; i < size; i++) {
+                health[i] = army.getHealth(i);
+                shield[i] = army.getShield(i);
+                target[i] = -1;
+                if (health[i] > 0.0f) alive++;
+            }
+            Arrays.fill(pendingShieldDamage, 0, size, 0.0f);
+            Arrays.fill(pendingHealthDamage, 0, size, 0.0f);
+            firstGround = 0;
+            firstAir = 0;
+        }
+
+        private int firstAlive(boolean flying) {
+            int i = flying ? firstAir : firstGround;
+            int size = army.size();
+            while (i < size && (health[i] <= 0.0f || army.isFlying(i) != flying)) i++;
+            if (flying) firstAir = i; else firstGround = i;
+            return i < size ? i : -1;
+        }
+
+        // Adds the damage of this side's units for one step to the pending damage of the enemy.
+        private boolean attack(Side enemy, float step) {
+            boolean attacked = false;
+            for (int i = 0, size = army.size(); i < size; i++) {
+                if (health[i] <= 0.0f) continue;
+                int current = target[i];
+                if (current < 0 || enemy.health[current] <= 0.0f) current = retarget(i, enemy);
+                if (current < 0) continue;
+                enemy.pendingShieldDamage[current] += shieldDps[i] * step;
+                enemy.pendingHealthDamage[current] += healthDps[i] * step;
+                attacked = true;
+            }
+            return attacked;
+        }
+
+        private int retarget(int attacker, Side enemy) {
+            int type = army.getType(attacker);
+            int ground = data.canAttack(type, false) ? enemy.firstAlive(false) : -1;
+            int air = data.canAttack(type, true) ? enemy.firstAlive(true) : -1;
+            int chosen = ground < 0 ? air : (air < 0 ? ground : Math.min(ground, air));
+            target[attacker] = chosen;
+            if (chosen >= 0) {
+                CombatArmy enemyArmy = enemy.army;
+                int targetType = enemyArmy.getType(chosen);
+                boolean flying = enemyArmy.isFlying(chosen);
+                int attackUpgrade = army.getAttackUpgrade(attacker);
+                shieldDps[attacker] = data.damagePerSecond(
+                        type, attackUpgrade, targetType, flying, enemyArmy.getShieldUpgrade(chosen));
+                healthDps[attacker] = data.damagePerSecond(
+                        type, attackUpgrade, targetType, flying,
+                        data.getArmor(targetType) + enemyArmy.getArmorUpgrade(chosen));
+            }
+            return chosen;
+        }
+
+        // Shields absorb the damage first, the rest of the step hits health with the health armor applied.
+        private void applyPendingDamage() {
+            for (int i = 0, size = army.size(); i < size; i++) {
+                float shieldDamage = pendingShieldDamage[i];
+                if (shieldDamage <= 0.0f) continue;
+                float healthDamage = pendingHealthDamage[i];
+                pendingShieldDamage[i] = 0.0f;
+                pendingHealthDamage[i] = 0.0f;
+                if (shield[i] >= shieldDamage) {
+                    shield[i] -= shieldDamage;
+                    continue;
+                }
+                float throughShield = 1.0f - shield[i] / shieldDamage;
+                shield[i] = 0.0f;
+                health[i] -= healthDamage * throughShield;
+                if (health[i] <= 0.0f) alive--;
+            }
+        }
+
+        private float hitPoints() {
+            float hitPoints = 0.0f;
+            for (int i = 0, size = army.size(); i < size; i++) {
+                if (health[i] > 0.0f) hitPoints += health[i] + shield[i];
+            }
+            return hitPoints;
+        }
+
+        private int value() {
+            int value = 0;
+            for (int i = 0, size = army.size(); i < size; i++) {
+                if (health[i] > 0.0f) value += data.getValue(army.getType(i));
+            }
+            return value;
+        }
+    }
+
+    private final class Fight {
+        private final Side own = new Side();
+        private final Side enemy = new Side();
+
+        private void run(CombatArmy ownArmy, CombatArmy enemyArmy, CombatPrediction out) {
+            own.reset(ownArmy);
+            enemy.reset(enemyArmy);
+            float time = 0.0f;
+            while (own.alive > 0 && enemy.alive > 0 && time < maxDuration) {
+                boolean ownAttacked = own.attack(enemy, timeStep);
+                boolean enemyAttacked = enemy.attack(own, timeStep);
+                if (!ownAttacked && !enemyAttacked) break;
+                own.applyPendingDamage();
+                enemy.applyPendingDamage();
+                time += timeStep;
+            }
+            CombatPrediction.Outcome outcome;
+            if (own.alive > 0 && enemy.alive == 0) {
+                outcome = CombatPrediction.Outcome.WIN;
+            } else if (own.alive == 0 && enemy.alive > 0) {
+                outcome = CombatPrediction.Outcome.LOSS;
+            } else {
+                outcome = CombatPrediction.Outcome.DRAW;
+            }
+            out.set(outcome, time, own.alive, enemy.alive, own.hitPoints(), enemy.hitPoints(), own.value(),
+                    enemy.value());
+        }
+    }
+}
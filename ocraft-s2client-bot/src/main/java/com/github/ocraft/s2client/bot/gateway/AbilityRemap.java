@@ -0,0 +1,88 @@
+package com.github.ocraft.s2client.bot.gateway;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.data.Ability;
+import com.github.ocraft.s2client.protocol.data.AbilityData;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.isSet;
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Generalized ability of each ability of one game data version, indexed by id in flat arrays. Built from the ability
+ * data alone, so that generalizing abilities of the observed units and actions does not need unit type and upgrade
+ * data. Immutable, safe to share between threads.
+ */
+public final class AbilityRemap {
+
+    private final int[] generalizedAbilityIds;
+    private final Ability[] generalizedAbilities;
+
+    private AbilityRemap(Map<Ability, AbilityData> abilityData) {
+        int abilityCount = 0;
+        for (Ability ability : abilityData.keySet()) abilityCount = Math.max(abilityCount, ability.getAbilityId() + 1);
+
+        generalizedAbilityIds = new int[abilityCount];
+        for (int i = 0; i < abilityCount; i++) generalizedAbilityIds[i] = i;
+        generalizedAbilities = new Ability[abilityCount];
+        for (AbilityData data : abilityData.values()) {
+            Optional<Ability> remap = data.getRemapsToAbility().filter(Ability::isKnown);
+            if (remap.isPresent()) {
+                generalizedAbilityIds[data.getAbility().getAbilityId()] = remap.get().getAbilityId();
+                generalizedAbilities[data.getAbility().getAbilityId()] = remap.get();
+            }
+        }
+    }
+
+    public static AbilityRemap of(Map<Ability, AbilityData> abilityData) {
+        require("ability data", abilityData);
+        return new AbilityRemap(abilityData);
+    }
+
+    /**
+     * @return the more generic ability the ability is remapped to (e.g. all "build" abilities of workers map to one),
+     * the ability itself if there is none.
+     */
+    public Ability getGeneralizedAbility(Ability ability) {
+        if (!isSet(ability)) return ability;
+        int id = ability.getAbilityId();
+        if (id < 0 || id >= generalizedAbilities.length || !isSet(generalizedAbilities[id])) return ability;
+        return generalizedAbilities[id];
+    }
+
+    /**
+     * @return id of the generalized ability, the id itself if there is no remap.
+     */
+    public int getGeneralizedAbilityId(int abilityId) {
+        return abilityId >= 0 && abilityId < generalizedAbilityIds.length
+                ? generalizedAbilityIds[abilityId]
+                : abilityId;
+    }
+}
@@ -78,6 +78,11 @@ public interface ActionFeatureLayerInterface {
      * This function sends out all batched selection and unit commands. You DO NOT need to call this function in non
      * real time simulations since it is automatically called when stepping the simulation forward. You only need to
      * call this function in a real time simulation.
+     * <p>
+     * Feature layer actions share the queue with {@link ActionInterface}, so this call and
+     * {@link ActionInterface#sendActions()} both send all batched actions (raw and feature layer) in one request.
+     * Actions targeting points outside of the screen or minimap resolution are not batched (see
+     * {@link com.github.ocraft.s2client.bot.ClientError#INVALID_SPATIAL_ACTION}).
      */
     boolean sendActions();
 }
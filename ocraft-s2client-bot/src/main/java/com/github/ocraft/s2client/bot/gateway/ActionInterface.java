@@ -47,6 +47,9 @@ import java.util.Set;
  * <li>unitTag: The unique id that represents the unit.</li>
  * <li>ability: The unique id that represents the ability, see Abilities for ids.</li>
  * </ul>
+ * <p>
+ * Commands can be batched from many threads (see com.github.ocraft.s2client.bot.parallel.ParallelDecisions),
+ * #sendActions() should be called from the step thread.
  *
  * @see com.github.ocraft.s2client.protocol.data.Abilities
  * @see Unit
@@ -162,7 +165,8 @@ public interface ActionInterface {
      * This function sends out all batched unit commands. You DO NOT need to call this function in non real time
      * simulations since it is automatically called when stepping the simulation forward. You only need to call this
      * function in a real time simulation. For example, if you wanted to move 20 marines to some position on the map
-     * you'd want to batch all of those unit commands and send them at once.
+     * you'd want to batch all of those unit commands and send them at once. Batched feature layer actions
+     * ({@link ActionFeatureLayerInterface}) are sent in the same request.
      */
     boolean sendActions();
 }
@@ -110,6 +110,14 @@ public interface ControlInterface {
 
     boolean getObservation();
 
+    /**
+     * Requests observation that is available after the given game loop. In realtime the game responds when the loop
+     * was reached, in step mode immediately.
+     *
+     * @param gameLoop The game loop to wait for.
+     */
+    boolean getObservation(int gameLoop);
+
     boolean issueEvents(List<Tag> commands);
 
     void onGameStart();
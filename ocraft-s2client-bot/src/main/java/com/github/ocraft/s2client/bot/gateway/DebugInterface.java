@@ -240,4 +240,11 @@ public interface DebugInterface {
      * This will also clear or set new debug primitives like text and lines.
      */
     boolean sendDebug();
+
+    /**
+     * Dispatch all queued debug commands like {@link #sendDebug()} but without waiting for the game to respond.
+     * Camera move is sent together with the next batch of actions of the agent. Use it for drawing large
+     * amounts of primitives every step.
+     */
+    boolean sendDebugAsync();
 }
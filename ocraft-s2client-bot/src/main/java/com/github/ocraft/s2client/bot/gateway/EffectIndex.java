@@ -0,0 +1,316 @@
+package com.github.ocraft.s2client.bot.gateway;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.data.Effect;
+import com.github.ocraft.s2client.protocol.data.EffectData;
+import com.github.ocraft.s2client.protocol.data.Effects;
+import com.github.ocraft.s2client.protocol.observation.raw.EffectLocations;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Effects of one step (psionic storms, biles, nukes, ...) bucketed into a uniform grid, for point and unit tests
+ * that visit only the shapes of the cell of the point instead of every position of every effect.
+ * <p>
+ * Every position of an effect is a circle of the effect radius (from {@link EffectLocations#getRadius()}, or
+ * {@link EffectData#getRadius()} when the observation has none). Lurker spines reported with two positions are a
+ * segment between them, widened by the radius. The index is rebuilt with {@link #rebuild(Collection, Map)}, reusing
+ * its arrays, and is read by {@link ObservationInterface#getEffectIndex()}.
+ * <p>
+ * Not thread safe.
+ */
+public final class EffectIndex {
+
+    private static final int MAP_SIZE = 256;
+    private static final float CELL_SIZE = 4.0f;
+    private static final int COLUMNS = (int) (MAP_SIZE / CELL_SIZE);
+    private static final int CELLS = COLUMNS * COLUMNS;
+
+    private final List<EffectLocations> effects = new ArrayList<>();
+    private final List<EffectLocations> effectsView = Collections.unmodifiableList(effects);
+
+    // Shapes as capsules (a circle is a capsule with equal ends), in parallel arrays.
+    private int shapeCount;
+    private float[] fromX = new float[16];
+    private float[] fromY = new float[16];
+    private float[] toX = new float[16];
+    private float[] toY = new float[16];
+    private float[] radius = new float[16];
+    private int[] effectOf = new int[16];
+
+    // Shapes of each cell, in compressed rows: shapes of cell c are cellShapes[cellStart[c]..cellStart[c + 1]).
+    private final int[] cellStart = new int[CELLS + 1];
+    private final int[] cellNext = new int[CELLS];
+    private int[] cellShapes = new int[64];
+
+    // Effects already reported by the current query, to report each effect once.
+    private int[] visited = new int[16];
+    private int query;
+
+    private EffectIndex() {
+    }
+
+    public static EffectIndex empty() {
+        return new EffectIndex();
+    }
+
+    public static EffectIndex of(Collection<EffectLocations> effects, Map<Effect, EffectData> effectData) {
+        EffectIndex index = new EffectIndex();
+        index.rebuild(effects, effectData);
+        return index;
+    }
+
+    /**
+     * Replaces the indexed effects.
+     *
+     * @param effectData Radius of effects the observation has no radius for, effects missing from both have none
+     *                   and cover only their exact positions.
+     */
+    public void rebuild(Collection<EffectLocations> effects, Map<Effect, EffectData> effectData) {
+        require("effects", effects);
+        require("effect data", effectData);
+        // One pass over the effects as given (e.g. the set of the raw observation), without an intermediate copy.
+        this.effects.clear();
+        shapeCount = 0;
+        for (EffectLocations effect : effects) {
+            int e = this.effects.size();
+            this.effects.add(effect);
+            float effectRadius = effect.getRadius().orElseGet(() -> {
+                EffectData data = effectData.get(effect.getEffect());
+                return data != null ? data.getRadius() : 0.0f;
+            });
+            if (effect.getEffect() == Effects.LURKER_MP && effect.getPositions().size() == 2) {
+                Iterator<Point2d> ends = effect.getPositions().iterator();
+                Point2d from = ends.next();
+                Point2d to = ends.next();
+                addShape(from.getX(), from.getY(), to.getX(), to.getY(), effectRadius, e);
+            } else {
+                for (Point2d position : effect.getPositions()) {
+                    addShape(position.getX(), position.getY(), position.getX(), position.getY(), effectRadius, e);
+                }
+            }
+        }
+        if (visited.length < this.effects.size()) visited = new int[this.effects.size() * 2];
+        Arrays.fill(visited, 0);
+        query = 0;
+        bucket();
+    }
+
+    private void addShape(float ax, float ay, float bx, float by, float r, int effect) {
+        if (shapeCount == radius.length) {
+            int capacity = shapeCount * 2;
+            fromX = Arrays.copyOf(fromX, capacity);
+            fromY = Arrays.copyOf(fromY, capacity);
+            toX = Arrays.copyOf(toX, capacity);
+            toY = Arrays.copyOf(toY, capacity);
+            radius = Arrays.copyOf(radius, capacity);
+            effectOf = Arrays.copyOf(effectOf, capacity);
+        }
+        fromX[shapeCount] = ax;
+        fromY[shapeCount] = ay;
+        toX[shapeCount] = bx;
+        toY[shapeCount] = by;
+        radius[shapeCount] = r;
+        effectOf[shapeCount] = effect;
+        shapeCount++;
+    }
+
+    // Counting sort of the shapes into the cells their bounding box overlaps.
+    private void bucket() {
+        Arrays.fill(cellStart, 0);
+        for (int s = 0; s < shapeCount; s++) {
+            int minColumn = cell(Math.min(fromX[s], toX[s]) - radius[s]);
+            int maxColumn = cell(Math.max(fromX[s], toX[s]) + radius[s]);
+            int minRow = cell(Math.min(fromY[s], toY[s]) - radius[s]);
+            int maxRow = cell(Math.max(fromY[s], toY[s]) + radius[s]);
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int column = minColumn; column <= maxColumn; column++) cellStart[row * COLUMNS + column + 1]++;
+            }
+        }
+        for (int c = 0; c < CELLS; c++) cellStart[c + 1] += cellStart[c];
+        if (cellShapes.length < cellStart[CELLS]) cellShapes = new int[cellStart[CELLS] * 2];
+        System.arraycopy(cellStart, 0, cellNext, 0, CELLS);
+        for (int s = 0; s < shapeCount; s++) {
+            int minColumn = cell(Math.min(fromX[s], toX[s]) - radius[s]);
+            int maxColumn = cell(Math.max(fromX[s], toX[s]) + radius[s]);
+            int minRow = cell(Math.min(fromY[s], toY[s]) - radius[s]);
+            int maxRow = cell(Math.max(fromY[s], toY[s]) + radius[s]);
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int column = minColumn; column <= maxColumn; column++) {
+                    cellShapes[cellNext[row * COLUMNS + column]++] = s;
+                }
+            }
+        }
+    }
+
+    private static int cell(float coordinate) {
+        return Math.min(COLUMNS - 1, Math.max(0, (int) (coordinate / CELL_SIZE)));
+    }
+
+    /**
+     * @return indexed effects, in observation order.
+     */
+    public List<EffectLocations> getEffects() {
+        return effectsView;
+    }
+
+    public boolean isEmpty() {
+        return effects.isEmpty();
+    }
+
+    /**
+     * @return true if a circle of the margin radius around the point touches any effect.
+     */
+    public boolean isAffected(float x, float y, float margin) {
+        if (shapeCount == 0) return false;
+        int minColumn = cell(x - margin);
+        int maxColumn = cell(x + margin);
+        int maxRow = cell(y + margin);
+        for (int row = cell(y - margin); row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                int c = row * COLUMNS + column;
+                for (int i = cellStart[c]; i < cellStart[c + 1]; i++) {
+                    if (touches(cellShapes[i], x, y, margin)) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public boolean isAffected(Point2d point) {
+        require("point", point);
+        return isAffected(point.getX(), point.getY(), 0.0f);
+    }
+
+    /**
+     * @return true if any effect overlaps the unit footprint.
+     */
+    public boolean isAffected(Unit unit) {
+        require("unit", unit);
+        return isAffected(unit.getX(), unit.getY(), unit.getRadius());
+    }
+
+    /**
+     * Visits each effect touching a circle of the margin radius around the point, once per effect.
+     */
+    public void forEachAffecting(float x, float y, float margin, Consumer<EffectLocations> consumer) {
+        require("consumer", consumer);
+        if (shapeCount == 0) return;
+        int stamp = nextQuery();
+        int minColumn = cell(x - margin);
+        int maxColumn = cell(x + margin);
+        int maxRow = cell(y + margin);
+        for (int row = cell(y - margin); row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                int c = row * COLUMNS + column;
+                for (int i = cellStart[c]; i < cellStart[c + 1]; i++) {
+                    int shape = cellShapes[i];
+                    int effect = effectOf[shape];
+                    if (visited[effect] != stamp && touches(shape, x, y, margin)) {
+                        visited[effect] = stamp;
+                        consumer.accept(effects.get(effect));
+                    }
+                }
+            }
+        }
+    }
+
+    public List<EffectLocations> getEffectsAt(Point2d point) {
+        require("point", point);
+        List<EffectLocations> affecting = new ArrayList<>();
+        forEachAffecting(point.getX(), point.getY(), 0.0f, affecting::add);
+        return affecting;
+    }
+
+    public List<EffectLocations> getEffectsAffecting(Unit unit) {
+        require("unit", unit);
+        List<EffectLocations> affecting = new ArrayList<>();
+        forEachAffecting(unit.getX(), unit.getY(), unit.getRadius(), affecting::add);
+        return affecting;
+    }
+
+    /**
+     * Visits each (unit, effect) pair where the effect overlaps the unit footprint, e.g. to dodge with a whole squad.
+     */
+    public void forEachAffected(Collection<Unit> units, BiConsumer<Unit, EffectLocations> consumer) {
+        require("units", units);
+        require("consumer", consumer);
+        if (shapeCount == 0) return;
+        for (Unit unit : units) {
+            forEachAffecting(unit.getX(), unit.getY(), unit.getRadius(), effect -> consumer.accept(unit, effect));
+        }
+    }
+
+    /**
+     * @return units overlapped by any effect, in the order of the collection.
+     */
+    public List<Unit> getAffectedUnits(Collection<Unit> units) {
+        require("units", units);
+        if (shapeCount == 0) return Collections.emptyList();
+        List<Unit> affected = new ArrayList<>();
+        for (Unit unit : units) {
+            if (isAffected(unit.getX(), unit.getY(), unit.getRadius())) affected.add(unit);
+        }
+        return affected;
+    }
+
+    private int nextQuery() {
+        if (++query == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            query = 1;
+        }
+        return query;
+    }
+
+    // Distance from the point to the shape segment, against the shape radius plus the margin.
+    private boolean touches(int shape, float x, float y, float margin) {
+        float ax = fromX[shape];
+        float ay = fromY[shape];
+        float dx = toX[shape] - ax;
+        float dy = toY[shape] - ay;
+        float lengthSquared = dx * dx + dy * dy;
+        float t = lengthSquared > 0.0f ? ((x - ax) * dx + (y - ay) * dy) / lengthSquared : 0.0f;
+        t = Math.max(0.0f, Math.min(1.0f, t));
+        float px = ax + t * dx - x;
+        float py = ay + t * dy - y;
+        float reach = radius[shape] + margin;
+        return px * px + py * py <= reach * reach;
+    }
+}
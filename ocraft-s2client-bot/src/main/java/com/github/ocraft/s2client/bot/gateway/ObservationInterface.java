@@ -35,6 +35,7 @@ import com.github.ocraft.s2client.protocol.observation.PlayerResult;
 import com.github.ocraft.s2client.protocol.observation.raw.EffectLocations;
 import com.github.ocraft.s2client.protocol.observation.raw.PowerSource;
 import com.github.ocraft.s2client.protocol.observation.raw.Visibility;
+import com.github.ocraft.s2client.protocol.observation.spatial.ImageData;
 import com.github.ocraft.s2client.protocol.response.ResponseGameInfo;
 import com.github.ocraft.s2client.protocol.score.Score;
 import com.github.ocraft.s2client.protocol.spatial.Point;
@@ -44,6 +45,7 @@ import com.github.ocraft.s2client.protocol.unit.Tag;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 /**
@@ -98,6 +100,30 @@ public interface ObservationInterface {
      */
     List<UnitInPool> getUnits(Predicate<UnitInPool> filter);
 
+    /**
+     * Get all units matching the query. The query runs against the units grouped by alliance and unit type, so only
+     * the units of its alliance and types are tested. A query of an alliance and at most one unit type returns an
+     * unmodifiable view of the index without copying.
+     *
+     * @param query Conditions the units must meet.
+     * @return A list of units matching the query.
+     * @see UnitQuery
+     */
+    List<UnitInPool> getUnits(UnitQuery query);
+
+    /**
+     * Visits all units matching the query without collecting them into a list.
+     *
+     * @see #getUnits(UnitQuery)
+     */
+    void forEachUnit(UnitQuery query, Consumer<UnitInPool> consumer);
+
+    /**
+     * @return Number of units matching the query.
+     * @see #getUnits(UnitQuery)
+     */
+    int countUnits(UnitQuery query);
+
     /**
      * Get the unit state as represented by the last call to getObservation.
      *
@@ -148,6 +174,14 @@ public interface ObservationInterface {
      */
     List<EffectLocations> getEffects();
 
+    /**
+     * Gets the effects of the current step bucketed into a grid for point and unit queries. Rebuilt on first use in
+     * each step, with effect radii from the effect data.
+     *
+     * @return Index of active effects in vision of the current player.
+     */
+    EffectIndex getEffectIndex();
+
     /**
      * Gets all upgrades.
      *
@@ -202,6 +236,14 @@ public interface ObservationInterface {
      */
     Map<Effect, EffectData> getEffectData(boolean forceRefresh);
 
+    /**
+     * Gets the tech tree indexed from the ability, unit type and upgrade data. Built once per data version, rebuilt
+     * when any of the data is refreshed.
+     *
+     * @return Relations between abilities, unit types and upgrades of the current game session.
+     */
+    TechTree getTechTree();
+
     /**
      * Gets the GameInfo struct for the current map.
      *
@@ -318,6 +360,14 @@ public interface ObservationInterface {
      */
     Visibility getVisibility(Point2d point);
 
+    /**
+     * Returns the origin of the map images (pathing, placement, terrain height, visibility and creep) in the game
+     * version being played.
+     *
+     * @return Image origin.
+     */
+    ImageData.Origin getImageOrigin();
+
     /**
      * Returns 'true' if the given point on the terrain is pathable. This does not
      * include pathing blockers like structures. For more accurate pathing results
@@ -356,4 +406,14 @@ public interface ObservationInterface {
      */
     Observation getRawObservation();
 
+    /**
+     * Immutable snapshot of the current game loop. In contrast to this interface (which is updated in place and must
+     * be used only from the onStep thread) it is safe to hand the snapshot over to worker threads or keep it as
+     * history. The snapshot is built at the first call in a game loop and the same instance is returned until the
+     * next observation.
+     *
+     * @return The snapshot or null if there was no observation yet.
+     */
+    ObservationSnapshot getSnapshot();
+
 }
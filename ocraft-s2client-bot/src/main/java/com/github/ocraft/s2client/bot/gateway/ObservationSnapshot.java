@@ -0,0 +1,221 @@
+package com.github.ocraft.s2client.bot.gateway;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.action.raw.ActionRaw;
+import com.github.ocraft.s2client.protocol.data.Upgrade;
+import com.github.ocraft.s2client.protocol.observation.ChatReceived;
+import com.github.ocraft.s2client.protocol.observation.Observation;
+import com.github.ocraft.s2client.protocol.observation.PlayerCommon;
+import com.github.ocraft.s2client.protocol.observation.PlayerResult;
+import com.github.ocraft.s2client.protocol.observation.raw.EffectLocations;
+import com.github.ocraft.s2client.protocol.observation.raw.ObservationRaw;
+import com.github.ocraft.s2client.protocol.observation.raw.PlayerRaw;
+import com.github.ocraft.s2client.protocol.observation.raw.PowerSource;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.isSet;
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Immutable state of the game in one game loop. Unlike {@link ObservationInterface} (which is updated in place) it can
+ * be read from worker threads and retained as history.
+ * <p>
+ * Units that didn't change since the previous snapshot share the same instances with it, so keeping a history of
+ * snapshots costs only the changed units per frame.
+ */
+public final class ObservationSnapshot {
+
+    private final Observation observation;
+    private final Map<Tag, Unit> units;
+    private final List<Unit> unitList;
+    private final Map<Alliance, List<Unit>> unitsByAlliance;
+    private final List<Unit> changedUnits;
+    private final List<ActionRaw> rawActions;
+    private final List<ChatReceived> chat;
+    private final List<PlayerResult> playerResults;
+    private final List<PowerSource> powerSources;
+    private final List<EffectLocations> effects;
+    private final List<Upgrade> upgrades;
+
+    private ObservationSnapshot(
+            ObservationSnapshot previous,
+            Observation observation,
+            Collection<Unit> currentUnits,
+            List<ActionRaw> rawActions,
+            List<ChatReceived> chat,
+            List<PlayerResult> playerResults) {
+        this.observation = observation;
+
+        Map<Tag, Unit> previousUnits = isSet(previous) ? previous.units : Collections.emptyMap();
+        Map<Tag, Unit> unitsByTag = new LinkedHashMap<>(currentUnits.size() * 4 / 3 + 1);
+        List<Unit> changed = new ArrayList<>();
+        Map<Alliance, List<Unit>> byAlliance = new EnumMap<>(Alliance.class);
+        for (Unit unit : currentUnits) {
+            Unit previousUnit = previousUnits.get(unit.getTag());
+            Unit shared = unit.equals(previousUnit) ? previousUnit : unit;
+            if (shared != previousUnit) changed.add(shared);
+            unitsByTag.put(shared.getTag(), shared);
+            byAlliance.computeIfAbsent(shared.getAlliance(), alliance -> new ArrayList<>()).add(shared);
+        }
+        byAlliance.replaceAll((alliance, list) -> unmodifiableList(list));
+
+        this.units = Collections.unmodifiableMap(unitsByTag);
+        this.unitList = unmodifiableList(new ArrayList<>(unitsByTag.values()));
+        this.unitsByAlliance = Collections.unmodifiableMap(byAlliance);
+        this.changedUnits = unmodifiableList(changed);
+        this.rawActions = unmodifiableList(new ArrayList<>(rawActions));
+        this.chat = unmodifiableList(new ArrayList<>(chat));
+        this.playerResults = unmodifiableList(new ArrayList<>(playerResults));
+
+        Optional<PlayerRaw> player = observation.getRaw().map(ObservationRaw::getPlayer);
+        this.powerSources = unmodifiableList(new ArrayList<>(
+                player.map(PlayerRaw::getPowerSources).orElse(Collections.emptySet())));
+        this.upgrades = unmodifiableList(new ArrayList<>(
+                player.map(PlayerRaw::getUpgrades).orElse(Collections.emptySet())));
+        this.effects = unmodifiableList(new ArrayList<>(
+                observation.getRaw().map(ObservationRaw::getEffects).orElse(Collections.emptySet())));
+    }
+
+    /**
+     * Creates snapshot of the current game loop.
+     *
+     * @param previous      Snapshot of the previous game loop (null for the first one). Unchanged units are shared.
+     * @param observation   The observation.
+     * @param units         Units of the observation (after ability generalization if enabled).
+     * @param rawActions    Raw actions executed since the previous observation.
+     * @param chat          Chat messages received since the previous observation.
+     * @param playerResults Game results (if game has ended).
+     */
+    public static ObservationSnapshot of(
+            ObservationSnapshot previous,
+            Observation observation,
+            Collection<Unit> units,
+            List<ActionRaw> rawActions,
+            List<ChatReceived> chat,
+            List<PlayerResult> playerResults) {
+        require("observation", observation);
+        require("units", units);
+        require("raw actions", rawActions);
+        require("chat", chat);
+        require("player results", playerResults);
+        return new ObservationSnapshot(previous, observation, units, rawActions, chat, playerResults);
+    }
+
+    public long getGameLoop() {
+        return observation.getGameLoop();
+    }
+
+    public int getPlayerId() {
+        return observation.getPlayerCommon().getPlayerId();
+    }
+
+    public Observation getRawObservation() {
+        return observation;
+    }
+
+    public PlayerCommon getPlayerCommon() {
+        return observation.getPlayerCommon();
+    }
+
+    public List<Unit> getUnits() {
+        return unitList;
+    }
+
+    public List<Unit> getUnits(Alliance alliance) {
+        return unitsByAlliance.getOrDefault(alliance, Collections.emptyList());
+    }
+
+    public List<Unit> getUnits(Alliance alliance, Predicate<Unit> filter) {
+        return filter(getUnits(alliance), filter);
+    }
+
+    public List<Unit> getUnits(Predicate<Unit> filter) {
+        return filter(unitList, filter);
+    }
+
+    private static List<Unit> filter(List<Unit> units, Predicate<Unit> filter) {
+        List<Unit> filtered = new ArrayList<>();
+        for (Unit unit : units) {
+            if (filter.test(unit)) filtered.add(unit);
+        }
+        return filtered;
+    }
+
+    public Optional<Unit> getUnit(Tag tag) {
+        return Optional.ofNullable(units.get(tag));
+    }
+
+    /**
+     * @return Units that are new or changed in comparison to the previous snapshot.
+     */
+    public List<Unit> getChangedUnits() {
+        return changedUnits;
+    }
+
+    public List<ActionRaw> getRawActions() {
+        return rawActions;
+    }
+
+    public List<ChatReceived> getChatMessages() {
+        return chat;
+    }
+
+    public List<PlayerResult> getResults() {
+        return playerResults;
+    }
+
+    public List<PowerSource> getPowerSources() {
+        return powerSources;
+    }
+
+    public List<EffectLocations> getEffects() {
+        return effects;
+    }
+
+    public List<Upgrade> getUpgrades() {
+        return upgrades;
+    }
+
+    @Override
+    public String toString() {
+        return "ObservationSnapshot{" +
+                "gameLoop=" + getGameLoop() +
+                ", units=" + unitList.size() +
+                ", changedUnits=" + changedUnits.size() +
+                ", rawActions=" + rawActions.size() +
+                ", chat=" + chat.size() +
+                ", playerResults=" + playerResults +
+                '}';
+    }
+}
@@ -55,6 +55,14 @@ public interface ProtoInterface {
 
     <T extends Request> Maybe<Response> sendRequest(BuilderSyntax<T> requestDataBuilder);
 
+    /**
+     * Sends the request without waiting for the response. The response is dropped as soon as it arrives, until then
+     * it stays pending and may be awaited with {@link #getResponsePending(ResponseType)}.
+     *
+     * @return false if the request was not sent because a response of the same type is still pending.
+     */
+    <T extends Request> boolean sendRequestAsync(T requestData);
+
     Optional<Response> waitForResponse(Maybe<Response> waitFor);
 
     void quit();
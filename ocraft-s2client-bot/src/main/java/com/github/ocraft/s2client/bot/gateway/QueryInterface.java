@@ -28,8 +28,6 @@ package com.github.ocraft.s2client.bot.gateway;
 
 import com.github.ocraft.s2client.protocol.data.Abilities;
 import com.github.ocraft.s2client.protocol.data.Ability;
-import com.github.ocraft.s2client.protocol.data.UnitType;
-import com.github.ocraft.s2client.protocol.data.Units;
 import com.github.ocraft.s2client.protocol.debug.Color;
 import com.github.ocraft.s2client.protocol.query.AvailableAbilities;
 import com.github.ocraft.s2client.protocol.query.QueryBuildingPlacement;
@@ -40,8 +38,6 @@ import com.github.ocraft.s2client.protocol.unit.Unit;
 
 import java.util.*;
 
-import static java.util.Arrays.asList;
-
 /**
  * The QueryInterface provides additional data not contained in the observation.
  * <p>
@@ -123,26 +119,14 @@ public interface QueryInterface {
 
     /**
      * Calculates expansion locations, this call can take on the order of 100ms since it makes blocking queries to SC2
-     * so call it once and cache the results.
+     * so call it once and cache the results. See {@code MapAnalysisCache} in the analysis package for the local
+     * analysis persisted between games.
      *
      * @param debug If filled out CalculateExpansionLocations will render spheres to show what it calculated.
      */
     default List<Point> calculateExpansionLocations(
             ObservationInterface observation, DebugInterface debug, ExpansionParameters parameters) {
-        List<UnitInPool> resources = observation.getUnits(unitInPool -> {
-            Set<UnitType> fields = new HashSet<>(asList(
-                    Units.NEUTRAL_MINERAL_FIELD, Units.NEUTRAL_MINERAL_FIELD750,
-                    Units.NEUTRAL_RICH_MINERAL_FIELD, Units.NEUTRAL_RICH_MINERAL_FIELD750,
-                    Units.NEUTRAL_PURIFIER_MINERAL_FIELD, Units.NEUTRAL_PURIFIER_MINERAL_FIELD750,
-                    Units.NEUTRAL_PURIFIER_RICH_MINERAL_FIELD, Units.NEUTRAL_PURIFIER_RICH_MINERAL_FIELD750,
-                    Units.NEUTRAL_LAB_MINERAL_FIELD, Units.NEUTRAL_LAB_MINERAL_FIELD750,
-                    Units.NEUTRAL_BATTLE_STATION_MINERAL_FIELD, Units.NEUTRAL_BATTLE_STATION_MINERAL_FIELD750,
-                    Units.NEUTRAL_VESPENE_GEYSER, Units.NEUTRAL_PROTOSS_VESPENE_GEYSER,
-                    Units.NEUTRAL_SPACE_PLATFORM_GEYSER, Units.NEUTRAL_PURIFIER_VESPENE_GEYSER,
-                    Units.NEUTRAL_SHAKURAS_VESPENE_GEYSER, Units.NEUTRAL_RICH_VESPENE_GEYSER
-            ));
-            return fields.contains(unitInPool.unit().getType());
-        });
+        List<UnitInPool> resources = observation.getUnits(Resources.isResource());
 
         List<Point> expansionLocations = new ArrayList<>();
         Map<Point, List<UnitInPool>> clusters = cluster(resources, parameters.getClusterDistance());
@@ -173,6 +157,7 @@ public interface QueryInterface {
         for (Map.Entry<Point, List<UnitInPool>> cluster : clusters.entrySet()) {
             double distance = Double.MAX_VALUE;
             Point2d closest = null;
+            Point2d center = cluster.getKey().toPoint2d();
 
             // For each query for the cluster minimum distance location that is valid.
             for (int j = startIndex, e = startIndex + querySize.get(cluster.getKey()); j < e; ++j) {
@@ -182,7 +167,7 @@ public interface QueryInterface {
 
                 Point2d p = queries.get(j).getTarget();
 
-                double d = p.distance(cluster.getKey().toPoint2d());
+                double d = p.distance(center);
                 if (d < distance) {
                     distance = d;
                     closest = p;
@@ -218,35 +203,32 @@ public interface QueryInterface {
     private List<QueryBuildingPlacement> calculateQueries(double radius, double stepSize, Point2d center) {
         List<QueryBuildingPlacement> queries = new ArrayList<>();
 
-        Point2d previousGrid = Point2d.of(Float.MAX_VALUE, Float.MAX_VALUE);
+        float previousGridX = Float.MAX_VALUE;
+        float previousGridY = Float.MAX_VALUE;
         // Find a buildable location on the circumference of the sphere
         for (double degree = 0.0; degree < 360.0; degree += stepSize) {
-            Point2d point = pointOnCircle(radius, center, degree);
-
-            QueryBuildingPlacement query = QueryBuildingPlacement
-                    .placeBuilding()
-                    .useAbility(Abilities.BUILD_COMMAND_CENTER)
-                    .on(point)
-                    .build();
-
-            Point2d currentGrid = Point2d.of((float) Math.floor(point.getX()), (float) Math.floor(point.getY()));
-
-            if (!previousGrid.equals(currentGrid)) {
-                queries.add(query);
+            double radians = Math.toRadians(degree);
+            float x = (float) (radius * Math.cos(radians) + center.getX());
+            float y = (float) (radius * Math.sin(radians) + center.getY());
+
+            // Only the first point in each grid cell is queried, no point is created for the others.
+            float gridX = (float) Math.floor(x);
+            float gridY = (float) Math.floor(y);
+            if (gridX != previousGridX || gridY != previousGridY) {
+                queries.add(QueryBuildingPlacement
+                        .placeBuilding()
+                        .useAbility(Abilities.BUILD_COMMAND_CENTER)
+                        .on(Point2d.of(x, y))
+                        .build());
             }
 
-            previousGrid = currentGrid;
+            previousGridX = gridX;
+            previousGridY = gridY;
         }
 
         return queries;
     }
 
-    private static Point2d pointOnCircle(double radius, Point2d center, double degree) {
-        return Point2d.of(
-                (float) (radius * Math.cos(Math.toRadians(degree)) + center.getX()),
-                (float) (radius * Math.sin(Math.toRadians(degree)) + center.getY()));
-    }
-
     /**
      * Clusters units within some distance of each other and returns a list of them and their center of mass.
      */
@@ -0,0 +1,248 @@
+package com.github.ocraft.s2client.bot.gateway;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.data.Ability;
+import com.github.ocraft.s2client.protocol.data.AbilityData;
+import com.github.ocraft.s2client.protocol.data.UnitType;
+import com.github.ocraft.s2client.protocol.data.UnitTypeData;
+import com.github.ocraft.s2client.protocol.data.Upgrade;
+import com.github.ocraft.s2client.protocol.data.UpgradeData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.isSet;
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Relations between abilities, unit types and upgrades of one game data version, indexed by id in flat arrays:
+ * generalized ability of each ability (see {@link AbilityRemap}), the unit type or upgrade produced by an ability, the
+ * ability producing a unit type or researching an upgrade and the tech requirements of unit types.
+ * <p>
+ * Built once per data version by {@link ObservationInterface#getTechTree()}, every lookup is an array read. Immutable,
+ * safe to share between threads.
+ */
+public final class TechTree {
+
+    private final AbilityRemap abilityRemap;
+    private final UnitType[] unitByAbility;
+    private final Upgrade[] upgradeByAbility;
+    private final Ability[] abilityByUnit;
+    private final Ability[] abilityByUpgrade;
+    private final UnitType[] techRequirements;
+    private final boolean[] requireAttached;
+    private final UnitType[][] techAliases;
+    private final List<List<UnitType>> requirementChains;
+
+    private TechTree(
+            AbilityRemap abilityRemap,
+            Map<UnitType, UnitTypeData> unitTypeData,
+            Map<Upgrade, UpgradeData> upgradeData) {
+        this.abilityRemap = abilityRemap;
+        int abilityCount = 0;
+        for (UnitTypeData data : unitTypeData.values()) {
+            abilityCount = Math.max(abilityCount, data.getAbility().map(a -> a.getAbilityId() + 1).orElse(0));
+        }
+        for (UpgradeData data : upgradeData.values()) {
+            abilityCount = Math.max(abilityCount, data.getAbility().map(a -> a.getAbilityId() + 1).orElse(0));
+        }
+        int unitCount = 0;
+        for (UnitType unitType : unitTypeData.keySet()) unitCount = Math.max(unitCount, unitType.getUnitTypeId() + 1);
+        int upgradeCount = 0;
+        for (Upgrade upgrade : upgradeData.keySet()) upgradeCount = Math.max(upgradeCount, upgrade.getUpgradeId() + 1);
+
+        unitByAbility = new UnitType[abilityCount];
+        upgradeByAbility = new Upgrade[abilityCount];
+        abilityByUnit = new Ability[unitCount];
+        abilityByUpgrade = new Ability[upgradeCount];
+        techRequirements = new UnitType[unitCount];
+        requireAttached = new boolean[unitCount];
+        techAliases = new UnitType[unitCount][];
+        Arrays.fill(techAliases, new UnitType[0]);
+
+        for (UnitTypeData data : unitTypeData.values()) {
+            int id = data.getUnitType().getUnitTypeId();
+            data.getAbility().ifPresent(ability -> {
+                abilityByUnit[id] = ability;
+                UnitType produced = unitByAbility[ability.getAbilityId()];
+                // Unit types sharing an ability (e.g. morphed variants) map to the lowest id, independent of map order.
+                if (!isSet(produced) || produced.getUnitTypeId() > id) {
+                    unitByAbility[ability.getAbilityId()] = data.getUnitType();
+                }
+            });
+            techRequirements[id] = data.getTechRequirement().orElse(null);
+            requireAttached[id] = data.isRequireAttached();
+            techAliases[id] = data.getTechAliases().toArray(new UnitType[0]);
+        }
+        for (UpgradeData data : upgradeData.values()) {
+            int id = data.getUpgrade().getUpgradeId();
+            data.getAbility().ifPresent(ability -> {
+                abilityByUpgrade[id] = ability;
+                upgradeByAbility[ability.getAbilityId()] = data.getUpgrade();
+            });
+        }
+
+        List<List<UnitType>> chains = new ArrayList<>(unitCount);
+        for (int id = 0; id < unitCount; id++) chains.add(requirementChain(id));
+        requirementChains = chains;
+    }
+
+    private List<UnitType> requirementChain(int unitTypeId) {
+        List<UnitType> chain = new ArrayList<>();
+        UnitType requirement = techRequirements[unitTypeId];
+        while (isSet(requirement) && !chain.contains(requirement)) {
+            chain.add(requirement);
+            int id = requirement.getUnitTypeId();
+            requirement = id >= 0 && id < techRequirements.length ? techRequirements[id] : null;
+        }
+        return chain.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(chain);
+    }
+
+    public static TechTree of(
+            Map<Ability, AbilityData> abilityData,
+            Map<UnitType, UnitTypeData> unitTypeData,
+            Map<Upgrade, UpgradeData> upgradeData) {
+        require("ability data", abilityData);
+        require("unit type data", unitTypeData);
+        require("upgrade data", upgradeData);
+        return new TechTree(AbilityRemap.of(abilityData), unitTypeData, upgradeData);
+    }
+
+    /**
+     * @param abilityRemap generalized abilities already built from the ability data of the same data version.
+     */
+    public static TechTree of(
+            AbilityRemap abilityRemap,
+            Map<UnitType, UnitTypeData> unitTypeData,
+            Map<Upgrade, UpgradeData> upgradeData) {
+        require("ability remap", abilityRemap);
+        require("unit type data", unitTypeData);
+        require("upgrade data", upgradeData);
+        return new TechTree(abilityRemap, unitTypeData, upgradeData);
+    }
+
+    /**
+     * @return the more generic ability the ability is remapped to (e.g. all "build" abilities of workers map to one),
+     * the ability itself if there is none.
+     */
+    public Ability getGeneralizedAbility(Ability ability) {
+        return abilityRemap.getGeneralizedAbility(ability);
+    }
+
+    /**
+     * @return id of the generalized ability, the id itself if there is no remap.
+     */
+    public int getGeneralizedAbilityId(int abilityId) {
+        return abilityRemap.getGeneralizedAbilityId(abilityId);
+    }
+
+    /**
+     * @return the unit type trained, built or morphed into with the ability.
+     */
+    public Optional<UnitType> getProducedUnitType(Ability ability) {
+        return Optional.ofNullable(lookup(unitByAbility, abilityId(ability)));
+    }
+
+    /**
+     * @return the upgrade researched with the ability.
+     */
+    public Optional<Upgrade> getResearchedUpgrade(Ability ability) {
+        return Optional.ofNullable(lookup(upgradeByAbility, abilityId(ability)));
+    }
+
+    /**
+     * @return the ability training, building or morphing into the unit type.
+     */
+    public Optional<Ability> getProducingAbility(UnitType unitType) {
+        return Optional.ofNullable(lookup(abilityByUnit, unitTypeId(unitType)));
+    }
+
+    /**
+     * @return the ability researching the upgrade.
+     */
+    public Optional<Ability> getResearchAbility(Upgrade upgrade) {
+        require("upgrade", upgrade);
+        return Optional.ofNullable(lookup(abilityByUpgrade, upgrade.getUpgradeId()));
+    }
+
+    /**
+     * @return the structure required to produce the unit type.
+     */
+    public Optional<UnitType> getTechRequirement(UnitType unitType) {
+        return Optional.ofNullable(lookup(techRequirements, unitTypeId(unitType)));
+    }
+
+    /**
+     * @return true if the tech requirement of the unit type is an add-on attached to the producer.
+     */
+    public boolean isRequireAttached(UnitType unitType) {
+        int id = unitTypeId(unitType);
+        return id >= 0 && id < requireAttached.length && requireAttached[id];
+    }
+
+    /**
+     * @return the tech requirement of the unit type followed by its own requirements, transitively.
+     */
+    public List<UnitType> getRequirements(UnitType unitType) {
+        int id = unitTypeId(unitType);
+        return id >= 0 && id < requirementChains.size() ? requirementChains.get(id) : Collections.emptyList();
+    }
+
+    /**
+     * @return true if owning the unit type satisfies the requirement, directly or through a tech alias (e.g. a lowered
+     * supply depot satisfies the supply depot requirement).
+     */
+    public boolean satisfies(UnitType unitType, UnitType requirement) {
+        require("requirement", requirement);
+        int id = unitTypeId(unitType);
+        if (id == requirement.getUnitTypeId()) return true;
+        if (id < 0 || id >= techAliases.length) return false;
+        for (UnitType alias : techAliases[id]) {
+            if (alias.getUnitTypeId() == requirement.getUnitTypeId()) return true;
+        }
+        return false;
+    }
+
+    private static int abilityId(Ability ability) {
+        require("ability", ability);
+        return ability.getAbilityId();
+    }
+
+    private static int unitTypeId(UnitType unitType) {
+        require("unit type", unitType);
+        return unitType.getUnitTypeId();
+    }
+
+    private static <T> T lookup(T[] array, int id) {
+        return id >= 0 && id < array.length ? array[id] : null;
+    }
+}
@@ -0,0 +1,155 @@
+package com.github.ocraft.s2client.bot.gateway;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.isSet;
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Units of one observation grouped by alliance and by alliance and unit type, the secondary indexes a
+ * {@link UnitQuery} runs against: the query visits only the lists of its alliance and types and tests each candidate
+ * once.
+ * <p>
+ * The index is immutable, the unit pool builds a new one at the first query after the observation changed. The lists
+ * are never modified after that, so the views returned by {@link #getUnits(UnitQuery)} stay valid and unchanged for
+ * as long as the caller keeps them.
+ */
+public final class UnitIndex {
+
+    private static final UnitIndex EMPTY = new UnitIndex(Collections.emptyList());
+
+    private final List<UnitInPool> all = new ArrayList<>();
+    private final Map<Alliance, List<UnitInPool>> byAlliance = new EnumMap<>(Alliance.class);
+    private final Map<Alliance, Map<Integer, List<UnitInPool>>> byType = new EnumMap<>(Alliance.class);
+
+    private UnitIndex(Collection<UnitInPool> units) {
+        for (UnitInPool unitInPool : units) {
+            Unit unit = unitInPool.getUnit().orElse(null);
+            if (!isSet(unit)) continue;
+            all.add(unitInPool);
+            byAlliance.computeIfAbsent(unit.getAlliance(), alliance -> new ArrayList<>()).add(unitInPool);
+            byType.computeIfAbsent(unit.getAlliance(), alliance -> new HashMap<>())
+                    .computeIfAbsent(unit.getType().getUnitTypeId(), type -> new ArrayList<>())
+                    .add(unitInPool);
+        }
+    }
+
+    public static UnitIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param units units of the observation, the ones without unit data are left out.
+     */
+    public static UnitIndex of(Collection<UnitInPool> units) {
+        require("units", units);
+        return new UnitIndex(units);
+    }
+
+    public int size() {
+        return all.size();
+    }
+
+    /**
+     * Calls the consumer for every unit matching the query, without collecting them.
+     */
+    public void forEach(UnitQuery query, Consumer<UnitInPool> consumer) {
+        require("query", query);
+        require("consumer", consumer);
+        Alliance alliance = query.getAlliance();
+        if (query.unitTypeCount() == 0) {
+            visit(isSet(alliance) ? byAlliance.get(alliance) : all, query, consumer);
+        } else if (isSet(alliance)) {
+            visitTypes(byType.get(alliance), query, consumer);
+        } else {
+            for (Map<Integer, List<UnitInPool>> types : byType.values()) visitTypes(types, query, consumer);
+        }
+    }
+
+    private static void visitTypes(
+            Map<Integer, List<UnitInPool>> types, UnitQuery query, Consumer<UnitInPool> consumer) {
+        if (!isSet(types)) return;
+        for (int i = 0; i < query.unitTypeCount(); i++) visit(types.get(query.unitTypeId(i)), query, consumer);
+    }
+
+    private static void visit(List<UnitInPool> candidates, UnitQuery query, Consumer<UnitInPool> consumer) {
+        if (!isSet(candidates)) return;
+        for (int i = 0; i < candidates.size(); i++) {
+            UnitInPool unitInPool = candidates.get(i);
+            if (query.test(unitInPool)) consumer.accept(unitInPool);
+        }
+    }
+
+    /**
+     * @return units matching the query. A query of an alliance and at most one unit type gets an unmodifiable view
+     * of the list of the index, without copying; other queries get a new list.
+     */
+    public List<UnitInPool> getUnits(UnitQuery query) {
+        require("query", query);
+        if (query.isIndexOnly()) {
+            List<UnitInPool> units = indexed(query);
+            if (isSet(units)) return Collections.unmodifiableList(units);
+            if (isSet(query.getAlliance())) return Collections.emptyList();
+        }
+        List<UnitInPool> units = new ArrayList<>();
+        forEach(query, units::add);
+        return units;
+    }
+
+    // The list holding exactly the units of an index only query, null when the units are spread over several lists.
+    private List<UnitInPool> indexed(UnitQuery query) {
+        Alliance alliance = query.getAlliance();
+        if (query.unitTypeCount() == 0) return isSet(alliance) ? byAlliance.get(alliance) : all;
+        if (!isSet(alliance)) return null;
+        Map<Integer, List<UnitInPool>> types = byType.get(alliance);
+        return isSet(types) ? types.get(query.unitTypeId(0)) : null;
+    }
+
+    public int count(UnitQuery query) {
+        require("query", query);
+        if (query.isIndexOnly()) {
+            List<UnitInPool> units = indexed(query);
+            if (isSet(units)) return units.size();
+            if (isSet(query.getAlliance())) return 0;
+        }
+        int[] count = new int[1];
+        forEach(query, unitInPool -> count[0]++);
+        return count[0];
+    }
+}
@@ -0,0 +1,245 @@
+package com.github.ocraft.s2client.bot.gateway;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.data.Buff;
+import com.github.ocraft.s2client.protocol.data.UnitType;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.github.ocraft.s2client.protocol.unit.DisplayType;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.isSet;
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Typed unit query for {@link ObservationInterface#getUnits(UnitQuery)}, e.g.
+ * <pre>
+ * {@code
+ * UnitQuery idleWorkers = UnitQuery.units().alliance(Alliance.SELF).ofType(Units.TERRAN_SCV).idle().build();
+ * List<UnitInPool> workers = observation().getUnits(idleWorkers);
+ * }
+ * </pre>
+ * The alliance and the unit types select the lists of the per alliance and per type index of the observation, the
+ * other conditions are compiled into one test of primitive comparisons run once per candidate unit. Queries are
+ * immutable, build them once and reuse them every step.
+ */
+public final class UnitQuery {
+
+    private static final int[] ANY_TYPE = new int[0];
+    private static final Buff[] NO_BUFFS = new Buff[0];
+
+    private final Alliance alliance;
+    private final int[] unitTypeIds;
+    private final Buff[] buffs;
+    private final DisplayType displayType;
+    private final boolean idle;
+    private final boolean within;
+    private final float x;
+    private final float y;
+    private final float radiusSquared;
+    private final float healthBelow;
+    private final Predicate<UnitInPool> filter;
+
+    private UnitQuery(Builder builder) {
+        alliance = builder.alliance;
+        unitTypeIds = builder.unitTypeIds;
+        buffs = builder.buffs;
+        displayType = builder.displayType;
+        idle = builder.idle;
+        within = isSet(builder.center);
+        x = within ? builder.center.getX() : 0.0f;
+        y = within ? builder.center.getY() : 0.0f;
+        radiusSquared = builder.radius * builder.radius;
+        healthBelow = builder.healthBelow;
+        filter = builder.filter;
+    }
+
+    public static final class Builder {
+        private Alliance alliance;
+        private int[] unitTypeIds = ANY_TYPE;
+        private Buff[] buffs = NO_BUFFS;
+        private DisplayType displayType;
+        private boolean idle;
+        private Point2d center;
+        private float radius;
+        private float healthBelow = Float.NaN;
+        private Predicate<UnitInPool> filter;
+
+        private Builder() {
+        }
+
+        public Builder alliance(Alliance alliance) {
+            require("alliance", alliance);
+            this.alliance = alliance;
+            return this;
+        }
+
+        /**
+         * Units of any of the types.
+         */
+        public Builder ofType(UnitType... unitTypes) {
+            require("unit types", unitTypes);
+            int[] ids = new int[unitTypes.length];
+            for (int i = 0; i < unitTypes.length; i++) {
+                require("unit type", unitTypes[i]);
+                ids[i] = unitTypes[i].getUnitTypeId();
+            }
+            unitTypeIds = Arrays.stream(ids).sorted().distinct().toArray();
+            return this;
+        }
+
+        /**
+         * Units having all the buffs.
+         */
+        public Builder withBuff(Buff... buffs) {
+            require("buffs", buffs);
+            for (Buff buff : buffs) require("buff", buff);
+            this.buffs = buffs.clone();
+            return this;
+        }
+
+        public Builder displayType(DisplayType displayType) {
+            require("display type", displayType);
+            this.displayType = displayType;
+            return this;
+        }
+
+        /**
+         * Units without orders.
+         */
+        public Builder idle() {
+            this.idle = true;
+            return this;
+        }
+
+        /**
+         * Units with the center of their footprint in the circle.
+         */
+        public Builder within(Point2d center, float radius) {
+            require("center", center);
+            if (radius < 0.0f) throw new IllegalArgumentException("radius must be non negative");
+            this.center = center;
+            this.radius = radius;
+            return this;
+        }
+
+        /**
+         * Units with known health lower than the threshold.
+         */
+        public Builder healthBelow(float health) {
+            this.healthBelow = health;
+            return this;
+        }
+
+        /**
+         * Any other condition, tested after the typed ones.
+         */
+        public Builder filter(Predicate<UnitInPool> filter) {
+            require("filter", filter);
+            this.filter = filter;
+            return this;
+        }
+
+        public UnitQuery build() {
+            return new UnitQuery(this);
+        }
+    }
+
+    public static Builder units() {
+        return new Builder();
+    }
+
+    /**
+     * @return the alliance the query is limited to, null for any.
+     */
+    public Alliance getAlliance() {
+        return alliance;
+    }
+
+    /**
+     * @return distinct ids of the unit types the query is limited to, sorted and empty for any.
+     */
+    public int[] getUnitTypeIds() {
+        return unitTypeIds.clone();
+    }
+
+    int unitTypeCount() {
+        return unitTypeIds.length;
+    }
+
+    int unitTypeId(int index) {
+        return unitTypeIds[index];
+    }
+
+    /**
+     * @return true if the alliance and at most one unit type are the only conditions, so that the result is exactly
+     * one list of the index.
+     */
+    boolean isIndexOnly() {
+        return unitTypeIds.length <= 1 && buffs.length == 0 && !isSet(displayType) && !idle && !within
+                && Float.isNaN(healthBelow) && !isSet(filter);
+    }
+
+    public boolean test(UnitInPool unitInPool) {
+        Unit unit = unitInPool.getUnit().orElse(null);
+        return isSet(unit) && test(unit) && (!isSet(filter) || filter.test(unitInPool));
+    }
+
+    // Conditions on the unit alone, ordered from the cheapest.
+    private boolean test(Unit unit) {
+        if (isSet(alliance) && unit.getAlliance() != alliance) return false;
+        if (unitTypeIds.length > 0 && Arrays.binarySearch(unitTypeIds, unit.getType().getUnitTypeId()) < 0) {
+            return false;
+        }
+        if (isSet(displayType) && unit.getDisplayType() != displayType) return false;
+        if (idle && !unit.getOrders().isEmpty()) return false;
+        if (within && unit.distanceSquared(x, y) > radiusSquared) return false;
+        if (!Float.isNaN(healthBelow) && !(unit.getHealthOr(Float.POSITIVE_INFINITY) < healthBelow)) return false;
+        for (Buff buff : buffs) {
+            if (!unit.getBuffs().contains(buff)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "UnitQuery{" +
+                "alliance=" + alliance +
+                ", unitTypeIds=" + Arrays.toString(unitTypeIds) +
+                ", buffs=" + Arrays.toString(buffs) +
+                ", displayType=" + displayType +
+                ", idle=" + idle +
+                ", within=" + (within ? Point2d.of(x, y) + "/" + Math.sqrt(radiusSquared) : "any") +
+                ", healthBelow=" + healthBelow +
+                ", filter=" + isSet(filter) +
+                '}';
+    }
+}
@@ -26,6 +26,7 @@ package com.github.ocraft.s2client.bot.gateway.impl;
  * #L%
  */
 
+import com.github.ocraft.s2client.bot.ClientError;
 import com.github.ocraft.s2client.bot.gateway.ActionFeatureLayerInterface;
 import com.github.ocraft.s2client.protocol.action.Action;
 import com.github.ocraft.s2client.protocol.action.spatial.ActionSpatialCameraMove;
@@ -33,26 +34,34 @@ import com.github.ocraft.s2client.protocol.action.spatial.ActionSpatialUnitComma
 import com.github.ocraft.s2client.protocol.action.spatial.ActionSpatialUnitSelectionPoint;
 import com.github.ocraft.s2client.protocol.action.spatial.ActionSpatialUnitSelectionRect;
 import com.github.ocraft.s2client.protocol.data.Ability;
-import com.github.ocraft.s2client.protocol.request.RequestAction;
-import com.github.ocraft.s2client.protocol.request.Requests;
-import com.github.ocraft.s2client.protocol.response.ResponseAction;
 import com.github.ocraft.s2client.protocol.spatial.PointI;
 import com.github.ocraft.s2client.protocol.spatial.RectangleI;
+import com.github.ocraft.s2client.protocol.spatial.Size2dI;
+import com.github.ocraft.s2client.protocol.spatial.SpatialCameraSetup;
 import com.github.ocraft.s2client.protocol.syntax.action.spatial.AddSyntax;
 import com.github.ocraft.s2client.protocol.syntax.action.spatial.TargetSyntax;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.function.Function;
 
 import static com.github.ocraft.s2client.protocol.action.Action.action;
+import static java.lang.String.format;
 
+/**
+ * Feature layer actions are queued with the raw actions of the agent ({@link ActionInterfaceImpl}), so all actions of
+ * a step are sent in one RequestAction. Points are checked against the feature layer resolutions requested when
+ * joining the game; actions outside of the screen or minimap are dropped with
+ * {@link ClientError#INVALID_SPATIAL_ACTION} instead of being rejected by the game.
+ */
 class ActionFeatureLayerInterfaceImpl implements ActionFeatureLayerInterface {
 
     private final ControlInterfaceImpl controlInterface;
-    private final List<Action> actions = new ArrayList<>();
+    private final ActionInterfaceImpl actionInterface;
 
-    ActionFeatureLayerInterfaceImpl(ControlInterfaceImpl controlInterface) {
+    ActionFeatureLayerInterfaceImpl(ControlInterfaceImpl controlInterface, ActionInterfaceImpl actionInterface) {
         this.controlInterface = controlInterface;
+        this.actionInterface = actionInterface;
     }
 
     private ControlInterfaceImpl control() {
@@ -61,31 +70,34 @@ class ActionFeatureLayerInterfaceImpl implements ActionFeatureLayerInterface {
 
     @Override
     public ActionFeatureLayerInterface unitCommand(Ability ability) {
-        actions.add(action().featureLayer(ActionSpatialUnitCommand.unitCommand().useAbility(ability)).build());
+        add(action().featureLayer(ActionSpatialUnitCommand.unitCommand().useAbility(ability)).build());
         return this;
     }
 
     @Override
     public ActionFeatureLayerInterface unitCommand(Ability ability, PointI point, boolean minimap) {
+        if (minimap ? !onMinimap(point) : !onScreen(point)) return this;
         TargetSyntax targetSyntax = ActionSpatialUnitCommand.unitCommand().useAbility(ability);
         if (minimap) {
             targetSyntax.onMinimap(point);
         } else {
             targetSyntax.onScreen(point);
         }
-        actions.add(action().featureLayer(targetSyntax).build());
+        add(action().featureLayer(targetSyntax).build());
         return this;
     }
 
     @Override
     public ActionFeatureLayerInterface cameraMove(PointI center) {
-        actions.add(action().featureLayer(ActionSpatialCameraMove.cameraMove().to(center)).build());
+        if (!onMinimap(center)) return this;
+        add(action().featureLayer(ActionSpatialCameraMove.cameraMove().to(center)).build());
         return this;
     }
 
     @Override
     public ActionFeatureLayerInterface select(PointI center, ActionSpatialUnitSelectionPoint.Type selectionType) {
-        actions.add(action()
+        if (!onScreen(center)) return this;
+        add(action()
                 .featureLayer(ActionSpatialUnitSelectionPoint.click().on(center).withMode(selectionType))
                 .build());
         return this;
@@ -93,22 +105,45 @@ class ActionFeatureLayerInterfaceImpl implements ActionFeatureLayerInterface {
 
     @Override
     public ActionFeatureLayerInterface select(PointI p0, PointI p1, boolean addToSelection) {
+        if (!onScreen(p0) || !onScreen(p1)) return this;
         AddSyntax unitSelectionRect = ActionSpatialUnitSelectionRect.select().of(RectangleI.of(p0, p1));
         if (addToSelection) unitSelectionRect.add();
-        actions.add(action()
+        add(action()
                 .featureLayer(unitSelectionRect)
                 .build());
         return this;
     }
 
+    private void add(Action action) {
+        actionInterface.addAction(action);
+    }
+
+    private boolean onScreen(PointI point) {
+        return inside(point, SpatialCameraSetup::getMap, "screen");
+    }
+
+    private boolean onMinimap(PointI point) {
+        return inside(point, SpatialCameraSetup::getMinimap, "minimap");
+    }
+
+    // Without feature layer settings (i.e. game joined outside of this client) there is nothing to check against.
+    private boolean inside(PointI point, Function<SpatialCameraSetup, Size2dI> layer, String layerName) {
+        Optional<Size2dI> resolution = control().getFeatureLayerSetup().map(layer);
+        if (point == null || !resolution.isPresent()) return true;
+        Size2dI size = resolution.get();
+        boolean inside = point.getX() >= 0 && point.getX() < size.getX() &&
+                point.getY() >= 0 && point.getY() < size.getY();
+        if (!inside) {
+            control().error(ClientError.INVALID_SPATIAL_ACTION, Collections.singletonList(
+                    format("point (%d, %d) is outside of the %s %dx%d", point.getX(), point.getY(), layerName,
+                            size.getX(), size.getY())));
+        }
+        return inside;
+    }
+
+    // Queued raw actions go in the same request. Nothing is sent (and sent commands are kept) if the queue is empty.
     @Override
     public boolean sendActions() {
-        if (actions.isEmpty()) return false;
-        RequestAction.Builder request = Requests.actions().of(actions.toArray(new Action[0]));
-        actions.clear();
-        return control()
-                .waitForResponse(control().proto().sendRequest(request))
-                .flatMap(response -> response.as(ResponseAction.class))
-                .isPresent();
+        return actionInterface.hasPendingActions() && actionInterface.sendActions();
     }
 }
@@ -42,15 +42,18 @@ import com.github.ocraft.s2client.protocol.unit.Unit;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static com.github.ocraft.s2client.protocol.action.Action.action;
 
 class ActionInterfaceImpl implements ActionInterface {
 
     private final ControlInterfaceImpl controlInterface;
-    private final List<Action> actions = new ArrayList<>();
-    private final List<Tag> commands = new ArrayList<>();
+    // Commands may be issued from worker threads (i.e. ParallelDecisions), actions are sent from the step thread.
+    private final Queue<Action> actions = new ConcurrentLinkedQueue<>();
+    private volatile List<Tag> commands = new ArrayList<>();
 
     ActionInterfaceImpl(ControlInterfaceImpl controlInterface) {
         this.controlInterface = controlInterface;
@@ -201,18 +204,29 @@ class ActionInterfaceImpl implements ActionInterface {
         return this;
     }
 
+    // Lets other interfaces (i.e. feature layer actions, debug camera move) piggyback on the next action request.
+    void addAction(Action action) {
+        actions.add(action);
+    }
+
+    boolean hasPendingActions() {
+        return !actions.isEmpty();
+    }
+
     @Override
     public boolean sendActions() {
-        commands.clear();
-        if (actions.isEmpty()) return false;
-        RequestAction.Builder request = Requests.actions().of(actions.toArray(new Action[0]));
+        List<Action> toSend = new ArrayList<>();
+        for (Action action; (action = actions.poll()) != null; ) toSend.add(action);
 
-        actions.forEach(action -> action.getRaw()
+        List<Tag> sentCommands = new ArrayList<>();
+        toSend.forEach(action -> action.getRaw()
                 .flatMap(ActionRaw::getUnitCommand)
                 .map(ActionRawUnitCommand::getUnitTags)
-                .ifPresent(commands::addAll));
+                .ifPresent(sentCommands::addAll));
+        commands = sentCommands;
 
-        actions.clear();
+        if (toSend.isEmpty()) return false;
+        RequestAction.Builder request = Requests.actions().of(toSend.toArray(new Action[0]));
         return control()
                 .waitForResponse(control().proto().sendRequest(request))
                 .flatMap(response -> response.as(ResponseAction.class))
@@ -47,8 +47,8 @@ class AgentControlInterfaceImpl implements AgentControlInterface {
 
     AgentControlInterfaceImpl(ControlInterfaceImpl controlInterface) {
         this.controlInterface = controlInterface;
-        this.actionFeatureLayerInterface = new ActionFeatureLayerInterfaceImpl(controlInterface);
         this.actionInterface = new ActionInterfaceImpl(controlInterface);
+        this.actionFeatureLayerInterface = new ActionFeatureLayerInterfaceImpl(controlInterface, actionInterface);
     }
 
     private ControlInterfaceImpl control() {
@@ -86,6 +86,10 @@ class AgentControlInterfaceImpl implements AgentControlInterface {
         return actionInterface;
     }
 
+    ActionInterfaceImpl actionInterface() {
+        return actionInterface;
+    }
+
     @Override
     public ActionFeatureLayerInterface actionsFeatureLayer() {
         return actionFeatureLayerInterface;
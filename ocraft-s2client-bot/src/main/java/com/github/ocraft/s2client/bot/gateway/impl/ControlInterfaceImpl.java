@@ -29,6 +29,7 @@ package com.github.ocraft.s2client.bot.gateway.impl;
 import com.github.ocraft.s2client.api.OcraftApiConfig;
 import com.github.ocraft.s2client.api.ResponseParseException;
 import com.github.ocraft.s2client.api.controller.S2Controller;
+import com.github.ocraft.s2client.api.metrics.ClientMetrics;
 import com.github.ocraft.s2client.bot.ClientError;
 import com.github.ocraft.s2client.bot.ClientEvents;
 import com.github.ocraft.s2client.bot.S2ReplayObserver;
@@ -43,6 +44,7 @@ import com.github.ocraft.s2client.protocol.game.*;
 import com.github.ocraft.s2client.protocol.observation.raw.ObservationRaw;
 import com.github.ocraft.s2client.protocol.request.Requests;
 import com.github.ocraft.s2client.protocol.response.*;
+import com.github.ocraft.s2client.protocol.spatial.SpatialCameraSetup;
 import com.github.ocraft.s2client.protocol.syntax.request.FeatureLayerSyntax;
 import com.github.ocraft.s2client.protocol.unit.Alliance;
 import com.github.ocraft.s2client.protocol.unit.DisplayType;
@@ -72,18 +74,20 @@ class ControlInterfaceImpl implements ControlInterface {
 
     private final ProtoInterfaceImpl protoInterface;
     private final ObservationInterfaceImpl observationInterface;
-    private final AgentControlInterface agentControlInterface;
+    private final AgentControlInterfaceImpl agentControlInterface;
     private final QueryInterface queryInterface;
-    private final DebugInterface debugInterface;
+    private final DebugInterfaceImpl debugInterface;
     private final ObserverActionInterface observerActionInterface;
 
     private final List<ClientError> clientErrors = new ArrayList<>();
     private final List<String> protocolErrors = new ArrayList<>();
     private final ClientEvents clientEvents;
+    private ClientMetrics metrics = ClientMetrics.NONE;
 
     private S2Controller theGame;
     private AppState appState = AppState.NORMAL;
     private boolean multiplayer;
+    private SpatialCameraSetup featureLayerSetup;
     private ProcessInfo processInfo;
     private boolean useGeneralizedAbilityId;
 
@@ -96,7 +100,7 @@ class ControlInterfaceImpl implements ControlInterface {
         this.protoInterface.setOnError(this::onError);
         this.agentControlInterface = new AgentControlInterfaceImpl(this);
         this.queryInterface = new QueryInterfaceImpl(this);
-        this.debugInterface = new DebugInterfaceImpl(this);
+        this.debugInterface = new DebugInterfaceImpl(this, agentControlInterface.actionInterface());
         this.observerActionInterface = new ObserverActionInterfaceImpl(this);
         this.clientEvents = clientEvents;
     }
@@ -111,7 +115,7 @@ class ControlInterfaceImpl implements ControlInterface {
         this.protoInterface.setOnError(this::onError);
         this.agentControlInterface = new AgentControlInterfaceImpl(this);
         this.queryInterface = new QueryInterfaceImpl(this);
-        this.debugInterface = new DebugInterfaceImpl(this);
+        this.debugInterface = new DebugInterfaceImpl(this, agentControlInterface.actionInterface());
         this.observerActionInterface = new ObserverActionInterfaceImpl(this);
         this.clientEvents = clientEvents;
     }
@@ -131,7 +135,7 @@ class ControlInterfaceImpl implements ControlInterface {
         this.protoInterface.setOnError(this::onError);
         this.agentControlInterface = new AgentControlInterfaceImpl(this);
         this.queryInterface = new QueryInterfaceImpl(this);
-        this.debugInterface = new DebugInterfaceImpl(this);
+        this.debugInterface = new DebugInterfaceImpl(this, agentControlInterface.actionInterface());
         this.observerActionInterface = new ObserverActionInterfaceImpl(this);
         this.clientEvents = clientEvents;
     }
@@ -156,6 +160,10 @@ class ControlInterfaceImpl implements ControlInterface {
         require("process settings", processSettings);
 
         log.info("Waiting for connection...");
+        if (isSet(processSettings.getMetrics())) {
+            metrics = processSettings.getMetrics();
+            protoInterface.setMetrics(metrics);
+        }
         boolean connected;
         if (processSettings.withGameController()) {
             theGame = tryLaunchProcess(processSettings);
@@ -298,8 +306,10 @@ class ControlInterfaceImpl implements ControlInterface {
             PlayerSettings playerSettings, InterfaceSettings interfaceSettings, MultiplayerOptions multiplayerOptions) {
         try {
             observationInternal().clearFlags();
+            debugInterface.clearDrawnFrame();
 
             InterfaceOptions interfaceOptions = interfaceOptionsFrom(interfaceSettings);
+            setFeatureLayerSetup(interfaceOptions.getFeatureLayer().orElse(null));
 
             return proto().sendRequest(
                     Requests.joinGame()
@@ -332,6 +342,17 @@ class ControlInterfaceImpl implements ControlInterface {
         return multiplayer;
     }
 
+    void setFeatureLayerSetup(SpatialCameraSetup featureLayerSetup) {
+        this.featureLayerSetup = featureLayerSetup;
+    }
+
+    /**
+     * @return feature layer resolutions requested when joining the game, empty if feature layers are not enabled.
+     */
+    Optional<SpatialCameraSetup> getFeatureLayerSetup() {
+        return Optional.ofNullable(featureLayerSetup);
+    }
+
     @Override
     public boolean waitJoinGame(Maybe<Response> waitFor) {
         log.info("Waiting for the JoinGame response.");
@@ -364,6 +385,7 @@ class ControlInterfaceImpl implements ControlInterface {
     @Override
     public Maybe<Response> requestLeaveGame() {
         if (!multiplayer) throw new IllegalStateException("LeaveGame request is only available for multiplayer game.");
+        debugInterface.clearDrawnFrame();
         return proto().sendRequest(Requests.leaveGame());
     }
 
@@ -627,6 +649,17 @@ class ControlInterfaceImpl implements ControlInterface {
         return responseObservation.isPresent() && observationInternal().updateObservation(responseObservation.get());
     }
 
+    @Override
+    public boolean getObservation(int gameLoop) {
+        checkApplicationState();
+
+        Optional<ResponseObservation> responseObservation = waitForResponse(
+                proto().sendRequest(Requests.observation().gameLoop(gameLoop))
+        ).flatMap(response -> response.as(ResponseObservation.class));
+
+        return responseObservation.isPresent() && observationInternal().updateObservation(responseObservation.get());
+    }
+
     @Override
     public boolean issueEvents(List<Tag> commands) {
         if (!observationInternal().gameLoopChanged()) return false;
@@ -643,7 +676,9 @@ class ControlInterfaceImpl implements ControlInterface {
         issueAlertEvents();
 
         // Run the users onStep function after events have been issued.
+        long stepStart = System.nanoTime();
         clientEvents.onStep();
+        metrics.onStep(System.nanoTime() - stepStart);
 
         return true;
     }
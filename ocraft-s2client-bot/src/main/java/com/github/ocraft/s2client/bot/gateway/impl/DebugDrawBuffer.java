@@ -0,0 +1,228 @@
+package com.github.ocraft.s2client.bot.gateway.impl;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Debug;
+import com.github.ocraft.s2client.protocol.debug.Color;
+import com.github.ocraft.s2client.protocol.spatial.Point;
+
+import java.util.Arrays;
+
+/**
+ * Debug primitives of one frame kept in reusable primitive arrays (struct of arrays) instead of one protocol object
+ * per primitive. Arrays only grow, so after warm up drawing the same amount of primitives every frame does not
+ * allocate until the frame is packed into the protobuf {@link Debug.DebugDraw}.
+ */
+class DebugDrawBuffer {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int TEXT_NO_POSITION = 0;
+    private static final int TEXT_VIRTUAL = 1;
+    private static final int TEXT_WORLD = 2;
+
+    // x0, y0, z0, x1, y1, z1 for lines and boxes; x, y, z, r for spheres; x, y, z for texts.
+    private float[] lines = new float[INITIAL_CAPACITY * 6];
+    private int[] lineColors = new int[INITIAL_CAPACITY];
+    private int lineCount;
+
+    private float[] boxes = new float[INITIAL_CAPACITY * 6];
+    private int[] boxColors = new int[INITIAL_CAPACITY];
+    private int boxCount;
+
+    private float[] spheres = new float[INITIAL_CAPACITY * 4];
+    private int[] sphereColors = new int[INITIAL_CAPACITY];
+    private int sphereCount;
+
+    private String[] texts = new String[INITIAL_CAPACITY];
+    private float[] textPositions = new float[INITIAL_CAPACITY * 3];
+    private int[] textModes = new int[INITIAL_CAPACITY];
+    private int[] textSizes = new int[INITIAL_CAPACITY];
+    private int[] textColors = new int[INITIAL_CAPACITY];
+    private int textCount;
+
+    void addLine(Point p0, Point p1, Color color) {
+        if (lineCount == lineColors.length) {
+            lines = Arrays.copyOf(lines, lines.length * 2);
+            lineColors = Arrays.copyOf(lineColors, lineColors.length * 2);
+        }
+        put(lines, lineCount * 6, p0, p1);
+        lineColors[lineCount++] = rgb(color);
+    }
+
+    void addBox(Point min, Point max, Color color) {
+        if (boxCount == boxColors.length) {
+            boxes = Arrays.copyOf(boxes, boxes.length * 2);
+            boxColors = Arrays.copyOf(boxColors, boxColors.length * 2);
+        }
+        put(boxes, boxCount * 6, min, max);
+        boxColors[boxCount++] = rgb(color);
+    }
+
+    void addSphere(Point center, float radius, Color color) {
+        if (sphereCount == sphereColors.length) {
+            spheres = Arrays.copyOf(spheres, spheres.length * 2);
+            sphereColors = Arrays.copyOf(sphereColors, sphereColors.length * 2);
+        }
+        int offset = sphereCount * 4;
+        spheres[offset] = center.getX();
+        spheres[offset + 1] = center.getY();
+        spheres[offset + 2] = center.getZ();
+        spheres[offset + 3] = radius;
+        sphereColors[sphereCount++] = rgb(color);
+    }
+
+    void addText(String text, Color color) {
+        addText(text, TEXT_NO_POSITION, 0.0f, 0.0f, 0.0f, 0, color);
+    }
+
+    void addVirtualText(String text, float x, float y, int size, Color color) {
+        addText(text, TEXT_VIRTUAL, x, y, 0.0f, size, color);
+    }
+
+    void addWorldText(String text, Point position, int size, Color color) {
+        addText(text, TEXT_WORLD, position.getX(), position.getY(), position.getZ(), size, color);
+    }
+
+    private void addText(String text, int mode, float x, float y, float z, int size, Color color) {
+        if (textCount == texts.length) {
+            int capacity = texts.length * 2;
+            texts = Arrays.copyOf(texts, capacity);
+            textPositions = Arrays.copyOf(textPositions, capacity * 3);
+            textModes = Arrays.copyOf(textModes, capacity);
+            textSizes = Arrays.copyOf(textSizes, capacity);
+            textColors = Arrays.copyOf(textColors, capacity);
+        }
+        int offset = textCount * 3;
+        textPositions[offset] = x;
+        textPositions[offset + 1] = y;
+        textPositions[offset + 2] = z;
+        texts[textCount] = text;
+        textModes[textCount] = mode;
+        textSizes[textCount] = size;
+        textColors[textCount++] = rgb(color);
+    }
+
+    int size() {
+        return lineCount + boxCount + sphereCount + textCount;
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    void clear() {
+        Arrays.fill(texts, 0, textCount, null);
+        lineCount = 0;
+        boxCount = 0;
+        sphereCount = 0;
+        textCount = 0;
+    }
+
+    /**
+     * @return true if both frames hold the same primitives in the same order.
+     */
+    boolean sameAs(DebugDrawBuffer other) {
+        return lineCount == other.lineCount && boxCount == other.boxCount &&
+                sphereCount == other.sphereCount && textCount == other.textCount &&
+                Arrays.equals(lineColors, 0, lineCount, other.lineColors, 0, lineCount) &&
+                Arrays.equals(lines, 0, lineCount * 6, other.lines, 0, lineCount * 6) &&
+                Arrays.equals(boxColors, 0, boxCount, other.boxColors, 0, boxCount) &&
+                Arrays.equals(boxes, 0, boxCount * 6, other.boxes, 0, boxCount * 6) &&
+                Arrays.equals(sphereColors, 0, sphereCount, other.sphereColors, 0, sphereCount) &&
+                Arrays.equals(spheres, 0, sphereCount * 4, other.spheres, 0, sphereCount * 4) &&
+                Arrays.equals(textColors, 0, textCount, other.textColors, 0, textCount) &&
+                Arrays.equals(textModes, 0, textCount, other.textModes, 0, textCount) &&
+                Arrays.equals(textSizes, 0, textCount, other.textSizes, 0, textCount) &&
+                Arrays.equals(textPositions, 0, textCount * 3, other.textPositions, 0, textCount * 3) &&
+                Arrays.equals(texts, 0, textCount, other.texts, 0, textCount);
+    }
+
+    Debug.DebugDraw toSc2Api() {
+        Debug.DebugDraw.Builder draw = Debug.DebugDraw.newBuilder();
+        for (int i = 0; i < textCount; i++) {
+            Debug.DebugText.Builder text = Debug.DebugText.newBuilder()
+                    .setText(texts[i])
+                    .setColor(color(textColors[i]));
+            int offset = i * 3;
+            if (textModes[i] == TEXT_VIRTUAL) {
+                text.setSize(textSizes[i]).setVirtualPos(point(textPositions, offset));
+            } else if (textModes[i] == TEXT_WORLD) {
+                text.setSize(textSizes[i]).setWorldPos(point(textPositions, offset));
+            }
+            draw.addText(text);
+        }
+        for (int i = 0; i < lineCount; i++) {
+            int offset = i * 6;
+            draw.addLines(Debug.DebugLine.newBuilder()
+                    .setColor(color(lineColors[i]))
+                    .setLine(Debug.Line.newBuilder()
+                            .setP0(point(lines, offset))
+                            .setP1(point(lines, offset + 3))));
+        }
+        for (int i = 0; i < boxCount; i++) {
+            int offset = i * 6;
+            draw.addBoxes(Debug.DebugBox.newBuilder()
+                    .setColor(color(boxColors[i]))
+                    .setMin(point(boxes, offset))
+                    .setMax(point(boxes, offset + 3)));
+        }
+        for (int i = 0; i < sphereCount; i++) {
+            int offset = i * 4;
+            draw.addSpheres(Debug.DebugSphere.newBuilder()
+                    .setColor(color(sphereColors[i]))
+                    .setP(point(spheres, offset))
+                    .setR(spheres[offset + 3]));
+        }
+        return draw.build();
+    }
+
+    private static void put(float[] values, int offset, Point p0, Point p1) {
+        values[offset] = p0.getX();
+        values[offset + 1] = p0.getY();
+        values[offset + 2] = p0.getZ();
+        values[offset + 3] = p1.getX();
+        values[offset + 4] = p1.getY();
+        values[offset + 5] = p1.getZ();
+    }
+
+    private static int rgb(Color color) {
+        return (color.getR() & 0xFF) << 16 | (color.getG() & 0xFF) << 8 | (color.getB() & 0xFF);
+    }
+
+    private static Debug.Color color(int rgb) {
+        return Debug.Color.newBuilder().setR(rgb >>> 16 & 0xFF).setG(rgb >>> 8 & 0xFF).setB(rgb & 0xFF).build();
+    }
+
+    private static Common.Point point(float[] values, int offset) {
+        return Common.Point.newBuilder()
+                .setX(values[offset])
+                .setY(values[offset + 1])
+                .setZ(values[offset + 2])
+                .build();
+    }
+}
@@ -26,35 +26,39 @@ package com.github.ocraft.s2client.bot.gateway.impl;
  * #L%
  */
 
+import SC2APIProtocol.Debug;
+import SC2APIProtocol.Sc2Api;
 import com.github.ocraft.s2client.bot.gateway.DebugInterface;
-import com.github.ocraft.s2client.protocol.BuilderSyntax;
 import com.github.ocraft.s2client.protocol.action.Action;
 import com.github.ocraft.s2client.protocol.action.raw.ActionRawCameraMove;
 import com.github.ocraft.s2client.protocol.data.UnitType;
 import com.github.ocraft.s2client.protocol.debug.*;
-import com.github.ocraft.s2client.protocol.request.RequestAction;
-import com.github.ocraft.s2client.protocol.request.RequestDebug;
 import com.github.ocraft.s2client.protocol.request.Requests;
+import com.github.ocraft.s2client.protocol.response.Response;
 import com.github.ocraft.s2client.protocol.response.ResponseAction;
 import com.github.ocraft.s2client.protocol.response.ResponseDebug;
+import com.github.ocraft.s2client.protocol.response.ResponseType;
 import com.github.ocraft.s2client.protocol.spatial.Point;
 import com.github.ocraft.s2client.protocol.spatial.Point2d;
 import com.github.ocraft.s2client.protocol.spatial.PointI;
 import com.github.ocraft.s2client.protocol.unit.Tag;
 import com.github.ocraft.s2client.protocol.unit.Unit;
+import io.reactivex.Maybe;
 
 import java.util.ArrayList;
 import java.util.List;
 
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
 class DebugInterfaceImpl implements DebugInterface {
 
     private final ControlInterfaceImpl controlInterface;
-    private final List<DebugText> texts = new ArrayList<>();
-    private final List<DebugLine> lines = new ArrayList<>();
-    private final List<DebugBox> boxes = new ArrayList<>();
-    private final List<DebugSphere> spheres = new ArrayList<>();
+    private final ActionInterfaceImpl actionInterface;
     private final List<DebugCommand> commands = new ArrayList<>();
     private final List<Tag> unitsToKill = new ArrayList<>();
+    // Primitives queued for the next send and primitives currently drawn by the game, swapped on each draw.
+    private DebugDrawBuffer frame = new DebugDrawBuffer();
+    private DebugDrawBuffer drawnFrame = new DebugDrawBuffer();
     private boolean setScore;
     private float score;
     private DebugEndGame.EndResult endgameResult;
@@ -64,8 +68,9 @@ class DebugInterfaceImpl implements DebugInterface {
     private DebugTestProcess.Test appTest;
     private int delayMs;
 
-    DebugInterfaceImpl(ControlInterfaceImpl controlInterface) {
+    DebugInterfaceImpl(ControlInterfaceImpl controlInterface, ActionInterfaceImpl actionInterface) {
         this.controlInterface = controlInterface;
+        this.actionInterface = actionInterface;
     }
 
     private ControlInterfaceImpl control() {
@@ -74,47 +79,52 @@ class DebugInterfaceImpl implements DebugInterface {
 
     @Override
     public DebugInterface debugTextOut(String out, Color color) {
-        texts.add(DebugText.text().of(out).withColor(color).build());
+        require("text", out);
+        require("color", color);
+        frame.addText(out, color);
         return this;
     }
 
     @Override
     public DebugInterface debugTextOut(String out, Point2d ptVirtual2d, Color color, int size) {
-        texts.add(DebugText.text()
-                .of(out)
-                .withColor(color)
-                .withSize(size)
-                .on(Point.of(ptVirtual2d.getX(), ptVirtual2d.getY(), 0.0f))
-                .build());
+        require("text", out);
+        require("color", color);
+        frame.addVirtualText(out, ptVirtual2d.getX(), ptVirtual2d.getY(), size, color);
         return this;
     }
 
     @Override
     public DebugInterface debugTextOut(String out, Point pt3d, Color color, int size) {
-        texts.add(DebugText.text()
-                .of(out)
-                .withColor(color)
-                .withSize(size)
-                .onMap(pt3d)
-                .build());
+        require("text", out);
+        require("color", color);
+        require("point", pt3d);
+        frame.addWorldText(out, pt3d, size, color);
         return this;
     }
 
     @Override
     public DebugInterface debugLineOut(Point p0, Point p1, Color color) {
-        lines.add(DebugLine.line().of(p0, p1).withColor(color).build());
+        require("p0", p0);
+        require("p1", p1);
+        require("color", color);
+        frame.addLine(p0, p1, color);
         return this;
     }
 
     @Override
     public DebugInterface debugBoxOut(Point p0, Point p1, Color color) {
-        boxes.add(DebugBox.box().of(p0, p1).withColor(color).build());
+        require("min", p0);
+        require("max", p1);
+        require("color", color);
+        frame.addBox(p0, p1, color);
         return this;
     }
 
     @Override
     public DebugInterface debugSphereOut(Point p, float r, Color color) {
-        spheres.add(DebugSphere.sphere().on(p).withRadius(r).withColor(color).build());
+        require("center", p);
+        require("color", color);
+        frame.addSphere(p, r, color);
         return this;
     }
 
@@ -262,58 +272,110 @@ class DebugInterfaceImpl implements DebugInterface {
 
     @Override
     public boolean sendDebug() {
-        if (!texts.isEmpty() || !lines.isEmpty() || !boxes.isEmpty() || !spheres.isEmpty()) {
-            commands.add(DebugCommand.command().of(
-                    DebugDraw.draw()
-                            .texts(texts.toArray(new DebugText[0]))
-                            .lines(lines.toArray(new DebugLine[0]))
-                            .boxes(boxes.toArray(new DebugBox[0]))
-                            .spheres(spheres.toArray(new DebugSphere[0]))));
-        }
-        if (!unitsToKill.isEmpty()) {
-            commands.add(DebugCommand.command().of(DebugKillUnit.killUnit().withTags(unitsToKill.toArray(new Tag[0]))));
-        }
-        if (setScore) {
-            commands.add(DebugCommand.command().of(DebugSetScore.setScore().to(score)));
-        }
-        if (endgameResult != null) {
-            commands.add(DebugCommand.command().of(DebugEndGame.endGame().withResult(endgameResult)));
-        }
-        if (appTestSet) {
-            commands.add(DebugCommand.command().of(
-                    DebugTestProcess.testProcess().with(appTest).delayInMillis(delayMs)));
-        }
+        awaitPendingDebug();
+        boolean drawUnchanged = isDrawUnchanged();
+        Sc2Api.RequestDebug debug = packDebug();
+
+        // Both requests are in flight before waiting, so the camera move does not cost another round trip.
+        Maybe<Response> debugResponse = debug != null
+                ? control().proto().sendRequest(new PackedDebugRequest(debug))
+                : null;
+        Maybe<Response> cameraMoveResponse = hasMoveCamera
+                ? control().proto().sendRequest(Requests.actions().of(cameraMove()))
+                : null;
+        reset();
 
-        if (commands.isEmpty() && !hasMoveCamera) return false;
+        if (debugResponse == null && cameraMoveResponse == null) return drawUnchanged;
 
         boolean debugResult = true;
         boolean cameraMoveResult = true;
-        if (!commands.isEmpty()) {
-            BuilderSyntax<RequestDebug> request = Requests.debug().with(commands.toArray(new DebugCommand[0]));
+        if (debugResponse != null) {
             debugResult = control()
-                    .waitForResponse(control().proto().sendRequest(request))
+                    .waitForResponse(debugResponse)
                     .flatMap(response -> response.as(ResponseDebug.class))
                     .isPresent();
+            if (!debugResult) drawnFrame.clear();
         }
-        if (hasMoveCamera) {
-            RequestAction request = Requests.actions().of(
-                    Action.action().raw(ActionRawCameraMove.cameraMove().to(moveCamera))).build();
+        if (cameraMoveResponse != null) {
             cameraMoveResult = control()
-                    .waitForResponse(control().proto().sendRequest(request))
+                    .waitForResponse(cameraMoveResponse)
                     .flatMap(response -> response.as(ResponseAction.class))
                     .isPresent();
         }
+        return debugResult && cameraMoveResult;
+    }
+
+    @Override
+    public boolean sendDebugAsync() {
+        awaitPendingDebug();
+        boolean drawUnchanged = isDrawUnchanged();
+        Sc2Api.RequestDebug debug = packDebug();
+
+        boolean cameraMoveQueued = hasMoveCamera;
+        if (hasMoveCamera) actionInterface.addAction(cameraMove());
         reset();
 
-        return debugResult && cameraMoveResult;
+        if (debug == null) return drawUnchanged || cameraMoveQueued;
+        boolean sent = control().proto().sendRequestAsync(new PackedDebugRequest(debug));
+        if (!sent) drawnFrame.clear();
+        return sent;
+    }
+
+    // Previous asynchronous debug request must be consumed before the next one can be sent. A failed one leaves the
+    // game state of the drawing unknown, so the next frame is sent even if unchanged, as in sendDebug.
+    private void awaitPendingDebug() {
+        Maybe<Response> pending = control().proto().getResponsePending(ResponseType.DEBUG);
+        if (pending == null) return;
+        boolean debugResult = control()
+                .waitForResponse(pending)
+                .flatMap(response -> response.as(ResponseDebug.class))
+                .isPresent();
+        if (!debugResult) drawnFrame.clear();
+    }
+
+    // New game shows none of the primitives drawn in the previous one, so its first frame is always sent.
+    void clearDrawnFrame() {
+        drawnFrame.clear();
+    }
+
+    private boolean isDrawUnchanged() {
+        return !frame.isEmpty() && frame.sameAs(drawnFrame);
+    }
+
+    // Game keeps drawing the last primitives until the next draw command, so an unchanged frame is not resent.
+    private Sc2Api.RequestDebug packDebug() {
+        Sc2Api.RequestDebug.Builder debug = Sc2Api.RequestDebug.newBuilder();
+        commands.forEach(command -> debug.addDebug(command.toSc2Api()));
+        if (!frame.isEmpty() && !frame.sameAs(drawnFrame)) {
+            debug.addDebug(Debug.DebugCommand.newBuilder().setDraw(frame.toSc2Api()));
+            DebugDrawBuffer drawn = frame;
+            frame = drawnFrame;
+            drawnFrame = drawn;
+        }
+        if (!unitsToKill.isEmpty()) {
+            debug.addDebug(DebugCommand.command()
+                    .of(DebugKillUnit.killUnit().withTags(unitsToKill.toArray(new Tag[0]))).toSc2Api());
+        }
+        if (setScore) {
+            debug.addDebug(DebugCommand.command().of(DebugSetScore.setScore().to(score)).toSc2Api());
+        }
+        if (endgameResult != null) {
+            debug.addDebug(DebugCommand.command().of(DebugEndGame.endGame().withResult(endgameResult)).toSc2Api());
+        }
+        if (appTestSet) {
+            debug.addDebug(DebugCommand.command().of(
+                    DebugTestProcess.testProcess().with(appTest).delayInMillis(delayMs)).toSc2Api());
+        }
+        return debug.getDebugCount() > 0 ? debug.build() : null;
+    }
+
+    private Action cameraMove() {
+        return Action.action().raw(ActionRawCameraMove.cameraMove().to(moveCamera)).build();
     }
 
     private void reset() {
         commands.clear();
-        texts.clear();
-        lines.clear();
-        boxes.clear();
-        spheres.clear();
+        frame.clear();
         unitsToKill.clear();
         setScore = false;
         score = 0.0f;
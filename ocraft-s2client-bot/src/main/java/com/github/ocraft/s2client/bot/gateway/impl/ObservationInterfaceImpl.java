@@ -27,8 +27,13 @@ package com.github.ocraft.s2client.bot.gateway.impl;
  */
 
 import com.github.ocraft.s2client.bot.ClientError;
+import com.github.ocraft.s2client.bot.gateway.AbilityRemap;
+import com.github.ocraft.s2client.bot.gateway.EffectIndex;
 import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.ObservationSnapshot;
+import com.github.ocraft.s2client.bot.gateway.TechTree;
 import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.bot.gateway.UnitQuery;
 import com.github.ocraft.s2client.protocol.GeneralizableAbility;
 import com.github.ocraft.s2client.protocol.action.Action;
 import com.github.ocraft.s2client.protocol.action.raw.ActionRaw;
@@ -64,7 +69,7 @@ import static com.github.ocraft.s2client.protocol.Preconditions.isSet;
 import static com.github.ocraft.s2client.protocol.Preconditions.require;
 import static java.util.stream.Collectors.toMap;
 
-// TODO p.picheta should make this thread safe/immutable?
+// Not thread safe, ObservationSnapshot is the state that can be shared between threads.
 class ObservationInterfaceImpl implements ObservationInterface {
 
     private final ControlInterfaceImpl controlInterface;
@@ -79,10 +84,15 @@ class ObservationInterfaceImpl implements ObservationInterface {
     private List<ActionSpatial> renderedActions = new ArrayList<>();
     private List<ChatReceived> chat = new ArrayList<>();
     private List<PowerSource> powerSources = new ArrayList<>();
-    private List<EffectLocations> effects = new ArrayList<>();
+    // Effects of the raw observation as they are, copied into a list only if getEffects is called.
+    private Set<EffectLocations> effects = Collections.emptySet();
+    private List<EffectLocations> effectList;
+    private final EffectIndex effectIndex = EffectIndex.empty();
+    private boolean effectIndexBuilt;
     private List<Upgrade> upgrades = new ArrayList<>();
     private List<Upgrade> upgradesPrevious = new ArrayList<>();
     private List<PlayerResult> playerResults = new ArrayList<>();
+    private volatile ObservationSnapshot snapshot;
 
     private boolean abilitiesCached;
     private boolean unitTypesCached;
@@ -96,6 +106,8 @@ class ObservationInterfaceImpl implements ObservationInterface {
     private Map<Upgrade, UpgradeData> upgradeIds = new HashMap<>();
     private Map<Buff, BuffData> buffs = new HashMap<>();
     private Map<Effect, EffectData> effectIds = new HashMap<>();
+    private AbilityRemap abilityRemap;
+    private TechTree techTree;
     private ResponseGameInfo gameInfo;
     private Point startLocation;
 
@@ -146,6 +158,21 @@ class ObservationInterfaceImpl implements ObservationInterface {
         return units;
     }
 
+    @Override
+    public List<UnitInPool> getUnits(UnitQuery query) {
+        return unitPool().index().getUnits(query);
+    }
+
+    @Override
+    public void forEachUnit(UnitQuery query, Consumer<UnitInPool> consumer) {
+        unitPool().index().forEach(query, consumer);
+    }
+
+    @Override
+    public int countUnits(UnitQuery query) {
+        return unitPool().index().count(query);
+    }
+
     @Override
     public UnitInPool getUnit(Tag tag) {
         return unitPool().getExistingUnit(tag).orElse(nothing());
@@ -178,7 +205,19 @@ class ObservationInterfaceImpl implements ObservationInterface {
 
     @Override
     public List<EffectLocations> getEffects() {
-        return effects;
+        if (!isSet(effectList)) {
+            effectList = new ArrayList<>(effects);
+        }
+        return effectList;
+    }
+
+    @Override
+    public EffectIndex getEffectIndex() {
+        if (!effectIndexBuilt) {
+            effectIndex.rebuild(effects, effects.isEmpty() ? Collections.emptyMap() : getEffectData(false));
+            effectIndexBuilt = true;
+        }
+        return effectIndex;
     }
 
     @Override
@@ -211,6 +250,8 @@ class ObservationInterfaceImpl implements ObservationInterface {
                     .peek(checkAbilityRemapValidity(data.getAbilities().size()))
                     .collect(toMap(AbilityData::getAbility, effectData -> effectData));
             abilitiesCached = true;
+            abilityRemap = null;
+            techTree = null;
         });
 
         return abilities;
@@ -242,6 +283,7 @@ class ObservationInterfaceImpl implements ObservationInterface {
             unitTypes = data.getUnitTypes().stream()
                     .collect(toMap(UnitTypeData::getUnitType, unitTypeData -> unitTypeData));
             unitTypesCached = true;
+            techTree = null;
         });
 
         return unitTypes;
@@ -265,6 +307,7 @@ class ObservationInterfaceImpl implements ObservationInterface {
             upgradeIds = data.getUpgrades().stream()
                     .collect(toMap(UpgradeData::getUpgrade, upgradeData -> upgradeData));
             upgradesCached = true;
+            techTree = null;
         });
 
         return upgradeIds;
@@ -314,6 +357,26 @@ class ObservationInterfaceImpl implements ObservationInterface {
         return effectIds;
     }
 
+    @Override
+    public TechTree getTechTree() {
+        AbilityRemap remap = abilityRemap();
+        Map<UnitType, UnitTypeData> unitTypeData = getUnitTypeData(false);
+        Map<Upgrade, UpgradeData> upgradeData = getUpgradeData(false);
+        if (!isSet(techTree)) {
+            techTree = TechTree.of(remap, unitTypeData, upgradeData);
+        }
+        return techTree;
+    }
+
+    // Generalizing abilities needs the ability data only, not the unit type and upgrade data of the whole tech tree.
+    private AbilityRemap abilityRemap() {
+        Map<Ability, AbilityData> abilityData = getAbilityData(false);
+        if (!isSet(abilityRemap)) {
+            abilityRemap = AbilityRemap.of(abilityData);
+        }
+        return abilityRemap;
+    }
+
     @Override
     public ResponseGameInfo getGameInfo() {
         if (gameInfoCached) {
@@ -429,11 +492,12 @@ class ObservationInterfaceImpl implements ObservationInterface {
                 .flatMap(Observation::getRaw)
                 .map(ObservationRaw::getMapState)
                 .map(MapState::getCreep)
-                .map(imageData -> imageData.sample(point, imageOrigin()))
+                .map(imageData -> imageData.sample(point, getImageOrigin()))
                 .orElse(0) > 0;
     }
 
-    private ImageData.Origin imageOrigin() {
+    @Override
+    public ImageData.Origin getImageOrigin() {
         return !isVersionCompatible("4.8.5") ? ImageData.Origin.UPPER_LEFT : ImageData.Origin.BOTTOM_LEFT;
     }
 
@@ -443,7 +507,7 @@ class ObservationInterfaceImpl implements ObservationInterface {
                 .flatMap(Observation::getRaw)
                 .map(ObservationRaw::getMapState)
                 .map(MapState::getVisibility)
-                .map(imageData -> imageData.sample(point, imageOrigin()))
+                .map(imageData -> imageData.sample(point, getImageOrigin()))
                 .map(Visibility::from)
                 .orElse(Visibility.FULL_HIDDEN);
     }
@@ -454,7 +518,7 @@ class ObservationInterfaceImpl implements ObservationInterface {
         if (!startRaw.isPresent()) return false;
 
         ImageData pathingGrid = startRaw.get().getPathingGrid();
-        ImageData.Origin origin = imageOrigin();
+        ImageData.Origin origin = getImageOrigin();
         return (pathingGrid.getBitsPerPixel() == 1 && pathingGrid.sample(point, origin) == 1) ||
                 (pathingGrid.getBitsPerPixel() == 8 && pathingGrid.sample(point, origin) != 255);
     }
@@ -464,7 +528,7 @@ class ObservationInterfaceImpl implements ObservationInterface {
         Optional<StartRaw> startRaw = getGameInfo().getStartRaw();
         if (!startRaw.isPresent()) return false;
         ImageData placementGrid = startRaw.get().getPlacementGrid();
-        ImageData.Origin origin = imageOrigin();
+        ImageData.Origin origin = getImageOrigin();
         return (placementGrid.getBitsPerPixel() == 1 && placementGrid.sample(point, origin) == 1) ||
                 (placementGrid.getBitsPerPixel() == 8 && placementGrid.sample(point, origin) == 255);
     }
@@ -474,7 +538,7 @@ class ObservationInterfaceImpl implements ObservationInterface {
         Optional<StartRaw> startRaw = getGameInfo().getStartRaw();
         int sample = 0;
         if (startRaw.isPresent()) {
-            sample = startRaw.get().getTerrainHeight().sample(point, imageOrigin());
+            sample = startRaw.get().getTerrainHeight().sample(point, getImageOrigin());
         }
         float scale;
         if (isVersionCompatible("4.8.5")) {
@@ -499,6 +563,20 @@ class ObservationInterfaceImpl implements ObservationInterface {
         return observation;
     }
 
+    // Built at the first call for an observation, so bots that never use snapshots don't pay for them every step.
+    @Override
+    public ObservationSnapshot getSnapshot() {
+        if (!isSet(observation)) return null;
+        ObservationSnapshot current = snapshot;
+        if (!isSet(current) || current.getRawObservation() != observation || current.getGameLoop() != currentGameLoop) {
+            List<Unit> units = new ArrayList<>();
+            unitPool().forEachExistingUnit(unitInPool -> unitInPool.getUnit().ifPresent(units::add));
+            current = ObservationSnapshot.of(current, observation, units, rawActions, chat, playerResults);
+            snapshot = current;
+        }
+        return current;
+    }
+
     void clearFlags() {
         playerId = 0;
         abilitiesCached = false;
@@ -507,6 +585,9 @@ class ObservationInterfaceImpl implements ObservationInterface {
         buffsCached = false;
         effectsCached = false;
         gameInfoCached = false;
+        abilityRemap = null;
+        techTree = null;
+        effectIndexBuilt = false;
     }
 
     void setPlayerId(int playerId) {
@@ -525,15 +606,19 @@ class ObservationInterfaceImpl implements ObservationInterface {
         }
 
         unitPool().switchExistingToPrevious();
-        observation.getRaw()
+        List<Unit> observedUnits = observation.getRaw()
                 .map(ObservationRaw::getUnits)
-                .orElse(Collections.emptySet())
-                .forEach(unit -> unitPool().createUnit(unit.getTag()).update(unit, currentGameLoop, true));
+                .orElse(Collections.emptyList());
+        for (int i = 0, n = observedUnits.size(); i < n; i++) {
+            Unit unit = observedUnits.get(i);
+            unitPool().createUnit(unit.getTag()).update(unit, currentGameLoop, true);
+        }
 
         if (control().isUseGeneralizedAbilityId()) {
+            AbilityRemap remap = abilityRemap();
             unitPool().forEachExistingUnit(unitInPool -> {
                 Optional<Unit> unit = unitInPool.getUnit();
-                unit.ifPresent(u -> unitInPool.update(u.generalizeAbility(this::getGeneralizedAbility)));
+                unit.ifPresent(u -> unitInPool.update(u.generalizeAbility(remap::getGeneralizedAbility)));
             });
         }
 
@@ -544,10 +629,12 @@ class ObservationInterfaceImpl implements ObservationInterface {
                 .map(ObservationRaw::getPlayer)
                 .map(PlayerRaw::getPowerSources)
                 .orElse(Collections.emptySet()));
-        effects = new ArrayList<>(Optional.ofNullable(observation)
+        effects = Optional.ofNullable(observation)
                 .flatMap(Observation::getRaw)
                 .map(ObservationRaw::getEffects)
-                .orElse(Collections.emptySet()));
+                .orElse(Collections.emptySet());
+        effectList = null;
+        effectIndexBuilt = false;
 
         upgradesPrevious = upgrades;
         upgrades = new ArrayList<>(Optional.ofNullable(observation)
@@ -592,12 +679,7 @@ class ObservationInterfaceImpl implements ObservationInterface {
     }
 
     Ability getGeneralizedAbility(Ability ability) {
-        if (!isSet(ability)) return ability;
-        if (getAbilityData(false).containsKey(ability)) {
-            return getAbilityData(false).get(ability).getRemapsToAbility().filter(Ability::isKnown).orElse(ability);
-        } else {
-            return ability;
-        }
+        return abilityRemap().getGeneralizedAbility(ability);
     }
 
     boolean gameLoopChanged() {
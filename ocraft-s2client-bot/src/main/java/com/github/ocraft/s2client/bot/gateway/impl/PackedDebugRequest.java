@@ -0,0 +1,60 @@
+package com.github.ocraft.s2client.bot.gateway.impl;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Sc2Api;
+import com.github.ocraft.s2client.protocol.request.Request;
+import com.github.ocraft.s2client.protocol.response.ResponseType;
+
+/**
+ * Debug request packed straight into protobuf by {@link DebugInterfaceImpl}, skipping the protocol debug objects.
+ */
+final class PackedDebugRequest extends Request {
+
+    private static final long serialVersionUID = 3513425871127624583L;
+
+    private final Sc2Api.RequestDebug debug;
+
+    PackedDebugRequest(Sc2Api.RequestDebug debug) {
+        this.debug = debug;
+    }
+
+    @Override
+    public Sc2Api.Request toSc2Api() {
+        return Sc2Api.Request.newBuilder().setDebug(debug).build();
+    }
+
+    @Override
+    public ResponseType responseType() {
+        return ResponseType.DEBUG;
+    }
+
+    @Override
+    public String toString() {
+        return "PackedDebugRequest{commands=" + debug.getDebugCount() + '}';
+    }
+}
@@ -28,6 +28,7 @@ package com.github.ocraft.s2client.bot.gateway.impl;
 
 import com.github.ocraft.s2client.api.S2Client;
 import com.github.ocraft.s2client.api.controller.S2Controller;
+import com.github.ocraft.s2client.api.metrics.ClientMetrics;
 import com.github.ocraft.s2client.bot.ClientError;
 import com.github.ocraft.s2client.bot.gateway.ProtoInterface;
 import com.github.ocraft.s2client.protocol.BuilderSyntax;
@@ -61,12 +62,18 @@ class ProtoInterfaceImpl implements ProtoInterface {
     private Integer baseBuild;
     private Map<ResponseType, Integer> countUses = new EnumMap<>(ResponseType.class);
     private ResponseQueue responseQueue = new ResponseQueue();
+    private ClientMetrics metrics = ClientMetrics.NONE;
 
     void setOnError(BiConsumer<ClientError, List<String>> onError) {
         require("onError callback", onError);
         this.onError = onError;
     }
 
+    void setMetrics(ClientMetrics metrics) {
+        require("metrics", metrics);
+        this.metrics = metrics;
+    }
+
     @Override
     public boolean connectToGame(
             S2Controller theGame,
@@ -100,6 +107,7 @@ class ProtoInterfaceImpl implements ProtoInterface {
                     .requestTimeout(requestTimeoutInMillis)
                     .connectTimeout(connectionTimeoutInMillis)
                     .onConnectionLost(() -> onError.accept(ClientError.CONNECTION_CLOSED, Collections.emptyList()))
+                    .withMetrics(metrics)
                     .traced(traced)
                     .start()
                     .untilReady();
@@ -144,6 +152,22 @@ class ProtoInterfaceImpl implements ProtoInterface {
         return sendRequest(requestDataBuilder.build());
     }
 
+    @Override
+    public <T extends Request> boolean sendRequestAsync(T requestData) {
+        require("request", requestData);
+        ResponseType type = requestData.responseType();
+        if (responseQueue.peek(type)) return false;
+        Maybe<Response> responseMaybe = sendRequest(requestData);
+        responseMaybe.subscribe(
+                response -> responseQueue.remove(type, responseMaybe),
+                error -> {
+                    log.warn("Async request {} failed: {}", type, error.getMessage());
+                    responseQueue.remove(type, responseMaybe);
+                },
+                () -> responseQueue.remove(type, responseMaybe));
+        return true;
+    }
+
     @Override
     public Optional<Response> waitForResponse(Maybe<Response> waitFor) {
         return Optional.ofNullable(waitFor.blockingGet())
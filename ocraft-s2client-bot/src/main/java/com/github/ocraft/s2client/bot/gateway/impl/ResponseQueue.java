@@ -69,4 +69,7 @@ class ResponseQueue {
         return responseMaybe;
     }
 
+    boolean remove(ResponseType type, Maybe<Response> waitFor) {
+        return pending.remove(type, waitFor);
+    }
 }
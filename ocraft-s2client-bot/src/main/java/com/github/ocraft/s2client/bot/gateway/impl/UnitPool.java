@@ -27,6 +27,7 @@ package com.github.ocraft.s2client.bot.gateway.impl;
  */
 
 import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.bot.gateway.UnitIndex;
 import com.github.ocraft.s2client.protocol.unit.Tag;
 import com.github.ocraft.s2client.protocol.unit.Unit;
 
@@ -41,8 +42,10 @@ class UnitPool {
     private final Map<Tag, UnitInPool> pool = new HashMap<>();
     private final Map<Tag, UnitInPool> existingPool = new HashMap<>();
     private final Map<Tag, Unit> previous = new HashMap<>();
+    private UnitIndex index;
 
     UnitInPool createUnit(Tag tag) {
+        index = null;
         Optional<UnitInPool> existing = getUnit(tag);
         if (existing.isPresent()) {
             UnitInPool unitInPool = existing.get();
@@ -68,6 +71,7 @@ class UnitPool {
         getUnit(tag).ifPresent(unitInPool -> {
             unitInPool.dead();
             existingPool.remove(tag);
+            index = null;
         });
     }
 
@@ -77,6 +81,13 @@ class UnitPool {
 
     void clearExisting() {
         existingPool.clear();
+        index = null;
+    }
+
+    // Built at the first query after the existing units changed, i.e. once per step.
+    UnitIndex index() {
+        if (index == null) index = UnitIndex.of(existingPool.values());
+        return index;
     }
 
     boolean unitExists(Tag tag) {
@@ -0,0 +1,361 @@
+package com.github.ocraft.s2client.bot.group;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.combat.CombatData;
+import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.data.Ability;
+import com.github.ocraft.s2client.protocol.data.UnitType;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.isSet;
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Set of units (e.g. a squad) kept by tag, with aggregates maintained incrementally: centroid, spread, health,
+ * shields, damage per second and counts by type.
+ * <p>
+ * Members are the {@link UnitInPool} entries of the observation, which the unit pool updates in place every step.
+ * {@link #update()} visits each member once and applies to the running sums only the difference between the unit
+ * seen at the previous update and the current one; dead members are removed. Aggregates are then read in constant
+ * time, without streaming over the units.
+ * <p>
+ * Not thread safe.
+ */
+public final class UnitGroup {
+
+    private static final class Member {
+        private final UnitInPool unitInPool;
+        private Unit unit;
+        private float x;
+        private float y;
+        private float health;
+        private float healthMax;
+        private float shield;
+        private int attackUpgrade;
+        private float groundDps;
+        private float airDps;
+
+        private Member(UnitInPool unitInPool) {
+            this.unitInPool = unitInPool;
+        }
+    }
+
+    private final String name;
+    private final CombatData combatData;
+    private final Map<Tag, Member> members = new LinkedHashMap<>();
+    private final Set<Tag> tags = Collections.unmodifiableSet(members.keySet());
+    private final Map<UnitType, Integer> typeCounts = new HashMap<>();
+    private final Map<UnitType, Integer> typeCountsView = Collections.unmodifiableMap(typeCounts);
+
+    private int observed;
+    private double sumX;
+    private double sumY;
+    private double sumSquares;
+    private double health;
+    private double healthMax;
+    private double shield;
+    private double groundDps;
+    private double airDps;
+    private float boundingRadius = -1.0f;
+
+    private UnitGroup(String name, CombatData combatData) {
+        this.name = name;
+        this.combatData = combatData;
+    }
+
+    public static UnitGroup of(String name) {
+        require("name", name);
+        return new UnitGroup(name, null);
+    }
+
+    /**
+     * @return group keeping the damage per second of its members from the combat data.
+     */
+    public static UnitGroup of(String name, CombatData combatData) {
+        require("name", name);
+        require("combat data", combatData);
+        return new UnitGroup(name, combatData);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return true if the unit was not a member yet.
+     */
+    public boolean add(UnitInPool unitInPool) {
+        require("unit in pool", unitInPool);
+        if (members.containsKey(unitInPool.getTag())) return false;
+        Member member = new Member(unitInPool);
+        members.put(unitInPool.getTag(), member);
+        unitInPool.getUnit().ifPresent(unit -> apply(member, unit));
+        return true;
+    }
+
+    public void addAll(Collection<UnitInPool> units) {
+        require("units", units);
+        for (UnitInPool unitInPool : units) add(unitInPool);
+    }
+
+    /**
+     * @return true if the unit was a member.
+     */
+    public boolean remove(Tag tag) {
+        require("tag", tag);
+        Member member = members.remove(tag);
+        if (member == null) return false;
+        apply(member, null);
+        return true;
+    }
+
+    public boolean contains(Tag tag) {
+        return members.containsKey(tag);
+    }
+
+    /**
+     * Removes the unit, to be called from {@code ClientEvents#onUnitDestroyed}.
+     */
+    public void onUnitDestroyed(UnitInPool unitInPool) {
+        require("unit in pool", unitInPool);
+        remove(unitInPool.getTag());
+    }
+
+    /**
+     * Applies the changes of the members since the previous update and removes dead members. Call once per step,
+     * after the observation is updated.
+     */
+    public void update() {
+        Iterator<Member> iterator = members.values().iterator();
+        while (iterator.hasNext()) {
+            Member member = iterator.next();
+            if (!member.unitInPool.isAlive()) {
+                iterator.remove();
+                apply(member, null);
+            } else {
+                Unit unit = member.unitInPool.getUnit().orElse(null);
+                if (unit != member.unit) apply(member, unit);
+            }
+        }
+    }
+
+    // Replaces the contribution of the member with the one of the unit (none when null).
+    private void apply(Member member, Unit unit) {
+        Unit previous = member.unit;
+        if (isSet(previous)) {
+            if (isSet(unit) && unit.getX() == member.x && unit.getY() == member.y
+                    && unit.getType().equals(previous.getType())
+                    && unit.getHealth().orElse(0.0f) == member.health && unit.getShield().orElse(0.0f) == member.shield
+                    && unit.getHealthMax().orElse(0.0f) == member.healthMax
+                    && unit.getAttackUpgradeLevel().orElse(0) == member.attackUpgrade) {
+                member.unit = unit;
+                return;
+            }
+            observed--;
+            sumX -= member.x;
+            sumY -= member.y;
+            sumSquares -= (double) member.x * member.x + (double) member.y * member.y;
+            health -= member.health;
+            healthMax -= member.healthMax;
+            shield -= member.shield;
+            groundDps -= member.groundDps;
+            airDps -= member.airDps;
+            typeCounts.computeIfPresent(previous.getType(), (type, count) -> count > 1 ? count - 1 : null);
+        }
+        member.unit = unit;
+        boundingRadius = -1.0f;
+        if (!isSet(unit)) return;
+        member.x = unit.getX();
+        member.y = unit.getY();
+        member.health = unit.getHealth().orElse(0.0f);
+        member.healthMax = unit.getHealthMax().orElse(0.0f);
+        member.shield = unit.getShield().orElse(0.0f);
+        member.attackUpgrade = unit.getAttackUpgradeLevel().orElse(0);
+        if (isSet(combatData)) {
+            int type = unit.getType().getUnitTypeId();
+            member.groundDps = combatData.damagePerSecond(type, member.attackUpgrade, -1, false, 0.0f);
+            member.airDps = combatData.damagePerSecond(type, member.attackUpgrade, -1, true, 0.0f);
+        }
+        observed++;
+        sumX += member.x;
+        sumY += member.y;
+        sumSquares += (double) member.x * member.x + (double) member.y * member.y;
+        health += member.health;
+        healthMax += member.healthMax;
+        shield += member.shield;
+        groundDps += member.groundDps;
+        airDps += member.airDps;
+        typeCounts.merge(unit.getType(), 1, Integer::sum);
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    public boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    /**
+     * @return tags of the members, a live view usable with the batched {@code ActionInterface#unitCommand(Set, ...)}.
+     */
+    public Set<Tag> getTags() {
+        return tags;
+    }
+
+    /**
+     * @return members with an observed unit, in the order they were added.
+     */
+    public List<Unit> getUnits() {
+        List<Unit> units = new ArrayList<>(members.size());
+        for (Member member : members.values()) {
+            if (isSet(member.unit)) units.add(member.unit);
+        }
+        return units;
+    }
+
+    /**
+     * @return mean position of the members, empty for a group without observed units.
+     */
+    public Optional<Point2d> getCentroid() {
+        if (observed == 0) return Optional.empty();
+        return Optional.of(Point2d.of((float) (sumX / observed), (float) (sumY / observed)));
+    }
+
+    /**
+     * @return root mean square distance of the members to the centroid, 0 for a group without observed units.
+     */
+    public float getSpread() {
+        if (observed == 0) return 0.0f;
+        double meanX = sumX / observed;
+        double meanY = sumY / observed;
+        return (float) Math.sqrt(Math.max(0.0, sumSquares / observed - meanX * meanX - meanY * meanY));
+    }
+
+    /**
+     * @return distance from the centroid to the farthest member, cached until the group changes.
+     */
+    public float getBoundingRadius() {
+        if (boundingRadius >= 0.0f) return boundingRadius;
+        Optional<Point2d> centroid = getCentroid();
+        float radius = 0.0f;
+        if (centroid.isPresent()) {
+            float cx = centroid.get().getX();
+            float cy = centroid.get().getY();
+            for (Member member : members.values()) {
+                if (!isSet(member.unit)) continue;
+                float dx = member.x - cx;
+                float dy = member.y - cy;
+                radius = Math.max(radius, (float) Math.sqrt(dx * dx + dy * dy) + member.unit.getRadius());
+            }
+        }
+        boundingRadius = radius;
+        return radius;
+    }
+
+    public float getTotalHealth() {
+        return (float) health;
+    }
+
+    public float getTotalHealthMax() {
+        return (float) healthMax;
+    }
+
+    public float getTotalShield() {
+        return (float) shield;
+    }
+
+    /**
+     * @return sum of the damage per second of the members against ground targets, 0 without combat data.
+     */
+    public float getGroundDps() {
+        return (float) groundDps;
+    }
+
+    /**
+     * @return sum of the damage per second of the members against air targets, 0 without combat data.
+     */
+    public float getAirDps() {
+        return (float) airDps;
+    }
+
+    public int getCount(UnitType unitType) {
+        require("unit type", unitType);
+        return typeCounts.getOrDefault(unitType, 0);
+    }
+
+    /**
+     * @return number of observed members by unit type, a live view.
+     */
+    public Map<UnitType, Integer> getTypeCounts() {
+        return typeCountsView;
+    }
+
+    /**
+     * Commands every member in one batched action, nothing for an empty group.
+     */
+    public UnitGroup command(ActionInterface actions, Ability ability, boolean queued) {
+        require("actions", actions);
+        if (!isEmpty()) actions.unitCommand(tags, ability, queued);
+        return this;
+    }
+
+    public UnitGroup command(ActionInterface actions, Ability ability, Point2d point, boolean queued) {
+        require("actions", actions);
+        if (!isEmpty()) actions.unitCommand(tags, ability, point, queued);
+        return this;
+    }
+
+    public UnitGroup command(ActionInterface actions, Ability ability, Unit target, boolean queued) {
+        require("actions", actions);
+        if (!isEmpty()) actions.unitCommand(tags, ability, target, queued);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "UnitGroup{" +
+                "name='" + name + '\'' +
+                ", size=" + members.size() +
+                '}';
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.ocraft.s2client.bot.group;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.combat.CombatData;
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.isSet;
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Named squads of a bot. A unit belongs to at most one group: assigning it to a group moves it out of its previous
+ * one. Forward {@code onStep} to {@link #update()} and {@code onUnitDestroyed} to {@link #onUnitDestroyed(UnitInPool)}
+ * to keep every group current.
+ * <p>
+ * Not thread safe.
+ */
+public final class UnitGroups {
+
+    private final CombatData combatData;
+    private final Map<String, UnitGroup> groups = new LinkedHashMap<>();
+    private final Map<Tag, UnitGroup> assignments = new HashMap<>();
+
+    private UnitGroups(CombatData combatData) {
+        this.combatData = combatData;
+    }
+
+    public static UnitGroups create() {
+        return new UnitGroups(null);
+    }
+
+    /**
+     * @return groups keeping the damage per second of their members from the combat data.
+     */
+    public static UnitGroups create(CombatData combatData) {
+        require("combat data", combatData);
+        return new UnitGroups(combatData);
+    }
+
+    public UnitGroup getOrCreate(String name) {
+        require("name", name);
+        return groups.computeIfAbsent(
+                name, groupName -> isSet(combatData) ? UnitGroup.of(groupName, combatData) : UnitGroup.of(groupName));
+    }
+
+    public Optional<UnitGroup> get(String name) {
+        return Optional.ofNullable(groups.get(name));
+    }
+
+    /**
+     * @return groups in the order they were created.
+     */
+    public Collection<UnitGroup> getGroups() {
+        return Collections.unmodifiableCollection(groups.values());
+    }
+
+    /**
+     * Removes the group, its members become unassigned.
+     */
+    public boolean remove(String name) {
+        UnitGroup group = groups.remove(name);
+        if (group == null) return false;
+        for (Tag tag : group.getTags()) assignments.remove(tag);
+        return true;
+    }
+
+    /**
+     * Moves the unit to the group, created if needed.
+     */
+    public UnitGroup assign(UnitInPool unitInPool, String name) {
+        require("unit in pool", unitInPool);
+        UnitGroup group = getOrCreate(name);
+        UnitGroup previous = assignments.put(unitInPool.getTag(), group);
+        if (previous != group) {
+            if (isSet(previous)) previous.remove(unitInPool.getTag());
+            group.add(unitInPool);
+        }
+        return group;
+    }
+
+    public Optional<UnitGroup> getGroupOf(Tag tag) {
+        return Optional.ofNullable(assignments.get(tag));
+    }
+
+    public boolean unassign(Tag tag) {
+        require("tag", tag);
+        UnitGroup group = assignments.remove(tag);
+        return isSet(group) && group.remove(tag);
+    }
+
+    /**
+     * Updates the aggregates of every group and forgets dead members.
+     */
+    public void update() {
+        for (UnitGroup group : groups.values()) group.update();
+        assignments.entrySet().removeIf(assignment -> !assignment.getValue().contains(assignment.getKey()));
+    }
+
+    public void onUnitDestroyed(UnitInPool unitInPool) {
+        require("unit in pool", unitInPool);
+        unassign(unitInPool.getTag());
+    }
+}
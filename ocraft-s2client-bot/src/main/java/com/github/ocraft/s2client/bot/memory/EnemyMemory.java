@@ -0,0 +1,364 @@
+package com.github.ocraft.s2client.bot.memory;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.protocol.data.UnitAttribute;
+import com.github.ocraft.s2client.protocol.data.UnitType;
+import com.github.ocraft.s2client.protocol.data.UnitTypeData;
+import com.github.ocraft.s2client.protocol.observation.raw.Event;
+import com.github.ocraft.s2client.protocol.observation.raw.ObservationRaw;
+import com.github.ocraft.s2client.protocol.observation.raw.Visibility;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.github.ocraft.s2client.protocol.unit.DisplayType;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import com.github.ocraft.s2client.protocol.unit.UnitSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Last known state of enemy units that left vision and of structure snapshots reported without tags.
+ * <p>
+ * Updated once per step with {@link #update(ObservationInterface)}; entries are updated in place, so the cost of an
+ * update is proportional to the number of observed enemies plus one pass over the remembered ones. Entries are
+ * forgotten when the unit dies, when a structure or snapshot position is visible again without it being there, or
+ * when the {@link ExpiryPolicy} says so. Remembered enemies are indexed in a uniform grid for range queries.
+ * <p>
+ * Not thread safe.
+ */
+public final class EnemyMemory {
+
+    /**
+     * Game loops per game second at normal speed, the time unit of {@code UnitTypeData#getMovementSpeed}.
+     */
+    public static final float LOOPS_PER_GAME_SECOND = 16.0f;
+
+    /**
+     * Tests if a map position is currently visible.
+     */
+    @FunctionalInterface
+    public interface VisibilityTest {
+        boolean isVisible(float x, float y);
+    }
+
+    private final float[] speedPerLoop;
+    private final boolean[] structureType;
+    private final ExpiryPolicy expiryPolicy;
+    private final float cellSize;
+    private final int columns;
+    private final int rows;
+    private final List<List<RememberedEnemy>> buckets;
+
+    private final List<RememberedEnemy> entries = new ArrayList<>();
+    private final List<RememberedEnemy> entriesView = Collections.unmodifiableList(entries);
+    private final Map<Tag, RememberedEnemy> byTag = new HashMap<>();
+    private final Map<Long, RememberedEnemy> snapshotsByPosition = new HashMap<>();
+    private long gameLoop = -1;
+
+    private EnemyMemory(Builder builder) {
+        int unitCount = 0;
+        for (UnitType unitType : builder.unitTypeData.keySet()) {
+            unitCount = Math.max(unitCount, unitType.getUnitTypeId() + 1);
+        }
+        speedPerLoop = new float[unitCount];
+        structureType = new boolean[unitCount];
+        for (UnitTypeData data : builder.unitTypeData.values()) {
+            int id = data.getUnitType().getUnitTypeId();
+            speedPerLoop[id] = data.getMovementSpeed().orElse(0.0f) / LOOPS_PER_GAME_SECOND;
+            structureType[id] = data.getAttributes().contains(UnitAttribute.STRUCTURE);
+        }
+        expiryPolicy = builder.expiryPolicy;
+        cellSize = builder.cellSize;
+        columns = Math.max(1, (int) Math.ceil(builder.mapWidth / cellSize));
+        rows = Math.max(1, (int) Math.ceil(builder.mapHeight / cellSize));
+        buckets = new ArrayList<>(columns * rows);
+        for (int i = 0; i < columns * rows; i++) buckets.add(new ArrayList<>());
+    }
+
+    public static Builder builder(Map<UnitType, UnitTypeData> unitTypeData) {
+        return new Builder(unitTypeData);
+    }
+
+    public static final class Builder {
+
+        private final Map<UnitType, UnitTypeData> unitTypeData;
+        private ExpiryPolicy expiryPolicy = ExpiryPolicy.mobileUnitsAfterLoops(60 * 22);
+        private float cellSize = 8.0f;
+        private int mapWidth = 256;
+        private int mapHeight = 256;
+
+        private Builder(Map<UnitType, UnitTypeData> unitTypeData) {
+            require("unit type data", unitTypeData);
+            this.unitTypeData = unitTypeData;
+        }
+
+        /**
+         * Defaults to forgetting mobile units not seen for about a minute of game time.
+         */
+        public Builder withExpiryPolicy(ExpiryPolicy expiryPolicy) {
+            require("expiry policy", expiryPolicy);
+            this.expiryPolicy = expiryPolicy;
+            return this;
+        }
+
+        /**
+         * Size of the spatial index cells, defaults to 8.
+         */
+        public Builder withCellSize(float cellSize) {
+            if (cellSize <= 0) throw new IllegalArgumentException("cell size must be greater than 0");
+            this.cellSize = cellSize;
+            return this;
+        }
+
+        /**
+         * Size of the indexed area, defaults to 256x256 which covers every ladder map.
+         */
+        public Builder withMapSize(int width, int height) {
+            if (width <= 0 || height <= 0) throw new IllegalArgumentException("map size must be greater than 0");
+            this.mapWidth = width;
+            this.mapHeight = height;
+            return this;
+        }
+
+        public EnemyMemory build() {
+            return new EnemyMemory(this);
+        }
+    }
+
+    /**
+     * Updates the memory with the raw observation, dead unit events and visibility of the current step.
+     */
+    public void update(ObservationInterface observation) {
+        require("observation", observation);
+        Optional<ObservationRaw> raw = observation.getRawObservation().getRaw();
+        List<Unit> units = raw.map(ObservationRaw::getUnits).orElse(Collections.emptyList());
+        List<UnitSnapshot> snapshots = raw.map(ObservationRaw::getUnitSnapshots).orElse(Collections.emptyList());
+        Set<Tag> deadUnits = raw.flatMap(ObservationRaw::getEvent).map(Event::getDeadUnits)
+                .orElse(Collections.emptySet());
+        update(observation.getGameLoop(), units, snapshots, deadUnits,
+                (x, y) -> observation.getVisibility(Point2d.of(x, y)) == Visibility.VISIBLE);
+    }
+
+    /**
+     * Updates the memory with the enemies observed at the game loop. A game loop earlier than the last update (e.g.
+     * a new game) clears the memory.
+     */
+    public void update(
+            long gameLoop,
+            Collection<Unit> units,
+            Collection<UnitSnapshot> snapshots,
+            Collection<Tag> deadUnits,
+            VisibilityTest visibility) {
+        require("units", units);
+        require("snapshots", snapshots);
+        require("dead units", deadUnits);
+        require("visibility", visibility);
+        if (gameLoop < this.gameLoop) clear();
+        this.gameLoop = gameLoop;
+
+        for (Tag tag : deadUnits) {
+            RememberedEnemy enemy = byTag.get(tag);
+            if (enemy != null) remove(enemy);
+        }
+        for (Unit unit : units) {
+            if (unit.getAlliance() != Alliance.ENEMY) continue;
+            RememberedEnemy enemy = byTag.get(unit.getTag());
+            if (enemy == null) {
+                enemy = new RememberedEnemy(unit.getTag());
+                byTag.put(unit.getTag(), enemy);
+                add(enemy);
+            }
+            int typeId = unit.getType().getUnitTypeId();
+            boolean known = typeId >= 0 && typeId < speedPerLoop.length;
+            enemy.observe(unit, gameLoop, unit.getDisplayType() == DisplayType.VISIBLE,
+                    known ? speedPerLoop[typeId] : 0.0f,
+                    known && structureType[typeId] || unit.getDisplayType() == DisplayType.SNAPSHOT);
+            reindex(enemy);
+        }
+        for (UnitSnapshot snapshot : snapshots) {
+            if (snapshot.getAlliance() != Alliance.ENEMY) continue;
+            long key = positionKey(snapshot.getX(), snapshot.getY());
+            RememberedEnemy enemy = snapshotsByPosition.get(key);
+            if (enemy == null) {
+                enemy = new RememberedEnemy(null);
+                snapshotsByPosition.put(key, enemy);
+                add(enemy);
+            }
+            enemy.observe(snapshot, gameLoop, snapshot.getDisplayType() == DisplayType.VISIBLE, 0.0f, true);
+            reindex(enemy);
+        }
+
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            RememberedEnemy enemy = entries.get(i);
+            if (enemy.getObservedLoop() == gameLoop) continue;
+            if (expiryPolicy.isExpired(enemy, gameLoop)
+                    || enemy.isStructure() && visibility.isVisible(enemy.getX(), enemy.getY())) {
+                remove(enemy);
+            }
+        }
+    }
+
+    // Snapshots have no tag, they are identified by their position quantized to half cells (structure footprints).
+    private static long positionKey(float x, float y) {
+        return ((long) Math.round(x * 2.0f) << 32) | (Math.round(y * 2.0f) & 0xffffffffL);
+    }
+
+    private void add(RememberedEnemy enemy) {
+        enemy.index = entries.size();
+        entries.add(enemy);
+    }
+
+    private void remove(RememberedEnemy enemy) {
+        if (enemy.getTag().isPresent()) {
+            byTag.remove(enemy.getTag().get());
+        } else {
+            snapshotsByPosition.remove(positionKey(enemy.getX(), enemy.getY()));
+        }
+        RememberedEnemy moved = entries.get(entries.size() - 1);
+        entries.set(enemy.index, moved);
+        moved.index = enemy.index;
+        entries.remove(entries.size() - 1);
+        enemy.index = -1;
+        unindex(enemy);
+    }
+
+    private void reindex(RememberedEnemy enemy) {
+        int bucket = bucketOf(enemy.getX(), enemy.getY());
+        if (bucket == enemy.bucket) return;
+        unindex(enemy);
+        List<RememberedEnemy> cell = buckets.get(bucket);
+        enemy.bucket = bucket;
+        enemy.slot = cell.size();
+        cell.add(enemy);
+    }
+
+    private void unindex(RememberedEnemy enemy) {
+        if (enemy.bucket < 0) return;
+        List<RememberedEnemy> cell = buckets.get(enemy.bucket);
+        RememberedEnemy moved = cell.get(cell.size() - 1);
+        cell.set(enemy.slot, moved);
+        moved.slot = enemy.slot;
+        cell.remove(cell.size() - 1);
+        enemy.bucket = -1;
+        enemy.slot = -1;
+    }
+
+    private int bucketOf(float x, float y) {
+        return row(y) * columns + column(x);
+    }
+
+    private int column(float x) {
+        return Math.min(columns - 1, Math.max(0, (int) (x / cellSize)));
+    }
+
+    private int row(float y) {
+        return Math.min(rows - 1, Math.max(0, (int) (y / cellSize)));
+    }
+
+    /**
+     * @return game loop of the last update, -1 before the first one.
+     */
+    public long getGameLoop() {
+        return gameLoop;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Optional<RememberedEnemy> get(Tag tag) {
+        require("tag", tag);
+        return Optional.ofNullable(byTag.get(tag));
+    }
+
+    /**
+     * @return every remembered enemy, unordered. A live view, changed by the next update.
+     */
+    public List<RememberedEnemy> getAll() {
+        return entriesView;
+    }
+
+    /**
+     * @return true if the enemy was not reported by the last update, i.e. it's remembered only.
+     */
+    public boolean isGhost(RememberedEnemy enemy) {
+        require("enemy", enemy);
+        return enemy.getObservedLoop() != gameLoop;
+    }
+
+    /**
+     * Visits remembered enemies whose last known position is within the radius, without allocating.
+     */
+    public void forEachWithin(float x, float y, float radius, Consumer<RememberedEnemy> consumer) {
+        require("consumer", consumer);
+        float radiusSquared = radius * radius;
+        int minColumn = column(x - radius);
+        int maxColumn = column(x + radius);
+        int maxRow = row(y + radius);
+        for (int row = row(y - radius); row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                List<RememberedEnemy> cell = buckets.get(row * columns + column);
+                for (int i = 0; i < cell.size(); i++) {
+                    RememberedEnemy enemy = cell.get(i);
+                    float dx = enemy.getX() - x;
+                    float dy = enemy.getY() - y;
+                    if (dx * dx + dy * dy <= radiusSquared) consumer.accept(enemy);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return remembered enemies whose last known position is within the radius of the point.
+     */
+    public List<RememberedEnemy> getWithin(Point2d point, float radius) {
+        require("point", point);
+        List<RememberedEnemy> within = new ArrayList<>();
+        forEachWithin(point.getX(), point.getY(), radius, within::add);
+        return within;
+    }
+
+    public void clear() {
+        entries.clear();
+        byTag.clear();
+        snapshotsByPosition.clear();
+        for (List<RememberedEnemy> cell : buckets) cell.clear();
+        gameLoop = -1;
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.ocraft.s2client.bot.memory;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+/**
+ * Decides when a remembered enemy that is no longer observed is forgotten by {@link EnemyMemory}.
+ * <p>
+ * Independently of the policy, structures and snapshots are forgotten as soon as their last known position is visible
+ * again without them being there.
+ */
+@FunctionalInterface
+public interface ExpiryPolicy {
+
+    /**
+     * @return true if the remembered enemy should be forgotten at the given game loop.
+     */
+    boolean isExpired(RememberedEnemy enemy, long gameLoop);
+
+    /**
+     * @return policy keeping every entry until it is destroyed or found gone.
+     */
+    static ExpiryPolicy never() {
+        return (enemy, gameLoop) -> false;
+    }
+
+    /**
+     * @return policy forgetting any entry not observed for the given number of game loops.
+     */
+    static ExpiryPolicy afterLoops(long loops) {
+        return (enemy, gameLoop) -> gameLoop - enemy.getLastSeenLoop() > loops;
+    }
+
+    /**
+     * @return policy forgetting mobile units not observed for the given number of game loops, structures and snapshots
+     * are kept until found gone.
+     */
+    static ExpiryPolicy mobileUnitsAfterLoops(long loops) {
+        return (enemy, gameLoop) -> !enemy.isStructure() && gameLoop - enemy.getLastSeenLoop() > loops;
+    }
+}
@@ -0,0 +1,205 @@
+package com.github.ocraft.s2client.bot.memory;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.data.UnitType;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import com.github.ocraft.s2client.protocol.unit.UnitSnapshot;
+
+import java.util.Optional;
+
+/**
+ * Last known state of an enemy unit or structure snapshot kept by {@link EnemyMemory}. Mutable, updated in place by
+ * the memory while the enemy is observed.
+ */
+public final class RememberedEnemy {
+
+    private final Tag tag;
+    private UnitSnapshot last;
+    private float speedPerLoop;
+    private boolean structure;
+    private float x;
+    private float y;
+    private float velocityX;
+    private float velocityY;
+    private long firstSeenLoop;
+    private long lastSeenLoop;
+    private long observedLoop;
+
+    // Position in the spatial index of the memory.
+    int bucket = -1;
+    int slot = -1;
+    int index = -1;
+
+    RememberedEnemy(Tag tag) {
+        this.tag = tag;
+    }
+
+    void observe(UnitSnapshot snapshot, long gameLoop, boolean seen, float speedPerLoop, boolean structure) {
+        if (last == null) {
+            firstSeenLoop = gameLoop;
+            lastSeenLoop = gameLoop;
+        } else if (seen && gameLoop > lastSeenLoop) {
+            long elapsed = gameLoop - lastSeenLoop;
+            velocityX = (snapshot.getX() - x) / elapsed;
+            velocityY = (snapshot.getY() - y) / elapsed;
+            float velocity = (float) Math.sqrt(velocityX * velocityX + velocityY * velocityY);
+            if (velocity > speedPerLoop) {
+                velocityX *= speedPerLoop / velocity;
+                velocityY *= speedPerLoop / velocity;
+            }
+            lastSeenLoop = gameLoop;
+        }
+        last = snapshot;
+        x = snapshot.getX();
+        y = snapshot.getY();
+        observedLoop = gameLoop;
+        this.speedPerLoop = speedPerLoop;
+        this.structure = structure;
+    }
+
+    /**
+     * @return tag of the unit, empty for structure snapshots reported without one.
+     */
+    public Optional<Tag> getTag() {
+        return Optional.ofNullable(tag);
+    }
+
+    /**
+     * @return unit type, empty for structure snapshots reported without one.
+     */
+    public Optional<UnitType> getType() {
+        return getUnit().map(Unit::getType);
+    }
+
+    /**
+     * @return the unit as last observed, empty for structure snapshots reported without a tag.
+     */
+    public Optional<Unit> getUnit() {
+        return last instanceof Unit ? Optional.of((Unit) last) : Optional.empty();
+    }
+
+    /**
+     * @return the unit or snapshot as last observed.
+     */
+    public UnitSnapshot getLastSnapshot() {
+        return last;
+    }
+
+    public boolean isSnapshot() {
+        return tag == null;
+    }
+
+    /**
+     * @return true for structures and snapshots, which don't move while out of vision.
+     */
+    public boolean isStructure() {
+        return structure;
+    }
+
+    /**
+     * @return game loop the enemy was first observed.
+     */
+    public long getFirstSeenLoop() {
+        return firstSeenLoop;
+    }
+
+    /**
+     * @return last game loop the enemy was visible.
+     */
+    public long getLastSeenLoop() {
+        return lastSeenLoop;
+    }
+
+    /**
+     * @return last game loop the enemy was reported, visible or as a snapshot.
+     */
+    public long getObservedLoop() {
+        return observedLoop;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    /**
+     * @return last known position.
+     */
+    public Point2d getLastPosition() {
+        return Point2d.of(x, y);
+    }
+
+    /**
+     * @return distance per game loop, from {@code UnitTypeData#getMovementSpeed}, zero for structures.
+     */
+    public float getSpeedPerLoop() {
+        return speedPerLoop;
+    }
+
+    /**
+     * @return predicted x at the game loop, extrapolating the velocity estimated from the last two sightings.
+     */
+    public float getPredictedX(long gameLoop) {
+        return x + velocityX * Math.max(0, gameLoop - lastSeenLoop);
+    }
+
+    /**
+     * @return predicted y at the game loop, extrapolating the velocity estimated from the last two sightings.
+     */
+    public float getPredictedY(long gameLoop) {
+        return y + velocityY * Math.max(0, gameLoop - lastSeenLoop);
+    }
+
+    public Point2d getPredictedPosition(long gameLoop) {
+        return Point2d.of(getPredictedX(gameLoop), getPredictedY(gameLoop));
+    }
+
+    /**
+     * @return radius around the last known position the enemy can have reached at its movement speed.
+     */
+    public float getUncertaintyRadius(long gameLoop) {
+        return speedPerLoop * Math.max(0, gameLoop - lastSeenLoop);
+    }
+
+    @Override
+    public String toString() {
+        return "RememberedEnemy{" +
+                "tag=" + tag +
+                ", type=" + getType().orElse(null) +
+                ", x=" + x +
+                ", y=" + y +
+                ", lastSeenLoop=" + lastSeenLoop +
+                ", structure=" + structure +
+                '}';
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.ocraft.s2client.bot.parallel;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+
+/**
+ * Outcome of the parallel evaluation. If the deadline was exceeded the commands contain only the decisions of the
+ * workers that finished in time.
+ */
+public final class DecisionResult {
+
+    private final UnitCommandBatch commands;
+    private final int evaluatedUnits;
+    private final int skippedUnits;
+    private final boolean deadlineExceeded;
+    private final long durationNanos;
+
+    DecisionResult(
+            UnitCommandBatch commands,
+            int evaluatedUnits,
+            int skippedUnits,
+            boolean deadlineExceeded,
+            long durationNanos) {
+        this.commands = commands;
+        this.evaluatedUnits = evaluatedUnits;
+        this.skippedUnits = skippedUnits;
+        this.deadlineExceeded = deadlineExceeded;
+        this.durationNanos = durationNanos;
+    }
+
+    public UnitCommandBatch getCommands() {
+        return commands;
+    }
+
+    public int getEvaluatedUnits() {
+        return evaluatedUnits;
+    }
+
+    /**
+     * @return Number of units without decision because of the deadline.
+     */
+    public int getSkippedUnits() {
+        return skippedUnits;
+    }
+
+    public boolean isDeadlineExceeded() {
+        return deadlineExceeded;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @see UnitCommandBatch#issue(ActionInterface)
+     */
+    public int issue(ActionInterface actions) {
+        return commands.issue(actions);
+    }
+
+    @Override
+    public String toString() {
+        return "DecisionResult{" +
+                "commands=" + commands +
+                ", evaluatedUnits=" + evaluatedUnits +
+                ", skippedUnits=" + skippedUnits +
+                ", deadlineExceeded=" + deadlineExceeded +
+                ", durationNanos=" + durationNanos +
+                '}';
+    }
+}
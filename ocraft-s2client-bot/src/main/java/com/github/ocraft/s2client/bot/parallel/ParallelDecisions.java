@@ -0,0 +1,302 @@
+package com.github.ocraft.s2client.bot.parallel;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.gateway.ObservationSnapshot;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.isSet;
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Evaluates per unit policies on the fork/join pool. Intended to be called from the agent's onStep:
+ * <pre>{@code
+ * ParallelDecisions<Long> decisions = ParallelDecisions.partitionedBy(UnitPartitioner.bySpatialCell(16))
+ *         .withPolicy(new AttackNearestEnemy())
+ *         .withDeadline(20, TimeUnit.MILLISECONDS)
+ *         .build();
+ *
+ * public void onStep() {
+ *     ObservationSnapshot snapshot = observation().getSnapshot();
+ *     decisions.decide(snapshot, snapshot.getUnits(Alliance.SELF)).issue(actions());
+ * }
+ * }</pre>
+ * Units are grouped by partition, partitions larger than the split threshold are split into chunks. Each worker
+ * collects commands into its own batch, the batches are merged on the calling thread. When the deadline is reached
+ * workers stop evaluating new units and the result contains the decisions made so far.
+ *
+ * @param <K> Type of the partition key.
+ */
+public final class ParallelDecisions<K> {
+
+    private static final int DEFAULT_SPLIT_THRESHOLD = 64;
+
+    private final UnitPartitioner<K> partitioner;
+    private final Function<K, UnitPolicy> policies;
+    private final long deadlineNanos;
+    private final ForkJoinPool pool;
+    private final int splitThreshold;
+    private final LongSupplier clock;
+
+    public static final class Builder<K> {
+        private final UnitPartitioner<K> partitioner;
+        private Function<K, UnitPolicy> policies;
+        private long deadlineNanos;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        private int splitThreshold = DEFAULT_SPLIT_THRESHOLD;
+        private LongSupplier clock = System::nanoTime;
+
+        private Builder(UnitPartitioner<K> partitioner) {
+            this.partitioner = partitioner;
+        }
+
+        public Builder<K> withPolicy(UnitPolicy policy) {
+            require("policy", policy);
+            this.policies = partition -> policy;
+            return this;
+        }
+
+        /**
+         * @param policies Policy for the given partition (null skips units of the partition).
+         */
+        public Builder<K> withPolicies(Function<K, UnitPolicy> policies) {
+            require("policies", policies);
+            this.policies = policies;
+            return this;
+        }
+
+        /**
+         * @param deadline Time budget for the whole evaluation, 0 for no deadline.
+         */
+        public Builder<K> withDeadline(long deadline, TimeUnit unit) {
+            require("time unit", unit);
+            if (deadline < 0) throw new IllegalArgumentException("deadline must be greater than or equal to 0");
+            this.deadlineNanos = unit.toNanos(deadline);
+            return this;
+        }
+
+        public Builder<K> withPool(ForkJoinPool pool) {
+            require("pool", pool);
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * @param splitThreshold Maximum number of units evaluated by one task.
+         */
+        public Builder<K> withSplitThreshold(int splitThreshold) {
+            if (splitThreshold < 1) throw new IllegalArgumentException("split threshold must be greater than 0");
+            this.splitThreshold = splitThreshold;
+            return this;
+        }
+
+        // Time source of the deadline, in System#nanoTime units; replaced by tests to cross the deadline on demand.
+        Builder<K> withClock(LongSupplier clock) {
+            require("clock", clock);
+            this.clock = clock;
+            return this;
+        }
+
+        public ParallelDecisions<K> build() {
+            require("policy", policies);
+            return new ParallelDecisions<>(this);
+        }
+    }
+
+    private ParallelDecisions(Builder<K> builder) {
+        partitioner = builder.partitioner;
+        policies = builder.policies;
+        deadlineNanos = builder.deadlineNanos;
+        pool = builder.pool;
+        splitThreshold = builder.splitThreshold;
+        clock = builder.clock;
+    }
+
+    public static <K> Builder<K> partitionedBy(UnitPartitioner<K> partitioner) {
+        require("partitioner", partitioner);
+        return new Builder<>(partitioner);
+    }
+
+    public static Builder<Boolean> unpartitioned() {
+        return partitionedBy(UnitPartitioner.none());
+    }
+
+    private static final class Chunk {
+        private final UnitPolicy policy;
+        private final List<Unit> units;
+
+        private Chunk(UnitPolicy policy, List<Unit> units) {
+            this.policy = policy;
+            this.units = units;
+        }
+    }
+
+    private static final class Partial {
+        private final UnitCommandBatch commands;
+        private final int evaluatedUnits;
+
+        private Partial(UnitCommandBatch commands, int evaluatedUnits) {
+            this.commands = commands;
+            this.evaluatedUnits = evaluatedUnits;
+        }
+    }
+
+    private final class EvaluateChunks extends RecursiveAction {
+        private final List<Chunk> chunks;
+        private final int from;
+        private final int to;
+        private final ObservationSnapshot snapshot;
+        private final long deadline;
+        private final AtomicBoolean stopped;
+        private final Queue<Partial> results;
+
+        private EvaluateChunks(
+                List<Chunk> chunks, int from, int to, ObservationSnapshot snapshot, long deadline,
+                AtomicBoolean stopped, Queue<Partial> results) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.snapshot = snapshot;
+            this.deadline = deadline;
+            this.stopped = stopped;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (stopped.get()) return;
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new EvaluateChunks(chunks, from, middle, snapshot, deadline, stopped, results),
+                        new EvaluateChunks(chunks, middle, to, snapshot, deadline, stopped, results));
+                return;
+            }
+            Chunk chunk = chunks.get(from);
+            UnitCommandBatch commands = new UnitCommandBatch();
+            int evaluated = 0;
+            for (Unit unit : chunk.units) {
+                if (stopped.get() || deadlineNanos > 0 && clock.getAsLong() - deadline >= 0) break;
+                chunk.policy.decide(unit, snapshot, commands);
+                evaluated++;
+            }
+            results.add(new Partial(commands, evaluated));
+        }
+    }
+
+    /**
+     * Evaluates policies for the given units. Blocks until all units are evaluated or the deadline is reached. When
+     * the deadline is reached the workers are stopped, and the units they are still evaluating are awaited, so no
+     * task of this call keeps running after it returns.
+     *
+     * @param snapshot State of the game passed to the policies.
+     * @param units    Units to decide for.
+     * @return Merged commands and evaluation statistics.
+     */
+    public DecisionResult decide(ObservationSnapshot snapshot, Collection<Unit> units) {
+        require("units", units);
+        long start = clock.getAsLong();
+        List<Chunk> chunks = chunksOf(units);
+        int total = 0;
+        for (Chunk chunk : chunks) total += chunk.units.size();
+        if (chunks.isEmpty()) return new DecisionResult(new UnitCommandBatch(), 0, 0, false, clock.getAsLong() - start);
+
+        Queue<Partial> results = new ConcurrentLinkedQueue<>();
+        AtomicBoolean stopped = new AtomicBoolean();
+        EvaluateChunks task = new EvaluateChunks(
+                chunks, 0, chunks.size(), snapshot, start + deadlineNanos, stopped, results);
+        boolean deadlineExceeded = false;
+        try {
+            if (deadlineNanos > 0) {
+                deadlineExceeded = !awaitUntil(pool.submit(task), start + deadlineNanos);
+            } else {
+                pool.invoke(task);
+            }
+        } catch (ExecutionException e) {
+            stopped.set(true);
+            throw new IllegalStateException("Unit policy failed.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            deadlineExceeded = true;
+        }
+        if (deadlineExceeded) {
+            // Workers finish the unit they are evaluating and stop, their partial results are merged below.
+            stopped.set(true);
+            task.quietlyJoin();
+        }
+
+        UnitCommandBatch commands = new UnitCommandBatch();
+        int evaluated = 0;
+        for (Partial partial; isSet(partial = results.poll()); ) {
+            commands.merge(partial.commands);
+            evaluated += partial.evaluatedUnits;
+        }
+        return new DecisionResult(
+                commands,
+                evaluated,
+                total - evaluated,
+                deadlineExceeded || evaluated < total,
+                clock.getAsLong() - start);
+    }
+
+    // True if the task completed before the deadline of the clock.
+    private boolean awaitUntil(ForkJoinTask<Void> task, long deadline) throws ExecutionException, InterruptedException {
+        for (long remaining; (remaining = deadline - clock.getAsLong()) > 0; ) {
+            try {
+                task.get(remaining, TimeUnit.NANOSECONDS);
+                return true;
+            } catch (TimeoutException e) {
+                // Waits again unless the clock says the deadline has passed.
+            }
+        }
+        if (!task.isDone()) return false;
+        task.get();
+        return true;
+    }
+
+    private List<Chunk> chunksOf(Collection<Unit> units) {
+        Map<K, List<Unit>> partitions = new LinkedHashMap<>();
+        for (Unit unit : units) {
+            partitions.computeIfAbsent(partitioner.partitionOf(unit), key -> new ArrayList<>()).add(unit);
+        }
+        List<Chunk> chunks = new ArrayList<>();
+        partitions.forEach((key, partition) -> {
+            UnitPolicy policy = policies.apply(key);
+            if (!isSet(policy)) return;
+            for (int i = 0; i < partition.size(); i += splitThreshold) {
+                chunks.add(new Chunk(policy, partition.subList(i, Math.min(partition.size(), i + splitThreshold))));
+            }
+        });
+        return chunks;
+    }
+}
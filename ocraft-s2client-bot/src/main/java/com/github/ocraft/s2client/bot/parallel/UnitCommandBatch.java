@@ -0,0 +1,168 @@
+package com.github.ocraft.s2client.bot.parallel;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+import com.github.ocraft.s2client.protocol.data.Ability;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.isSet;
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Collects per unit commands and batches the identical ones (same ability, target and queue flag) into a single
+ * command for many units. Not thread safe, every worker fills its own batch, batches are merged afterwards.
+ */
+public final class UnitCommandBatch {
+
+    private final Map<CommandKey, List<Unit>> commands = new LinkedHashMap<>();
+    private int unitCount;
+
+    private static final class CommandKey {
+        private final Ability ability;
+        private final Point2d point;
+        private final Unit target;
+        private final Tag targetTag;
+        private final boolean queued;
+
+        private CommandKey(Ability ability, Point2d point, Unit target, boolean queued) {
+            this.ability = ability;
+            this.point = point;
+            this.target = target;
+            this.targetTag = isSet(target) ? target.getTag() : null;
+            this.queued = queued;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            CommandKey that = (CommandKey) o;
+
+            return queued == that.queued && ability.equals(that.ability) && Objects.equals(point, that.point) &&
+                    Objects.equals(targetTag, that.targetTag);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = ability.hashCode();
+            result = 31 * result + (point != null ? point.hashCode() : 0);
+            result = 31 * result + (targetTag != null ? targetTag.hashCode() : 0);
+            result = 31 * result + (queued ? 1 : 0);
+            return result;
+        }
+    }
+
+    public UnitCommandBatch unitCommand(Unit unit, Ability ability, boolean queuedCommand) {
+        return add(unit, new CommandKey(ability, null, null, queuedCommand));
+    }
+
+    public UnitCommandBatch unitCommand(Unit unit, Ability ability, Point2d point, boolean queuedCommand) {
+        require("point", point);
+        return add(unit, new CommandKey(ability, point, null, queuedCommand));
+    }
+
+    public UnitCommandBatch unitCommand(Unit unit, Ability ability, Unit target, boolean queuedCommand) {
+        require("target", target);
+        return add(unit, new CommandKey(ability, null, target, queuedCommand));
+    }
+
+    private UnitCommandBatch add(Unit unit, CommandKey key) {
+        require("unit", unit);
+        require("ability", key.ability);
+        commands.computeIfAbsent(key, k -> new ArrayList<>()).add(unit);
+        unitCount++;
+        return this;
+    }
+
+    /**
+     * Moves all commands of the other batch to this one.
+     */
+    public UnitCommandBatch merge(UnitCommandBatch other) {
+        require("batch", other);
+        other.commands.forEach((key, units) -> commands.merge(key, units, (mine, theirs) -> {
+            mine.addAll(theirs);
+            return mine;
+        }));
+        unitCount += other.unitCount;
+        return this;
+    }
+
+    /**
+     * Adds batched commands to the action interface (the actions are sent with {@link ActionInterface#sendActions()}).
+     *
+     * @return Number of commands issued.
+     */
+    public int issue(ActionInterface actions) {
+        require("action interface", actions);
+        commands.forEach((key, units) -> {
+            if (isSet(key.point)) {
+                actions.unitCommand(units, key.ability, key.point, key.queued);
+            } else if (isSet(key.target)) {
+                actions.unitCommand(units, key.ability, key.target, key.queued);
+            } else {
+                actions.unitCommand(units, key.ability, key.queued);
+            }
+        });
+        return commands.size();
+    }
+
+    /**
+     * @return Number of batched commands.
+     */
+    public int getCommandCount() {
+        return commands.size();
+    }
+
+    /**
+     * @return Number of commanded units.
+     */
+    public int getUnitCount() {
+        return unitCount;
+    }
+
+    public boolean isEmpty() {
+        return commands.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "UnitCommandBatch{" +
+                "commandCount=" + commands.size() +
+                ", unitCount=" + unitCount +
+                '}';
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.ocraft.s2client.bot.parallel;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.data.UnitType;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+/**
+ * Splits units into partitions. Each partition is evaluated with its own policy and is never shared between workers
+ * below the split threshold, so i.e. spatial cells keep units that interact with each other together.
+ *
+ * @param <K> Type of the partition key.
+ */
+@FunctionalInterface
+public interface UnitPartitioner<K> {
+
+    K partitionOf(Unit unit);
+
+    static UnitPartitioner<Boolean> none() {
+        return unit -> Boolean.TRUE;
+    }
+
+    static UnitPartitioner<UnitType> byUnitType() {
+        return Unit::getType;
+    }
+
+    /**
+     * Partitions by square cells of the map.
+     *
+     * @param cellSize Size of the cell (in game units).
+     * @return Partitioner with the cell index (x in the upper, y in the lower 32 bits) as key.
+     */
+    static UnitPartitioner<Long> bySpatialCell(float cellSize) {
+        if (cellSize <= 0) throw new IllegalArgumentException("cell size must be greater than 0");
+        return unit -> {
+            long x = (long) Math.floor(unit.getPosition().getX() / cellSize);
+            long y = (long) Math.floor(unit.getPosition().getY() / cellSize);
+            return (x << 32) | (y & 0xFFFFFFFFL);
+        };
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.ocraft.s2client.bot.parallel;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.gateway.ObservationSnapshot;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+/**
+ * Decision made for a single unit. Policies are evaluated concurrently so they should read the game state only from
+ * the given snapshot (or other immutable/thread safe structures) and issue commands only to the given batch.
+ */
+@FunctionalInterface
+public interface UnitPolicy {
+
+    /**
+     * @param unit     The unit to decide for.
+     * @param snapshot State of the game.
+     * @param commands Commands of the current worker.
+     */
+    void decide(Unit unit, ObservationSnapshot snapshot, UnitCommandBatch commands);
+}
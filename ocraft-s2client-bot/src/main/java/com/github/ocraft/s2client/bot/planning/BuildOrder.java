@@ -0,0 +1,119 @@
+package com.github.ocraft.s2client.bot.planning;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.data.Upgrade;
+import com.github.ocraft.s2client.protocol.data.UnitType;
+
+import java.util.Arrays;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Sequence of unit types and upgrades to produce, as item indices of {@link ProductionData}. Items are started in the
+ * order of the sequence. Immutable.
+ */
+public final class BuildOrder {
+
+    private final int[] items;
+
+    public static final class Builder {
+        private final ProductionData data;
+        private int[] items = new int[16];
+        private int size;
+
+        private Builder(ProductionData data) {
+            this.data = data;
+        }
+
+        public Builder unit(UnitType unitType) {
+            return item(data.itemOf(unitType));
+        }
+
+        public Builder units(UnitType unitType, int count) {
+            int item = data.itemOf(unitType);
+            for (int i = 0; i < count; i++) item(item);
+            return this;
+        }
+
+        public Builder upgrade(Upgrade upgrade) {
+            return item(data.itemOf(upgrade));
+        }
+
+        private Builder item(int item) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = item;
+            return this;
+        }
+
+        public BuildOrder build() {
+            return new BuildOrder(Arrays.copyOf(items, size));
+        }
+    }
+
+    private BuildOrder(int[] items) {
+        this.items = items;
+    }
+
+    public static Builder builder(ProductionData data) {
+        require("production data", data);
+        return new Builder(data);
+    }
+
+    /**
+     * @param items Item indices of {@link ProductionData}, copied.
+     */
+    public static BuildOrder of(int... items) {
+        require("items", items);
+        return new BuildOrder(items.clone());
+    }
+
+    public int size() {
+        return items.length;
+    }
+
+    public int getItem(int index) {
+        return items[index];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(items, ((BuildOrder) o).items);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(items);
+    }
+
+    @Override
+    public String toString() {
+        return "BuildOrder{items=" + Arrays.toString(items) + '}';
+    }
+}
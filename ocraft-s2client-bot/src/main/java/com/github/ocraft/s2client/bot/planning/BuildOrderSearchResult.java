@@ -0,0 +1,99 @@
+package com.github.ocraft.s2client.bot.planning;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.Optional;
+
+/**
+ * Best build order found by {@link BuildOrderSimulator#search}.
+ */
+public final class BuildOrderSearchResult {
+
+    private final BuildOrder best;
+    private final long completionLoop;
+    private final int evaluatedCandidates;
+    private final int skippedCandidates;
+    private final boolean deadlineExceeded;
+    private final long elapsedNanos;
+
+    BuildOrderSearchResult(
+            BuildOrder best, long completionLoop, int evaluatedCandidates, int skippedCandidates,
+            boolean deadlineExceeded, long elapsedNanos) {
+        this.best = best;
+        this.completionLoop = completionLoop;
+        this.evaluatedCandidates = evaluatedCandidates;
+        this.skippedCandidates = skippedCandidates;
+        this.deadlineExceeded = deadlineExceeded;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the feasible candidate completed first (the earliest in the candidate list on ties), empty if no
+     * evaluated candidate is feasible.
+     */
+    public Optional<BuildOrder> getBest() {
+        return Optional.ofNullable(best);
+    }
+
+    /**
+     * @return game loop at which the best candidate is completed or {@link BuildOrderSimulator#INFEASIBLE}.
+     */
+    public long getCompletionLoop() {
+        return completionLoop;
+    }
+
+    public int getEvaluatedCandidates() {
+        return evaluatedCandidates;
+    }
+
+    /**
+     * @return number of candidates not evaluated because of the deadline.
+     */
+    public int getSkippedCandidates() {
+        return skippedCandidates;
+    }
+
+    public boolean isDeadlineExceeded() {
+        return deadlineExceeded;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BuildOrderSearchResult{" +
+                "best=" + best +
+                ", completionLoop=" + completionLoop +
+                ", evaluatedCandidates=" + evaluatedCandidates +
+                ", skippedCandidates=" + skippedCandidates +
+                ", deadlineExceeded=" + deadlineExceeded +
+                ", elapsedNanos=" + elapsedNanos +
+                '}';
+    }
+}
@@ -0,0 +1,446 @@
+package com.github.ocraft.s2client.bot.planning;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.data.UnitType;
+import com.github.ocraft.s2client.protocol.data.Units;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.isSet;
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Projects the economy forward in game loops while a build order is produced:
+ * <pre>{@code
+ * ProductionData data = ProductionData.compile(
+ *         observation().getUnitTypeData(false), observation().getUpgradeData(false));
+ * BuildOrderSimulator simulator = BuildOrderSimulator.builder(data).build();
+ *
+ * EconomyState now = EconomyState.of(data, observation()).setProductionSlots(3);
+ * BuildOrderSearchResult result = simulator.search(now, candidates, 5, TimeUnit.MILLISECONDS);
+ * }</pre>
+ * Items are started in the order of the build order, each as soon as its tech requirement is owned, there is supply
+ * for it, a production slot is free and the resources are collected. Resources are collected at the income of the
+ * state, every finished worker adds the income of one worker. Production slots are generic (any slot can produce any
+ * item), tech aliases and larva are not simulated.
+ * <p>
+ * The simulator is thread safe. Working arrays are kept per thread, a simulation does not allocate after the first
+ * ones of a thread.
+ */
+public final class BuildOrderSimulator {
+
+    /**
+     * Completion loop of a build order that can't be completed (missing tech, supply or income).
+     */
+    public static final long INFEASIBLE = -1L;
+
+    private static final float MAX_SUPPLY = 200.0f;
+    private static final float DEFAULT_WORKER_INCOME = 55.0f;
+    private static final int DEFAULT_SPLIT_THRESHOLD = 256;
+    private static final float EPSILON = 1e-3f;
+
+    private final ProductionData data;
+    private final boolean[] workers;
+    private final float workerRate;
+    private final ForkJoinPool pool;
+    private final int splitThreshold;
+    private final ThreadLocal<Run> runs;
+
+    public static final class Builder {
+        private final ProductionData data;
+        private UnitType[] workerTypes = {Units.TERRAN_SCV, Units.PROTOSS_PROBE, Units.ZERG_DRONE};
+        private float workerIncome = DEFAULT_WORKER_INCOME;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        private int splitThreshold = DEFAULT_SPLIT_THRESHOLD;
+
+        private Builder(ProductionData data) {
+            this.data = data;
+        }
+
+        /**
+         * @param workerTypes Unit types increasing the income when finished (SCV, probe and drone by default).
+         */
+        public Builder withWorkerTypes(UnitType... workerTypes) {
+            require("worker types", workerTypes);
+            this.workerTypes = workerTypes.clone();
+            return this;
+        }
+
+        /**
+         * @param workerIncome Minerals per game minute collected by one additional worker.
+         */
+        public Builder withWorkerIncome(float workerIncome) {
+            if (workerIncome < 0.0f) throw new IllegalArgumentException("worker income must not be negative");
+            this.workerIncome = workerIncome;
+            return this;
+        }
+
+        public Builder withPool(ForkJoinPool pool) {
+            require("pool", pool);
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * @param splitThreshold Maximum number of candidates evaluated by one task of a search.
+         */
+        public Builder withSplitThreshold(int splitThreshold) {
+            if (splitThreshold < 1) throw new IllegalArgumentException("split threshold must be greater than 0");
+            this.splitThreshold = splitThreshold;
+            return this;
+        }
+
+        public BuildOrderSimulator build() {
+            return new BuildOrderSimulator(this);
+        }
+    }
+
+    private BuildOrderSimulator(Builder builder) {
+        data = builder.data;
+        workers = new boolean[data.getItemCount()];
+        for (UnitType workerType : builder.workerTypes) {
+            int id = workerType.getUnitTypeId();
+            if (id >= 0 && id < workers.length && !data.isUpgrade(id)) workers[id] = true;
+        }
+        workerRate = builder.workerIncome / EconomyState.LOOPS_PER_MINUTE;
+        pool = builder.pool;
+        splitThreshold = builder.splitThreshold;
+        runs = ThreadLocal.withInitial(Run::new);
+    }
+
+    public static Builder builder(ProductionData data) {
+        require("production data", data);
+        return new Builder(data);
+    }
+
+    /**
+     * @return game loop at which the last item of the build order is finished or {@link #INFEASIBLE}.
+     */
+    public long simulate(EconomyState start, BuildOrder order) {
+        return simulate(start, order, null, null);
+    }
+
+    /**
+     * @param startLoops If not null, receives the game loop at which each item is started (at least
+     *                   {@code order.size()} elements).
+     * @param end        If not null, receives the projected state at the completion loop.
+     * @return game loop at which the last item of the build order is finished or {@link #INFEASIBLE}.
+     */
+    public long simulate(EconomyState start, BuildOrder order, long[] startLoops, EconomyState end) {
+        require("start state", start);
+        require("build order", order);
+        if (start.getData() != data) throw new IllegalArgumentException("state of other production data");
+        if (isSet(startLoops) && startLoops.length < order.size()) {
+            throw new IllegalArgumentException("start loops must have at least " + order.size() + " elements");
+        }
+        if (isSet(end) && end.getData() != data) throw new IllegalArgumentException("state of other production data");
+        return runs.get().simulate(start, order, startLoops, end);
+    }
+
+    /**
+     * Simulates the candidates on the fork/join pool and returns the one completed first. Blocks until all candidates
+     * are evaluated or the time budget is spent.
+     *
+     * @param timeBudget Time for the whole search, 0 for no limit.
+     */
+    public BuildOrderSearchResult search(
+            EconomyState start, List<BuildOrder> candidates, long timeBudget, TimeUnit unit) {
+        require("start state", start);
+        require("candidates", candidates);
+        require("time unit", unit);
+        if (start.getData() != data) throw new IllegalArgumentException("state of other production data");
+        if (timeBudget < 0) throw new IllegalArgumentException("time budget must be greater than or equal to 0");
+        long begin = System.nanoTime();
+        long budgetNanos = unit.toNanos(timeBudget);
+        if (candidates.isEmpty()) return new BuildOrderSearchResult(null, INFEASIBLE, 0, 0, false, 0L);
+
+        Queue<Partial> results = new ConcurrentLinkedQueue<>();
+        pool.invoke(new SearchCandidates(start, candidates, 0, candidates.size(), begin, budgetNanos, results));
+
+        int bestIndex = -1;
+        long bestLoop = INFEASIBLE;
+        int evaluated = 0;
+        for (Partial partial; isSet(partial = results.poll()); ) {
+            evaluated += partial.evaluated;
+            if (partial.bestIndex >= 0 && isBetter(partial.bestLoop, partial.bestIndex, bestLoop, bestIndex)) {
+                bestIndex = partial.bestIndex;
+                bestLoop = partial.bestLoop;
+            }
+        }
+        return new BuildOrderSearchResult(
+                bestIndex >= 0 ? candidates.get(bestIndex) : null,
+                bestLoop,
+                evaluated,
+                candidates.size() - evaluated,
+                evaluated < candidates.size(),
+                System.nanoTime() - begin);
+    }
+
+    private static boolean isBetter(long loop, int index, long bestLoop, int bestIndex) {
+        return bestIndex < 0 || loop < bestLoop || (loop == bestLoop && index < bestIndex);
+    }
+
+    private static final class Partial {
+        private final int bestIndex;
+        private final long bestLoop;
+        private final int evaluated;
+
+        private Partial(int bestIndex, long bestLoop, int evaluated) {
+            this.bestIndex = bestIndex;
+            this.bestLoop = bestLoop;
+            this.evaluated = evaluated;
+        }
+    }
+
+    private final class SearchCandidates extends RecursiveAction {
+        private final EconomyState start;
+        private final List<BuildOrder> candidates;
+        private final int from;
+        private final int to;
+        private final long begin;
+        private final long budgetNanos;
+        private final Queue<Partial> results;
+
+        private SearchCandidates(
+                EconomyState start, List<BuildOrder> candidates, int from, int to, long begin, long budgetNanos,
+                Queue<Partial> results) {
+            this.start = start;
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+            this.begin = begin;
+            this.budgetNanos = budgetNanos;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > splitThreshold) {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new SearchCandidates(start, candidates, from, middle, begin, budgetNanos, results),
+                        new SearchCandidates(start, candidates, middle, to, begin, budgetNanos, results));
+                return;
+            }
+            Run run = runs.get();
+            int bestIndex = -1;
+            long bestLoop = INFEASIBLE;
+            int evaluated = 0;
+            for (int i = from; i < to; i++) {
+                if (budgetNanos > 0 && System.nanoTime() - begin >= budgetNanos) break;
+                long loop = run.simulate(start, candidates.get(i), null, null);
+                evaluated++;
+                if (loop != INFEASIBLE && isBetter(loop, i, bestLoop, bestIndex)) {
+                    bestIndex = i;
+                    bestLoop = loop;
+                }
+            }
+            results.add(new Partial(bestIndex, bestLoop, evaluated));
+        }
+    }
+
+    // Working state of one simulation.
+    private final class Run {
+        private final int[] owned = new int[data.getItemCount()];
+        private long loop;
+        private float minerals;
+        private float vespene;
+        private float mineralRate;
+        private float vespeneRate;
+        private float foodUsed;
+        private float foodCap;
+        private long[] slots = new long[4];
+        private int slotCount;
+        private int[] eventItems = new int[32];
+        private long[] eventLoops = new long[32];
+        private boolean[] eventDone = new boolean[32];
+        private int eventCount;
+
+        private long simulate(EconomyState start, BuildOrder order, long[] startLoops, EconomyState end) {
+            reset(start);
+            long completion = loop;
+            for (int k = 0; k < order.size(); k++) {
+                int item = order.getItem(k);
+                if (!waitForTech(item) || !waitForSupply(item)) return INFEASIBLE;
+                int slot = freeSlot();
+                if (slots[slot] > loop) advanceTo(slots[slot]);
+                if (!waitForResources(data.getMineralCost(item), data.getVespeneCost(item))) return INFEASIBLE;
+                minerals -= data.getMineralCost(item);
+                vespene -= data.getVespeneCost(item);
+                foodUsed += data.getFoodRequired(item);
+                long finish = loop + data.getBuildLoops(item);
+                slots[slot] = finish;
+                addEvent(item, finish);
+                completion = Math.max(completion, finish);
+                if (isSet(startLoops)) startLoops[k] = loop;
+            }
+            if (isSet(end)) {
+                advanceTo(completion);
+                writeTo(end, start.getProductionSlots());
+            }
+            return completion;
+        }
+
+        private void reset(EconomyState start) {
+            System.arraycopy(start.owned(), 0, owned, 0, owned.length);
+            loop = start.getGameLoop();
+            minerals = start.getMinerals();
+            vespene = start.getVespene();
+            mineralRate = start.mineralRate();
+            vespeneRate = start.vespeneRate();
+            foodUsed = start.getFoodUsed();
+            foodCap = start.getFoodCap();
+            slotCount = start.getProductionSlots();
+            if (slots.length < slotCount) slots = new long[slotCount];
+            Arrays.fill(slots, 0, slotCount, loop);
+            eventCount = 0;
+            for (int i = 0; i < start.getPendingCount(); i++) addEvent(start.pendingItem(i), start.pendingLoop(i));
+        }
+
+        private boolean waitForTech(int item) {
+            int requirement = data.getTechRequirement(item);
+            if (requirement == ProductionData.NONE) return true;
+            while (owned[requirement] == 0) {
+                if (!advanceToNextEvent()) return false;
+            }
+            return true;
+        }
+
+        private boolean waitForSupply(int item) {
+            float food = data.getFoodRequired(item);
+            if (food <= 0.0f) return true;
+            while (foodUsed + food > Math.min(foodCap, MAX_SUPPLY)) {
+                if (foodUsed + food > MAX_SUPPLY || !advanceToNextEvent()) return false;
+            }
+            return true;
+        }
+
+        private int freeSlot() {
+            int free = 0;
+            for (int i = 1; i < slotCount; i++) {
+                if (slots[i] < slots[free]) free = i;
+            }
+            return free;
+        }
+
+        private boolean waitForResources(int mineralCost, int vespeneCost) {
+            while (true) {
+                float missingMinerals = mineralCost - minerals;
+                float missingVespene = vespeneCost - vespene;
+                if (missingMinerals <= EPSILON && missingVespene <= EPSILON) return true;
+                long wait = Math.max(loopsToCollect(missingMinerals, mineralRate),
+                        loopsToCollect(missingVespene, vespeneRate));
+                int next = nextEvent();
+                if (wait == Long.MAX_VALUE && next < 0) return false;
+                if (wait != Long.MAX_VALUE && (next < 0 || loop + wait <= eventLoops[next])) {
+                    advanceTo(loop + wait);
+                } else {
+                    advanceTo(Math.max(loop, eventLoops[next]));
+                }
+            }
+        }
+
+        private long loopsToCollect(float missing, float rate) {
+            if (missing <= EPSILON) return 0L;
+            if (rate <= 0.0f) return Long.MAX_VALUE;
+            return Math.max(1L, (long) Math.ceil(missing / rate));
+        }
+
+        private boolean advanceToNextEvent() {
+            int next = nextEvent();
+            if (next < 0) return false;
+            advanceTo(Math.max(loop, eventLoops[next]));
+            return true;
+        }
+
+        // Collects resources and finishes the events up to the game loop.
+        private void advanceTo(long target) {
+            for (int next = nextEvent(); next >= 0 && eventLoops[next] <= target; next = nextEvent()) {
+                collect(Math.max(loop, eventLoops[next]));
+                finish(next);
+            }
+            collect(target);
+        }
+
+        private void collect(long target) {
+            long loops = target - loop;
+            if (loops <= 0) return;
+            minerals += mineralRate * loops;
+            vespene += vespeneRate * loops;
+            loop = target;
+        }
+
+        private void finish(int event) {
+            eventDone[event] = true;
+            int item = eventItems[event];
+            if (data.isUpgrade(item)) {
+                owned[item] = 1;
+            } else {
+                owned[item]++;
+                foodCap += data.getFoodProvided(item);
+                if (workers[item]) mineralRate += workerRate;
+            }
+        }
+
+        private int nextEvent() {
+            int next = -1;
+            for (int i = 0; i < eventCount; i++) {
+                if (!eventDone[i] && (next < 0 || eventLoops[i] < eventLoops[next])) next = i;
+            }
+            return next;
+        }
+
+        private void addEvent(int item, long completionLoop) {
+            if (eventCount == eventItems.length) {
+                eventItems = Arrays.copyOf(eventItems, eventCount * 2);
+                eventLoops = Arrays.copyOf(eventLoops, eventCount * 2);
+                eventDone = Arrays.copyOf(eventDone, eventCount * 2);
+            }
+            eventItems[eventCount] = item;
+            eventLoops[eventCount] = completionLoop;
+            eventDone[eventCount] = false;
+            eventCount++;
+        }
+
+        private void writeTo(EconomyState end, int productionSlots) {
+            end.set(loop, minerals, vespene, mineralRate, vespeneRate, foodUsed, foodCap);
+            end.setProductionSlots(productionSlots);
+            System.arraycopy(owned, 0, end.owned(), 0, owned.length);
+            end.clearPending();
+            for (int i = 0; i < eventCount; i++) {
+                if (!eventDone[i]) end.addPending(eventItems[i], eventLoops[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.github.ocraft.s2client.bot.planning;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.data.Upgrade;
+import com.github.ocraft.s2client.protocol.score.ScoreDetails;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.util.Arrays;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Resources, income, supply, production slots and owned items of a player at a game loop: the starting point (and
+ * optionally the projected end) of a build order simulation. Mutable, not thread safe.
+ */
+public final class EconomyState {
+
+    static final float LOOPS_PER_MINUTE = 22.4f * 60.0f;
+
+    private final ProductionData data;
+    private long gameLoop;
+    private float minerals;
+    private float vespene;
+    private float mineralRate;
+    private float vespeneRate;
+    private float foodUsed;
+    private float foodCap;
+    private int productionSlots = 1;
+    private final int[] owned;
+    private int pendingCount;
+    private int[] pendingItems = new int[8];
+    private long[] pendingLoops = new long[8];
+
+    public EconomyState(ProductionData data) {
+        require("production data", data);
+        this.data = data;
+        owned = new int[data.getItemCount()];
+    }
+
+    /**
+     * Current state of the player: resources, supply, collection rates from the score, finished own units and
+     * upgrades; own units under construction are added as pending with the completion loop estimated from their build
+     * progress. Production slots are left at 1.
+     */
+    public static EconomyState of(ProductionData data, ObservationInterface observation) {
+        require("observation", observation);
+        EconomyState state = new EconomyState(data)
+                .setGameLoop(observation.getGameLoop())
+                .setMinerals(observation.getMinerals())
+                .setVespene(observation.getVespene())
+                .setSupply(observation.getFoodUsed(), observation.getFoodCap());
+        if (observation.getScore() != null) {
+            ScoreDetails details = observation.getScore().getDetails();
+            state.setIncomePerMinute(details.getCollectionRateMinerals(), details.getCollectionRateVespene());
+        }
+        for (UnitInPool unitInPool : observation.getUnits(Alliance.SELF)) {
+            Unit unit = unitInPool.unit();
+            int item = unit.getType().getUnitTypeId();
+            if (item < 0 || item >= data.getItemCount() || data.isUpgrade(item)) continue;
+            if (unit.getBuildProgress() >= 1.0f) {
+                state.owned[item]++;
+            } else {
+                long remaining = (long) Math.ceil((1.0f - unit.getBuildProgress()) * data.getBuildLoops(item));
+                state.addPending(item, state.gameLoop + remaining);
+            }
+        }
+        for (Upgrade upgrade : observation.getUpgrades()) {
+            int item = data.findItem(upgrade);
+            if (item != ProductionData.NONE) state.owned[item] = 1;
+        }
+        return state;
+    }
+
+    public EconomyState setGameLoop(long gameLoop) {
+        this.gameLoop = gameLoop;
+        return this;
+    }
+
+    public EconomyState setMinerals(float minerals) {
+        this.minerals = minerals;
+        return this;
+    }
+
+    public EconomyState setVespene(float vespene) {
+        this.vespene = vespene;
+        return this;
+    }
+
+    /**
+     * @param minerals Collected minerals per game minute (as in {@link ScoreDetails#getCollectionRateMinerals()}).
+     * @param vespene  Collected vespene per game minute.
+     */
+    public EconomyState setIncomePerMinute(float minerals, float vespene) {
+        this.mineralRate = minerals / LOOPS_PER_MINUTE;
+        this.vespeneRate = vespene / LOOPS_PER_MINUTE;
+        return this;
+    }
+
+    public EconomyState setSupply(float foodUsed, float foodCap) {
+        this.foodUsed = foodUsed;
+        this.foodCap = foodCap;
+        return this;
+    }
+
+    /**
+     * @param productionSlots Number of items that can be produced at the same time.
+     */
+    public EconomyState setProductionSlots(int productionSlots) {
+        if (productionSlots < 1) throw new IllegalArgumentException("production slots must be greater than 0");
+        this.productionSlots = productionSlots;
+        return this;
+    }
+
+    public EconomyState addOwned(int item, int count) {
+        owned[item] += count;
+        return this;
+    }
+
+    /**
+     * Adds an item in production, it is owned (and its supply provided) from the completion loop.
+     */
+    public EconomyState addPending(int item, long completionLoop) {
+        if (pendingCount == pendingItems.length) {
+            pendingItems = Arrays.copyOf(pendingItems, pendingCount * 2);
+            pendingLoops = Arrays.copyOf(pendingLoops, pendingCount * 2);
+        }
+        pendingItems[pendingCount] = item;
+        pendingLoops[pendingCount] = completionLoop;
+        pendingCount++;
+        return this;
+    }
+
+    /**
+     * Copies the other state into this one, reusing the arrays.
+     */
+    public EconomyState copyFrom(EconomyState other) {
+        require("state", other);
+        if (other.data != data) throw new IllegalArgumentException("state of other production data");
+        gameLoop = other.gameLoop;
+        minerals = other.minerals;
+        vespene = other.vespene;
+        mineralRate = other.mineralRate;
+        vespeneRate = other.vespeneRate;
+        foodUsed = other.foodUsed;
+        foodCap = other.foodCap;
+        productionSlots = other.productionSlots;
+        System.arraycopy(other.owned, 0, owned, 0, owned.length);
+        pendingCount = 0;
+        for (int i = 0; i < other.pendingCount; i++) addPending(other.pendingItems[i], other.pendingLoops[i]);
+        return this;
+    }
+
+    public ProductionData getData() {
+        return data;
+    }
+
+    public long getGameLoop() {
+        return gameLoop;
+    }
+
+    public float getMinerals() {
+        return minerals;
+    }
+
+    public float getVespene() {
+        return vespene;
+    }
+
+    /**
+     * @return minerals collected per game minute.
+     */
+    public float getMineralIncome() {
+        return mineralRate * LOOPS_PER_MINUTE;
+    }
+
+    /**
+     * @return vespene collected per game minute.
+     */
+    public float getVespeneIncome() {
+        return vespeneRate * LOOPS_PER_MINUTE;
+    }
+
+    public float getFoodUsed() {
+        return foodUsed;
+    }
+
+    public float getFoodCap() {
+        return foodCap;
+    }
+
+    public int getProductionSlots() {
+        return productionSlots;
+    }
+
+    public int getOwned(int item) {
+        return owned[item];
+    }
+
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    // Accessors of the simulation, which works on the fields directly.
+
+    float mineralRate() {
+        return mineralRate;
+    }
+
+    float vespeneRate() {
+        return vespeneRate;
+    }
+
+    int[] owned() {
+        return owned;
+    }
+
+    int pendingItem(int index) {
+        return pendingItems[index];
+    }
+
+    long pendingLoop(int index) {
+        return pendingLoops[index];
+    }
+
+    void set(long gameLoop, float minerals, float vespene, float mineralRate, float vespeneRate, float foodUsed,
+             float foodCap) {
+        this.gameLoop = gameLoop;
+        this.minerals = minerals;
+        this.vespene = vespene;
+        this.mineralRate = mineralRate;
+        this.vespeneRate = vespeneRate;
+        this.foodUsed = foodUsed;
+        this.foodCap = foodCap;
+    }
+
+    void clearPending() {
+        pendingCount = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "EconomyState{" +
+                "gameLoop=" + gameLoop +
+                ", minerals=" + minerals +
+                ", vespene=" + vespene +
+                ", mineralIncome=" + getMineralIncome() +
+                ", vespeneIncome=" + getVespeneIncome() +
+                ", foodUsed=" + foodUsed +
+                ", foodCap=" + foodCap +
+                ", productionSlots=" + productionSlots +
+                ", pendingCount=" + pendingCount +
+                '}';
+    }
+}
@@ -0,0 +1,176 @@
+package com.github.ocraft.s2client.bot.planning;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.data.Upgrade;
+import com.github.ocraft.s2client.protocol.data.UpgradeData;
+import com.github.ocraft.s2client.protocol.data.UnitType;
+import com.github.ocraft.s2client.protocol.data.UnitTypeData;
+
+import java.util.Collection;
+import java.util.Map;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Cost, build time, supply and tech requirement of unit types and upgrades compiled into flat arrays, for the build
+ * order simulation. Unit types and upgrades share one item index space: unit type ids first, then upgrade ids. Compile
+ * once per game. Immutable, safe to share between threads.
+ */
+public final class ProductionData {
+
+    static final int NONE = -1;
+
+    private final int upgradeOffset;
+    private final int itemCount;
+    private final boolean[] known;
+    private final int[] minerals;
+    private final int[] vespene;
+    private final int[] buildLoops;
+    private final float[] food;
+    private final float[] foodProvided;
+    private final int[] techRequirement;
+
+    private ProductionData(Collection<UnitTypeData> unitTypes, Collection<UpgradeData> upgrades) {
+        int maxUnitId = -1;
+        for (UnitTypeData unitType : unitTypes) maxUnitId = Math.max(maxUnitId, unitType.getUnitType().getUnitTypeId());
+        int maxUpgradeId = -1;
+        for (UpgradeData upgrade : upgrades) maxUpgradeId = Math.max(maxUpgradeId, upgrade.getUpgrade().getUpgradeId());
+        int unitCount = maxUnitId + 1;
+        upgradeOffset = unitCount;
+        itemCount = upgradeOffset + maxUpgradeId + 1;
+        known = new boolean[itemCount];
+        minerals = new int[itemCount];
+        vespene = new int[itemCount];
+        buildLoops = new int[itemCount];
+        food = new float[itemCount];
+        foodProvided = new float[itemCount];
+        techRequirement = new int[itemCount];
+
+        for (UnitTypeData unitType : unitTypes) {
+            int item = unitType.getUnitType().getUnitTypeId();
+            known[item] = true;
+            minerals[item] = unitType.getMineralCost().orElse(0);
+            vespene[item] = unitType.getVespeneCost().orElse(0);
+            buildLoops[item] = (int) Math.ceil(unitType.getBuildTime().orElse(0.0f));
+            food[item] = unitType.getFoodRequired().orElse(0.0f);
+            foodProvided[item] = unitType.getFoodProvided().orElse(0.0f);
+            techRequirement[item] = unitType.getTechRequirement()
+                    .map(UnitType::getUnitTypeId)
+                    .filter(id -> id < unitCount)
+                    .orElse(NONE);
+        }
+        for (UpgradeData upgrade : upgrades) {
+            int item = upgradeOffset + upgrade.getUpgrade().getUpgradeId();
+            known[item] = true;
+            minerals[item] = upgrade.getMineralCost().orElse(0);
+            vespene[item] = upgrade.getVespeneCost().orElse(0);
+            buildLoops[item] = (int) Math.ceil(upgrade.getResearchTime().orElse(0.0f));
+            techRequirement[item] = NONE;
+        }
+    }
+
+    public static ProductionData compile(Collection<UnitTypeData> unitTypes, Collection<UpgradeData> upgrades) {
+        require("unit types", unitTypes);
+        require("upgrades", upgrades);
+        return new ProductionData(unitTypes, upgrades);
+    }
+
+    public static ProductionData compile(
+            Map<UnitType, UnitTypeData> unitTypeData, Map<Upgrade, UpgradeData> upgradeData) {
+        require("unit type data", unitTypeData);
+        require("upgrade data", upgradeData);
+        return new ProductionData(unitTypeData.values(), upgradeData.values());
+    }
+
+    /**
+     * @return item index of the unit type.
+     * @throws IllegalArgumentException if the unit type is not in the compiled data.
+     */
+    public int itemOf(UnitType unitType) {
+        require("unit type", unitType);
+        int item = unitType.getUnitTypeId();
+        if (item < 0 || item >= upgradeOffset || !known[item]) {
+            throw new IllegalArgumentException("unknown unit type: " + unitType);
+        }
+        return item;
+    }
+
+    /**
+     * @return item index of the upgrade.
+     * @throws IllegalArgumentException if the upgrade is not in the compiled data.
+     */
+    public int itemOf(Upgrade upgrade) {
+        require("upgrade", upgrade);
+        int item = findItem(upgrade);
+        if (item == NONE) throw new IllegalArgumentException("unknown upgrade: " + upgrade);
+        return item;
+    }
+
+    int findItem(Upgrade upgrade) {
+        int item = upgradeOffset + upgrade.getUpgradeId();
+        return upgrade.getUpgradeId() >= 0 && item < itemCount && known[item] ? item : NONE;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public boolean isUpgrade(int item) {
+        return item >= upgradeOffset;
+    }
+
+    public int getMineralCost(int item) {
+        return minerals[item];
+    }
+
+    public int getVespeneCost(int item) {
+        return vespene[item];
+    }
+
+    /**
+     * @return build or research time in game loops.
+     */
+    public int getBuildLoops(int item) {
+        return buildLoops[item];
+    }
+
+    public float getFoodRequired(int item) {
+        return food[item];
+    }
+
+    public float getFoodProvided(int item) {
+        return foodProvided[item];
+    }
+
+    /**
+     * @return item index of the structure required to build the item or -1 if there is none.
+     */
+    public int getTechRequirement(int item) {
+        return techRequirement[item];
+    }
+}
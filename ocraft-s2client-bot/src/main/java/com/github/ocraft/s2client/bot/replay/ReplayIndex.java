@@ -0,0 +1,185 @@
+package com.github.ocraft.s2client.bot.replay;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Local index of replay metadata, one {@link ReplayIndexEntry} per replay file keyed by its absolute path. The entry of
+ * a file is current as long as the size and modification time of the file do not change, so rescanning a corpus
+ * only requests info of new or modified replays (see {@link ReplayScanner}). The index is persisted in a single
+ * binary file, it is safe to update the index from many threads.
+ */
+public final class ReplayIndex {
+
+    static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x4F435249;
+
+    private static final Logger log = LoggerFactory.getLogger(ReplayIndex.class);
+
+    private final Map<Path, ReplayIndexEntry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Loads the index from given file. A missing or unreadable file gives an empty index, so the replays are scanned
+     * again.
+     */
+    public static ReplayIndex load(Path file) {
+        require("index file", file);
+        ReplayIndex index = new ReplayIndex();
+        if (!Files.isRegularFile(file)) return index;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            index.readFrom(in);
+        } catch (IOException e) {
+            log.warn("Cannot read replay index from {}: {}", file, e.getMessage());
+            index.clear();
+        }
+        return index;
+    }
+
+    /**
+     * Writes the index to given file (replaced atomically if it exists).
+     */
+    public void save(Path file) throws IOException {
+        require("index file", file);
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                writeTo(out);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public void put(ReplayIndexEntry entry) {
+        require("index entry", entry);
+        entries.put(entry.getPath(), entry);
+    }
+
+    public Optional<ReplayIndexEntry> get(Path replay) {
+        require("replay path", replay);
+        return Optional.ofNullable(entries.get(replay.toAbsolutePath()));
+    }
+
+    /**
+     * @return the entry of the replay if the file was not modified since it was indexed.
+     */
+    public Optional<ReplayIndexEntry> getCurrent(Path replay) {
+        return get(replay).filter(entry -> {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(replay, BasicFileAttributes.class);
+                return entry.isCurrent(attributes.size(), attributes.lastModifiedTime().toMillis());
+            } catch (IOException e) {
+                return false;
+            }
+        });
+    }
+
+    public void remove(Path replay) {
+        require("replay path", replay);
+        entries.remove(replay.toAbsolutePath());
+    }
+
+    /**
+     * Removes entries of files that no longer exist.
+     *
+     * @return the number of removed entries.
+     */
+    public int removeMissing() {
+        List<Path> missing = entries.keySet().stream()
+                .filter(path -> !Files.isRegularFile(path))
+                .collect(Collectors.toList());
+        missing.forEach(entries::remove);
+        return missing.size();
+    }
+
+    public Collection<ReplayIndexEntry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * @return sorted paths of indexed replays accepted by the filter.
+     */
+    public List<Path> select(Predicate<ReplayIndexEntry> filter) {
+        require("filter", filter);
+        return entries.values().stream()
+                .filter(filter)
+                .map(ReplayIndexEntry::getPath)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        List<ReplayIndexEntry> snapshot = new ArrayList<>(entries.values());
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(snapshot.size());
+        for (ReplayIndexEntry entry : snapshot) entry.writeTo(out);
+    }
+
+    void readFrom(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) throw new IOException("not a replay index");
+        int formatVersion = in.readInt();
+        if (formatVersion != FORMAT_VERSION) throw new IOException("unsupported format version: " + formatVersion);
+        int count = in.readInt();
+        if (count < 0) throw new IOException("corrupted replay index");
+        for (int i = 0; i < count; i++) put(ReplayIndexEntry.readFrom(in));
+    }
+}
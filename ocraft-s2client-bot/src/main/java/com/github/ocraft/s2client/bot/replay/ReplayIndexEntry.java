@@ -0,0 +1,356 @@
+package com.github.ocraft.s2client.bot.replay;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.game.BattlenetMap;
+import com.github.ocraft.s2client.protocol.game.LocalMap;
+import com.github.ocraft.s2client.protocol.game.PlayerInfo;
+import com.github.ocraft.s2client.protocol.game.PlayerInfoExtra;
+import com.github.ocraft.s2client.protocol.game.Race;
+import com.github.ocraft.s2client.protocol.game.ReplayInfo;
+import com.github.ocraft.s2client.protocol.observation.Result;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Metadata of one replay file in the {@link ReplayIndex}. The entry is keyed by the absolute path of the file and
+ * remembers its size and modification time, so a changed file is detected without reading it.
+ */
+public final class ReplayIndexEntry {
+
+    private static final int NO_MMR = Integer.MIN_VALUE;
+
+    private final Path path;
+    private final long size;
+    private final long lastModified;
+    private final String mapName;
+    private final String gameVersion;
+    private final String dataVersion;
+    private final int baseBuild;
+    private final int dataBuild;
+    private final int gameDurationLoops;
+    private final float gameDurationSeconds;
+    private final List<Player> players;
+
+    /**
+     * Replay participant.
+     */
+    public static final class Player {
+        private final int playerId;
+        private final Race race;
+        private final Result result;
+        private final int mmr;
+        private final int apm;
+
+        Player(int playerId, Race race, Result result, int mmr, int apm) {
+            this.playerId = playerId;
+            this.race = race;
+            this.result = result;
+            this.mmr = mmr;
+            this.apm = apm;
+        }
+
+        static Player of(PlayerInfoExtra playerInfoExtra) {
+            PlayerInfo playerInfo = playerInfoExtra.getPlayerInfo();
+            return new Player(
+                    playerInfo.getPlayerId(),
+                    playerInfo.getActualRace().orElse(playerInfo.getRequestedRace()),
+                    playerInfoExtra.getPlayerResult().getResult(),
+                    playerInfoExtra.getPlayerMatchMakingRating().orElse(NO_MMR),
+                    playerInfoExtra.getPlayerActionPerMinute());
+        }
+
+        public int getPlayerId() {
+            return playerId;
+        }
+
+        /**
+         * @return the actual race of the player (the requested one if the actual is unknown).
+         */
+        public Race getRace() {
+            return race;
+        }
+
+        public Result getResult() {
+            return result;
+        }
+
+        public OptionalInt getMmr() {
+            return mmr == NO_MMR ? OptionalInt.empty() : OptionalInt.of(mmr);
+        }
+
+        public int getApm() {
+            return apm;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Player player = (Player) o;
+
+            return playerId == player.playerId && mmr == player.mmr && apm == player.apm &&
+                    race == player.race && result == player.result;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(playerId, race, result, mmr, apm);
+        }
+
+        @Override
+        public String toString() {
+            return "Player{" +
+                    "playerId=" + playerId +
+                    ", race=" + race +
+                    ", result=" + result +
+                    ", mmr=" + getMmr() +
+                    ", apm=" + apm +
+                    '}';
+        }
+    }
+
+    private ReplayIndexEntry(
+            Path path, long size, long lastModified, String mapName, String gameVersion, String dataVersion,
+            int baseBuild, int dataBuild, int gameDurationLoops, float gameDurationSeconds, List<Player> players) {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.mapName = mapName;
+        this.gameVersion = gameVersion;
+        this.dataVersion = dataVersion;
+        this.baseBuild = baseBuild;
+        this.dataBuild = dataBuild;
+        this.gameDurationLoops = gameDurationLoops;
+        this.gameDurationSeconds = gameDurationSeconds;
+        this.players = Collections.unmodifiableList(players);
+    }
+
+    public static ReplayIndexEntry of(Path path, long size, long lastModified, ReplayInfo replayInfo) {
+        require("replay path", path);
+        require("replay info", replayInfo);
+        List<Player> players = new ArrayList<>();
+        replayInfo.getPlayerInfo().forEach(playerInfoExtra -> players.add(Player.of(playerInfoExtra)));
+        players.sort(Comparator.comparingInt(Player::getPlayerId));
+        return new ReplayIndexEntry(
+                path.toAbsolutePath(),
+                size,
+                lastModified,
+                mapNameOf(replayInfo),
+                replayInfo.getGameVersion(),
+                replayInfo.getDataVersion(),
+                replayInfo.getBaseBuild(),
+                replayInfo.getDataBuild(),
+                replayInfo.getGameDurationLoops(),
+                replayInfo.getGameDurationSeconds(),
+                players);
+    }
+
+    private static String mapNameOf(ReplayInfo replayInfo) {
+        Optional<String> battlenetName = replayInfo.getBattlenetMap().map(BattlenetMap::getName);
+        return battlenetName.orElseGet(() -> replayInfo.getLocalMap()
+                .flatMap(LocalMap::getPath)
+                .map(mapPath -> mapPath.getFileName().toString())
+                .orElse(""));
+    }
+
+    /**
+     * @return true if the entry describes the file with given size and modification time.
+     */
+    public boolean isCurrent(long size, long lastModified) {
+        return this.size == size && this.lastModified == lastModified;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return name of the Battle.net map or the file name of the local map.
+     */
+    public String getMapName() {
+        return mapName;
+    }
+
+    public String getGameVersion() {
+        return gameVersion;
+    }
+
+    public String getDataVersion() {
+        return dataVersion;
+    }
+
+    public int getBaseBuild() {
+        return baseBuild;
+    }
+
+    public int getDataBuild() {
+        return dataBuild;
+    }
+
+    public int getGameDurationLoops() {
+        return gameDurationLoops;
+    }
+
+    public float getGameDurationSeconds() {
+        return gameDurationSeconds;
+    }
+
+    /**
+     * @return players ordered by id.
+     */
+    public List<Player> getPlayers() {
+        return players;
+    }
+
+    public Optional<Player> getPlayer(int playerId) {
+        return players.stream().filter(player -> player.getPlayerId() == playerId).findFirst();
+    }
+
+    public boolean hasRace(Race race) {
+        return players.stream().anyMatch(player -> player.getRace() == race);
+    }
+
+    /**
+     * @return the lowest mmr of the players, empty if mmr of any player is unknown.
+     */
+    public OptionalInt getMinMmr() {
+        int min = Integer.MAX_VALUE;
+        for (Player player : players) {
+            if (player.mmr == NO_MMR) return OptionalInt.empty();
+            min = Math.min(min, player.mmr);
+        }
+        return players.isEmpty() ? OptionalInt.empty() : OptionalInt.of(min);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(path.toString());
+        out.writeLong(size);
+        out.writeLong(lastModified);
+        out.writeUTF(mapName);
+        out.writeUTF(gameVersion);
+        out.writeUTF(dataVersion);
+        out.writeInt(baseBuild);
+        out.writeInt(dataBuild);
+        out.writeInt(gameDurationLoops);
+        out.writeFloat(gameDurationSeconds);
+        out.writeInt(players.size());
+        for (Player player : players) {
+            out.writeInt(player.playerId);
+            out.writeUTF(player.race.name());
+            out.writeUTF(player.result.name());
+            out.writeInt(player.mmr);
+            out.writeInt(player.apm);
+        }
+    }
+
+    static ReplayIndexEntry readFrom(DataInput in) throws IOException {
+        Path path = Paths.get(in.readUTF());
+        long size = in.readLong();
+        long lastModified = in.readLong();
+        String mapName = in.readUTF();
+        String gameVersion = in.readUTF();
+        String dataVersion = in.readUTF();
+        int baseBuild = in.readInt();
+        int dataBuild = in.readInt();
+        int gameDurationLoops = in.readInt();
+        float gameDurationSeconds = in.readFloat();
+        int playerCount = in.readInt();
+        if (playerCount < 0) throw new IOException("corrupted replay index entry");
+        List<Player> players = new ArrayList<>(playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            try {
+                players.add(new Player(
+                        in.readInt(), Race.valueOf(in.readUTF()), Result.valueOf(in.readUTF()),
+                        in.readInt(), in.readInt()));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("corrupted replay index entry", e);
+            }
+        }
+        return new ReplayIndexEntry(path, size, lastModified, mapName, gameVersion, dataVersion,
+                baseBuild, dataBuild, gameDurationLoops, gameDurationSeconds, players);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ReplayIndexEntry that = (ReplayIndexEntry) o;
+
+        return size == that.size &&
+                lastModified == that.lastModified &&
+                baseBuild == that.baseBuild &&
+                dataBuild == that.dataBuild &&
+                gameDurationLoops == that.gameDurationLoops &&
+                Float.compare(that.gameDurationSeconds, gameDurationSeconds) == 0 &&
+                path.equals(that.path) &&
+                mapName.equals(that.mapName) &&
+                gameVersion.equals(that.gameVersion) &&
+                dataVersion.equals(that.dataVersion) &&
+                players.equals(that.players);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(path, size, lastModified, mapName, gameVersion, dataVersion, baseBuild, dataBuild,
+                gameDurationLoops, gameDurationSeconds, players);
+    }
+
+    @Override
+    public String toString() {
+        return "ReplayIndexEntry{" +
+                "path=" + path +
+                ", mapName='" + mapName + '\'' +
+                ", baseBuild=" + baseBuild +
+                ", gameDurationLoops=" + gameDurationLoops +
+                ", players=" + players +
+                '}';
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.ocraft.s2client.bot.replay;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summary of one {@link ReplayScanner#scan} run.
+ */
+public final class ReplayScanResult {
+
+    private final int indexed;
+    private final int unchanged;
+    private final List<Path> failed;
+
+    ReplayScanResult(int indexed, int unchanged, List<Path> failed) {
+        this.indexed = indexed;
+        this.unchanged = unchanged;
+        this.failed = Collections.unmodifiableList(failed);
+    }
+
+    /**
+     * @return the number of new or modified replays put into the index.
+     */
+    public int getIndexed() {
+        return indexed;
+    }
+
+    /**
+     * @return the number of replays that were already indexed and not requested again.
+     */
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * @return replays which info could not be gathered.
+     */
+    public List<Path> getFailed() {
+        return failed;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplayScanResult{" +
+                "indexed=" + indexed +
+                ", unchanged=" + unchanged +
+                ", failed=" + failed.size() +
+                '}';
+    }
+}
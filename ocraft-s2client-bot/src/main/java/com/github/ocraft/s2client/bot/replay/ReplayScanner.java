@@ -0,0 +1,138 @@
+package com.github.ocraft.s2client.bot.replay;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.S2ReplayObserver;
+import com.github.ocraft.s2client.bot.gateway.ReplayControlInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Fills a {@link ReplayIndex} with the replay info of given replay files. Every connected game instance (a
+ * {@link ReplayControlInterface}, e.g. of a {@link S2ReplayObserver} that is not in game) gets its own thread and
+ * takes replays from a shared queue, so the requests run concurrently with as many instances as available while
+ * each instance handles one request at a time. Replays already in the index with the same size and modification time
+ * are not requested again.
+ */
+public final class ReplayScanner {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplayScanner.class);
+
+    private final List<ReplayControlInterface> instances;
+
+    public ReplayScanner(Collection<? extends ReplayControlInterface> instances) {
+        require("game instances", instances);
+        if (instances.isEmpty()) throw new IllegalArgumentException("at least one game instance is required");
+        this.instances = new ArrayList<>(instances);
+    }
+
+    /**
+     * Requests info of new or modified replays and puts it into the index. Blocks until all replays are processed.
+     *
+     * @return summary of the scan, replays that could not be read are reported as failed and are not indexed.
+     */
+    public ReplayScanResult scan(ReplayIndex index, Collection<Path> replays) {
+        require("replay index", index);
+        require("replays", replays);
+
+        Queue<Path> pending = new ConcurrentLinkedQueue<>();
+        int unchanged = 0;
+        for (Path replay : replays) {
+            if (index.getCurrent(replay).isPresent()) {
+                unchanged++;
+            } else {
+                pending.add(replay);
+            }
+        }
+        if (pending.isEmpty()) return new ReplayScanResult(0, unchanged, new ArrayList<>());
+
+        AtomicInteger indexed = new AtomicInteger();
+        Queue<Path> failed = new ConcurrentLinkedQueue<>();
+        int threads = Math.min(instances.size(), pending.size());
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ocraft-replay-scanner-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                ReplayControlInterface instance = instances.get(i);
+                workers.add(executor.submit(() -> {
+                    Path replay;
+                    while ((replay = pending.poll()) != null) {
+                        if (scan(instance, index, replay)) {
+                            indexed.incrementAndGet();
+                        } else {
+                            failed.add(replay);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) worker.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("replay scan interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("replay scan failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return new ReplayScanResult(indexed.get(), unchanged, new ArrayList<>(failed));
+    }
+
+    private static boolean scan(ReplayControlInterface instance, ReplayIndex index, Path replay) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(replay, BasicFileAttributes.class);
+            if (!instance.gatherReplayInfo(replay.toAbsolutePath(), false)) return false;
+            index.put(ReplayIndexEntry.of(
+                    replay, attributes.size(), attributes.lastModifiedTime().toMillis(), instance.getReplayInfo()));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cannot index replay {}: {}", replay, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.github.ocraft.s2client.bot.score;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.protocol.score.Score;
+
+import java.util.Locale;
+
+/**
+ * Column of a {@link ScoreRecorder}: one value of the {@link Score} (with flattened {@link
+ * com.github.ocraft.s2client.protocol.score.CategoryScoreDetails} and {@link
+ * com.github.ocraft.s2client.protocol.score.VitalScoreDetails}) or one economy counter of the observation, recorded
+ * every step.
+ */
+public enum ScoreColumn {
+    SCORE(Kind.CURRENT, (score, observation) -> score.getScore()),
+    IDLE_PRODUCTION_TIME(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getIdleProductionTime()),
+    IDLE_WORKER_TIME(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getIdleWorkerTime()),
+    TOTAL_VALUE_UNITS(Kind.CURRENT, (score, observation) -> score.getDetails().getTotalValueUnits()),
+    TOTAL_VALUE_STRUCTURES(Kind.CURRENT, (score, observation) -> score.getDetails().getTotalValueStructures()),
+    KILLED_VALUE_UNITS(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getKilledValueUnits()),
+    KILLED_VALUE_STRUCTURES(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getKilledValueStructures()),
+    COLLECTED_MINERALS(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getCollectedMinerals()),
+    COLLECTED_VESPENE(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getCollectedVespene()),
+    COLLECTION_RATE_MINERALS(Kind.CURRENT, (score, observation) -> score.getDetails().getCollectionRateMinerals()),
+    COLLECTION_RATE_VESPENE(Kind.CURRENT, (score, observation) -> score.getDetails().getCollectionRateVespene()),
+    SPENT_MINERALS(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getSpentMinerals()),
+    SPENT_VESPENE(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getSpentVespene()),
+    FOOD_USED_NONE(Kind.CURRENT, (score, observation) -> score.getDetails().getFoodUsed().getNone()),
+    FOOD_USED_ARMY(Kind.CURRENT, (score, observation) -> score.getDetails().getFoodUsed().getArmy()),
+    FOOD_USED_ECONOMY(Kind.CURRENT, (score, observation) -> score.getDetails().getFoodUsed().getEconomy()),
+    FOOD_USED_TECHNOLOGY(Kind.CURRENT, (score, observation) -> score.getDetails().getFoodUsed().getTechnology()),
+    FOOD_USED_UPGRADE(Kind.CURRENT, (score, observation) -> score.getDetails().getFoodUsed().getUpgrade()),
+    KILLED_MINERALS_NONE(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getKilledMinerals().getNone()),
+    KILLED_MINERALS_ARMY(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getKilledMinerals().getArmy()),
+    KILLED_MINERALS_ECONOMY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getKilledMinerals().getEconomy()),
+    KILLED_MINERALS_TECHNOLOGY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getKilledMinerals().getTechnology()),
+    KILLED_MINERALS_UPGRADE(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getKilledMinerals().getUpgrade()),
+    KILLED_VESPENE_NONE(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getKilledVespene().getNone()),
+    KILLED_VESPENE_ARMY(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getKilledVespene().getArmy()),
+    KILLED_VESPENE_ECONOMY(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getKilledVespene().getEconomy()),
+    KILLED_VESPENE_TECHNOLOGY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getKilledVespene().getTechnology()),
+    KILLED_VESPENE_UPGRADE(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getKilledVespene().getUpgrade()),
+    LOST_MINERALS_NONE(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getLostMinerals().getNone()),
+    LOST_MINERALS_ARMY(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getLostMinerals().getArmy()),
+    LOST_MINERALS_ECONOMY(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getLostMinerals().getEconomy()),
+    LOST_MINERALS_TECHNOLOGY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getLostMinerals().getTechnology()),
+    LOST_MINERALS_UPGRADE(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getLostMinerals().getUpgrade()),
+    LOST_VESPENE_NONE(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getLostVespene().getNone()),
+    LOST_VESPENE_ARMY(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getLostVespene().getArmy()),
+    LOST_VESPENE_ECONOMY(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getLostVespene().getEconomy()),
+    LOST_VESPENE_TECHNOLOGY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getLostVespene().getTechnology()),
+    LOST_VESPENE_UPGRADE(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getLostVespene().getUpgrade()),
+    FRIENDLY_FIRE_MINERALS_NONE(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getFriendlyFireMinerals().getNone()),
+    FRIENDLY_FIRE_MINERALS_ARMY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getFriendlyFireMinerals().getArmy()),
+    FRIENDLY_FIRE_MINERALS_ECONOMY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getFriendlyFireMinerals().getEconomy()),
+    FRIENDLY_FIRE_MINERALS_TECHNOLOGY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getFriendlyFireMinerals().getTechnology()),
+    FRIENDLY_FIRE_MINERALS_UPGRADE(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getFriendlyFireMinerals().getUpgrade()),
+    FRIENDLY_FIRE_VESPENE_NONE(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getFriendlyFireVespene().getNone()),
+    FRIENDLY_FIRE_VESPENE_ARMY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getFriendlyFireVespene().getArmy()),
+    FRIENDLY_FIRE_VESPENE_ECONOMY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getFriendlyFireVespene().getEconomy()),
+    FRIENDLY_FIRE_VESPENE_TECHNOLOGY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getFriendlyFireVespene().getTechnology()),
+    FRIENDLY_FIRE_VESPENE_UPGRADE(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getFriendlyFireVespene().getUpgrade()),
+    USED_MINERALS_NONE(Kind.CURRENT, (score, observation) -> score.getDetails().getUsedMinerals().getNone()),
+    USED_MINERALS_ARMY(Kind.CURRENT, (score, observation) -> score.getDetails().getUsedMinerals().getArmy()),
+    USED_MINERALS_ECONOMY(Kind.CURRENT, (score, observation) -> score.getDetails().getUsedMinerals().getEconomy()),
+    USED_MINERALS_TECHNOLOGY(Kind.CURRENT,
+            (score, observation) -> score.getDetails().getUsedMinerals().getTechnology()),
+    USED_MINERALS_UPGRADE(Kind.CURRENT, (score, observation) -> score.getDetails().getUsedMinerals().getUpgrade()),
+    USED_VESPENE_NONE(Kind.CURRENT, (score, observation) -> score.getDetails().getUsedVespene().getNone()),
+    USED_VESPENE_ARMY(Kind.CURRENT, (score, observation) -> score.getDetails().getUsedVespene().getArmy()),
+    USED_VESPENE_ECONOMY(Kind.CURRENT, (score, observation) -> score.getDetails().getUsedVespene().getEconomy()),
+    USED_VESPENE_TECHNOLOGY(Kind.CURRENT, (score, observation) -> score.getDetails().getUsedVespene().getTechnology()),
+    USED_VESPENE_UPGRADE(Kind.CURRENT, (score, observation) -> score.getDetails().getUsedVespene().getUpgrade()),
+    TOTAL_USED_MINERALS_NONE(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getTotalUsedMinerals().getNone()),
+    TOTAL_USED_MINERALS_ARMY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getTotalUsedMinerals().getArmy()),
+    TOTAL_USED_MINERALS_ECONOMY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getTotalUsedMinerals().getEconomy()),
+    TOTAL_USED_MINERALS_TECHNOLOGY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getTotalUsedMinerals().getTechnology()),
+    TOTAL_USED_MINERALS_UPGRADE(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getTotalUsedMinerals().getUpgrade()),
+    TOTAL_USED_VESPENE_NONE(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getTotalUsedVespene().getNone()),
+    TOTAL_USED_VESPENE_ARMY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getTotalUsedVespene().getArmy()),
+    TOTAL_USED_VESPENE_ECONOMY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getTotalUsedVespene().getEconomy()),
+    TOTAL_USED_VESPENE_TECHNOLOGY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getTotalUsedVespene().getTechnology()),
+    TOTAL_USED_VESPENE_UPGRADE(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getTotalUsedVespene().getUpgrade()),
+    TOTAL_DAMAGE_DEALT_LIFE(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getTotalDamageDealt().getLife()),
+    TOTAL_DAMAGE_DEALT_SHIELDS(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getTotalDamageDealt().getShields()),
+    TOTAL_DAMAGE_DEALT_ENERGY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getTotalDamageDealt().getEnergy()),
+    TOTAL_DAMAGE_TAKEN_LIFE(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getTotalDamageTaken().getLife()),
+    TOTAL_DAMAGE_TAKEN_SHIELDS(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getTotalDamageTaken().getShields()),
+    TOTAL_DAMAGE_TAKEN_ENERGY(Kind.CUMULATIVE,
+            (score, observation) -> score.getDetails().getTotalDamageTaken().getEnergy()),
+    TOTAL_HEALED_LIFE(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getTotalHealed().getLife()),
+    TOTAL_HEALED_SHIELDS(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getTotalHealed().getShields()),
+    TOTAL_HEALED_ENERGY(Kind.CUMULATIVE, (score, observation) -> score.getDetails().getTotalHealed().getEnergy()),
+    CURRENT_MINERALS(Kind.CURRENT, (score, observation) -> observation.getMinerals()),
+    CURRENT_VESPENE(Kind.CURRENT, (score, observation) -> observation.getVespene()),
+    FOOD_CAP(Kind.CURRENT, (score, observation) -> observation.getFoodCap()),
+    CURRENT_FOOD_USED(Kind.CURRENT, (score, observation) -> observation.getFoodUsed()),
+    FOOD_ARMY(Kind.CURRENT, (score, observation) -> observation.getFoodArmy()),
+    FOOD_WORKERS(Kind.CURRENT, (score, observation) -> observation.getFoodWorkers()),
+    IDLE_WORKER_COUNT(Kind.CURRENT, (score, observation) -> observation.getIdleWorkerCount()),
+    ARMY_COUNT(Kind.CURRENT, (score, observation) -> observation.getArmyCount()),
+    WARP_GATE_COUNT(Kind.CURRENT, (score, observation) -> observation.getWarpGateCount());
+
+    private enum Kind {
+        CUMULATIVE, CURRENT
+    }
+
+    @FunctionalInterface
+    private interface Extractor {
+        float of(Score score, ObservationInterface observation);
+    }
+
+    private final boolean cumulative;
+    private final Extractor extractor;
+
+    ScoreColumn(Kind kind, Extractor extractor) {
+        this.cumulative = kind == Kind.CUMULATIVE;
+        this.extractor = extractor;
+    }
+
+    float of(Score score, ObservationInterface observation) {
+        return extractor.of(score, observation);
+    }
+
+    /**
+     * @return true for totals that only grow during the game (i.e. collected minerals, damage dealt, idle time),
+     * these are interesting as a delta over a time window rather than as an absolute value.
+     */
+    public boolean isCumulative() {
+        return cumulative;
+    }
+
+    /**
+     * @return name of the column in recorded files, i.e. "killed_minerals_army".
+     */
+    public String getColumnName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
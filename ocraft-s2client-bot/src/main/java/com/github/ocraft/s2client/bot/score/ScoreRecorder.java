@@ -0,0 +1,342 @@
+package com.github.ocraft.s2client.bot.score;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.protocol.score.Score;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.isSet;
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+import static java.lang.String.format;
+
+/**
+ * Time series of the score and economy of one game, recorded every step (see {@link #record(ObservationInterface)})
+ * into growable primitive columns, one per {@link ScoreColumn}. Deltas and rolling window aggregates are computed
+ * from the columns during the game without copying, and the whole series can be written to a compact columnar file
+ * at the end of the game (see {@link #write(Path)}, {@link #read(Path)}).
+ * <p>
+ * File layout (big endian, {@link DataOutput}): magic, format version, row count, column count, column names, then
+ * the game loop column (longs) followed by every score column (floats), each stored as one contiguous block.
+ * <p>
+ * Not thread safe.
+ */
+public final class ScoreRecorder {
+
+    static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x4F435352;
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final ScoreColumn[] COLUMNS = ScoreColumn.values();
+
+    private long[] gameLoops;
+    private final float[][] columns;
+    private int size;
+
+    public ScoreRecorder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity expected number of recorded steps (i.e. game length / step size), columns grow if needed.
+     */
+    public ScoreRecorder(int initialCapacity) {
+        if (initialCapacity <= 0) throw new IllegalArgumentException("initial capacity must be positive");
+        gameLoops = new long[initialCapacity];
+        columns = new float[COLUMNS.length][initialCapacity];
+    }
+
+    /**
+     * Appends the current score and economy. Recording the same game loop again overwrites the last row.
+     *
+     * @return false if the observation has no score (nothing is recorded).
+     * @throws IllegalArgumentException if the game loop is before the last recorded one.
+     */
+    public boolean record(ObservationInterface observation) {
+        require("observation", observation);
+        Score score = observation.getScore();
+        if (!isSet(score)) return false;
+
+        long gameLoop = observation.getGameLoop();
+        int row = size;
+        if (size > 0 && gameLoop <= gameLoops[size - 1]) {
+            if (gameLoop < gameLoops[size - 1]) {
+                throw new IllegalArgumentException(
+                        format("game loop %d is before the last recorded %d", gameLoop, gameLoops[size - 1]));
+            }
+            row = size - 1;
+        } else if (size == gameLoops.length) {
+            grow();
+        }
+        gameLoops[row] = gameLoop;
+        for (int column = 0; column < COLUMNS.length; column++) {
+            columns[column][row] = COLUMNS[column].of(score, observation);
+        }
+        size = row + 1;
+        return true;
+    }
+
+    private void grow() {
+        int capacity = gameLoops.length * 2;
+        gameLoops = Arrays.copyOf(gameLoops, capacity);
+        for (int column = 0; column < columns.length; column++) {
+            columns[column] = Arrays.copyOf(columns[column], capacity);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public long getGameLoop(int row) {
+        return gameLoops[Objects.checkIndex(row, size)];
+    }
+
+    public float get(ScoreColumn column, int row) {
+        require("column", column);
+        return columns[column.ordinal()][Objects.checkIndex(row, size)];
+    }
+
+    /**
+     * @return the most recent value of the column.
+     * @throws IllegalStateException if nothing was recorded.
+     */
+    public float last(ScoreColumn column) {
+        return get(column, lastRow());
+    }
+
+    /**
+     * @return change of the column since the previous recorded step (the value itself for the first step).
+     */
+    public float delta(ScoreColumn column, int row) {
+        require("column", column);
+        float[] values = columns[column.ordinal()];
+        Objects.checkIndex(row, size);
+        return row == 0 ? values[0] : values[row] - values[row - 1];
+    }
+
+    /**
+     * @return change of the column in the last recorded step.
+     * @throws IllegalStateException if nothing was recorded.
+     */
+    public float lastDelta(ScoreColumn column) {
+        return delta(column, lastRow());
+    }
+
+    /**
+     * @return change of the column during the last {@code gameLoops} game loops, measured from the last step recorded
+     * at or before the start of the window (or from the first step if the game is shorter).
+     * @throws IllegalStateException if nothing was recorded.
+     */
+    public float windowDelta(ScoreColumn column, long gameLoops) {
+        require("column", column);
+        int last = lastRow();
+        float[] values = columns[column.ordinal()];
+        return values[last] - values[windowStart(last, gameLoops)];
+    }
+
+    /**
+     * @return average change of the column per game loop during the last {@code gameLoops} game loops (i.e. damage
+     * dealt per game loop), 0 if the window covers a single step.
+     * @throws IllegalStateException if nothing was recorded.
+     */
+    public float windowRate(ScoreColumn column, long gameLoops) {
+        require("column", column);
+        int last = lastRow();
+        int start = windowStart(last, gameLoops);
+        long elapsed = this.gameLoops[last] - this.gameLoops[start];
+        if (elapsed == 0) return 0.0f;
+        float[] values = columns[column.ordinal()];
+        return (values[last] - values[start]) / elapsed;
+    }
+
+    /**
+     * @return mean of the column over the last {@code rows} recorded steps (fewer if less were recorded).
+     * @throws IllegalStateException if nothing was recorded.
+     */
+    public float windowMean(ScoreColumn column, int rows) {
+        require("column", column);
+        int last = lastRow();
+        int first = firstRowOfWindow(rows);
+        float[] values = columns[column.ordinal()];
+        double sum = 0.0;
+        for (int row = first; row <= last; row++) sum += values[row];
+        return (float) (sum / (last - first + 1));
+    }
+
+    /**
+     * @return maximum of the column over the last {@code rows} recorded steps (fewer if less were recorded).
+     * @throws IllegalStateException if nothing was recorded.
+     */
+    public float windowMax(ScoreColumn column, int rows) {
+        require("column", column);
+        int last = lastRow();
+        float[] values = columns[column.ordinal()];
+        float max = values[last];
+        for (int row = firstRowOfWindow(rows); row < last; row++) max = Math.max(max, values[row]);
+        return max;
+    }
+
+    /**
+     * @return minimum of the column over the last {@code rows} recorded steps (fewer if less were recorded).
+     * @throws IllegalStateException if nothing was recorded.
+     */
+    public float windowMin(ScoreColumn column, int rows) {
+        require("column", column);
+        int last = lastRow();
+        float[] values = columns[column.ordinal()];
+        float min = values[last];
+        for (int row = firstRowOfWindow(rows); row < last; row++) min = Math.min(min, values[row]);
+        return min;
+    }
+
+    /**
+     * @return copy of the recorded values of the column.
+     */
+    public float[] getColumn(ScoreColumn column) {
+        require("column", column);
+        return Arrays.copyOf(columns[column.ordinal()], size);
+    }
+
+    /**
+     * @return copy of the recorded game loops.
+     */
+    public long[] getGameLoops() {
+        return Arrays.copyOf(gameLoops, size);
+    }
+
+    /**
+     * @return index of the last row with game loop at or before given one, -1 if there is no such row.
+     */
+    public int rowAt(long gameLoop) {
+        int index = Arrays.binarySearch(gameLoops, 0, size, gameLoop);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private int lastRow() {
+        if (size == 0) throw new IllegalStateException("nothing recorded");
+        return size - 1;
+    }
+
+    private int windowStart(int last, long gameLoops) {
+        if (gameLoops < 0) throw new IllegalArgumentException("window must not be negative");
+        return Math.max(0, rowAt(this.gameLoops[last] - gameLoops));
+    }
+
+    private int firstRowOfWindow(int rows) {
+        if (rows <= 0) throw new IllegalArgumentException("window must be positive");
+        return Math.max(0, size - rows);
+    }
+
+    /**
+     * Writes the recorded series to given file (replaced atomically if it exists).
+     */
+    public void write(Path file) throws IOException {
+        require("file", file);
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                writeTo(out);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public static ScoreRecorder read(Path file) throws IOException {
+        require("file", file);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return readFrom(in);
+        }
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(size);
+        out.writeInt(COLUMNS.length);
+        for (ScoreColumn column : COLUMNS) out.writeUTF(column.getColumnName());
+
+        ByteBuffer block = ByteBuffer.allocate(size * Long.BYTES);
+        block.asLongBuffer().put(gameLoops, 0, size);
+        out.write(block.array(), 0, size * Long.BYTES);
+        for (float[] values : columns) {
+            block.clear();
+            block.asFloatBuffer().put(values, 0, size);
+            out.write(block.array(), 0, size * Float.BYTES);
+        }
+    }
+
+    // Columns are matched by name, so files stay readable when columns are added; unknown columns are skipped.
+    static ScoreRecorder readFrom(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) throw new IOException("not a score recording");
+        int formatVersion = in.readInt();
+        if (formatVersion != FORMAT_VERSION) throw new IOException("unsupported format version: " + formatVersion);
+        int rows = in.readInt();
+        int columnCount = in.readInt();
+        if (rows < 0 || columnCount < 0) throw new IOException("corrupted score recording");
+
+        Map<String, ScoreColumn> columnsByName = new HashMap<>();
+        for (ScoreColumn column : COLUMNS) columnsByName.put(column.getColumnName(), column);
+        ScoreColumn[] fileColumns = new ScoreColumn[columnCount];
+        for (int i = 0; i < columnCount; i++) fileColumns[i] = columnsByName.get(in.readUTF());
+
+        ScoreRecorder recorder = new ScoreRecorder(Math.max(1, rows));
+        byte[] block = new byte[rows * Long.BYTES];
+        in.readFully(block, 0, rows * Long.BYTES);
+        ByteBuffer.wrap(block).asLongBuffer().get(recorder.gameLoops, 0, rows);
+        for (ScoreColumn column : fileColumns) {
+            in.readFully(block, 0, rows * Float.BYTES);
+            if (isSet(column)) {
+                ByteBuffer.wrap(block, 0, rows * Float.BYTES).asFloatBuffer()
+                        .get(recorder.columns[column.ordinal()], 0, rows);
+            }
+        }
+        recorder.size = rows;
+        return recorder;
+    }
+}
@@ -27,6 +27,7 @@ package com.github.ocraft.s2client.bot.setting;
  */
 
 import com.github.ocraft.s2client.api.controller.PortSetup;
+import com.github.ocraft.s2client.api.metrics.ClientMetrics;
 import com.github.ocraft.s2client.bot.OcraftBotConfig;
 
 import java.nio.file.Path;
@@ -62,6 +63,9 @@ public class ProcessSettings {
     private Path actualProcessPath;
     private Integer baseBuild;
     private Boolean traced = OcraftBotConfig.cfg().getBoolean(OcraftBotConfig.BOT_TRACED);
+    private ClientMetrics metrics = ClientMetrics.NONE;
+    private Boolean realtimeBackgroundStep =
+            OcraftBotConfig.cfg().getBoolean(OcraftBotConfig.BOT_REALTIME_BACKGROUND_STEP);
     private boolean ladderGame;
 
     public ProcessSettings setConnection(String ip, Integer port) {
@@ -285,6 +289,24 @@ public class ProcessSettings {
         return traced;
     }
 
+    public ProcessSettings setMetrics(ClientMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    public ProcessSettings setRealtimeBackgroundStep(Boolean realtimeBackgroundStep) {
+        this.realtimeBackgroundStep = realtimeBackgroundStep;
+        return this;
+    }
+
+    public Boolean getRealtimeBackgroundStep() {
+        return realtimeBackgroundStep;
+    }
+
     public boolean isLadderGame() {
         return ladderGame;
     }
@@ -332,7 +354,11 @@ public class ProcessSettings {
         if (actualProcessPath != null ? !actualProcessPath.equals(that.actualProcessPath) : that.actualProcessPath != null)
             return false;
         if (baseBuild != null ? !baseBuild.equals(that.baseBuild) : that.baseBuild != null) return false;
-        return traced != null ? traced.equals(that.traced) : that.traced == null;
+        if (traced != null ? !traced.equals(that.traced) : that.traced != null) return false;
+        if (metrics != null ? !metrics.equals(that.metrics) : that.metrics != null) return false;
+        return realtimeBackgroundStep != null
+                ? realtimeBackgroundStep.equals(that.realtimeBackgroundStep)
+                : that.realtimeBackgroundStep == null;
     }
 
     @Override
@@ -363,6 +389,8 @@ public class ProcessSettings {
         result = 31 * result + (actualProcessPath != null ? actualProcessPath.hashCode() : 0);
         result = 31 * result + (baseBuild != null ? baseBuild.hashCode() : 0);
         result = 31 * result + (traced != null ? traced.hashCode() : 0);
+        result = 31 * result + (metrics != null ? metrics.hashCode() : 0);
+        result = 31 * result + (realtimeBackgroundStep != null ? realtimeBackgroundStep.hashCode() : 0);
         result = 31 * result + (ladderGame ? 1 : 0);
         return result;
     }
@@ -396,6 +424,8 @@ public class ProcessSettings {
                 ", actualProcessPath=" + actualProcessPath +
                 ", baseBuild=" + baseBuild +
                 ", traced=" + traced +
+                ", metrics=" + metrics +
+                ", realtimeBackgroundStep=" + realtimeBackgroundStep +
                 ", ladderGame=" + ladderGame +
                 '}';
     }
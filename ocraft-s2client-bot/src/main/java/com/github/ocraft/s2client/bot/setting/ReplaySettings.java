@@ -27,6 +27,8 @@ package com.github.ocraft.s2client.bot.setting;
  */
 
 import com.github.ocraft.s2client.bot.OcraftBotConfig;
+import com.github.ocraft.s2client.bot.replay.ReplayIndex;
+import com.github.ocraft.s2client.bot.replay.ReplayIndexEntry;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -34,6 +36,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -77,6 +80,17 @@ public final class ReplaySettings {
         return this;
     }
 
+    /**
+     * Keeps only the replay files with a current entry in the index that is accepted by the filter. Replays missing in
+     * the index (or modified since they were indexed) are dropped, scan them first to select them.
+     */
+    public ReplaySettings selectReplays(ReplayIndex replayIndex, Predicate<ReplayIndexEntry> filter) {
+        require("replay index", replayIndex);
+        require("filter", filter);
+        replayFiles.removeIf(replay -> !replayIndex.getCurrent(replay).filter(filter).isPresent());
+        return this;
+    }
+
     public List<Path> getReplayFiles() {
         return replayFiles;
     }
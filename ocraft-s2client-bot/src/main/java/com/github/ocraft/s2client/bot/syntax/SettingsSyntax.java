@@ -26,6 +26,7 @@ package com.github.ocraft.s2client.bot.syntax;
  * #L%
  */
 
+import com.github.ocraft.s2client.api.metrics.ClientMetrics;
 import com.github.ocraft.s2client.protocol.game.ReplayInfo;
 import com.github.ocraft.s2client.protocol.spatial.SpatialCameraSetup;
 
@@ -165,6 +166,21 @@ public interface SettingsSyntax extends GameParticipantSyntax, ReplaySyntax {
      */
     SettingsSyntax setTraced(Boolean value);
 
+    /**
+     * Collects client metrics (request round trip, serialization, parsing, onStep duration, queue depths).
+     *
+     * @see com.github.ocraft.s2client.api.metrics.HistogramMetrics
+     */
+    SettingsSyntax setMetrics(ClientMetrics metrics);
+
+    /**
+     * In realtime mode runs the agent's onStep in the background. While the step is computing the coordinator
+     * doesn't block, when it is done the agent gets the most recent observation (stale frames are skipped).
+     *
+     * @see com.github.ocraft.s2client.bot.S2Coordinator#getRealtimeStats(com.github.ocraft.s2client.bot.S2Agent)
+     */
+    SettingsSyntax setRealtimeBackgroundStep(Boolean value);
+
     /**
      * Overrides the directory that temp files are created in.
      * <p>
@@ -0,0 +1,312 @@
+package com.github.ocraft.s2client.bot.tensor;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.observation.spatial.FeatureLayers;
+import com.github.ocraft.s2client.protocol.observation.spatial.FeatureLayersMinimap;
+import com.github.ocraft.s2client.protocol.observation.spatial.ImageData;
+import com.github.ocraft.s2client.protocol.spatial.Size2dI;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+import static java.lang.String.format;
+
+/**
+ * Stacks chosen feature layers ({@link FeatureLayers}, {@link FeatureLayersMinimap}) into one float32 tensor kept in
+ * a direct buffer in native byte order. The buffer is allocated once and overwritten by every {@link #encode}, so it
+ * may be handed to native code (i.e. an ML runtime) every step without copying.
+ * <p>
+ * Image bytes are read in place (see {@link ImageData#getDataBuffer()}) and unpacked into reusable heap arrays that
+ * are bulk copied to the buffer. 1-bit layers are expanded eight pixels at a time from a lookup table. Pixels are
+ * stored in image order (row 0 is the upper row, like
+ * {@link ImageData#sample(com.github.ocraft.s2client.protocol.spatial.Point2d)}).
+ * <p>
+ * Missing layers (i.e. optional layers not sent by the game) are encoded as zeros. Not thread safe.
+ *
+ * @param <T> the feature layers type
+ */
+public final class FeatureLayerEncoder<T> {
+
+    private static final int BITS_PER_BYTE = 8;
+    private static final int INTERLEAVE_BLOCK = 256;
+
+    private final int width;
+    private final int height;
+    private final int channels;
+    private final Layout layout;
+    private final List<Function<T, ImageData>> layers;
+    private final LayerEncoding[] encodings;
+    private final int[] firstChannels;
+    private final float[][] bitTables;
+    private final ByteBuffer buffer;
+    private final FloatBuffer tensor;
+    private final float[] planes;
+    private final float[] interleaved;
+    private final int[] values;
+
+    private FeatureLayerEncoder(Builder<T> builder) {
+        width = builder.width;
+        height = builder.height;
+        layout = builder.layout;
+        layers = new ArrayList<>(builder.layers);
+        encodings = builder.encodings.toArray(new LayerEncoding[0]);
+        firstChannels = new int[encodings.length];
+        bitTables = new float[encodings.length][];
+        int channel = 0;
+        for (int i = 0; i < encodings.length; i++) {
+            firstChannels[i] = channel;
+            channel += encodings[i].getChannels();
+            if (encodings[i].getKind() == LayerEncoding.Kind.SCALED) {
+                bitTables[i] = bitTable(encodings[i].getScale());
+            }
+        }
+        channels = channel;
+        int pixels = width * height;
+        buffer = ByteBuffer.allocateDirect(channels * pixels * Float.BYTES).order(ByteOrder.nativeOrder());
+        tensor = buffer.asFloatBuffer();
+        planes = new float[channels * pixels];
+        interleaved = layout == Layout.CHANNELS_LAST ? new float[channels * pixels] : null;
+        values = new int[pixels];
+    }
+
+    // Bit k of byte b is pixel k of the byte, same as in ImageData#sample.
+    private static float[] bitTable(float scale) {
+        float[] table = new float[256 * BITS_PER_BYTE];
+        for (int b = 0; b < 256; b++) {
+            for (int k = 0; k < BITS_PER_BYTE; k++) {
+                table[b * BITS_PER_BYTE + k] = ((b >> k) & 0x1) * scale;
+            }
+        }
+        return table;
+    }
+
+    public static <T> Builder<T> builder(int width, int height) {
+        return new Builder<>(width, height);
+    }
+
+    public static <T> Builder<T> builder(Size2dI resolution) {
+        require("resolution", resolution);
+        return new Builder<>(resolution.getX(), resolution.getY());
+    }
+
+    /**
+     * Encodes the layers into the tensor buffer.
+     *
+     * @return the tensor buffer (the same one on every call) positioned at 0.
+     * @throws IllegalArgumentException if a layer resolution differs from the encoder resolution.
+     */
+    public FloatBuffer encode(T featureLayers) {
+        require("feature layers", featureLayers);
+        for (int i = 0; i < encodings.length; i++) {
+            ImageData image = layers.get(i).apply(featureLayers);
+            if (image != null && (image.getSize().getX() != width || image.getSize().getY() != height)) {
+                throw new IllegalArgumentException(format("layer [%d] has size %dx%d, expected %dx%d",
+                        i, image.getSize().getX(), image.getSize().getY(), width, height));
+            }
+            if (encodings[i].getKind() == LayerEncoding.Kind.ONE_HOT) {
+                encodeOneHot(image, firstChannels[i], encodings[i].getChannels());
+            } else {
+                encodeScaled(image, firstChannels[i], encodings[i].getScale(), bitTables[i]);
+            }
+        }
+        // One bulk copy to the direct buffer is much cheaper than writing it element by element.
+        tensor.clear();
+        tensor.put(layout == Layout.CHANNELS_FIRST ? planes : interleave());
+        tensor.clear();
+        return tensor;
+    }
+
+    private void encodeScaled(ImageData image, int channel, float scale, float[] bitTable) {
+        int pixels = values.length;
+        int offset = channel * pixels;
+        if (image == null) {
+            Arrays.fill(planes, offset, offset + pixels, 0.0f);
+        } else {
+            decode(image, scale, bitTable, offset);
+        }
+    }
+
+    // Transposed in blocks of pixels, so both arrays are walked in cache friendly chunks.
+    private float[] interleave() {
+        int pixels = values.length;
+        for (int from = 0; from < pixels; from += INTERLEAVE_BLOCK) {
+            int to = Math.min(pixels, from + INTERLEAVE_BLOCK);
+            for (int c = 0; c < channels; c++) {
+                int source = c * pixels;
+                for (int i = from, index = from * channels + c; i < to; i++, index += channels) {
+                    interleaved[index] = planes[source + i];
+                }
+            }
+        }
+        return interleaved;
+    }
+
+    private void decode(ImageData image, float scale, float[] bitTable, int offset) {
+        int pixels = values.length;
+        ByteBuffer data = image.getDataBuffer();
+        switch (image.getBitsPerPixel()) {
+            case 1:
+                // Up to ceil(pixels / 8) bytes are read, the last one only partially; pixels past the data stay zeros.
+                int bytes = Math.min(data.remaining(), (pixels + BITS_PER_BYTE - 1) / BITS_PER_BYTE);
+                for (int j = 0; j < bytes; j++) {
+                    int first = j * BITS_PER_BYTE;
+                    System.arraycopy(bitTable, (data.get(j) & 0xFF) * BITS_PER_BYTE,
+                            planes, offset + first, Math.min(BITS_PER_BYTE, pixels - first));
+                }
+                Arrays.fill(planes, offset + Math.min(pixels, bytes * BITS_PER_BYTE), offset + pixels, 0.0f);
+                break;
+            case 8:
+                for (int i = 0; i < pixels; i++) planes[offset + i] = (data.get(i) & 0xFF) * scale;
+                break;
+            case 32:
+                IntBuffer ints = data.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                for (int i = 0; i < pixels; i++) planes[offset + i] = ints.get(i) * scale;
+                break;
+            default:
+                throw unsupported(image);
+        }
+    }
+
+    private void encodeOneHot(ImageData image, int channel, int classes) {
+        int pixels = values.length;
+        if (image == null) {
+            Arrays.fill(values, -1);
+        } else {
+            decode(image, values);
+        }
+        int offset = channel * pixels;
+        Arrays.fill(planes, offset, offset + classes * pixels, 0.0f);
+        for (int i = 0; i < pixels; i++) {
+            int value = values[i];
+            if (value >= 0 && value < classes) planes[offset + value * pixels + i] = 1.0f;
+        }
+    }
+
+    private static void decode(ImageData image, int[] values) {
+        int pixels = values.length;
+        ByteBuffer data = image.getDataBuffer();
+        switch (image.getBitsPerPixel()) {
+            case 1:
+                int bits = Math.min(pixels, data.remaining() * BITS_PER_BYTE);
+                for (int i = 0; i < bits; i++) values[i] = (data.get(i / BITS_PER_BYTE) >> (i % BITS_PER_BYTE)) & 0x1;
+                Arrays.fill(values, bits, pixels, 0);
+                break;
+            case 8:
+                for (int i = 0; i < pixels; i++) values[i] = data.get(i) & 0xFF;
+                break;
+            case 32:
+                IntBuffer ints = data.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                for (int i = 0; i < pixels; i++) values[i] = ints.get(i);
+                break;
+            default:
+                throw unsupported(image);
+        }
+    }
+
+    private static IllegalArgumentException unsupported(ImageData image) {
+        return new IllegalArgumentException(
+                format("Unsupported feature layer with bits per pixel [%d]. Expected {1, 8, 32}.",
+                        image.getBitsPerPixel()));
+    }
+
+    /**
+     * @return the tensor as bytes (native order), a view of the same memory as {@link #encode} result.
+     */
+    public ByteBuffer getBuffer() {
+        return buffer.duplicate().order(ByteOrder.nativeOrder());
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    /**
+     * @return index of the first tensor channel of the layer with given index (in order of adding).
+     */
+    public int getFirstChannel(int layer) {
+        return firstChannels[layer];
+    }
+
+    public static final class Builder<T> {
+        private final int width;
+        private final int height;
+        private final List<Function<T, ImageData>> layers = new ArrayList<>();
+        private final List<LayerEncoding> encodings = new ArrayList<>();
+        private Layout layout = Layout.CHANNELS_FIRST;
+
+        private Builder(int width, int height) {
+            if (width <= 0 || height <= 0) throw new IllegalArgumentException("resolution must be positive");
+            this.width = width;
+            this.height = height;
+        }
+
+        public Builder<T> layer(Function<T, ImageData> layer, LayerEncoding encoding) {
+            require("layer", layer);
+            require("encoding", encoding);
+            layers.add(layer);
+            encodings.add(encoding);
+            return this;
+        }
+
+        public Builder<T> optionalLayer(Function<T, Optional<ImageData>> layer, LayerEncoding encoding) {
+            require("layer", layer);
+            return layer(featureLayers -> layer.apply(featureLayers).orElse(null), encoding);
+        }
+
+        public Builder<T> layout(Layout layout) {
+            require("layout", layout);
+            this.layout = layout;
+            return this;
+        }
+
+        public FeatureLayerEncoder<T> build() {
+            if (layers.isEmpty()) throw new IllegalArgumentException("at least one layer is required");
+            return new FeatureLayerEncoder<>(this);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.ocraft.s2client.bot.tensor;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+/**
+ * How values of one feature layer are turned into tensor channels.
+ */
+public final class LayerEncoding {
+
+    enum Kind {
+        SCALED,
+        ONE_HOT
+    }
+
+    private final Kind kind;
+    private final float scale;
+    private final int classes;
+
+    private LayerEncoding(Kind kind, float scale, int classes) {
+        this.kind = kind;
+        this.scale = scale;
+        this.classes = classes;
+    }
+
+    /**
+     * One channel with the layer values as they are.
+     */
+    public static LayerEncoding raw() {
+        return new LayerEncoding(Kind.SCALED, 1.0f, 1);
+    }
+
+    /**
+     * One channel with the layer values divided by {@code max} (i.e. 255 for uint8 ratio layers).
+     */
+    public static LayerEncoding normalized(float max) {
+        if (!(max > 0.0f)) throw new IllegalArgumentException("max must be greater than 0");
+        return new LayerEncoding(Kind.SCALED, 1.0f / max, 1);
+    }
+
+    /**
+     * One channel per value in range {@code [0, classes)}, i.e. 5 for player relative layer. Pixels with values
+     * out of the range are zero in all channels.
+     */
+    public static LayerEncoding oneHot(int classes) {
+        if (classes <= 0) throw new IllegalArgumentException("classes must be greater than 0");
+        return new LayerEncoding(Kind.ONE_HOT, 1.0f, classes);
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    float getScale() {
+        return scale;
+    }
+
+    public int getChannels() {
+        return classes;
+    }
+
+    @Override
+    public String toString() {
+        return kind == Kind.ONE_HOT ? "LayerEncoding{oneHot=" + classes + '}' : "LayerEncoding{scale=" + scale + '}';
+    }
+}
@@ -0,0 +1,261 @@
+package com.github.ocraft.s2client.bot.tensor;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.protocol.observation.raw.ObservationRaw;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.Predicate;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Writes chosen {@link UnitFeature}s of the raw units into a fixed size, row major matrix of
+ * {@code maxUnits x features} floats, one row per unit. The matrix (and optionally a direct buffer in native byte order
+ * for handing it to native code) is allocated once and overwritten by every {@link #encode}; the encoding does not
+ * allocate per unit.
+ * <p>
+ * Rows are ordered by unit tag, so a unit keeps its relative position between steps. Units beyond {@code maxUnits}
+ * (with the highest tags) are dropped, unused rows are zeros. The tag of every row is available in {@link #getTags()}.
+ * Not thread safe.
+ */
+public final class UnitEncoder {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final UnitFeature[] features;
+    private final int maxUnits;
+    private final Predicate<Unit> filter;
+    private final float[] matrix;
+    private final long[] tags;
+    private final FloatBuffer buffer;
+    private Unit[] sortedUnits;
+    private long[] sortedTags;
+    private int count;
+
+    private UnitEncoder(Builder builder) {
+        features = builder.features.clone();
+        maxUnits = builder.maxUnits;
+        filter = builder.filter;
+        matrix = new float[maxUnits * features.length];
+        tags = new long[maxUnits];
+        buffer = builder.direct
+                ? ByteBuffer.allocateDirect(matrix.length * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer()
+                : null;
+        int capacity = Math.max(INITIAL_CAPACITY, maxUnits);
+        sortedUnits = new Unit[capacity];
+        sortedTags = new long[capacity];
+    }
+
+    public static Builder builder(int maxUnits) {
+        return new Builder(maxUnits);
+    }
+
+    /**
+     * Encodes the units of the current raw observation.
+     *
+     * @return the number of encoded units.
+     */
+    public int encode(ObservationInterface observation) {
+        require("observation", observation);
+        return encode(observation.getRawObservation().getRaw()
+                .map(ObservationRaw::getUnits)
+                .orElse(Collections.emptyList()));
+    }
+
+    /**
+     * Encodes given units.
+     *
+     * @return the number of encoded units.
+     */
+    public int encode(Collection<Unit> units) {
+        require("units", units);
+        int n = 0;
+        for (Unit unit : units) {
+            if (filter != null && !filter.test(unit)) continue;
+            if (n == sortedUnits.length) {
+                sortedUnits = Arrays.copyOf(sortedUnits, n * 2);
+                sortedTags = Arrays.copyOf(sortedTags, n * 2);
+            }
+            sortedUnits[n] = unit;
+            sortedTags[n++] = unit.getTag().getValue();
+        }
+        sort(sortedTags, sortedUnits, 0, n - 1);
+
+        count = Math.min(n, maxUnits);
+        int columns = features.length;
+        for (int row = 0, offset = 0; row < count; row++, offset += columns) {
+            Unit unit = sortedUnits[row];
+            for (int column = 0; column < columns; column++) {
+                matrix[offset + column] = features[column].of(unit);
+            }
+        }
+        Arrays.fill(matrix, count * columns, matrix.length, 0.0f);
+        System.arraycopy(sortedTags, 0, tags, 0, count);
+        Arrays.fill(tags, count, maxUnits, 0L);
+        // Units of the step are not retained between calls.
+        Arrays.fill(sortedUnits, 0, n, null);
+
+        if (buffer != null) {
+            buffer.clear();
+            buffer.put(matrix);
+            buffer.clear();
+        }
+        return count;
+    }
+
+    // Quicksort of tags with units moved alongside, a boxed comparator sort would allocate on every step.
+    private static void sort(long[] keys, Unit[] values, int low, int high) {
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            long pivot = keys[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) swap(keys, values, i++, j--);
+            }
+            // Recursion on the smaller part keeps the stack depth logarithmic.
+            if (j - low < high - i) {
+                sort(keys, values, low, j);
+                low = i;
+            } else {
+                sort(keys, values, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && keys[j - 1] > keys[j]; j--) swap(keys, values, j, j - 1);
+        }
+    }
+
+    private static void swap(long[] keys, Unit[] values, int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        Unit value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    /**
+     * @return the matrix ({@code maxUnits x features}, row major), the same array on every call.
+     */
+    public float[] getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * @return the matrix in a direct buffer positioned at 0, the same buffer on every call.
+     * @throws IllegalStateException if the encoder was not built with a direct buffer.
+     */
+    public FloatBuffer getBuffer() {
+        if (buffer == null) throw new IllegalStateException("encoder was built without direct buffer");
+        return buffer;
+    }
+
+    /**
+     * @return tag of the unit in every row (0 for unused rows), the same array on every call.
+     */
+    public long[] getTags() {
+        return tags;
+    }
+
+    /**
+     * @return the number of units (used rows) in the last encoding.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public int getMaxUnits() {
+        return maxUnits;
+    }
+
+    public int getFeatureCount() {
+        return features.length;
+    }
+
+    /**
+     * @return index of the matrix column with given feature or -1 if the feature is not encoded.
+     */
+    public int getColumn(UnitFeature feature) {
+        for (int i = 0; i < features.length; i++) {
+            if (features[i] == feature) return i;
+        }
+        return -1;
+    }
+
+    public static final class Builder {
+        private final int maxUnits;
+        private UnitFeature[] features = UnitFeature.values();
+        private Predicate<Unit> filter;
+        private boolean direct;
+
+        private Builder(int maxUnits) {
+            if (maxUnits <= 0) throw new IllegalArgumentException("max units must be positive");
+            this.maxUnits = maxUnits;
+        }
+
+        public Builder features(UnitFeature... features) {
+            require("features", features);
+            if (features.length == 0) throw new IllegalArgumentException("at least one feature is required");
+            for (UnitFeature feature : features) require("feature", feature);
+            this.features = features.clone();
+            return this;
+        }
+
+        /**
+         * Only units accepted by the filter are encoded.
+         */
+        public Builder filter(Predicate<Unit> filter) {
+            require("filter", filter);
+            this.filter = filter;
+            return this;
+        }
+
+        /**
+         * Mirrors the matrix to a direct buffer after every encoding (see {@link UnitEncoder#getBuffer()}).
+         */
+        public Builder directBuffer() {
+            this.direct = true;
+            return this;
+        }
+
+        public UnitEncoder build() {
+            return new UnitEncoder(this);
+        }
+    }
+}
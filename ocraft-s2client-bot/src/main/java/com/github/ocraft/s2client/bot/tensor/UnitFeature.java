@@ -0,0 +1,186 @@
+package com.github.ocraft.s2client.bot.tensor;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.data.Buff;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import com.github.ocraft.s2client.protocol.unit.UnitOrder;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Unit attribute that can be written as one column of a {@link UnitEncoder} matrix. Every feature reads primitive
+ * values of the unit, missing optional values are encoded as 0 (no boxing, no allocation).
+ */
+public enum UnitFeature {
+    TYPE,
+    OWNER,
+    /**
+     * Alliance in the same numbering as player relative feature layer: self 1, ally 2, neutral 3, enemy 4.
+     */
+    ALLIANCE,
+    X,
+    Y,
+    Z,
+    FACING,
+    RADIUS,
+    BUILD_PROGRESS,
+    HEALTH,
+    HEALTH_MAX,
+    HEALTH_RATIO,
+    SHIELD,
+    SHIELD_MAX,
+    SHIELD_RATIO,
+    ENERGY,
+    ENERGY_MAX,
+    ENERGY_RATIO,
+    FLYING,
+    BURROWED,
+    ORDER_COUNT,
+    /**
+     * Ability id of the current (first) order.
+     */
+    ORDER_ABILITY,
+    /**
+     * Progress of the current (first) order.
+     */
+    ORDER_PROGRESS,
+    BUFF_COUNT,
+    /**
+     * The lowest buff id, so the column does not depend on the iteration order of the buff set.
+     */
+    BUFF_0,
+    /**
+     * The second lowest buff id.
+     */
+    BUFF_1;
+
+    // One switch instead of a method body per constant keeps the call in the encoder loop monomorphic.
+    public float of(Unit unit) {
+        switch (this) {
+            case TYPE:
+                return unit.getType().getUnitTypeId();
+            case OWNER:
+                return unit.getOwner();
+            case ALLIANCE:
+                return alliance(unit.getAlliance());
+            case X:
+                return unit.getPosition().getX();
+            case Y:
+                return unit.getPosition().getY();
+            case Z:
+                return unit.getPosition().getZ();
+            case FACING:
+                return unit.getFacing();
+            case RADIUS:
+                return unit.getRadius();
+            case BUILD_PROGRESS:
+                return unit.getBuildProgress();
+            case HEALTH:
+                return unit.getHealthOr(0.0f);
+            case HEALTH_MAX:
+                return unit.getHealthMaxOr(0.0f);
+            case HEALTH_RATIO:
+                return ratio(unit.getHealthOr(0.0f), unit.getHealthMaxOr(0.0f));
+            case SHIELD:
+                return unit.getShieldOr(0.0f);
+            case SHIELD_MAX:
+                return unit.getShieldMaxOr(0.0f);
+            case SHIELD_RATIO:
+                return ratio(unit.getShieldOr(0.0f), unit.getShieldMaxOr(0.0f));
+            case ENERGY:
+                return unit.getEnergyOr(0.0f);
+            case ENERGY_MAX:
+                return unit.getEnergyMaxOr(0.0f);
+            case ENERGY_RATIO:
+                return ratio(unit.getEnergyOr(0.0f), unit.getEnergyMaxOr(0.0f));
+            case FLYING:
+                return unit.isFlying() ? 1.0f : 0.0f;
+            case BURROWED:
+                return unit.isBurrowed() ? 1.0f : 0.0f;
+            case ORDER_COUNT:
+                return unit.getOrders().size();
+            case ORDER_ABILITY:
+                return currentOrderAbility(unit.getOrders());
+            case ORDER_PROGRESS:
+                return currentOrderProgress(unit.getOrders());
+            case BUFF_COUNT:
+                return unit.getBuffs().size();
+            case BUFF_0:
+                return lowestBuffIds(unit.getBuffs(), 0);
+            case BUFF_1:
+                return lowestBuffIds(unit.getBuffs(), 1);
+            default:
+                throw new AssertionError("unknown feature: " + this);
+        }
+    }
+
+    private static float alliance(Alliance alliance) {
+        switch (alliance) {
+            case SELF:
+                return 1.0f;
+            case ALLY:
+                return 2.0f;
+            case NEUTRAL:
+                return 3.0f;
+            case ENEMY:
+                return 4.0f;
+            default:
+                return 0.0f;
+        }
+    }
+
+    private static float currentOrderAbility(List<UnitOrder> orders) {
+        return orders.isEmpty() ? 0.0f : orders.get(0).getAbility().getAbilityId();
+    }
+
+    private static float currentOrderProgress(List<UnitOrder> orders) {
+        return orders.isEmpty() ? 0.0f : orders.get(0).getProgressOr(0.0f);
+    }
+
+    private static float ratio(float value, float max) {
+        return max > 0.0f ? value / max : 0.0f;
+    }
+
+    private static float lowestBuffIds(Set<Buff> buffs, int rank) {
+        if (buffs.size() <= rank) return 0.0f;
+        int lowest = Integer.MAX_VALUE;
+        int second = Integer.MAX_VALUE;
+        for (Buff buff : buffs) {
+            int id = buff.getBuffId();
+            if (id < lowest) {
+                second = lowest;
+                lowest = id;
+            } else if (id < second) {
+                second = id;
+            }
+        }
+        return rank == 0 ? lowest : second;
+    }
+}
@@ -0,0 +1,181 @@
+package com.github.ocraft.s2client.bot;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+import com.github.ocraft.s2client.bot.gateway.ControlInterface;
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class RealtimeSchedulerTest {
+
+    private final ControlInterface control = mock(ControlInterface.class);
+    private final ObservationInterface observation = mock(ObservationInterface.class);
+    private final ActionInterface actions = mock(ActionInterface.class);
+    private final TestAgent agent = new TestAgent();
+
+    RealtimeSchedulerTest() {
+        when(control.isInGame()).thenReturn(true);
+    }
+
+    private class TestAgent extends S2Agent {
+        private int gameEndCount;
+
+        @Override
+        public ControlInterface control() {
+            return control;
+        }
+
+        @Override
+        public ObservationInterface observation() {
+            return observation;
+        }
+
+        @Override
+        public ActionInterface actions() {
+            return actions;
+        }
+
+        @Override
+        public void onGameEnd() {
+            gameEndCount++;
+        }
+    }
+
+    @Test
+    void waitsForTheNextGameLoopAfterFirstObservation() {
+        RealtimeScheduler scheduler = new RealtimeScheduler(agent, 2, false);
+        when(observation.getGameLoop()).thenReturn(10L, 12L);
+
+        scheduler.update();
+        scheduler.update();
+
+        verify(control).getObservation();
+        verify(control).getObservation(12);
+        verify(control, times(2)).issueEvents(any());
+        verify(actions, times(2)).sendActions();
+        assertThat(scheduler.getStats().getFrames()).isEqualTo(1);
+        assertThat(scheduler.getStats().getDroppedFrames()).isZero();
+    }
+
+    @Test
+    void countsDroppedFramesWhenAgentIsBehindTheGame() {
+        RealtimeScheduler scheduler = new RealtimeScheduler(agent, 2, false);
+        when(observation.getGameLoop()).thenReturn(10L, 19L);
+
+        scheduler.update();
+        scheduler.update();
+
+        RealtimeStats stats = scheduler.getStats();
+        assertThat(stats.getLastFrameLag()).isEqualTo(7);
+        assertThat(stats.getMaxFrameLag()).isEqualTo(7);
+        assertThat(stats.getDroppedFrames()).isEqualTo(3);
+        verify(control).getObservation(12);
+    }
+
+    @Test
+    void notifiesAgentAboutGameEnd() {
+        RealtimeScheduler scheduler = new RealtimeScheduler(agent, 1, true);
+        when(control.isInGame()).thenReturn(false);
+        when(control.isMultiplayer()).thenReturn(true);
+
+        scheduler.update();
+
+        verify(control).issueEvents(any());
+        assertThat(agent.gameEndCount).isEqualTo(1);
+        verify(control).requestLeaveGame();
+    }
+
+    @Test
+    void startsOverInTheNextRealtimeGame() {
+        RealtimeScheduler scheduler = new RealtimeScheduler(agent, 2, false);
+        when(control.isInGame()).thenReturn(true, true, false, true, true);
+        when(observation.getGameLoop()).thenReturn(10L, 12L, 14L, 1L, 3L);
+
+        scheduler.update();
+        scheduler.update();
+        scheduler.update();
+        assertThat(agent.gameEndCount).isEqualTo(1);
+        assertThat(scheduler.getStats().getFrames()).isEqualTo(2);
+
+        scheduler.reset();
+        assertThat(scheduler.getStats().getFrames()).isZero();
+        scheduler.update();
+        scheduler.update();
+
+        verify(control, times(2)).getObservation();
+        verify(control).getObservation(12);
+        verify(control).getObservation(14);
+        verify(control).getObservation(3);
+        verify(control, never()).getObservation(16);
+        assertThat(scheduler.getStats().getFrames()).isEqualTo(1);
+        assertThat(scheduler.getStats().getMaxFrameLag()).isZero();
+    }
+
+    @Test
+    void doesNotBlockCoordinatorWhenStepIsComputingInBackground() throws InterruptedException {
+        RealtimeScheduler scheduler = new RealtimeScheduler(agent, 1, true);
+        CountDownLatch stepStarted = new CountDownLatch(1);
+        CountDownLatch stepReleased = new CountDownLatch(1);
+        when(control.issueEvents(any())).thenAnswer(invocation -> {
+            stepStarted.countDown();
+            stepReleased.await();
+            return true;
+        });
+        when(observation.getGameLoop()).thenReturn(1L, 30L);
+
+        scheduler.update();
+        assertThat(stepStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        scheduler.update();
+
+        assertThat(scheduler.getStats().getBusyUpdates()).isEqualTo(1);
+        verify(control, never()).getObservation(anyInt());
+
+        stepReleased.countDown();
+        scheduler.update();
+
+        verify(control).getObservation(2);
+        assertThat(scheduler.getStats().getDroppedFrames()).isEqualTo(28);
+        scheduler.stop();
+    }
+
+    @Test
+    void throwsExceptionWhenStepSizeIsNotPositive() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new RealtimeScheduler(agent, 0, false))
+                .withMessage("step size must be greater than 0");
+    }
+}
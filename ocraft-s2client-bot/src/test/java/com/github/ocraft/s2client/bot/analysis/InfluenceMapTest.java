@@ -0,0 +1,173 @@
+package com.github.ocraft.s2client.bot.analysis;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Data;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.bot.GameServerResponses;
+import com.github.ocraft.s2client.bot.combat.CombatData;
+import com.github.ocraft.s2client.protocol.data.UnitTypeData;
+import com.github.ocraft.s2client.protocol.data.Units;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static com.github.ocraft.s2client.bot.analysis.InfluenceMap.Layer.AIR;
+import static com.github.ocraft.s2client.bot.analysis.InfluenceMap.Layer.DETECTION;
+import static com.github.ocraft.s2client.bot.analysis.InfluenceMap.Layer.GROUND;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class InfluenceMapTest {
+
+    private static final float MARINE_DPS = 6 / 0.61f;
+
+    private static final CombatData DATA = CombatData.compile(Arrays.asList(
+            unitType(Units.TERRAN_MARINE, Data.Weapon.TargetType.Any, 6, 5, 0.61f),
+            unitType(Units.PROTOSS_ZEALOT, Data.Weapon.TargetType.Ground, 8, 0.1f, 0.86f),
+            UnitTypeData.from(Data.UnitTypeData.newBuilder()
+                    .setUnitId(Units.TERRAN_MISSILE_TURRET.getUnitTypeId())
+                    .setName(Units.TERRAN_MISSILE_TURRET.name())
+                    .build())));
+
+    private final InfluenceMap map = InfluenceMap.of(64, 48, DATA);
+
+    @Test
+    void stampsThreatOfWeaponsAgainstGroundAndAir() {
+        map.update(Arrays.asList(
+                unit(1, Units.TERRAN_MARINE, 20.5f, 20.5f, 0.0f),
+                unit(2, Units.PROTOSS_ZEALOT, 40.5f, 20.5f, 0.0f),
+                ally(3)));
+
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.get(GROUND, 20, 20)).isCloseTo(MARINE_DPS, within(0.01f));
+        assertThat(map.get(AIR, 26, 20)).isCloseTo(MARINE_DPS, within(0.01f));
+        assertThat(map.get(GROUND, 27, 20)).isZero();
+        assertThat(map.get(GROUND, 40, 21)).isCloseTo(8 / 0.86f, within(0.01f));
+        assertThat(map.get(AIR, 40, 21)).isZero();
+        assertThat(map.get(GROUND, -1, 20)).isZero();
+    }
+
+    @Test
+    void movesStampsIncrementallyWithoutResidue() {
+        map.update(singletonList(unit(1, Units.TERRAN_MARINE, 20.5f, 20.5f, 0.0f)));
+        map.update(singletonList(unit(1, Units.TERRAN_MARINE, 20.9f, 20.1f, 0.0f)));
+        map.update(singletonList(unit(1, Units.TERRAN_MARINE, 30.5f, 20.5f, 0.0f)));
+
+        assertThat(map.get(GROUND, 20, 20)).isZero();
+        assertThat(map.get(GROUND, 30, 20)).isCloseTo(MARINE_DPS, within(0.01f));
+
+        map.update(emptyList());
+
+        assertThat(map.size()).isZero();
+        for (int y = 0; y < map.getHeight(); y++) {
+            for (int x = 0; x < map.getWidth(); x++) {
+                assertThat(map.get(GROUND, x, y) + map.get(AIR, x, y) + map.get(DETECTION, x, y)).isZero();
+            }
+        }
+    }
+
+    @Test
+    void stampsDetectionOfDetectors() {
+        Unit turret = Unit.from(sc2ApiUnit(1, Units.TERRAN_MISSILE_TURRET, 10.5f, 10.5f, 11.0f).toBuilder()
+                .setBuildProgress(0.5f)
+                .build());
+        map.update(Arrays.asList(turret, unit(2, Units.TERRAN_MARINE, 12.5f, 10.5f, 0.0f)));
+
+        assertThat(map.isDetected(Point2d.of(21.5f, 10.5f))).isTrue();
+        assertThat(map.isDetected(Point2d.of(22.5f, 10.5f))).isFalse();
+        assertThat(map.get(DETECTION, 12, 10)).isEqualTo(1.0f);
+        assertThat(map.get(GROUND, 10, 10)).isCloseTo(MARINE_DPS, within(0.01f));
+    }
+
+    @Test
+    void keepsExplicitStampsUntilRemoved() {
+        map.put(Tag.of(7L), 30.5f, 30.5f, 3.0f, 10.0f, 0.0f, 0.0f);
+        map.update(singletonList(unit(1, Units.TERRAN_MARINE, 10.5f, 10.5f, 0.0f)));
+        map.update(emptyList());
+
+        assertThat(map.get(GROUND, 30, 30)).isEqualTo(10.0f);
+        assertThat(map.remove(Tag.of(7L))).isTrue();
+        assertThat(map.remove(Tag.of(7L))).isFalse();
+        assertThat(map.get(GROUND, 30, 30)).isZero();
+    }
+
+    @Test
+    void findsClosestSafestCell() {
+        map.update(singletonList(unit(1, Units.TERRAN_MARINE, 20.5f, 20.5f, 0.0f)));
+
+        assertThat(map.findSafestCell(GROUND, Point2d.of(22.5f, 20.5f), 10.0f)).hasValue(Point2d.of(26.5f, 19.5f));
+        assertThat(map.findSafestCell(GROUND, Point2d.of(20.5f, 20.5f), 2.0f)).hasValue(Point2d.of(20.5f, 20.5f));
+
+        boolean[] pathable = new boolean[64 * 48];
+        Arrays.fill(pathable, true);
+        pathable[19 * 64 + 26] = false;
+        pathable[21 * 64 + 26] = false;
+        MapGrid grid = MapGrid.of(64, 48, pathable, new boolean[64 * 48], new float[64 * 48]);
+        assertThat(map.findSafestCell(GROUND, Point2d.of(22.5f, 20.5f), 10.0f, grid))
+                .hasValue(Point2d.of(26.5f, 18.5f));
+    }
+
+    private static Unit unit(long tag, Units type, float x, float y, float detectRange) {
+        return Unit.from(sc2ApiUnit(tag, type, x, y, detectRange));
+    }
+
+    private static Raw.Unit sc2ApiUnit(long tag, Units type, float x, float y, float detectRange) {
+        return GameServerResponses.sc2ApiUnit(tag, Raw.Alliance.Enemy, false, 1.0f)
+                .toBuilder()
+                .setUnitType(type.getUnitTypeId())
+                .setPos(Common.Point.newBuilder().setX(x).setY(y).setZ(0.0f))
+                .setRadius(1.0f)
+                .setDetectRange(detectRange)
+                .setAttackUpgradeLevel(0)
+                .build();
+    }
+
+    private static Unit ally(long tag) {
+        return Unit.from(GameServerResponses.sc2ApiUnit(tag, Raw.Alliance.Ally, false, 1.0f));
+    }
+
+    private static UnitTypeData unitType(
+            Units type, Data.Weapon.TargetType targetType, float damage, float range, float speed) {
+        return UnitTypeData.from(Data.UnitTypeData.newBuilder()
+                .setUnitId(type.getUnitTypeId())
+                .setName(type.name())
+                .addWeapons(Data.Weapon.newBuilder()
+                        .setType(targetType)
+                        .setDamage(damage)
+                        .setAttacks(1)
+                        .setRange(range)
+                        .setSpeed(speed))
+                .build());
+    }
+}
@@ -0,0 +1,234 @@
+package com.github.ocraft.s2client.bot.analysis;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.bot.GameServerResponses;
+import com.github.ocraft.s2client.bot.gateway.ExpansionParameters;
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.QueryInterface;
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.data.Units;
+import com.github.ocraft.s2client.protocol.query.QueryBuildingPlacement;
+import com.github.ocraft.s2client.protocol.spatial.Point;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import com.github.ocraft.s2client.test.TemporaryFolder;
+import com.github.ocraft.s2client.test.TemporaryFolderExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(TemporaryFolderExtension.class)
+class MapAnalyzerTest {
+
+    private static final int SIZE = 64;
+    private static final String MAP_NAME = "Two Plateaus LE";
+    private static final String DATA_VERSION = "ABCDEF";
+
+    private TemporaryFolder cacheDir;
+
+    // Low plateau on the left, high plateau on the right, connected by 4 cells wide ramp in the middle.
+    private final MapGrid grid = twoPlateaus();
+    private final List<UnitInPool> resources = resources();
+
+    @Test
+    void findsExpansionsMatchingPlacementQueries() {
+        List<Point> expansions = new MapAnalyzer().analyze(MAP_NAME, DATA_VERSION, grid, resources).getExpansions();
+        List<Point> queried = queryExpansions();
+
+        assertThat(expansions).hasSize(2).hasSameSizeAs(queried);
+        for (int i = 0; i < expansions.size(); i++) {
+            assertThat(expansions.get(i).distance(queried.get(i))).isLessThan(1.5f);
+            assertThat(isOpenGround(expansions.get(i).toPoint2d())).isTrue();
+        }
+    }
+
+    @Test
+    void findsRegionsRampsAndChokepoints() {
+        MapAnalysis analysis = new MapAnalyzer().analyze(MAP_NAME, DATA_VERSION, grid, resources);
+
+        assertThat(analysis.getRegions()).hasSize(2);
+        MapAnalysis.Region low = analysis.getRegion(Point2d.of(10, 10)).orElseThrow(AssertionError::new);
+        MapAnalysis.Region high = analysis.getRegion(Point2d.of(50, 10)).orElseThrow(AssertionError::new);
+        assertThat(low.getHeight()).isEqualTo(10.0f);
+        assertThat(high.getHeight()).isEqualTo(12.0f);
+        assertThat(analysis.getRegion(Point2d.of(32, 31))).isEmpty();
+
+        assertThat(analysis.getRamps()).hasSize(1);
+        MapAnalysis.Ramp ramp = analysis.getRamps().get(0);
+        assertThat(ramp.getUpperRegionId()).isEqualTo(high.getId());
+        assertThat(ramp.getLowerRegionId()).isEqualTo(low.getId());
+        assertThat(ramp.getArea()).isEqualTo(32);
+
+        assertThat(analysis.getChokepoints()).hasSize(1);
+        MapAnalysis.Chokepoint chokepoint = analysis.getChokepoints().get(0);
+        assertThat(chokepoint.getWidth()).isEqualTo(4.0f);
+        assertThat(chokepoint.getCenter().getY()).isCloseTo(32.0f, within(0.01f));
+    }
+
+    @Test
+    void servesAnalysisFromCacheFile() {
+        MapAnalysis analysis = new MapAnalyzer().analyze(MAP_NAME, DATA_VERSION, grid, resources);
+        new MapAnalysisCache(cacheDir.getRootFolder()).put(analysis);
+
+        MapAnalysisCache nextGameCache = new MapAnalysisCache(cacheDir.getRootFolder());
+        MapAnalysis cached = nextGameCache.getOrAnalyze(MAP_NAME, DATA_VERSION, () -> {
+            throw new AssertionError("map should not be analyzed again");
+        });
+
+        assertThat(cached).isNotSameAs(analysis);
+        assertThat(cached.getExpansions()).isEqualTo(analysis.getExpansions());
+        assertThat(cached.getRegions()).hasSameSizeAs(analysis.getRegions());
+        assertThat(cached.getRamps()).hasSameSizeAs(analysis.getRamps());
+        assertThat(cached.getChokepoints()).hasSameSizeAs(analysis.getChokepoints());
+        assertThat(cached.getRegion(Point2d.of(50, 10)).map(MapAnalysis.Region::getId))
+                .isEqualTo(analysis.getRegion(Point2d.of(50, 10)).map(MapAnalysis.Region::getId));
+        assertThat(nextGameCache.getOrAnalyze(MAP_NAME, DATA_VERSION, () -> null)).isSameAs(cached);
+        assertThat(nextGameCache.get(MAP_NAME, "OTHER")).isEmpty();
+    }
+
+    @Test
+    void analyzesMapOnceForConcurrentAgents() throws Exception {
+        MapAnalysisCache cache = new MapAnalysisCache(cacheDir.getRootFolder());
+        AtomicInteger analyzed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService agents = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<MapAnalysis>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(agents.submit(() -> {
+                    start.await();
+                    return cache.getOrAnalyze(MAP_NAME, DATA_VERSION, () -> {
+                        analyzed.incrementAndGet();
+                        return new MapAnalyzer().analyze(MAP_NAME, DATA_VERSION, grid, resources);
+                    });
+                }));
+            }
+            start.countDown();
+            MapAnalysis first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<MapAnalysis> result : results) assertThat(result.get(10, TimeUnit.SECONDS)).isSameAs(first);
+        } finally {
+            agents.shutdownNow();
+        }
+
+        assertThat(analyzed.get()).isEqualTo(1);
+        try (Stream<Path> files = Files.list(cacheDir.getRootFolder())) {
+            assertThat(files.map(file -> file.getFileName().toString()))
+                    .containsExactly(MapAnalysisCache.keyOf(MAP_NAME, DATA_VERSION) + ".analysis");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Point> queryExpansions() {
+        ObservationInterface observation = mock(ObservationInterface.class);
+        when(observation.getUnits(any(Predicate.class))).thenAnswer(invocation -> resources.stream()
+                .filter(invocation.<Predicate<UnitInPool>>getArgument(0))
+                .collect(toList()));
+
+        QueryInterface query = mock(QueryInterface.class);
+        when(query.calculateExpansionLocations(any(), any(), any())).thenCallRealMethod();
+        when(query.placement(anyList())).thenAnswer(invocation -> invocation.<List<QueryBuildingPlacement>>getArgument(0)
+                .stream()
+                .map(placement -> isOpenGround(placement.getTarget()))
+                .collect(toList()));
+
+        return query.calculateExpansionLocations(observation, null, ExpansionParameters.preset());
+    }
+
+    // Fixed answers of the game to town hall placement queries on this map, worked out by hand from the layout: the
+    // 5x5 footprint must stay on a plateau and 3 cells away from the mineral lines and geysers.
+    private static final float[][] OPEN_GROUND = {
+            {12.5f, 2.5f, 25.5f, 48.5f}, {19.5f, 2.5f, 25.5f, 61.5f}, {2.5f, 2.5f, 25.5f, 38.5f},
+            {38.5f, 13.5f, 51.5f, 61.5f}, {38.5f, 2.5f, 45.5f, 61.5f}, {38.5f, 23.5f, 61.5f, 61.5f}};
+
+    private static boolean isOpenGround(Point2d target) {
+        float x = (float) Math.floor(target.getX()) + 0.5f;
+        float y = (float) Math.floor(target.getY()) + 0.5f;
+        for (float[] area : OPEN_GROUND) {
+            if (x >= area[0] && y >= area[1] && x <= area[2] && y <= area[3]) return true;
+        }
+        return false;
+    }
+
+    private static MapGrid twoPlateaus() {
+        boolean[] pathable = new boolean[SIZE * SIZE];
+        boolean[] placeable = new boolean[SIZE * SIZE];
+        float[] heights = new float[SIZE * SIZE];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int i = y * SIZE + x;
+                boolean ramp = x >= 28 && x < 36;
+                pathable[i] = !ramp || (y >= 30 && y < 34);
+                placeable[i] = !ramp;
+                heights[i] = x < 28 ? 10.0f : x >= 36 ? 12.0f : 10.0f + (x - 27) * 0.25f;
+            }
+        }
+        return MapGrid.of(SIZE, SIZE, pathable, placeable, heights);
+    }
+
+    private static List<UnitInPool> resources() {
+        List<UnitInPool> resources = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            resources.add(resource(resources.size() + 1, Units.NEUTRAL_MINERAL_FIELD, 6.0f, 44.5f + i, 10.0f));
+            resources.add(resource(resources.size() + 1, Units.NEUTRAL_MINERAL_FIELD750, 58.0f, 10.5f + i, 12.0f));
+        }
+        resources.add(resource(resources.size() + 1, Units.NEUTRAL_VESPENE_GEYSER, 12.5f, 55.5f, 10.0f));
+        resources.add(resource(resources.size() + 1, Units.NEUTRAL_VESPENE_GEYSER, 52.5f, 6.5f, 12.0f));
+        return resources;
+    }
+
+    private static UnitInPool resource(long tag, Units type, float x, float y, float z) {
+        Unit unit = Unit.from(GameServerResponses.sc2ApiUnit(tag, Raw.Alliance.Neutral, false, 1.0f).toBuilder()
+                .setUnitType(type.getUnitTypeId())
+                .setPos(Common.Point.newBuilder().setX(x).setY(y).setZ(z))
+                .build());
+        return new UnitInPool(Tag.of(tag)).update(unit, 0, true);
+    }
+}
@@ -0,0 +1,272 @@
+package com.github.ocraft.s2client.bot.analysis;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.protocol.observation.raw.MapState;
+import com.github.ocraft.s2client.protocol.observation.raw.Visibility;
+import com.github.ocraft.s2client.protocol.observation.spatial.ImageData;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class MapStateTrackerTest {
+
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 5;
+
+    private static final int FOGGED = 1;
+    private static final int VISIBLE = 2;
+
+    @Test
+    void decodesImagesOfBothOrigins() {
+        int[] visibility = new int[WIDTH * HEIGHT];
+        boolean[] creep = new boolean[WIDTH * HEIGHT];
+        visibility[cell(3, 4)] = VISIBLE;
+        visibility[cell(15, 0)] = FOGGED;
+        creep[cell(7, 2)] = true;
+        creep[cell(0, 4)] = true;
+
+        for (ImageData.Origin origin : ImageData.Origin.values()) {
+            MapStateTracker tracker = MapStateTracker.of(WIDTH, HEIGHT);
+            tracker.update(1, mapState(visibility, creep, origin), origin);
+
+            assertThat(tracker.getVisibility(3, 4)).isEqualTo(Visibility.VISIBLE);
+            assertThat(tracker.getVisibility(15, 0)).isEqualTo(Visibility.FOGGED);
+            assertThat(tracker.getVisibility(0, 0)).isEqualTo(Visibility.HIDDEN);
+            assertThat(tracker.getVisibility(-1, 0)).isEqualTo(Visibility.FULL_HIDDEN);
+            assertThat(tracker.hasCreep(7, 2)).isTrue();
+            assertThat(tracker.hasCreep(0, 4)).isTrue();
+            assertThat(tracker.hasCreep(7, 3)).isFalse();
+            assertThat(tracker.getVisibleCellCount()).isEqualTo(1);
+            assertThat(tracker.getCreepCellCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void tracksChangedCellsAndLastSeenLoop() {
+        MapStateTracker tracker = MapStateTracker.of(WIDTH, HEIGHT);
+        int[] visibility = new int[WIDTH * HEIGHT];
+        visibility[cell(1, 1)] = VISIBLE;
+        visibility[cell(14, 3)] = VISIBLE;
+        tracker.update(10, mapState(visibility, new boolean[WIDTH * HEIGHT]), ImageData.Origin.BOTTOM_LEFT);
+
+        visibility[cell(1, 1)] = FOGGED;
+        visibility[cell(2, 1)] = VISIBLE;
+        tracker.update(20, mapState(visibility, new boolean[WIDTH * HEIGHT]), ImageData.Origin.BOTTOM_LEFT);
+
+        assertThat(tracker.getChangedVisibilityCount()).isEqualTo(2);
+        assertThat(cells(tracker::forEachVisibilityChange)).containsExactlyInAnyOrder(cell(1, 1), cell(2, 1));
+        assertThat(tracker.getLastSeenLoop(1, 1)).isEqualTo(10);
+        assertThat(tracker.getLastSeenLoop(2, 1)).isEqualTo(20);
+        assertThat(tracker.getLastSeenLoop(14, 3)).isEqualTo(20);
+        assertThat(tracker.getLastSeenLoop(0, 0)).isEqualTo(MapStateTracker.NEVER);
+        assertThat(tracker.getVisibleCellCount()).isEqualTo(2);
+        assertThat(tracker.getVisibleFraction()).isEqualTo(2.0f / (WIDTH * HEIGHT));
+    }
+
+    @Test
+    void findsCellsNotSeenForLoops() {
+        MapStateTracker tracker = MapStateTracker.of(WIDTH, HEIGHT);
+        int[] visibility = new int[WIDTH * HEIGHT];
+        visibility[cell(1, 1)] = VISIBLE;
+        visibility[cell(2, 1)] = VISIBLE;
+        tracker.update(10, mapState(visibility, new boolean[WIDTH * HEIGHT]), ImageData.Origin.BOTTOM_LEFT);
+        visibility[cell(1, 1)] = FOGGED;
+        tracker.update(20, mapState(visibility, new boolean[WIDTH * HEIGHT]), ImageData.Origin.BOTTOM_LEFT);
+
+        List<Integer> notSeenFor5 = cells(consumer -> tracker.forEachCellNotSeenFor(5, consumer));
+        List<Integer> notSeenFor15 = cells(consumer -> tracker.forEachCellNotSeenFor(15, consumer));
+
+        assertThat(notSeenFor5).hasSize(WIDTH * HEIGHT - 1).contains(cell(1, 1)).doesNotContain(cell(2, 1));
+        assertThat(notSeenFor5.get(notSeenFor5.size() - 1)).isEqualTo(cell(1, 1));
+        assertThat(notSeenFor15).hasSize(WIDTH * HEIGHT - 2).doesNotContain(cell(1, 1), cell(2, 1));
+
+        for (int loop = 30; loop <= 2000; loop += 10) {
+            visibility[cell(1, 1)] = loop % 20 == 0 ? FOGGED : VISIBLE;
+            tracker.update(loop, mapState(visibility, new boolean[WIDTH * HEIGHT]), ImageData.Origin.BOTTOM_LEFT);
+        }
+
+        assertThat(cells(consumer -> tracker.forEachCellNotSeenFor(0, consumer)))
+                .hasSize(WIDTH * HEIGHT - 1)
+                .contains(cell(1, 1));
+        assertThat(tracker.getLastSeenLoop(1, 1)).isEqualTo(1990);
+    }
+
+    @Test
+    void findsCellsNotSeenForLoopsWhenAlmostEveryCellIsVisible() {
+        MapStateTracker tracker = MapStateTracker.of(WIDTH, HEIGHT);
+        int[] visibility = new int[WIDTH * HEIGHT];
+        Arrays.fill(visibility, VISIBLE);
+        visibility[cell(0, 0)] = 0;
+
+        for (int loop = 10; loop <= 200; loop += 10) {
+            visibility[cell(3, 2)] = loop % 40 == 0 ? FOGGED : VISIBLE;
+            visibility[cell(7, 4)] = loop == 100 ? VISIBLE : FOGGED;
+            tracker.update(loop, mapState(visibility, new boolean[WIDTH * HEIGHT]), ImageData.Origin.BOTTOM_LEFT);
+
+            List<Integer> notSeenFor0 = cells(consumer -> tracker.forEachCellNotSeenFor(0, consumer));
+            List<Integer> notSeenFor50 = cells(consumer -> tracker.forEachCellNotSeenFor(50, consumer));
+
+            List<Integer> expected = new ArrayList<>();
+            expected.add(cell(0, 0));
+            if (loop != 100) expected.add(cell(7, 4));
+            if (loop % 40 == 0) expected.add(cell(3, 2));
+            assertThat(notSeenFor0).containsExactlyElementsOf(expected);
+            assertThat(notSeenFor50).containsExactlyElementsOf(loop < 100 || loop >= 150
+                    ? asList(cell(0, 0), cell(7, 4))
+                    : singletonList(cell(0, 0)));
+        }
+    }
+
+    @Test
+    void maintainsCreepFrontier() {
+        MapStateTracker tracker = MapStateTracker.of(WIDTH, HEIGHT);
+        boolean[] creep = new boolean[WIDTH * HEIGHT];
+        for (int x = 5; x <= 7; x++) {
+            for (int y = 1; y <= 3; y++) creep[cell(x, y)] = true;
+        }
+        tracker.update(1, mapState(new int[WIDTH * HEIGHT], creep), ImageData.Origin.BOTTOM_LEFT);
+
+        assertThat(tracker.getCreepCellCount()).isEqualTo(9);
+        assertThat(tracker.getCreepFrontierCount()).isEqualTo(8);
+        assertThat(tracker.isCreepFrontier(6, 2)).isFalse();
+        assertThat(tracker.isCreepFrontier(5, 1)).isTrue();
+
+        creep[cell(6, 3)] = false;
+        tracker.update(2, mapState(new int[WIDTH * HEIGHT], creep), ImageData.Origin.BOTTOM_LEFT);
+
+        assertThat(tracker.getChangedCreepCount()).isEqualTo(1);
+        assertThat(cells(tracker::forEachCreepChange)).containsExactly(cell(6, 3));
+        assertThat(tracker.isCreepFrontier(6, 2)).isTrue();
+        assertThat(tracker.getCreepFrontierCount()).isEqualTo(8);
+        assertThat(cells(tracker::forEachCreepFrontierCell)).hasSize(8).doesNotContain(cell(6, 3));
+    }
+
+    @Test
+    void aggregatesRegions() {
+        MapAnalysis.Region left = new MapAnalysis.Region(1, Point2d.of(4, 2.5f), 40, 10.0f);
+        MapAnalysis.Region right = new MapAnalysis.Region(2, Point2d.of(12, 2.5f), 40, 12.0f);
+        short[] regionIds = new short[WIDTH * HEIGHT];
+        for (int i = 0; i < regionIds.length; i++) regionIds[i] = (short) (i % WIDTH < WIDTH / 2 ? 1 : 2);
+        MapAnalysis analysis = new MapAnalysis("map", "version", Collections.emptyList(), List.of(left, right),
+                Collections.emptyList(), Collections.emptyList(), WIDTH, HEIGHT, regionIds);
+        MapStateTracker tracker = MapStateTracker.of(analysis);
+        int[] visibility = new int[WIDTH * HEIGHT];
+        boolean[] creep = new boolean[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) visibility[cell(1, y)] = VISIBLE;
+        for (int x = 8; x < WIDTH; x++) creep[cell(x, 0)] = true;
+
+        tracker.update(1, mapState(visibility, creep), ImageData.Origin.BOTTOM_LEFT);
+
+        assertThat(tracker.getVisibleFraction(left)).isEqualTo(5.0f / 40);
+        assertThat(tracker.getVisibleFraction(right)).isZero();
+        assertThat(tracker.getCreepFraction(left)).isZero();
+        assertThat(tracker.getCreepFraction(right)).isEqualTo(8.0f / 40);
+    }
+
+    @Test
+    void startsOverWhenGameLoopGoesBack() {
+        MapStateTracker tracker = MapStateTracker.of(WIDTH, HEIGHT);
+        int[] visibility = new int[WIDTH * HEIGHT];
+        visibility[cell(1, 1)] = VISIBLE;
+        tracker.update(100, mapState(visibility, new boolean[WIDTH * HEIGHT]), ImageData.Origin.BOTTOM_LEFT);
+        visibility[cell(1, 1)] = FOGGED;
+        tracker.update(200, mapState(visibility, new boolean[WIDTH * HEIGHT]), ImageData.Origin.BOTTOM_LEFT);
+
+        tracker.update(1, mapState(new int[WIDTH * HEIGHT], new boolean[WIDTH * HEIGHT]), ImageData.Origin.BOTTOM_LEFT);
+
+        assertThat(tracker.getGameLoop()).isEqualTo(1);
+        assertThat(tracker.getLastSeenLoop(1, 1)).isEqualTo(MapStateTracker.NEVER);
+        assertThat(tracker.getChangedVisibilityCount()).isZero();
+    }
+
+    @Test
+    void throwsExceptionWhenImageSizeDoesNotMatch() {
+        MapStateTracker tracker = MapStateTracker.of(WIDTH + 1, HEIGHT);
+        MapState mapState = mapState(new int[WIDTH * HEIGHT], new boolean[WIDTH * HEIGHT]);
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> tracker.update(1, mapState, ImageData.Origin.BOTTOM_LEFT))
+                .withMessage("visibility size 16x5 doesn't match map size 17x5");
+    }
+
+    private interface CellSource {
+        void forEach(MapStateTracker.CellConsumer consumer);
+    }
+
+    private static List<Integer> cells(CellSource source) {
+        List<Integer> cells = new ArrayList<>();
+        source.forEach((x, y) -> cells.add(cell(x, y)));
+        return cells;
+    }
+
+    private static int cell(int x, int y) {
+        return y * WIDTH + x;
+    }
+
+    private static MapState mapState(int[] visibility, boolean[] creep) {
+        return mapState(visibility, creep, ImageData.Origin.BOTTOM_LEFT);
+    }
+
+    // Cells are given with bottom left origin, images are encoded with the origin of the game version.
+    private static MapState mapState(int[] visibility, boolean[] creep, ImageData.Origin origin) {
+        byte[] visibilityData = new byte[WIDTH * HEIGHT];
+        byte[] creepData = new byte[WIDTH * HEIGHT / 8];
+        for (int y = 0; y < HEIGHT; y++) {
+            int row = origin == ImageData.Origin.UPPER_LEFT ? HEIGHT - 1 - y : y;
+            for (int x = 0; x < WIDTH; x++) {
+                int index = row * WIDTH + x;
+                visibilityData[index] = (byte) visibility[cell(x, y)];
+                if (creep[cell(x, y)]) creepData[index / 8] |= 1 << (index % 8);
+            }
+        }
+        return MapState.from(Raw.MapState.newBuilder()
+                .setVisibility(image(8, visibilityData))
+                .setCreep(image(1, creepData))
+                .build());
+    }
+
+    private static Common.ImageData image(int bitsPerPixel, byte[] data) {
+        return Common.ImageData.newBuilder()
+                .setBitsPerPixel(bitsPerPixel)
+                .setSize(Common.Size2DI.newBuilder().setX(WIDTH).setY(HEIGHT))
+                .setData(ByteString.copyFrom(data))
+                .build();
+    }
+}
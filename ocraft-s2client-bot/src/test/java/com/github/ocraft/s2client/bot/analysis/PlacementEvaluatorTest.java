@@ -0,0 +1,227 @@
+package com.github.ocraft.s2client.bot.analysis;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Data;
+import SC2APIProtocol.Raw;
+import SC2APIProtocol.Sc2Api;
+import com.github.ocraft.s2client.bot.GameServerResponses;
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.bot.gateway.QueryInterface;
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.data.*;
+import com.github.ocraft.s2client.protocol.observation.Observation;
+import com.github.ocraft.s2client.protocol.observation.raw.PowerSource;
+import com.github.ocraft.s2client.protocol.observation.spatial.ImageData;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class PlacementEvaluatorTest {
+
+    private static final int SIZE = 32;
+    private static final int CLIFF_X = 20;
+    private static final int CREEP_EDGE_X = 8;
+
+    private final ObservationInterface observation = mock(ObservationInterface.class);
+    private final List<UnitInPool> units = new ArrayList<>();
+    private final List<PowerSource> powerSources = new ArrayList<>();
+
+    @Test
+    void checksTerrainAndStructureFootprints() {
+        units.add(unit(1, Units.TERRAN_BARRACKS, 12.5f, 12.5f, 1.8125f));
+
+        PlacementEvaluator evaluator = evaluator();
+
+        assertThat(evaluator.canPlace(Abilities.BUILD_SUPPLY_DEPOT, Point2d.of(14.0f, 12.0f))).isFalse();
+        assertThat(evaluator.canPlace(Abilities.BUILD_SUPPLY_DEPOT, Point2d.of(15.0f, 15.0f))).isTrue();
+        assertThat(evaluator.canPlace(Abilities.BUILD_SUPPLY_DEPOT, Point2d.of(20.0f, 5.0f))).isFalse();
+        assertThat(evaluator.canPlace(Abilities.BUILD_SUPPLY_DEPOT, Point2d.of(22.0f, 5.0f))).isTrue();
+        assertThat(evaluator.snap(Abilities.BUILD_BARRACKS, Point2d.of(15.2f, 15.9f)))
+                .isEqualTo(Point2d.of(15.5f, 15.5f));
+    }
+
+    @Test
+    void checksCreepPowerAndResourceDistance() {
+        powerSources.add(PowerSource.from(Raw.PowerSource.newBuilder()
+                .setPos(Common.Point.newBuilder().setX(26.0f).setY(26.0f).setZ(0.0f))
+                .setRadius(6.5f)
+                .setTag(100L)
+                .build()));
+        units.add(unit(2, Units.NEUTRAL_MINERAL_FIELD, 26.0f, 6.5f, 1.125f));
+
+        PlacementEvaluator evaluator = evaluator();
+
+        assertThat(evaluator.canPlace(Abilities.BUILD_SPAWNING_POOL, Point2d.of(4.5f, 20.5f))).isTrue();
+        assertThat(evaluator.canPlace(Abilities.BUILD_SPAWNING_POOL, Point2d.of(14.5f, 20.5f))).isFalse();
+        assertThat(evaluator.canPlace(Abilities.BUILD_SUPPLY_DEPOT, Point2d.of(4.0f, 20.0f))).isFalse();
+        assertThat(evaluator.canPlace(Abilities.BUILD_GATEWAY, Point2d.of(24.5f, 24.5f))).isTrue();
+        assertThat(evaluator.canPlace(Abilities.BUILD_GATEWAY, Point2d.of(24.5f, 14.5f))).isFalse();
+        assertThat(evaluator.canPlace(Abilities.BUILD_COMMAND_CENTER, Point2d.of(26.5f, 11.5f))).isFalse();
+        assertThat(evaluator.canPlace(Abilities.BUILD_COMMAND_CENTER, Point2d.of(26.5f, 12.5f))).isTrue();
+    }
+
+    @Test
+    void findsRankedPlacementsInParallel() {
+        units.add(unit(1, Units.TERRAN_BARRACKS, 12.5f, 12.5f, 1.8125f));
+        PlacementEvaluator evaluator = evaluator();
+        Point2d center = Point2d.of(12.5f, 12.5f);
+
+        List<Point2d> nearest = evaluator.findPlacements(Abilities.BUILD_BARRACKS, center, 5.0f, 4);
+        List<Point2d> all = evaluator.findPlacements(Abilities.BUILD_BARRACKS, center, 64.0f, Integer.MAX_VALUE);
+
+        assertThat(nearest).hasSize(4).containsExactlyElementsOf(all.subList(0, 4));
+        assertThat(nearest.get(0).distance(center)).isEqualTo(3.0f);
+        assertThat(all).allMatch(position -> evaluator.canPlace(Abilities.BUILD_BARRACKS, position));
+        for (int i = 1; i < all.size(); i++) {
+            assertThat(all.get(i).distance(center)).isGreaterThanOrEqualTo(all.get(i - 1).distance(center));
+        }
+    }
+
+    @Test
+    void confirmsPlacementsWithSingleQuery() {
+        QueryInterface query = mock(QueryInterface.class);
+        when(query.placement(anyList())).thenReturn(asList(false, true, true));
+        List<Point2d> positions = asList(Point2d.of(1.5f, 1.5f), Point2d.of(4.5f, 4.5f), Point2d.of(8.5f, 8.5f));
+
+        assertThat(evaluator().confirm(query, Abilities.BUILD_BARRACKS, positions)).hasValue(positions.get(1));
+        verify(query, times(1)).placement(anyList());
+    }
+
+    @Test
+    void throwsExceptionForUnknownBuildingAbility() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> evaluator().canPlace(Abilities.ATTACK, Point2d.of(1.0f, 1.0f)))
+                .withMessageContaining("unknown building ability");
+    }
+
+    private PlacementEvaluator evaluator() {
+        when(observation.getUnits()).thenReturn(units);
+        when(observation.getPowerSources()).thenReturn(powerSources);
+        when(observation.getRawObservation()).thenReturn(observationWithCreep());
+        when(observation.getImageOrigin()).thenReturn(ImageData.Origin.UPPER_LEFT);
+        when(observation.getAbilityData(false)).thenReturn(abilityData());
+        when(observation.getUnitTypeData(false)).thenReturn(unitTypeData());
+        return PlacementEvaluator.from(observation, grid());
+    }
+
+    // Creep left of CREEP_EDGE_X, as a 1 bit image stored from the top row like the game does.
+    private static Observation observationWithCreep() {
+        byte[] creep = new byte[SIZE * SIZE / 8];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < CREEP_EDGE_X; x++) {
+                int index = x + (SIZE - 1 - y) * SIZE;
+                creep[index / 8] |= 1 << (index % 8);
+            }
+        }
+        Sc2Api.Observation observation = GameServerResponses.observation().getObservation().getObservation();
+        return Observation.from(observation.toBuilder()
+                .setRawData(observation.getRawData().toBuilder()
+                        .setMapState(Raw.MapState.newBuilder()
+                                .setVisibility(image(8, new byte[SIZE * SIZE]))
+                                .setCreep(image(1, creep))))
+                .build());
+    }
+
+    private static Common.ImageData image(int bitsPerPixel, byte[] data) {
+        return Common.ImageData.newBuilder()
+                .setBitsPerPixel(bitsPerPixel)
+                .setSize(Common.Size2DI.newBuilder().setX(SIZE).setY(SIZE))
+                .setData(ByteString.copyFrom(data))
+                .build();
+    }
+
+    private static MapGrid grid() {
+        boolean[] pathable = new boolean[SIZE * SIZE];
+        boolean[] placeable = new boolean[SIZE * SIZE];
+        Arrays.fill(pathable, true);
+        for (int i = 0; i < placeable.length; i++) placeable[i] = i % SIZE != CLIFF_X;
+        return MapGrid.of(SIZE, SIZE, pathable, placeable, new float[SIZE * SIZE]);
+    }
+
+    private static Map<Ability, AbilityData> abilityData() {
+        Map<Ability, AbilityData> abilities = new HashMap<>();
+        building(abilities, Abilities.BUILD_SUPPLY_DEPOT, 1.0f);
+        building(abilities, Abilities.BUILD_BARRACKS, 1.5f);
+        building(abilities, Abilities.BUILD_COMMAND_CENTER, 2.5f);
+        building(abilities, Abilities.BUILD_GATEWAY, 1.5f);
+        building(abilities, Abilities.BUILD_SPAWNING_POOL, 1.5f);
+        return abilities;
+    }
+
+    private static void building(Map<Ability, AbilityData> abilities, Abilities ability, float footprintRadius) {
+        abilities.put(ability, AbilityData.from(Data.AbilityData.newBuilder()
+                .setAbilityId(ability.getAbilityId())
+                .setLinkName(ability.name())
+                .setLinkIndex(0)
+                .setIsBuilding(true)
+                .setFootprintRadius(footprintRadius)
+                .build()));
+    }
+
+    private static Map<UnitType, UnitTypeData> unitTypeData() {
+        Map<UnitType, UnitTypeData> unitTypes = new HashMap<>();
+        structure(unitTypes, Units.TERRAN_SUPPLY_DEPOT, Abilities.BUILD_SUPPLY_DEPOT, Common.Race.Terran);
+        structure(unitTypes, Units.TERRAN_BARRACKS, Abilities.BUILD_BARRACKS, Common.Race.Terran);
+        structure(unitTypes, Units.TERRAN_COMMAND_CENTER, Abilities.BUILD_COMMAND_CENTER, Common.Race.Terran);
+        structure(unitTypes, Units.PROTOSS_GATEWAY, Abilities.BUILD_GATEWAY, Common.Race.Protoss);
+        structure(unitTypes, Units.ZERG_SPAWNING_POOL, Abilities.BUILD_SPAWNING_POOL, Common.Race.Zerg);
+        return unitTypes;
+    }
+
+    private static void structure(
+            Map<UnitType, UnitTypeData> unitTypes, Units type, Abilities ability, Common.Race race) {
+        unitTypes.put(type, UnitTypeData.from(Data.UnitTypeData.newBuilder()
+                .setUnitId(type.getUnitTypeId())
+                .setName(type.name())
+                .setAbilityId(ability.getAbilityId())
+                .setRace(race)
+                .addAttributes(Data.Attribute.Structure)
+                .build()));
+    }
+
+    private static UnitInPool unit(long tag, Units type, float x, float y, float radius) {
+        Unit unit = Unit.from(GameServerResponses.sc2ApiUnit(tag, Raw.Alliance.Self, false, 1.0f).toBuilder()
+                .setUnitType(type.getUnitTypeId())
+                .setPos(Common.Point.newBuilder().setX(x).setY(y).setZ(0.0f))
+                .setRadius(radius)
+                .setIsFlying(false)
+                .build());
+        return new UnitInPool(Tag.of(tag)).update(unit, 0, true);
+    }
+}
@@ -0,0 +1,229 @@
+package com.github.ocraft.s2client.bot.combat;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Data;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.bot.GameServerResponses;
+import com.github.ocraft.s2client.protocol.data.UnitAttribute;
+import com.github.ocraft.s2client.protocol.data.UnitTypeData;
+import com.github.ocraft.s2client.protocol.data.Units;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.within;
+
+class CombatSimulatorTest {
+
+    private static final CombatData DATA = CombatData.compile(Arrays.asList(
+            unitType(Units.TERRAN_MARINE, 0, 50, 0, weapon(Data.Weapon.TargetType.Any, 6, 1, 5, 0.61f),
+                    Data.Attribute.Light, Data.Attribute.Biological),
+            unitType(Units.TERRAN_MARAUDER, 1, 100, 25, weapon(Data.Weapon.TargetType.Ground, 10, 1, 6, 1.07f)
+                            .addDamageBonus(bonus(Data.Attribute.Armored, 10)),
+                    Data.Attribute.Armored, Data.Attribute.Biological),
+            unitType(Units.PROTOSS_ZEALOT, 1, 100, 0, weapon(Data.Weapon.TargetType.Ground, 8, 2, 0.1f, 0.86f),
+                    Data.Attribute.Light, Data.Attribute.Biological),
+            unitType(Units.PROTOSS_STALKER, 1, 125, 50, weapon(Data.Weapon.TargetType.Any, 13, 1, 6, 1.34f)
+                            .addDamageBonus(bonus(Data.Attribute.Armored, 5)),
+                    Data.Attribute.Armored, Data.Attribute.Mechanical),
+            unitType(Units.TERRAN_BANSHEE, 0, 150, 100, weapon(Data.Weapon.TargetType.Ground, 12, 2, 6, 1.25f),
+                    Data.Attribute.Light, Data.Attribute.Mechanical)));
+
+    @Test
+    void compilesWeaponsWithBonusesAndAttributes() {
+        int stalker = Units.PROTOSS_STALKER.getUnitTypeId();
+        int marauder = Units.TERRAN_MARAUDER.getUnitTypeId();
+
+        assertThat(DATA.damagePerSecond(stalker, 0, marauder, false, 1.0f)).isCloseTo(17.0f / 1.34f, within(1e-4f));
+        assertThat(DATA.damagePerSecond(stalker, 2, marauder, false, 1.0f)).isCloseTo(19.0f / 1.34f, within(1e-4f));
+        assertThat(DATA.damagePerSecond(marauder, 0, stalker, false, 100.0f)).isCloseTo(0.5f / 1.07f, within(1e-4f));
+        assertThat(DATA.canAttack(Units.TERRAN_BANSHEE.getUnitTypeId(), true)).isFalse();
+        assertThat(DATA.getRange(Units.TERRAN_MARINE.getUnitTypeId(), true)).isEqualTo(5.0f);
+        assertThat(DATA.hasAttribute(marauder, UnitAttribute.ARMORED)).isTrue();
+        assertThat(DATA.getValue(Units.PROTOSS_STALKER.getUnitTypeId())).isEqualTo(175);
+        assertThat(DATA.damagePerSecond(Units.ZERG_ZERGLING.getUnitTypeId(), 0, marauder, false, 0.0f)).isZero();
+    }
+
+    @Test
+    void predictsWinOfLargerArmy() {
+        CombatSimulator simulator = CombatSimulator.builder(DATA).build();
+
+        CombatPrediction prediction = simulator.predict(marines(10, 0), marines(5, 0));
+
+        assertThat(prediction.getOutcome()).isEqualTo(CombatPrediction.Outcome.WIN);
+        assertThat(prediction.getEnemySurvivors()).isZero();
+        assertThat(prediction.getOwnSurvivors()).isBetween(6, 9);
+        assertThat(prediction.getOwnValue()).isEqualTo(prediction.getOwnSurvivors() * 50);
+        assertThat(prediction.getEnemyValue()).isZero();
+        assertThat(prediction.getOwnHitPoints()).isPositive().isLessThan(450.0f);
+        assertThat(prediction.getDuration()).isPositive();
+    }
+
+    @Test
+    void predictsLossAgainstUnitsThatCantBeHit() {
+        CombatSimulator simulator = CombatSimulator.builder(DATA).build();
+        CombatArmy zealots = new CombatArmy()
+                .add(Units.PROTOSS_ZEALOT, 100.0f, 50.0f, false)
+                .add(Units.PROTOSS_ZEALOT, 100.0f, 50.0f, false);
+        CombatArmy banshee = new CombatArmy().add(Units.TERRAN_BANSHEE, 140.0f, 0.0f, true);
+
+        CombatPrediction prediction = simulator.predict(zealots, banshee);
+
+        assertThat(prediction.getOutcome()).isEqualTo(CombatPrediction.Outcome.LOSS);
+        assertThat(prediction.getEnemyHitPoints()).isEqualTo(140.0f);
+        assertThat(prediction.getEnemyValue()).isEqualTo(250);
+    }
+
+    @Test
+    void predictsDrawWhenNoneCanAttack() {
+        CombatSimulator simulator = CombatSimulator.builder(DATA).build();
+        CombatArmy banshee = new CombatArmy().add(Units.TERRAN_BANSHEE, 140.0f, 0.0f, true);
+
+        CombatPrediction prediction = simulator.predict(banshee, banshee);
+
+        assertThat(prediction.getOutcome()).isEqualTo(CombatPrediction.Outcome.DRAW);
+        assertThat(prediction.getDuration()).isZero();
+        assertThat(prediction.getOwnSurvivors()).isEqualTo(1);
+    }
+
+    @Test
+    void takesUpgradesAndCurrentHealthOfLiveUnits() {
+        CombatSimulator simulator = CombatSimulator.builder(DATA).build();
+
+        CombatPrediction upgraded = simulator.predict(marines(5, 1), marines(5, 0));
+        CombatPrediction wounded = simulator.predict(CombatArmy.of(liveMarines(5, 20.0f)), marines(5, 0));
+
+        assertThat(upgraded.getOutcome()).isEqualTo(CombatPrediction.Outcome.WIN);
+        assertThat(wounded.getOutcome()).isEqualTo(CombatPrediction.Outcome.LOSS);
+    }
+
+    @Test
+    void reusesPredictionForRepeatedFights() {
+        CombatSimulator simulator = CombatSimulator.builder(DATA).build();
+        CombatPrediction prediction = new CombatPrediction();
+        CombatArmy own = marines(10, 0);
+        CombatArmy enemy = marines(5, 0);
+
+        CombatPrediction first = simulator.predict(own, enemy, prediction);
+        int survivors = first.getOwnSurvivors();
+        own.clear();
+        own.add(Units.TERRAN_MARINE, 45.0f, 0.0f, false);
+
+        assertThat(simulator.predict(own, enemy, prediction)).isSameAs(first);
+        assertThat(prediction.getOutcome()).isEqualTo(CombatPrediction.Outcome.LOSS);
+        assertThat(simulator.predict(marines(10, 0), enemy).getOwnSurvivors()).isEqualTo(survivors);
+    }
+
+    @Test
+    void predictsBatchOfEngagementsInParallel() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            CombatSimulator simulator = CombatSimulator.builder(DATA).withPool(pool).withSplitThreshold(2).build();
+            List<CombatEngagement> engagements = new ArrayList<>();
+            for (int i = 1; i <= 40; i++) engagements.add(new CombatEngagement(marines(i % 12 + 1, 0), marines(6, 0)));
+
+            simulator.predictAll(engagements);
+
+            for (CombatEngagement engagement : engagements) {
+                CombatPrediction expected = simulator.predict(engagement.getOwn(), engagement.getEnemy());
+                assertThat(engagement.getPrediction().getOutcome()).isEqualTo(expected.getOutcome());
+                assertThat(engagement.getPrediction().getOwnSurvivors()).isEqualTo(expected.getOwnSurvivors());
+                assertThat(engagement.getPrediction().getEnemyHitPoints()).isEqualTo(expected.getEnemyHitPoints());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void throwsExceptionForInvalidSettings() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> CombatSimulator.builder(null))
+                .withMessage("combat data is required");
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> CombatSimulator.builder(DATA).withTimeStep(0.0f))
+                .withMessage("time step must be greater than 0");
+    }
+
+    private static CombatArmy marines(int count, int attackUpgrade) {
+        CombatArmy army = new CombatArmy();
+        for (int i = 0; i < count; i++) {
+            army.add(Units.TERRAN_MARINE.getUnitTypeId(), 45.0f, 0.0f, false, attackUpgrade, 0, 0);
+        }
+        return army;
+    }
+
+    private static List<Unit> liveMarines(int count, float health) {
+        List<Unit> units = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            units.add(Unit.from(GameServerResponses.sc2ApiUnit((long) i + 1, Raw.Alliance.Self, false, 1.0f)
+                    .toBuilder()
+                    .setUnitType(Units.TERRAN_MARINE.getUnitTypeId())
+                    .setHealth(health)
+                    .setHealthMax(45.0f)
+                    .setShield(0.0f)
+                    .setAttackUpgradeLevel(0)
+                    .build()));
+        }
+        return units;
+    }
+
+    private static UnitTypeData unitType(
+            Units type, float armor, int minerals, int vespene, Data.Weapon.Builder weapon,
+            Data.Attribute... attributes) {
+        return UnitTypeData.from(Data.UnitTypeData.newBuilder()
+                .setUnitId(type.getUnitTypeId())
+                .setName(type.name())
+                .setArmor(armor)
+                .setMineralCost(minerals)
+                .setVespeneCost(vespene)
+                .addAllAttributes(Arrays.asList(attributes))
+                .addWeapons(weapon)
+                .build());
+    }
+
+    private static Data.Weapon.Builder weapon(
+            Data.Weapon.TargetType targetType, float damage, int attacks, float range, float speed) {
+        return Data.Weapon.newBuilder()
+                .setType(targetType)
+                .setDamage(damage)
+                .setAttacks(attacks)
+                .setRange(range)
+                .setSpeed(speed);
+    }
+
+    private static Data.DamageBonus bonus(Data.Attribute attribute, float bonus) {
+        return Data.DamageBonus.newBuilder().setAttribute(attribute).setBonus(bonus).build();
+    }
+}
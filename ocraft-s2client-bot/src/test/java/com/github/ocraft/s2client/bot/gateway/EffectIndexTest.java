@@ -0,0 +1,139 @@
+package com.github.ocraft.s2client.bot.gateway;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Data;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.bot.GameServerResponses;
+import com.github.ocraft.s2client.protocol.data.Effect;
+import com.github.ocraft.s2client.protocol.data.EffectData;
+import com.github.ocraft.s2client.protocol.data.Effects;
+import com.github.ocraft.s2client.protocol.observation.raw.EffectLocations;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EffectIndexTest {
+
+    private static final EffectLocations STORM = effect(Effects.PSI_STORM_PERSISTENT, 1.5f, 50.0f, 50.0f);
+    private static final EffectLocations BILES = effect(Effects.RAVAGER_CORROSIVE_BILE_CP, null,
+            20.0f, 20.0f, 30.0f, 20.0f);
+    private static final EffectLocations SPINES = effect(Effects.LURKER_MP, 0.5f, 100.0f, 100.0f, 108.0f, 100.0f);
+
+    private static final Map<Effect, EffectData> EFFECT_DATA = Collections.singletonMap(
+            Effects.RAVAGER_CORROSIVE_BILE_CP, EffectData.from(Data.EffectData.newBuilder()
+                    .setEffectId(Effects.RAVAGER_CORROSIVE_BILE_CP.getEffectId())
+                    .setName("RavagerCorrosiveBileCP")
+                    .setFriendlyName("Corrosive Bile")
+                    .setRadius(0.5f)
+                    .build()));
+
+    private final EffectIndex index = EffectIndex.of(Arrays.asList(STORM, BILES, SPINES), EFFECT_DATA);
+
+    @Test
+    void testsPointsAgainstEffectCircles() {
+        assertThat(index.isAffected(Point2d.of(51.0f, 51.0f))).isTrue();
+        assertThat(index.isAffected(Point2d.of(51.5f, 51.5f))).isFalse();
+        assertThat(index.getEffectsAt(Point2d.of(49.0f, 50.0f))).containsExactly(STORM);
+        assertThat(index.getEffectsAt(Point2d.of(10.0f, 10.0f))).isEmpty();
+    }
+
+    @Test
+    void usesRadiusOfEffectDataWhenObservationHasNone() {
+        assertThat(index.getEffectsAt(Point2d.of(30.4f, 20.0f))).containsExactly(BILES);
+        assertThat(index.isAffected(Point2d.of(25.0f, 20.0f))).isFalse();
+        assertThat(index.isAffected(Point2d.of(20.0f, 20.6f))).isFalse();
+    }
+
+    @Test
+    void testsPointsAgainstLurkerSpineSegments() {
+        assertThat(index.getEffectsAt(Point2d.of(104.0f, 100.4f))).containsExactly(SPINES);
+        assertThat(index.isAffected(Point2d.of(104.0f, 100.6f))).isFalse();
+        assertThat(index.isAffected(Point2d.of(108.4f, 100.0f))).isTrue();
+    }
+
+    @Test
+    void testsUnitFootprintsInBulk() {
+        Unit inStorm = unit(1, 52.0f, 50.0f, 0.6f);
+        Unit nearStorm = unit(2, 52.0f, 50.0f, 0.4f);
+        Unit inBiles = unit(3, 30.0f, 21.0f, 0.6f);
+        List<Unit> squad = Arrays.asList(inStorm, nearStorm, inBiles);
+
+        assertThat(index.isAffected(inStorm)).isTrue();
+        assertThat(index.getEffectsAffecting(nearStorm)).isEmpty();
+        assertThat(index.getAffectedUnits(squad)).containsExactly(inStorm, inBiles);
+
+        List<String> pairs = new ArrayList<>();
+        index.forEachAffected(squad, (unit, effect) -> pairs.add(unit.getTag() + ":" + effect.getEffect()));
+        assertThat(pairs).containsExactly(
+                inStorm.getTag() + ":" + Effects.PSI_STORM_PERSISTENT,
+                inBiles.getTag() + ":" + Effects.RAVAGER_CORROSIVE_BILE_CP);
+    }
+
+    @Test
+    void reportsEffectsOnceWhenPositionsOverlap() {
+        EffectLocations overlapping = effect(Effects.NUKE_PERSISTENT, 8.0f, 10.0f, 10.0f, 11.0f, 10.0f);
+        index.rebuild(Collections.singletonList(overlapping), Collections.emptyMap());
+
+        assertThat(index.getEffects()).containsExactly(overlapping);
+        assertThat(index.getEffectsAt(Point2d.of(10.5f, 10.0f))).containsExactly(overlapping);
+        assertThat(index.isAffected(Point2d.of(50.0f, 50.0f))).isFalse();
+
+        index.rebuild(Collections.emptyList(), Collections.emptyMap());
+        assertThat(index.isEmpty()).isTrue();
+        assertThat(index.isAffected(Point2d.of(10.5f, 10.0f))).isFalse();
+    }
+
+    private static EffectLocations effect(Effects effect, Float radius, float... positions) {
+        Raw.Effect.Builder builder = Raw.Effect.newBuilder()
+                .setEffectId(effect.getEffectId())
+                .setAlliance(Raw.Alliance.Enemy)
+                .setOwner(2);
+        if (radius != null) builder.setRadius(radius);
+        for (int i = 0; i < positions.length; i += 2) {
+            builder.addPos(Common.Point2D.newBuilder().setX(positions[i]).setY(positions[i + 1]));
+        }
+        return EffectLocations.from(builder.build());
+    }
+
+    private static Unit unit(long tag, float x, float y, float radius) {
+        return Unit.from(GameServerResponses.sc2ApiUnit(tag, Raw.Alliance.Self, false, 1.0f)
+                .toBuilder()
+                .setPos(Common.Point.newBuilder().setX(x).setY(y).setZ(0.0f))
+                .setRadius(radius)
+                .build());
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.ocraft.s2client.bot.gateway;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.bot.GameServerResponses;
+import com.github.ocraft.s2client.protocol.observation.Observation;
+import com.github.ocraft.s2client.protocol.response.ResponseObservation;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.ocraft.s2client.bot.Fixtures.mockUnit;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class ObservationSnapshotTest {
+
+    private static final Tag TAG_01 = Tag.of(1L);
+    private static final Tag TAG_02 = Tag.of(2L);
+    private static final Tag TAG_03 = Tag.of(3L);
+
+    private final Observation observation =
+            ResponseObservation.from(GameServerResponses.observation()).getObservation();
+
+    @Test
+    void sharesUnchangedUnitsWithPreviousSnapshot() {
+        Unit unit01 = mockUnit(TAG_01, Raw.Alliance.Self, false, 1.0f);
+        Unit unit02 = mockUnit(TAG_02, Raw.Alliance.Enemy, false, 1.0f);
+        ObservationSnapshot first = snapshotOf(null, asList(unit01, unit02));
+
+        Unit unit01NextLoop = mockUnit(TAG_01, Raw.Alliance.Self, false, 1.0f);
+        Unit unit02NextLoop = mockUnit(TAG_02, Raw.Alliance.Enemy, false, 0.5f);
+        ObservationSnapshot second = snapshotOf(first, asList(unit01NextLoop, unit02NextLoop));
+
+        assertThat(second.getUnit(TAG_01)).containsSame(unit01);
+        assertThat(second.getUnit(TAG_02)).containsSame(unit02NextLoop);
+        assertThat(second.getChangedUnits()).containsExactly(unit02NextLoop);
+        assertThat(first.getUnit(TAG_02)).as("previous snapshot").containsSame(unit02);
+    }
+
+    @Test
+    void treatsAllUnitsOfFirstSnapshotAsChanged() {
+        ObservationSnapshot snapshot = snapshotOf(null, asList(
+                mockUnit(TAG_01, Raw.Alliance.Self, false, 1.0f),
+                mockUnit(TAG_02, Raw.Alliance.Self, false, 1.0f)));
+
+        assertThat(snapshot.getChangedUnits()).hasSize(2);
+        assertThat(snapshot.getGameLoop()).isEqualTo(observation.getGameLoop());
+        assertThat(snapshot.getPlayerId()).isEqualTo(GameServerResponses.PLAYER_ID);
+    }
+
+    @Test
+    void groupsUnitsByAlliance() {
+        Unit self = mockUnit(TAG_01, Raw.Alliance.Self, false, 1.0f);
+        Unit enemy = mockUnit(TAG_02, Raw.Alliance.Enemy, false, 1.0f);
+        Unit neutral = mockUnit(TAG_03, Raw.Alliance.Neutral, false, 1.0f);
+
+        ObservationSnapshot snapshot = snapshotOf(null, asList(self, enemy, neutral));
+
+        assertThat(snapshot.getUnits()).containsExactly(self, enemy, neutral);
+        assertThat(snapshot.getUnits(Alliance.SELF)).containsExactly(self);
+        assertThat(snapshot.getUnits(Alliance.ENEMY)).containsExactly(enemy);
+        assertThat(snapshot.getUnits(Alliance.ALLY)).isEmpty();
+        assertThat(snapshot.getUnits(unit -> unit.getTag().equals(TAG_03))).containsExactly(neutral);
+    }
+
+    @Test
+    void isNotAffectedByChangesOfSourceCollections() {
+        List<Unit> units = new ArrayList<>(asList(mockUnit(TAG_01, Raw.Alliance.Self, false, 1.0f)));
+        ObservationSnapshot snapshot = snapshotOf(null, units);
+
+        units.clear();
+
+        assertThat(snapshot.getUnits()).hasSize(1);
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> snapshot.getUnits().clear());
+    }
+
+    private ObservationSnapshot snapshotOf(ObservationSnapshot previous, List<Unit> units) {
+        return ObservationSnapshot.of(previous, observation, units, emptyList(), emptyList(), emptyList());
+    }
+}
@@ -0,0 +1,158 @@
+package com.github.ocraft.s2client.bot.gateway;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Data;
+import com.github.ocraft.s2client.protocol.data.Abilities;
+import com.github.ocraft.s2client.protocol.data.Ability;
+import com.github.ocraft.s2client.protocol.data.AbilityData;
+import com.github.ocraft.s2client.protocol.data.UnitType;
+import com.github.ocraft.s2client.protocol.data.UnitTypeData;
+import com.github.ocraft.s2client.protocol.data.Units;
+import com.github.ocraft.s2client.protocol.data.Upgrade;
+import com.github.ocraft.s2client.protocol.data.UpgradeData;
+import com.github.ocraft.s2client.protocol.data.Upgrades;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TechTreeTest {
+
+    private final TechTree techTree = TechTree.of(abilityData(), unitTypeData(), upgradeData());
+
+    @Test
+    void generalizesAbilitiesWithArrayLookup() {
+        assertThat(techTree.getGeneralizedAbility(Abilities.ATTACK_ATTACK)).isEqualTo(Abilities.ATTACK);
+        assertThat(techTree.getGeneralizedAbility(Abilities.ATTACK)).isEqualTo(Abilities.ATTACK);
+        assertThat(techTree.getGeneralizedAbility(Abilities.TRAIN_MARINE)).isEqualTo(Abilities.TRAIN_MARINE);
+        assertThat(techTree.getGeneralizedAbility(Abilities.BUILD_NUKE)).isEqualTo(Abilities.BUILD_NUKE);
+        assertThat(techTree.getGeneralizedAbility(null)).isNull();
+        assertThat(techTree.getGeneralizedAbilityId(Abilities.ATTACK_ATTACK.getAbilityId()))
+                .isEqualTo(Abilities.ATTACK.getAbilityId());
+        assertThat(techTree.getGeneralizedAbilityId(100000)).isEqualTo(100000);
+    }
+
+    @Test
+    void generalizesAbilitiesFromAbilityDataAlone() {
+        AbilityRemap remap = AbilityRemap.of(abilityData());
+        TechTree withRemap = TechTree.of(remap, unitTypeData(), upgradeData());
+
+        assertThat(remap.getGeneralizedAbility(Abilities.ATTACK_ATTACK)).isEqualTo(Abilities.ATTACK);
+        assertThat(remap.getGeneralizedAbility(Abilities.BUILD_NUKE)).isEqualTo(Abilities.BUILD_NUKE);
+        assertThat(remap.getGeneralizedAbilityId(Abilities.ATTACK_ATTACK.getAbilityId()))
+                .isEqualTo(Abilities.ATTACK.getAbilityId());
+        assertThat(withRemap.getGeneralizedAbility(Abilities.ATTACK_ATTACK)).isEqualTo(Abilities.ATTACK);
+        assertThat(withRemap.getProducedUnitType(Abilities.TRAIN_MARINE)).hasValue(Units.TERRAN_MARINE);
+    }
+
+    @Test
+    void mapsAbilitiesToProducedUnitsAndUpgrades() {
+        assertThat(techTree.getProducedUnitType(Abilities.TRAIN_MARINE)).hasValue(Units.TERRAN_MARINE);
+        assertThat(techTree.getProducedUnitType(Abilities.ATTACK)).isEmpty();
+        assertThat(techTree.getResearchedUpgrade(Abilities.RESEARCH_STIMPACK)).hasValue(Upgrades.STIMPACK);
+        assertThat(techTree.getProducingAbility(Units.TERRAN_BARRACKS)).hasValue(Abilities.BUILD_BARRACKS);
+        assertThat(techTree.getResearchAbility(Upgrades.STIMPACK)).hasValue(Abilities.RESEARCH_STIMPACK);
+        assertThat(techTree.getResearchAbility(Upgrades.BLINK_TECH)).isEmpty();
+    }
+
+    @Test
+    void resolvesRequirementsTransitively() {
+        assertThat(techTree.getTechRequirement(Units.TERRAN_MARAUDER)).hasValue(Units.TERRAN_BARRACKS_TECHLAB);
+        assertThat(techTree.isRequireAttached(Units.TERRAN_MARAUDER)).isTrue();
+        assertThat(techTree.isRequireAttached(Units.TERRAN_BARRACKS)).isFalse();
+        assertThat(techTree.getRequirements(Units.TERRAN_MARAUDER))
+                .containsExactly(Units.TERRAN_BARRACKS_TECHLAB, Units.TERRAN_BARRACKS, Units.TERRAN_SUPPLY_DEPOT);
+        assertThat(techTree.getRequirements(Units.TERRAN_SUPPLY_DEPOT)).isEmpty();
+        assertThat(techTree.getRequirements(Units.PROTOSS_ZEALOT)).isEmpty();
+    }
+
+    @Test
+    void satisfiesRequirementsWithTechAliases() {
+        assertThat(techTree.satisfies(Units.TERRAN_SUPPLY_DEPOT, Units.TERRAN_SUPPLY_DEPOT)).isTrue();
+        assertThat(techTree.satisfies(Units.TERRAN_SUPPLY_DEPOT_LOWERED, Units.TERRAN_SUPPLY_DEPOT)).isTrue();
+        assertThat(techTree.satisfies(Units.TERRAN_BARRACKS, Units.TERRAN_SUPPLY_DEPOT)).isFalse();
+    }
+
+    private static Map<Ability, AbilityData> abilityData() {
+        Map<Ability, AbilityData> abilityData = new HashMap<>();
+        put(abilityData, Data.AbilityData.newBuilder().setAbilityId(Abilities.ATTACK.getAbilityId()));
+        put(abilityData, Data.AbilityData.newBuilder()
+                .setAbilityId(Abilities.ATTACK_ATTACK.getAbilityId())
+                .setRemapsToAbilityId(Abilities.ATTACK.getAbilityId()));
+        put(abilityData, Data.AbilityData.newBuilder()
+                .setAbilityId(Abilities.BUILD_NUKE.getAbilityId())
+                .setRemapsToAbilityId(100000));
+        put(abilityData, Data.AbilityData.newBuilder().setAbilityId(Abilities.TRAIN_MARINE.getAbilityId()));
+        return abilityData;
+    }
+
+    private static void put(Map<Ability, AbilityData> abilityData, Data.AbilityData.Builder builder) {
+        AbilityData data = AbilityData.from(builder.setLinkName("link").setLinkIndex(0).build());
+        abilityData.put(data.getAbility(), data);
+    }
+
+    private static Map<UnitType, UnitTypeData> unitTypeData() {
+        Map<UnitType, UnitTypeData> unitTypeData = new HashMap<>();
+        put(unitTypeData, unitType(Units.TERRAN_SUPPLY_DEPOT, Abilities.BUILD_SUPPLY_DEPOT));
+        put(unitTypeData, unitType(Units.TERRAN_SUPPLY_DEPOT_LOWERED, Abilities.MORPH_SUPPLY_DEPOT_LOWER)
+                .addTechAlias(Units.TERRAN_SUPPLY_DEPOT.getUnitTypeId()));
+        put(unitTypeData, unitType(Units.TERRAN_BARRACKS, Abilities.BUILD_BARRACKS)
+                .setTechRequirement(Units.TERRAN_SUPPLY_DEPOT.getUnitTypeId()));
+        put(unitTypeData, unitType(Units.TERRAN_BARRACKS_TECHLAB, Abilities.BUILD_TECHLAB_BARRACKS)
+                .setTechRequirement(Units.TERRAN_BARRACKS.getUnitTypeId()));
+        put(unitTypeData, unitType(Units.TERRAN_MARINE, Abilities.TRAIN_MARINE));
+        put(unitTypeData, unitType(Units.TERRAN_MARAUDER, Abilities.TRAIN_MARAUDER)
+                .setTechRequirement(Units.TERRAN_BARRACKS_TECHLAB.getUnitTypeId())
+                .setRequireAttached(true));
+        return unitTypeData;
+    }
+
+    private static Data.UnitTypeData.Builder unitType(Units type, Abilities ability) {
+        return Data.UnitTypeData.newBuilder()
+                .setUnitId(type.getUnitTypeId())
+                .setName(type.name())
+                .setAbilityId(ability.getAbilityId());
+    }
+
+    private static void put(Map<UnitType, UnitTypeData> unitTypeData, Data.UnitTypeData.Builder builder) {
+        UnitTypeData data = UnitTypeData.from(builder.build());
+        unitTypeData.put(data.getUnitType(), data);
+    }
+
+    private static Map<Upgrade, UpgradeData> upgradeData() {
+        UpgradeData stimpack = UpgradeData.from(Data.UpgradeData.newBuilder()
+                .setUpgradeId(Upgrades.STIMPACK.getUpgradeId())
+                .setName(Upgrades.STIMPACK.name())
+                .setAbilityId(Abilities.RESEARCH_STIMPACK.getAbilityId())
+                .build());
+        return Collections.singletonMap(stimpack.getUpgrade(), stimpack);
+    }
+}
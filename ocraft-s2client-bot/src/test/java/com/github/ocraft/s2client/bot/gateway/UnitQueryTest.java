@@ -0,0 +1,119 @@
+package com.github.ocraft.s2client.bot.gateway;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.bot.GameServerResponses;
+import com.github.ocraft.s2client.protocol.data.Buffs;
+import com.github.ocraft.s2client.protocol.data.Units;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class UnitQueryTest {
+
+    private final UnitInPool idleScv = unitInPool(1, Raw.Alliance.Self, Units.TERRAN_SCV, false, 10, 10, 45);
+    private final UnitInPool busyScv = unitInPool(2, Raw.Alliance.Self, Units.TERRAN_SCV, true, 12, 10, 20);
+    private final UnitInPool marine = unitInPool(3, Raw.Alliance.Self, Units.TERRAN_MARINE, false, 40, 40, 45);
+    private final UnitInPool enemyScv = unitInPool(4, Raw.Alliance.Enemy, Units.TERRAN_SCV, false, 11, 11, 45);
+    private final UnitInPool notObserved = new UnitInPool(Tag.of(5L));
+
+    private final UnitIndex index = UnitIndex.of(Arrays.asList(idleScv, busyScv, marine, enemyScv, notObserved));
+
+    @Test
+    void selectsUnitsByAllianceAndType() {
+        assertThat(index.size()).isEqualTo(4);
+        assertThat(index.getUnits(UnitQuery.units().alliance(Alliance.SELF).build()))
+                .containsExactly(idleScv, busyScv, marine);
+        assertThat(index.getUnits(UnitQuery.units().ofType(Units.TERRAN_SCV).build()))
+                .containsExactlyInAnyOrder(idleScv, busyScv, enemyScv);
+        assertThat(index.getUnits(UnitQuery.units()
+                .alliance(Alliance.SELF).ofType(Units.TERRAN_MARINE, Units.TERRAN_SCV).build()))
+                .containsExactlyInAnyOrder(idleScv, busyScv, marine);
+        assertThat(index.getUnits(UnitQuery.units().alliance(Alliance.NEUTRAL).build())).isEmpty();
+        assertThat(index.count(UnitQuery.units().alliance(Alliance.ENEMY).ofType(Units.TERRAN_MARINE).build()))
+                .isZero();
+    }
+
+    @Test
+    void returnsViewsOfIndexForIndexOnlyQueries() {
+        List<UnitInPool> scvs = index.getUnits(
+                UnitQuery.units().alliance(Alliance.SELF).ofType(Units.TERRAN_SCV).build());
+
+        assertThat(scvs).containsExactly(idleScv, busyScv);
+        assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> scvs.add(marine));
+    }
+
+    @Test
+    void testsRemainingConditionsOnCandidates() {
+        UnitQuery idleNearBase = UnitQuery.units()
+                .alliance(Alliance.SELF).ofType(Units.TERRAN_SCV).idle().within(Point2d.of(10, 10), 3).build();
+        assertThat(index.getUnits(idleNearBase)).containsExactly(idleScv);
+
+        assertThat(index.getUnits(UnitQuery.units().healthBelow(30).build())).containsExactly(busyScv);
+        assertThat(index.getUnits(UnitQuery.units().withBuff(Buffs.STIMPACK).build())).containsExactly(marine);
+        assertThat(index.getUnits(UnitQuery.units()
+                .within(Point2d.of(10, 10), 2).filter(unit -> unit.getTag().getValue() > 1).build()))
+                .containsExactlyInAnyOrder(busyScv, enemyScv);
+        assertThat(index.count(UnitQuery.units().idle().build())).isEqualTo(3);
+
+        List<UnitInPool> visited = new ArrayList<>();
+        index.forEach(UnitQuery.units().alliance(Alliance.ENEMY).build(), visited::add);
+        assertThat(visited).containsExactly(enemyScv);
+    }
+
+    @Test
+    void testsSingleUnits() {
+        UnitQuery query = UnitQuery.units().alliance(Alliance.SELF).ofType(Units.TERRAN_MARINE).build();
+
+        assertThat(query.test(marine)).isTrue();
+        assertThat(query.test(idleScv)).isFalse();
+        assertThat(query.test(notObserved)).isFalse();
+        assertThat(query.getUnitTypeIds()).containsExactly(Units.TERRAN_MARINE.getUnitTypeId());
+    }
+
+    private static UnitInPool unitInPool(
+            long tag, Raw.Alliance alliance, Units type, boolean withOrders, float x, float y, float health) {
+        Raw.Unit.Builder unit = GameServerResponses.sc2ApiUnit(tag, alliance, withOrders, 1.0f)
+                .toBuilder()
+                .setUnitType(type.getUnitTypeId())
+                .setPos(Common.Point.newBuilder().setX(x).setY(y).setZ(0.0f))
+                .setHealth(health);
+        if (type == Units.TERRAN_MARINE) unit.addBuffIds(Buffs.STIMPACK.getBuffId());
+        return new UnitInPool(Tag.of(tag)).update(Unit.from(unit.build()), 0, true);
+    }
+}
@@ -26,6 +26,7 @@ package com.github.ocraft.s2client.bot.gateway.impl;
  * #L%
  */
 
+import SC2APIProtocol.Raw;
 import SC2APIProtocol.Sc2Api;
 import com.github.ocraft.s2client.bot.GameServerResponses;
 import com.github.ocraft.s2client.bot.gateway.ActionFeatureLayerInterface;
@@ -35,7 +36,13 @@ import com.github.ocraft.s2client.protocol.spatial.PointI;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.github.ocraft.s2client.bot.Fixtures.OLD_01_UNIT_TAG;
+import static com.github.ocraft.s2client.bot.Fixtures.mockUnit;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @Tag("integration")
 class ActionFeatureLayerInterfaceImplIT {
@@ -59,4 +66,30 @@ class ActionFeatureLayerInterfaceImplIT {
 
         gameSetup.stop();
     }
+
+    @Test
+    void sendsFeatureLayerAndRawActionsInOneRequest() {
+        GameSetup gameSetup = new GameSetup().start();
+        List<Sc2Api.RequestAction> requests = new CopyOnWriteArrayList<>();
+        gameSetup.server().onRequest(request -> {
+            if (request.hasAction()) requests.add(request.getAction());
+            return request.hasAction();
+        }, GameServerResponses::action);
+
+        gameSetup.control().agentControl().actionsFeatureLayer()
+                .select(PointI.of(1, 1), ActionSpatialUnitSelectionPoint.Type.SELECT);
+        gameSetup.control().agentControl().action()
+                .unitCommand(mockUnit(OLD_01_UNIT_TAG, Raw.Alliance.Self, false, 1.0f), Abilities.STOP, false);
+
+        assertThat(gameSetup.control().agentControl().action().sendActions()).as("sending actions status").isTrue();
+        assertThat(gameSetup.control().agentControl().actionsFeatureLayer().sendActions())
+                .as("sending empty action feature layer status").isFalse();
+        assertThat(requests).hasSize(1);
+        assertThat(requests.get(0).getActionsList())
+                .extracting(action -> action.hasActionFeatureLayer(), action -> action.hasActionRaw())
+                .containsExactly(tuple(true, false), tuple(false, true));
+        assertThat(gameSetup.control().agentControl().action().commands()).containsExactly(OLD_01_UNIT_TAG);
+
+        gameSetup.stop();
+    }
 }
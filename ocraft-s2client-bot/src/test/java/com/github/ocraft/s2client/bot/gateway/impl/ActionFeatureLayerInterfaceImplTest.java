@@ -0,0 +1,88 @@
+package com.github.ocraft.s2client.bot.gateway.impl;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.ClientError;
+import com.github.ocraft.s2client.bot.ClientEvents;
+import com.github.ocraft.s2client.bot.gateway.ActionFeatureLayerInterface;
+import com.github.ocraft.s2client.protocol.action.spatial.ActionSpatialUnitSelectionPoint;
+import com.github.ocraft.s2client.protocol.data.Abilities;
+import com.github.ocraft.s2client.protocol.spatial.PointI;
+import com.github.ocraft.s2client.protocol.spatial.SpatialCameraSetup;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ActionFeatureLayerInterfaceImplTest {
+
+    private final ControlInterfaceImpl control = new ControlInterfaceImpl(
+            mock(ClientEvents.class), new ProtoInterfaceImpl());
+    private final ActionInterfaceImpl actions = new ActionInterfaceImpl(control);
+    private final ActionFeatureLayerInterface featureLayer = new ActionFeatureLayerInterfaceImpl(control, actions);
+
+    @Test
+    void queuesActionsWithRawActions() {
+        control.setFeatureLayerSetup(SpatialCameraSetup.spatialSetup().resolution(64, 48).minimap(32, 32).build());
+
+        featureLayer
+                .cameraMove(PointI.of(31, 0))
+                .select(PointI.of(63, 47), ActionSpatialUnitSelectionPoint.Type.SELECT)
+                .unitCommand(Abilities.STOP);
+
+        assertThat(actions.hasPendingActions()).isTrue();
+        assertThat(control.getClientErrors()).isEmpty();
+    }
+
+    @Test
+    void dropsActionsOutsideOfFeatureLayerResolution() {
+        control.setFeatureLayerSetup(SpatialCameraSetup.spatialSetup().resolution(64, 48).minimap(32, 32).build());
+
+        featureLayer
+                .cameraMove(PointI.of(32, 1))
+                .select(PointI.of(1, 48), ActionSpatialUnitSelectionPoint.Type.SELECT)
+                .select(PointI.of(0, 0), PointI.of(-1, 10), false)
+                .unitCommand(Abilities.ATTACK, PointI.of(40, 40), true);
+
+        assertThat(actions.hasPendingActions()).isFalse();
+        assertThat(featureLayer.sendActions()).as("sending invalid actions status").isFalse();
+        assertThat(control.getClientErrors()).containsOnly(ClientError.INVALID_SPATIAL_ACTION).hasSize(4);
+        assertThat(control.getProtocolErrors()).containsExactly(
+                "point (32, 1) is outside of the minimap 32x32",
+                "point (1, 48) is outside of the screen 64x48",
+                "point (-1, 10) is outside of the screen 64x48",
+                "point (40, 40) is outside of the minimap 32x32");
+    }
+
+    @Test
+    void doesNotValidateWithoutFeatureLayerSettings() {
+        featureLayer.cameraMove(PointI.of(1000, 1000));
+
+        assertThat(actions.hasPendingActions()).isTrue();
+        assertThat(control.getClientErrors()).isEmpty();
+    }
+}
@@ -479,7 +479,7 @@ class ControlInterfaceImplIT {
 
         ObservationRaw observationRaw = mock(ObservationRaw.class);
         when(observationRaw.getEvent()).thenReturn(Optional.of(event));
-        when(observationRaw.getUnits()).thenReturn(Set.of(deadUnit, newUnit, enemyUnit, old01Unit, old02Unit));
+        when(observationRaw.getUnits()).thenReturn(List.of(deadUnit, newUnit, enemyUnit, old01Unit, old02Unit));
         when(observationRaw.getPlayer()).thenReturn(playerRaw);
         when(observationRaw.getEffects()).thenReturn(Set.of(mock(EffectLocations.class)));
 
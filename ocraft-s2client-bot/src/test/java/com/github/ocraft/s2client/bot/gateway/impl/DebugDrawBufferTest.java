@@ -0,0 +1,95 @@
+package com.github.ocraft.s2client.bot.gateway.impl;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.debug.*;
+import com.github.ocraft.s2client.protocol.spatial.Point;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DebugDrawBufferTest {
+
+    private static final Point P0 = Point.of(1.0f, 2.0f, 3.0f);
+    private static final Point P1 = Point.of(4.0f, 5.0f, 6.0f);
+
+    @Test
+    void packsPrimitivesLikeProtocolObjects() {
+        DebugDrawBuffer buffer = new DebugDrawBuffer();
+        buffer.addText("top left", Color.RED);
+        buffer.addVirtualText("screen", 0.5f, 0.25f, 12, Color.GREEN);
+        buffer.addWorldText("world", P0, 8, Color.of(1, 2, 3));
+        buffer.addLine(P0, P1, Color.BLUE);
+        buffer.addBox(P0, P1, Color.YELLOW);
+        buffer.addSphere(P1, 2.5f, Color.TEAL);
+
+        DebugDraw expected = DebugDraw.draw()
+                .texts(DebugText.text().of("top left").withColor(Color.RED).build(),
+                        DebugText.text().of("screen").withColor(Color.GREEN).withSize(12)
+                                .on(Point.of(0.5f, 0.25f, 0.0f)).build(),
+                        DebugText.text().of("world").withColor(Color.of(1, 2, 3)).withSize(8).onMap(P0).build())
+                .lines(DebugLine.line().of(P0, P1).withColor(Color.BLUE).build())
+                .boxes(DebugBox.box().of(P0, P1).withColor(Color.YELLOW).build())
+                .spheres(DebugSphere.sphere().on(P1).withRadius(2.5f).withColor(Color.TEAL).build())
+                .build();
+
+        assertThat(buffer.size()).isEqualTo(6);
+        assertThat(buffer.toSc2Api()).isEqualTo(expected.toSc2Api());
+    }
+
+    @Test
+    void detectsUnchangedFrames() {
+        DebugDrawBuffer drawn = frame(1000, 0.0f);
+
+        assertThat(frame(1000, 0.0f).sameAs(drawn)).isTrue();
+        assertThat(frame(1000, 0.5f).sameAs(drawn)).isFalse();
+        assertThat(frame(999, 0.0f).sameAs(drawn)).isFalse();
+    }
+
+    @Test
+    void reusesArraysAfterClear() {
+        DebugDrawBuffer buffer = frame(1000, 0.0f);
+
+        buffer.clear();
+        buffer.addLine(P0, P1, Color.WHITE);
+
+        assertThat(buffer.isEmpty()).isFalse();
+        assertThat(buffer.toSc2Api().getLinesCount()).isEqualTo(1);
+        assertThat(buffer.toSc2Api().getSpheresCount()).isZero();
+    }
+
+    private static DebugDrawBuffer frame(int count, float offset) {
+        DebugDrawBuffer buffer = new DebugDrawBuffer();
+        for (int i = 0; i < count; i++) {
+            Point p = Point.of(i, i + offset, 0.0f);
+            buffer.addLine(P0, p, Color.WHITE);
+            buffer.addSphere(p, 1.0f, Color.RED);
+            buffer.addWorldText("unit " + i, p, 10, Color.GREEN);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,159 @@
+package com.github.ocraft.s2client.bot.gateway.impl;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Sc2Api;
+import com.github.ocraft.s2client.bot.ClientEvents;
+import com.github.ocraft.s2client.bot.gateway.DebugInterface;
+import com.github.ocraft.s2client.protocol.debug.Color;
+import com.github.ocraft.s2client.protocol.request.Request;
+import com.github.ocraft.s2client.protocol.response.Response;
+import com.github.ocraft.s2client.protocol.response.ResponseDebug;
+import com.github.ocraft.s2client.protocol.response.ResponseType;
+import com.github.ocraft.s2client.protocol.spatial.Point;
+import io.reactivex.Maybe;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DebugInterfaceImplTest {
+
+    private static final Point P0 = Point.of(1.0f, 2.0f, 3.0f);
+    private static final Point P1 = Point.of(4.0f, 5.0f, 6.0f);
+
+    private StubProto proto;
+    private ControlInterfaceImpl control;
+    private DebugInterface debug;
+
+    @BeforeEach
+    void setUp() {
+        proto = new StubProto();
+        control = new ControlInterfaceImpl(new ClientEvents() {
+        }, proto);
+        debug = control.debug();
+    }
+
+    @Test
+    void skipsFrameAlreadyDrawnByTheGame() {
+        assertThat(debug.debugLineOut(P0, P1, Color.RED).sendDebugAsync()).isTrue();
+        assertThat(debug.debugLineOut(P0, P1, Color.RED).sendDebugAsync()).as("unchanged frame").isTrue();
+
+        assertThat(proto.asyncRequests).hasSize(1);
+
+        assertThat(debug.debugLineOut(P0, P1, Color.BLUE).sendDebugAsync()).isTrue();
+
+        assertThat(proto.asyncRequests).hasSize(2);
+    }
+
+    @Test
+    void resendsFrameAfterFailedAsyncSend() {
+        proto.asyncResults.add(false);
+
+        assertThat(debug.debugLineOut(P0, P1, Color.RED).sendDebugAsync()).isFalse();
+        assertThat(debug.debugLineOut(P0, P1, Color.RED).sendDebugAsync()).isTrue();
+
+        assertThat(proto.asyncRequests).hasSize(2);
+    }
+
+    @Test
+    void consumesCompletedAsyncDebugResponseBeforeNextSend() {
+        debug.debugLineOut(P0, P1, Color.RED).sendDebugAsync();
+        proto.pendingDebug.add(Maybe.just(debugResponse()));
+        debug.debugLineOut(P0, P1, Color.BLUE).sendDebugAsync();
+
+        assertThat(proto.calls).containsExactly("send", "wait", "send");
+        assertThat(proto.pendingDebug).as("debug responses in queue").isEmpty();
+
+        assertThat(debug.debugLineOut(P0, P1, Color.BLUE).sendDebugAsync()).as("unchanged frame").isTrue();
+        assertThat(proto.asyncRequests).hasSize(2);
+    }
+
+    @Test
+    void resendsFrameAfterFailedAsyncDebugResponse() {
+        debug.debugLineOut(P0, P1, Color.RED).sendDebugAsync();
+        proto.pendingDebug.add(Maybe.empty());
+        debug.debugLineOut(P0, P1, Color.RED).sendDebugAsync();
+
+        assertThat(proto.calls).containsExactly("send", "wait", "send");
+        assertThat(proto.asyncRequests).hasSize(2);
+    }
+
+    @Test
+    void sendsFirstFrameOfTheNextGame() {
+        control.setMultiplayer(true);
+        debug.debugLineOut(P0, P1, Color.RED).sendDebugAsync();
+
+        control.requestLeaveGame();
+        debug.debugLineOut(P0, P1, Color.RED).sendDebugAsync();
+
+        assertThat(proto.asyncRequests).hasSize(2);
+    }
+
+    private static Response debugResponse() {
+        return ResponseDebug.from(Sc2Api.Response.newBuilder()
+                .setDebug(Sc2Api.ResponseDebug.newBuilder())
+                .setStatus(Sc2Api.Status.in_game)
+                .build());
+    }
+
+    // Game server replaced by scripted results: async sends succeed unless told otherwise and the DEBUG responses
+    // put in the queue are handed out one by one.
+    private static class StubProto extends ProtoInterfaceImpl {
+
+        private final Deque<Boolean> asyncResults = new ArrayDeque<>();
+        private final Deque<Maybe<Response>> pendingDebug = new ArrayDeque<>();
+        private final List<Request> asyncRequests = new ArrayList<>();
+        private final List<String> calls = new ArrayList<>();
+
+        @Override
+        public <T extends Request> Maybe<Response> sendRequest(T requestData) {
+            return Maybe.empty();
+        }
+
+        @Override
+        public <T extends Request> boolean sendRequestAsync(T requestData) {
+            calls.add("send");
+            asyncRequests.add(requestData);
+            return asyncResults.isEmpty() || asyncResults.poll();
+        }
+
+        @Override
+        public Maybe<Response> getResponsePending(ResponseType type) {
+            return type == ResponseType.DEBUG ? pendingDebug.poll() : null;
+        }
+
+        @Override
+        public Optional<Response> waitForResponse(Maybe<Response> waitFor) {
+            calls.add("wait");
+            return Optional.ofNullable(waitFor.blockingGet());
+        }
+    }
+
+}
@@ -98,4 +98,18 @@ class ResponseQueueTest {
         assertThat(responseQueue.peek()).isFalse();
     }
 
+    @Test
+    void removesOnlyGivenPendingResponse() {
+        ResponseQueue responseQueue = new ResponseQueue();
+        MaybeSubject<Response> consumed = MaybeSubject.create();
+        MaybeSubject<Response> next = MaybeSubject.create();
+
+        responseQueue.offer(ResponseType.DEBUG, consumed);
+        assertThat(responseQueue.remove(ResponseType.DEBUG, consumed)).isTrue();
+        responseQueue.offer(ResponseType.DEBUG, next);
+
+        assertThat(responseQueue.remove(ResponseType.DEBUG, consumed)).isFalse();
+        assertThat(responseQueue.peek(ResponseType.DEBUG)).isTrue();
+    }
+
 }
@@ -26,7 +26,10 @@ package com.github.ocraft.s2client.bot.gateway.impl;
  * #L%
  */
 
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.bot.GameServerResponses;
 import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.bot.gateway.UnitIndex;
 import com.github.ocraft.s2client.protocol.unit.Tag;
 import com.github.ocraft.s2client.protocol.unit.Unit;
 import org.junit.jupiter.api.Test;
@@ -107,4 +110,20 @@ class UnitPoolTest {
 
     }
 
+    @Test
+    void rebuildsUnitIndexWhenExistingUnitsChange() {
+        UnitPool unitPool = new UnitPool();
+        Unit unit = Unit.from(GameServerResponses.sc2ApiUnit(TAG.getValue(), Raw.Alliance.Self, false, 1.0f));
+        unitPool.createUnit(TAG).update(unit, 1, true);
+        UnitIndex index = unitPool.index();
+
+        assertThat(unitPool.index()).as("index of unchanged pool").isSameAs(index);
+        assertThat(index.size()).as("indexed units").isEqualTo(1);
+
+        unitPool.markDead(TAG);
+
+        assertThat(unitPool.index()).as("index after unit died").isNotSameAs(index);
+        assertThat(unitPool.index().size()).as("indexed units after unit died").isZero();
+    }
+
 }
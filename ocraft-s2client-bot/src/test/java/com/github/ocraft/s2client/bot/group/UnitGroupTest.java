@@ -0,0 +1,176 @@
+package com.github.ocraft.s2client.bot.group;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Data;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.bot.GameServerResponses;
+import com.github.ocraft.s2client.bot.combat.CombatData;
+import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+import com.github.ocraft.s2client.bot.gateway.UnitInPool;
+import com.github.ocraft.s2client.protocol.data.Abilities;
+import com.github.ocraft.s2client.protocol.data.UnitTypeData;
+import com.github.ocraft.s2client.protocol.data.Units;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class UnitGroupTest {
+
+    private static final CombatData DATA = CombatData.compile(Collections.singletonList(
+            UnitTypeData.from(Data.UnitTypeData.newBuilder()
+                    .setUnitId(Units.TERRAN_MARINE.getUnitTypeId())
+                    .setName(Units.TERRAN_MARINE.name())
+                    .addWeapons(Data.Weapon.newBuilder()
+                            .setType(Data.Weapon.TargetType.Any)
+                            .setDamage(6)
+                            .setAttacks(1)
+                            .setRange(5)
+                            .setSpeed(0.5f))
+                    .build())));
+
+    private final UnitInPool marine1 = unitInPool(1, Units.TERRAN_MARINE, 10, 10, 45);
+    private final UnitInPool marine2 = unitInPool(2, Units.TERRAN_MARINE, 14, 10, 30);
+    private final UnitInPool marauder = unitInPool(3, Units.TERRAN_MARAUDER, 12, 16, 125);
+
+    @Test
+    void aggregatesMembers() {
+        UnitGroup group = UnitGroup.of("army", DATA);
+        group.addAll(Arrays.asList(marine1, marine2, marauder));
+        assertThat(group.add(marine1)).isFalse();
+
+        assertThat(group.size()).isEqualTo(3);
+        assertThat(group.getCentroid()).hasValue(Point2d.of(12, 12));
+        assertThat(group.getSpread()).isCloseTo((float) Math.sqrt((8 + 8 + 16) / 3.0), within(1e-4f));
+        assertThat(group.getBoundingRadius()).isCloseTo(4.5f, within(1e-4f));
+        assertThat(group.getTotalHealth()).isEqualTo(200.0f);
+        assertThat(group.getGroundDps()).isCloseTo(24.0f, within(1e-4f));
+        assertThat(group.getCount(Units.TERRAN_MARINE)).isEqualTo(2);
+        assertThat(group.getTypeCounts()).containsOnlyKeys(Units.TERRAN_MARINE, Units.TERRAN_MARAUDER);
+        assertThat(group.getUnits()).extracting(Unit::getTag).containsExactly(Tag.of(1L), Tag.of(2L), Tag.of(3L));
+    }
+
+    @Test
+    void appliesChangesOfMembersOnUpdate() {
+        UnitGroup group = UnitGroup.of("army");
+        group.addAll(Arrays.asList(marine1, marine2, marauder));
+
+        marine1.update(unit(1, Units.TERRAN_MARINE, 16, 16, 20), 16, true);
+        marauder.update(unit(3, Units.TERRAN_MARAUDER, 12, 16, 125), 16, false);
+        group.update();
+
+        assertThat(group.getTags()).containsExactly(Tag.of(1L), Tag.of(2L));
+        assertThat(group.getCentroid()).hasValue(Point2d.of(15, 13));
+        assertThat(group.getTotalHealth()).isEqualTo(50.0f);
+        assertThat(group.getTotalHealthMax()).isEqualTo(90.0f);
+        assertThat(group.getCount(Units.TERRAN_MARAUDER)).isZero();
+        assertThat(group.getGroundDps()).isZero();
+    }
+
+    @Test
+    void removesDestroyedUnits() {
+        UnitGroup group = UnitGroup.of("army");
+        group.addAll(Arrays.asList(marine1, marine2));
+
+        group.onUnitDestroyed(marine2);
+
+        assertThat(group.contains(Tag.of(2L))).isFalse();
+        assertThat(group.getCentroid()).hasValue(Point2d.of(10, 10));
+        assertThat(group.getSpread()).isZero();
+        assertThat(group.remove(Tag.of(1L))).isTrue();
+        assertThat(group.isEmpty()).isTrue();
+        assertThat(group.getCentroid()).isEmpty();
+        assertThat(group.getTotalHealth()).isZero();
+        assertThat(group.getTypeCounts()).isEmpty();
+    }
+
+    @Test
+    void commandsMembersInOneBatchedAction() {
+        UnitGroup group = UnitGroup.of("army");
+        ActionInterface actions = mock(ActionInterface.class);
+
+        group.command(actions, Abilities.ATTACK, Point2d.of(50, 50), false);
+        verify(actions, never()).unitCommand(anySet(), any(), any(Point2d.class), anyBoolean());
+
+        group.addAll(Arrays.asList(marine1, marine2));
+        group.command(actions, Abilities.ATTACK, Point2d.of(50, 50), false);
+        verify(actions).unitCommand(
+                new HashSet<>(Arrays.asList(Tag.of(1L), Tag.of(2L))), Abilities.ATTACK, Point2d.of(50, 50), false);
+    }
+
+    @Test
+    void keepsEachUnitInOneSquad() {
+        UnitGroups squads = UnitGroups.create();
+        squads.assign(marine1, "main");
+        squads.assign(marine2, "main");
+        squads.assign(marine1, "harass");
+
+        assertThat(squads.get("main").map(UnitGroup::getTags)).hasValue(Collections.singleton(Tag.of(2L)));
+        assertThat(squads.getGroupOf(Tag.of(1L)).map(UnitGroup::getName)).hasValue("harass");
+
+        marine2.update(unit(2, Units.TERRAN_MARINE, 14, 10, 30), 16, false);
+        squads.update();
+        assertThat(squads.getGroupOf(Tag.of(2L))).isEmpty();
+
+        squads.onUnitDestroyed(marine1);
+        assertThat(squads.getGroupOf(Tag.of(1L))).isEmpty();
+        assertThat(squads.getGroups()).extracting(UnitGroup::getName).containsExactly("main", "harass");
+        assertThat(squads.getGroups()).allMatch(UnitGroup::isEmpty);
+    }
+
+    private static UnitInPool unitInPool(long tag, Units type, float x, float y, float health) {
+        return new UnitInPool(Tag.of(tag)).update(unit(tag, type, x, y, health), 0, true);
+    }
+
+    private static Unit unit(long tag, Units type, float x, float y, float health) {
+        return Unit.from(GameServerResponses.sc2ApiUnit(tag, Raw.Alliance.Self, false, 1.0f)
+                .toBuilder()
+                .setUnitType(type.getUnitTypeId())
+                .setPos(Common.Point.newBuilder().setX(x).setY(y).setZ(0.0f))
+                .setRadius(0.5f)
+                .setHealth(health)
+                .setHealthMax(type == Units.TERRAN_MARAUDER ? 125 : 45)
+                .setShield(0.0f)
+                .setAttackUpgradeLevel(0)
+                .build());
+    }
+}
@@ -0,0 +1,211 @@
+package com.github.ocraft.s2client.bot.memory;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Data;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.bot.GameServerResponses;
+import com.github.ocraft.s2client.protocol.data.UnitType;
+import com.github.ocraft.s2client.protocol.data.UnitTypeData;
+import com.github.ocraft.s2client.protocol.data.Units;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import com.github.ocraft.s2client.protocol.unit.UnitSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.within;
+
+class EnemyMemoryTest {
+
+    private static final EnemyMemory.VisibilityTest NOTHING_VISIBLE = (x, y) -> false;
+
+    private final EnemyMemory memory = EnemyMemory.builder(unitTypeData()).build();
+
+    @Test
+    void remembersEnemiesThatLeftVision() {
+        memory.update(16, Arrays.asList(unit(1, Units.ZERG_ZERGLING, 10, 10), ally(2)), emptyList(), emptyList(),
+                NOTHING_VISIBLE);
+        memory.update(32, emptyList(), emptyList(), emptyList(), NOTHING_VISIBLE);
+
+        assertThat(memory.size()).isEqualTo(1);
+        RememberedEnemy zergling = memory.get(Tag.of(1L)).orElseThrow(AssertionError::new);
+        assertThat(zergling.getType()).hasValue(Units.ZERG_ZERGLING);
+        assertThat(zergling.getLastSeenLoop()).isEqualTo(16);
+        assertThat(zergling.getLastPosition()).isEqualTo(Point2d.of(10, 10));
+        assertThat(memory.isGhost(zergling)).isTrue();
+        assertThat(memory.get(Tag.of(2L))).isEmpty();
+    }
+
+    @Test
+    void predictsPositionsFromLastSightingsAndMovementSpeed() {
+        memory.update(16, singletonList(unit(1, Units.ZERG_ZERGLING, 10, 10)), emptyList(), emptyList(),
+                NOTHING_VISIBLE);
+        memory.update(32, singletonList(unit(1, Units.ZERG_ZERGLING, 14, 10)), emptyList(), emptyList(),
+                NOTHING_VISIBLE);
+        memory.update(48, emptyList(), emptyList(), emptyList(), NOTHING_VISIBLE);
+
+        RememberedEnemy zergling = memory.get(Tag.of(1L)).orElseThrow(AssertionError::new);
+        assertThat(zergling.getSpeedPerLoop()).isCloseTo(0.25f, within(1e-6f));
+        assertThat(zergling.getPredictedX(48)).isCloseTo(18.0f, within(1e-4f));
+        assertThat(zergling.getPredictedY(48)).isCloseTo(10.0f, within(1e-4f));
+        assertThat(zergling.getUncertaintyRadius(48)).isCloseTo(4.0f, within(1e-4f));
+
+        // Faster than the movement speed (e.g. a teleport) is clamped.
+        memory.update(64, singletonList(unit(1, Units.ZERG_ZERGLING, 54, 10)), emptyList(), emptyList(),
+                NOTHING_VISIBLE);
+        assertThat(zergling.getPredictedX(80)).isCloseTo(58.0f, within(1e-4f));
+    }
+
+    @Test
+    void forgetsDeadAndExpiredUnits() {
+        EnemyMemory shortMemory = EnemyMemory.builder(unitTypeData())
+                .withExpiryPolicy(ExpiryPolicy.mobileUnitsAfterLoops(100))
+                .build();
+        shortMemory.update(16, Arrays.asList(
+                unit(1, Units.ZERG_ZERGLING, 10, 10),
+                unit(2, Units.ZERG_ZERGLING, 20, 10),
+                unit(3, Units.ZERG_SPINE_CRAWLER, 30, 10)), emptyList(), emptyList(), NOTHING_VISIBLE);
+
+        shortMemory.update(32, emptyList(), emptyList(), singletonList(Tag.of(1L)), NOTHING_VISIBLE);
+        assertThat(shortMemory.get(Tag.of(1L))).isEmpty();
+        assertThat(shortMemory.size()).isEqualTo(2);
+
+        shortMemory.update(200, emptyList(), emptyList(), emptyList(), NOTHING_VISIBLE);
+        assertThat(shortMemory.get(Tag.of(2L))).isEmpty();
+        assertThat(shortMemory.get(Tag.of(3L))).isPresent();
+    }
+
+    @Test
+    void forgetsStructuresAndSnapshotsFoundGone() {
+        memory.update(16, Arrays.asList(
+                unit(1, Units.ZERG_ZERGLING, 10, 10),
+                unit(3, Units.ZERG_SPINE_CRAWLER, 30, 10)),
+                singletonList(snapshot(50, 50)), emptyList(), NOTHING_VISIBLE);
+        memory.update(32, emptyList(), singletonList(snapshot(50, 50)), emptyList(), NOTHING_VISIBLE);
+        assertThat(memory.size()).isEqualTo(3);
+
+        memory.update(48, emptyList(), emptyList(), emptyList(), (x, y) -> true);
+
+        assertThat(memory.getAll()).hasSize(1);
+        assertThat(memory.get(Tag.of(1L))).isPresent();
+    }
+
+    @Test
+    void identifiesSnapshotsByPosition() {
+        memory.update(16, emptyList(), Arrays.asList(snapshot(50, 50), snapshot(60, 50)), emptyList(),
+                NOTHING_VISIBLE);
+        memory.update(32, emptyList(), singletonList(snapshot(50, 50)), emptyList(), NOTHING_VISIBLE);
+
+        assertThat(memory.size()).isEqualTo(2);
+        assertThat(memory.getAll()).allMatch(RememberedEnemy::isSnapshot).allMatch(RememberedEnemy::isStructure);
+        assertThat(memory.getWithin(Point2d.of(50, 50), 1.0f))
+                .extracting(RememberedEnemy::getFirstSeenLoop, RememberedEnemy::getObservedLoop)
+                .containsExactly(tuple(16L, 32L));
+    }
+
+    @Test
+    void queriesRememberedEnemiesByRange() {
+        EnemyMemory memory = EnemyMemory.builder(unitTypeData()).withMapSize(128, 128).build();
+        memory.update(16, Arrays.asList(
+                unit(1, Units.ZERG_ZERGLING, 10, 10),
+                unit(2, Units.ZERG_ZERGLING, 17, 10),
+                unit(3, Units.ZERG_ZERGLING, 40, 40),
+                unit(4, Units.ZERG_ZERGLING, 200, 200)), emptyList(), emptyList(), NOTHING_VISIBLE);
+
+        assertThat(memory.getWithin(Point2d.of(10, 10), 7.5f)).extracting(e -> e.getTag().orElse(null))
+                .containsExactlyInAnyOrder(Tag.of(1L), Tag.of(2L));
+        assertThat(memory.getWithin(Point2d.of(127, 127), 1.0f)).isEmpty();
+        assertThat(memory.getWithin(Point2d.of(200, 200), 1.0f)).hasSize(1);
+
+        // Moved units are reindexed.
+        memory.update(32, singletonList(unit(2, Units.ZERG_ZERGLING, 40, 36)), emptyList(), emptyList(),
+                NOTHING_VISIBLE);
+        assertThat(memory.getWithin(Point2d.of(40, 40), 5.0f)).extracting(e -> e.getTag().orElse(null))
+                .containsExactlyInAnyOrder(Tag.of(2L), Tag.of(3L));
+        assertThat(memory.getWithin(Point2d.of(10, 10), 7.5f)).hasSize(1);
+    }
+
+    @Test
+    void clearsWhenGameLoopGoesBack() {
+        memory.update(160, singletonList(unit(1, Units.ZERG_ZERGLING, 10, 10)), emptyList(), emptyList(),
+                NOTHING_VISIBLE);
+        memory.update(16, emptyList(), emptyList(), emptyList(), NOTHING_VISIBLE);
+
+        assertThat(memory.size()).isZero();
+        assertThat(memory.getGameLoop()).isEqualTo(16);
+        assertThat(memory.getWithin(Point2d.of(10, 10), 5.0f)).isEmpty();
+    }
+
+    private static Unit unit(long tag, Units type, float x, float y) {
+        return Unit.from(GameServerResponses.sc2ApiUnit(tag, Raw.Alliance.Enemy, false, 1.0f)
+                .toBuilder()
+                .setUnitType(type.getUnitTypeId())
+                .setPos(Common.Point.newBuilder().setX(x).setY(y).setZ(0.0f))
+                .build());
+    }
+
+    private static Unit ally(long tag) {
+        return Unit.from(GameServerResponses.sc2ApiUnit(tag, Raw.Alliance.Ally, false, 1.0f));
+    }
+
+    private static UnitSnapshot snapshot(float x, float y) {
+        return UnitSnapshot.from(Raw.Unit.newBuilder()
+                .setDisplayType(Raw.DisplayType.Snapshot)
+                .setAlliance(Raw.Alliance.Enemy)
+                .setPos(Common.Point.newBuilder().setX(x).setY(y).setZ(0.0f))
+                .build());
+    }
+
+    private static Map<UnitType, UnitTypeData> unitTypeData() {
+        List<UnitTypeData> data = Arrays.asList(
+                UnitTypeData.from(Data.UnitTypeData.newBuilder()
+                        .setUnitId(Units.ZERG_ZERGLING.getUnitTypeId())
+                        .setName(Units.ZERG_ZERGLING.name())
+                        .setMovementSpeed(4.0f)
+                        .build()),
+                UnitTypeData.from(Data.UnitTypeData.newBuilder()
+                        .setUnitId(Units.ZERG_SPINE_CRAWLER.getUnitTypeId())
+                        .setName(Units.ZERG_SPINE_CRAWLER.name())
+                        .addAttributes(Data.Attribute.Structure)
+                        .build()));
+        Map<UnitType, UnitTypeData> unitTypeData = new HashMap<>();
+        for (UnitTypeData typeData : data) unitTypeData.put(typeData.getUnitType(), typeData);
+        return Collections.unmodifiableMap(unitTypeData);
+    }
+}
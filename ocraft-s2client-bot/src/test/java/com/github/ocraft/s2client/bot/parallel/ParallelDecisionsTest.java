@@ -0,0 +1,211 @@
+package com.github.ocraft.s2client.bot.parallel;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.bot.GameServerResponses;
+import com.github.ocraft.s2client.bot.gateway.ActionInterface;
+import com.github.ocraft.s2client.protocol.data.Abilities;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class ParallelDecisionsTest {
+
+    private static final Point2d TARGET = Point2d.of(10, 10);
+
+    @Test
+    void evaluatesPolicyForEveryUnitAndBatchesIdenticalCommands() {
+        List<Unit> units = units(500);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            DecisionResult result = ParallelDecisions.unpartitioned()
+                    .withPolicy((unit, snapshot, commands) -> commands.unitCommand(
+                            unit, Abilities.ATTACK, TARGET, false))
+                    .withPool(pool)
+                    .withSplitThreshold(16)
+                    .build()
+                    .decide(null, units);
+
+            assertThat(result.getEvaluatedUnits()).isEqualTo(500);
+            assertThat(result.getSkippedUnits()).isZero();
+            assertThat(result.isDeadlineExceeded()).isFalse();
+            assertThat(result.getCommands().getCommandCount()).isEqualTo(1);
+            assertThat(result.getCommands().getUnitCount()).isEqualTo(500);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void keepsPartitionsTogetherBelowSplitThreshold() {
+        Set<String> workersOfCell = ConcurrentHashMap.newKeySet();
+        List<Unit> units = units(100);
+
+        ParallelDecisions.partitionedBy(UnitPartitioner.bySpatialCell(1000))
+                .withPolicy((unit, snapshot, commands) -> workersOfCell.add(Thread.currentThread().getName()))
+                .withSplitThreshold(1000)
+                .build()
+                .decide(null, units);
+
+        assertThat(workersOfCell).hasSize(1);
+    }
+
+    @Test
+    void usesPolicyOfThePartition() {
+        List<Unit> units = units(10);
+
+        DecisionResult result = ParallelDecisions.partitionedBy(unit -> unit.getTag().getValue() % 2 == 0)
+                .withPolicies(even -> even
+                        ? (unit, snapshot, commands) -> commands.unitCommand(unit, Abilities.STOP, false)
+                        : null)
+                .build()
+                .decide(null, units);
+
+        assertThat(result.getEvaluatedUnits()).isEqualTo(5);
+        assertThat(result.getCommands().getUnitCount()).isEqualTo(5);
+    }
+
+    @Test
+    void returnsPartialResultWhenDeadlineIsExceeded() {
+        List<Unit> units = units(200);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            DecisionResult result = ParallelDecisions.unpartitioned()
+                    .withPolicy((unit, snapshot, commands) -> {
+                        sleep(5);
+                        commands.unitCommand(unit, Abilities.STOP, false);
+                    })
+                    .withDeadline(50, TimeUnit.MILLISECONDS)
+                    .withSplitThreshold(1)
+                    .withPool(pool)
+                    .build()
+                    .decide(null, units);
+
+            assertThat(result.isDeadlineExceeded()).isTrue();
+            assertThat(result.getSkippedUnits()).isPositive();
+            assertThat(result.getEvaluatedUnits() + result.getSkippedUnits()).isEqualTo(200);
+            assertThat(result.getCommands().getUnitCount()).isEqualTo(result.getEvaluatedUnits());
+            assertThat(result.getDurationNanos()).isLessThan(TimeUnit.SECONDS.toNanos(1));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void waitsForUnitInFlightWhenDeadlineIsExceeded() {
+        List<Unit> units = units(8);
+        AtomicLong now = new AtomicLong();
+        AtomicInteger decided = new AtomicInteger();
+        AtomicInteger inFlight = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // One chunk evaluated in order, the first unit is slow and crosses the deadline of the clock in flight.
+            DecisionResult result = ParallelDecisions.unpartitioned()
+                    .withPolicy((unit, snapshot, commands) -> {
+                        inFlight.incrementAndGet();
+                        now.set(TimeUnit.MILLISECONDS.toNanos(20));
+                        sleep(20);
+                        commands.unitCommand(unit, Abilities.STOP, false);
+                        decided.incrementAndGet();
+                        inFlight.decrementAndGet();
+                    })
+                    .withDeadline(10, TimeUnit.MILLISECONDS)
+                    .withPool(pool)
+                    .withClock(now::get)
+                    .build()
+                    .decide(null, units);
+
+            assertThat(inFlight.get()).as("units in flight after decide").isZero();
+            assertThat(result.isDeadlineExceeded()).isTrue();
+            assertThat(result.getEvaluatedUnits()).isEqualTo(1).isEqualTo(decided.get());
+            assertThat(result.getSkippedUnits()).isEqualTo(7);
+            assertThat(result.getCommands().getUnitCount()).isEqualTo(1);
+            assertThat(pool.awaitQuiescence(5, TimeUnit.SECONDS)).as("pool is idle").isTrue();
+            assertThat(decided.get()).as("units decided after decide returned").isEqualTo(result.getEvaluatedUnits());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void issuesBatchedCommands() {
+        List<Unit> units = units(3);
+        ActionInterface actions = mock(ActionInterface.class);
+        UnitCommandBatch batch = new UnitCommandBatch()
+                .unitCommand(units.get(0), Abilities.ATTACK, TARGET, false)
+                .unitCommand(units.get(1), Abilities.ATTACK, TARGET, false)
+                .unitCommand(units.get(2), Abilities.ATTACK, units.get(0), false);
+
+        assertThat(batch.issue(actions)).isEqualTo(2);
+
+        verify(actions).unitCommand(eq(units.subList(0, 2)), eq(Abilities.ATTACK), eq(TARGET), eq(false));
+        verify(actions).unitCommand(anyList(), eq(Abilities.ATTACK), eq(units.get(0)), eq(false));
+    }
+
+    @Test
+    void throwsExceptionWhenPolicyIsNotSet() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> ParallelDecisions.unpartitioned().build())
+                .withMessage("policy is required");
+    }
+
+    private static List<Unit> units(int count) {
+        List<Unit> units = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            units.add(Unit.from(GameServerResponses.sc2ApiUnit((long) i, Raw.Alliance.Self, false, 1.0f).toBuilder()
+                    .setPos(Common.Point.newBuilder().setX(i % 100).setY(i / 100f).setZ(0).build())
+                    .build()));
+        }
+        return units;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.github.ocraft.s2client.bot.planning;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Data;
+import com.github.ocraft.s2client.protocol.data.UnitTypeData;
+import com.github.ocraft.s2client.protocol.data.Units;
+import com.github.ocraft.s2client.protocol.data.UpgradeData;
+import com.github.ocraft.s2client.protocol.data.Upgrades;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.ocraft.s2client.bot.planning.BuildOrderSimulator.INFEASIBLE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class BuildOrderSimulatorTest {
+
+    private static final ProductionData DATA = ProductionData.compile(
+            Arrays.asList(
+                    unitType(Units.TERRAN_SCV, 50, 0, 272, 1, 0, null),
+                    unitType(Units.TERRAN_SUPPLY_DEPOT, 100, 0, 480, 0, 8, null),
+                    unitType(Units.TERRAN_BARRACKS, 150, 0, 1040, 0, 0, Units.TERRAN_SUPPLY_DEPOT),
+                    unitType(Units.TERRAN_MARINE, 50, 0, 400, 1, 0, Units.TERRAN_BARRACKS)),
+            Collections.singletonList(UpgradeData.from(Data.UpgradeData.newBuilder()
+                    .setUpgradeId(Upgrades.STIMPACK.getUpgradeId())
+                    .setName(Upgrades.STIMPACK.name())
+                    .setMineralCost(100)
+                    .setVespeneCost(100)
+                    .setResearchTime(2240)
+                    .build())));
+
+    private static final int DEPOT = DATA.itemOf(Units.TERRAN_SUPPLY_DEPOT);
+    private static final int BARRACKS = DATA.itemOf(Units.TERRAN_BARRACKS);
+    private static final int MARINE = DATA.itemOf(Units.TERRAN_MARINE);
+    private static final int STIMPACK = DATA.itemOf(Upgrades.STIMPACK);
+
+    private final BuildOrderSimulator simulator = BuildOrderSimulator.builder(DATA).build();
+
+    @Test
+    void waitsForIncome() {
+        EconomyState start = state().setMinerals(0).setIncomePerMinute(EconomyState.LOOPS_PER_MINUTE, 0);
+        long[] startLoops = new long[2];
+
+        long completion = simulator.simulate(start, BuildOrder.of(MARINE, MARINE), startLoops, null);
+
+        assertThat(startLoops).containsExactly(50L, 450L);
+        assertThat(completion).isEqualTo(850L);
+    }
+
+    @Test
+    void startsItemsInParallelProductionSlots() {
+        EconomyState start = state().setMinerals(1000).setProductionSlots(2);
+        long[] startLoops = new long[3];
+
+        long completion = simulator.simulate(start, BuildOrder.of(MARINE, MARINE, MARINE), startLoops, null);
+
+        assertThat(startLoops).containsExactly(0L, 0L, 400L);
+        assertThat(completion).isEqualTo(800L);
+    }
+
+    @Test
+    void waitsForTechRequirementAndSupply() {
+        EconomyState start = new EconomyState(DATA)
+                .setGameLoop(100)
+                .setMinerals(1000)
+                .setSupply(14, 14)
+                .setProductionSlots(3);
+        BuildOrder order = BuildOrder.builder(DATA)
+                .unit(Units.TERRAN_SUPPLY_DEPOT)
+                .unit(Units.TERRAN_BARRACKS)
+                .unit(Units.TERRAN_MARINE)
+                .build();
+        long[] startLoops = new long[3];
+
+        long completion = simulator.simulate(start, order, startLoops, null);
+
+        assertThat(startLoops).containsExactly(100L, 580L, 1620L);
+        assertThat(completion).isEqualTo(2020L);
+    }
+
+    @Test
+    void detectsInfeasibleBuildOrders() {
+        EconomyState withoutBarracks = new EconomyState(DATA).setMinerals(1000).setSupply(10, 20);
+        EconomyState supplyBlocked = state().setMinerals(1000).setSupply(20, 20);
+        EconomyState withoutIncome = state().setMinerals(40);
+
+        assertThat(simulator.simulate(withoutBarracks, BuildOrder.of(MARINE))).isEqualTo(INFEASIBLE);
+        assertThat(simulator.simulate(supplyBlocked, BuildOrder.of(MARINE))).isEqualTo(INFEASIBLE);
+        assertThat(simulator.simulate(withoutIncome, BuildOrder.of(MARINE))).isEqualTo(INFEASIBLE);
+        assertThat(simulator.simulate(withoutIncome.addPending(DEPOT, 10), BuildOrder.of(MARINE)))
+                .isEqualTo(INFEASIBLE);
+    }
+
+    @Test
+    void finishedWorkersIncreaseIncome() {
+        EconomyState start = state().setMinerals(50);
+        BuildOrder order = BuildOrder.builder(DATA).unit(Units.TERRAN_SCV).unit(Units.TERRAN_MARINE).build();
+        long[] startLoops = new long[2];
+
+        long completion = simulator.simulate(start, order, startLoops, null);
+
+        assertThat(startLoops[0]).isZero();
+        assertThat(startLoops[1]).isEqualTo(272L + (long) Math.ceil(50.0f / (55.0f / EconomyState.LOOPS_PER_MINUTE)));
+        assertThat(completion).isEqualTo(startLoops[1] + 400L);
+        assertThat(BuildOrderSimulator.builder(DATA).withWorkerIncome(0).build().simulate(start, order))
+                .isEqualTo(INFEASIBLE);
+    }
+
+    @Test
+    void projectsEndState() {
+        EconomyState start = state().setMinerals(500).setVespene(200).setProductionSlots(2).addPending(DEPOT, 3000);
+        EconomyState end = new EconomyState(DATA);
+
+        long completion = simulator.simulate(start, BuildOrder.of(MARINE, STIMPACK), null, end);
+
+        assertThat(completion).isEqualTo(2240L);
+        assertThat(end.getGameLoop()).isEqualTo(completion);
+        assertThat(end.getMinerals()).isEqualTo(350.0f);
+        assertThat(end.getVespene()).isEqualTo(100.0f);
+        assertThat(end.getFoodUsed()).isEqualTo(11.0f);
+        assertThat(end.getOwned(MARINE)).isEqualTo(1);
+        assertThat(end.getOwned(STIMPACK)).isEqualTo(1);
+        assertThat(end.getPendingCount()).isEqualTo(1);
+        assertThat(start.getOwned(MARINE)).isZero();
+    }
+
+    @Test
+    void searchesFastestCandidateInParallel() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BuildOrderSimulator parallel = BuildOrderSimulator.builder(DATA)
+                    .withPool(pool)
+                    .withSplitThreshold(64)
+                    .build();
+            EconomyState start = state().setMinerals(100).setIncomePerMinute(500, 0).setProductionSlots(2);
+            BuildOrder fastest = BuildOrder.of(MARINE, MARINE);
+            List<BuildOrder> candidates = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                candidates.add(BuildOrder.of(MARINE, MARINE, MARINE));
+                candidates.add(BuildOrder.of(STIMPACK));
+            }
+            candidates.add(fastest);
+
+            BuildOrderSearchResult result = parallel.search(start, candidates, 0, TimeUnit.MILLISECONDS);
+
+            assertThat(result.getBest()).hasValue(fastest);
+            assertThat(result.getCompletionLoop()).isEqualTo(simulator.simulate(start, fastest));
+            assertThat(result.getEvaluatedCandidates()).isEqualTo(candidates.size());
+            assertThat(result.isDeadlineExceeded()).isFalse();
+
+            BuildOrderSearchResult outOfTime = parallel.search(start, candidates, 1, TimeUnit.NANOSECONDS);
+
+            assertThat(outOfTime.isDeadlineExceeded()).isTrue();
+            assertThat(outOfTime.getSkippedCandidates()).isPositive();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void throwsExceptionForUnknownItems() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> DATA.itemOf(Units.PROTOSS_ZEALOT))
+                .withMessage("unknown unit type: PROTOSS_ZEALOT");
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> DATA.itemOf(Upgrades.BLINK_TECH))
+                .withMessage("unknown upgrade: BLINK_TECH");
+    }
+
+    private static EconomyState state() {
+        return new EconomyState(DATA).setSupply(10, 20).addOwned(BARRACKS, 1);
+    }
+
+    private static UnitTypeData unitType(
+            Units type, int minerals, int vespene, float buildTime, float food, float foodProvided,
+            Units techRequirement) {
+        Data.UnitTypeData.Builder builder = Data.UnitTypeData.newBuilder()
+                .setUnitId(type.getUnitTypeId())
+                .setName(type.name())
+                .setMineralCost(minerals)
+                .setVespeneCost(vespene)
+                .setBuildTime(buildTime)
+                .setFoodRequired(food)
+                .setFoodProvided(foodProvided);
+        if (techRequirement != null) builder.setTechRequirement(techRequirement.getUnitTypeId());
+        return UnitTypeData.from(builder.build());
+    }
+}
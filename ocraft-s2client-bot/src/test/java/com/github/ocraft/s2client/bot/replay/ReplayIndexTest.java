@@ -0,0 +1,173 @@
+package com.github.ocraft.s2client.bot.replay;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Sc2Api;
+import com.github.ocraft.s2client.protocol.game.Race;
+import com.github.ocraft.s2client.protocol.game.ReplayInfo;
+import com.github.ocraft.s2client.protocol.observation.Result;
+import com.github.ocraft.s2client.test.TemporaryFolder;
+import com.github.ocraft.s2client.test.TemporaryFolderExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(TemporaryFolderExtension.class)
+class ReplayIndexTest {
+
+    private TemporaryFolder replayDir;
+
+    @Test
+    void storesReplayMetadata() {
+        ReplayIndexEntry entry = ReplayIndexEntry.of(Paths.get("a.SC2Replay"), 10L, 20L, replayInfo(4000, 3500));
+
+        assertThat(entry.getPath()).isEqualTo(Paths.get("a.SC2Replay").toAbsolutePath());
+        assertThat(entry.getMapName()).isEqualTo("Acropolis LE");
+        assertThat(entry.getBaseBuild()).isEqualTo(75689);
+        assertThat(entry.getGameDurationLoops()).isEqualTo(22400);
+        assertThat(entry.getPlayers()).extracting(ReplayIndexEntry.Player::getRace)
+                .containsExactly(Race.TERRAN, Race.ZERG);
+        assertThat(entry.getPlayer(2)).hasValueSatisfying(player -> {
+            assertThat(player.getResult()).isEqualTo(Result.DEFEAT);
+            assertThat(player.getMmr()).hasValue(3500);
+            assertThat(player.getApm()).isEqualTo(150);
+        });
+        assertThat(entry.hasRace(Race.ZERG)).isTrue();
+        assertThat(entry.hasRace(Race.PROTOSS)).isFalse();
+        assertThat(entry.getMinMmr()).hasValue(3500);
+        assertThat(ReplayIndexEntry.of(Paths.get("b.SC2Replay"), 1L, 1L, replayInfo(4000, null)).getMinMmr())
+                .isEmpty();
+    }
+
+    @Test
+    void detectsModifiedReplays() throws IOException {
+        ReplayIndex index = new ReplayIndex();
+        Path replay = replay("modified.SC2Replay", 4);
+        index.put(entryOf(replay, 4000, 3500));
+
+        assertThat(index.getCurrent(replay)).isPresent();
+
+        Files.write(replay, new byte[8]);
+        Files.setLastModifiedTime(replay, FileTime.fromMillis(1_000_000L));
+
+        assertThat(index.get(replay)).isPresent();
+        assertThat(index.getCurrent(replay)).isEmpty();
+    }
+
+    @Test
+    void selectsReplaysByPredicate() throws IOException {
+        ReplayIndex index = new ReplayIndex();
+        Path high = replay("high.SC2Replay", 1);
+        Path low = replay("low.SC2Replay", 2);
+        Path unknown = replay("unknown.SC2Replay", 3);
+        index.put(entryOf(high, 5000, 4500));
+        index.put(entryOf(low, 2000, 2500));
+        index.put(entryOf(unknown, 5000, null));
+
+        assertThat(index.select(entry -> entry.getMinMmr().orElse(0) >= 4000)).containsExactly(high);
+        assertThat(index.select(entry -> entry.hasRace(Race.ZERG))).containsExactly(high, low, unknown);
+    }
+
+    @Test
+    void savesAndLoadsIndex() throws IOException {
+        ReplayIndex index = new ReplayIndex();
+        index.put(entryOf(replay("first.SC2Replay", 1), 4000, 3500));
+        index.put(entryOf(replay("second.SC2Replay", 2), 3000, null));
+        Path indexFile = replayDir.getRootFolder().resolve("index").resolve("replays.index");
+
+        index.save(indexFile);
+        ReplayIndex loaded = ReplayIndex.load(indexFile);
+
+        assertThat(loaded.getEntries()).containsExactlyInAnyOrderElementsOf(index.getEntries());
+    }
+
+    @Test
+    void startsWithEmptyIndexIfFileIsMissingOrUnreadable() throws IOException {
+        Path indexFile = replayDir.getRootFolder().resolve("replays.index");
+
+        assertThat(ReplayIndex.load(indexFile).isEmpty()).isTrue();
+
+        Files.write(indexFile, new byte[]{1, 2, 3});
+
+        assertThat(ReplayIndex.load(indexFile).isEmpty()).isTrue();
+    }
+
+    @Test
+    void removesEntriesOfDeletedReplays() throws IOException {
+        ReplayIndex index = new ReplayIndex();
+        Path kept = replay("kept.SC2Replay", 1);
+        Path deleted = replay("deleted.SC2Replay", 1);
+        index.put(entryOf(kept, 4000, 3500));
+        index.put(entryOf(deleted, 4000, 3500));
+        Files.delete(deleted);
+
+        assertThat(index.removeMissing()).isEqualTo(1);
+        assertThat(index.select(entry -> true)).containsExactly(kept);
+    }
+
+    private Path replay(String name, int size) throws IOException {
+        Path replay = replayDir.newFile(Paths.get("replays"), name);
+        Files.write(replay, new byte[size]);
+        return replay;
+    }
+
+    static ReplayIndexEntry entryOf(Path replay, Integer mmr1, Integer mmr2) throws IOException {
+        return ReplayIndexEntry.of(
+                replay, Files.size(replay), Files.getLastModifiedTime(replay).toMillis(), replayInfo(mmr1, mmr2));
+    }
+
+    static ReplayInfo replayInfo(Integer mmr1, Integer mmr2) {
+        return ReplayInfo.from(Sc2Api.ResponseReplayInfo.newBuilder()
+                .setMapName("Acropolis LE")
+                .addPlayerInfo(player(2, Common.Race.Zerg, Sc2Api.Result.Defeat, mmr2))
+                .addPlayerInfo(player(1, Common.Race.Terran, Sc2Api.Result.Victory, mmr1))
+                .setGameDurationLoops(22400)
+                .setGameDurationSeconds(1000.0f)
+                .setGameVersion("4.10.0.75689")
+                .setDataVersion("B89B5D6FA7CBF6452E721311BFBC6CB2")
+                .setDataBuild(75689)
+                .setBaseBuild(75689)
+                .build());
+    }
+
+    private static Sc2Api.PlayerInfoExtra player(int id, Common.Race race, Sc2Api.Result result, Integer mmr) {
+        Sc2Api.PlayerInfoExtra.Builder player = Sc2Api.PlayerInfoExtra.newBuilder()
+                .setPlayerInfo(Sc2Api.PlayerInfo.newBuilder().setPlayerId(id).setRaceRequested(race))
+                .setPlayerResult(Sc2Api.PlayerResult.newBuilder().setPlayerId(id).setResult(result))
+                .setPlayerApm(150);
+        if (mmr != null) player.setPlayerMmr(mmr);
+        return player.build();
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.ocraft.s2client.bot.replay;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.bot.gateway.ReplayControlInterface;
+import com.github.ocraft.s2client.test.TemporaryFolder;
+import com.github.ocraft.s2client.test.TemporaryFolderExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(TemporaryFolderExtension.class)
+class ReplayScannerTest {
+
+    private TemporaryFolder replayDir;
+
+    @Test
+    void throwsExceptionIfThereIsNoGameInstance() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new ReplayScanner(Collections.emptyList()))
+                .withMessage("at least one game instance is required");
+    }
+
+    @Test
+    void requestsReplayInfoConcurrentlyWithAllInstances() {
+        List<Path> replays = replays(20);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        List<ReplayControlInterface> instances = asList(instance(threads), instance(threads), instance(threads));
+        ReplayIndex index = new ReplayIndex();
+
+        ReplayScanResult result = new ReplayScanner(instances).scan(index, replays);
+
+        assertThat(result.getIndexed()).isEqualTo(20);
+        assertThat(result.getUnchanged()).isZero();
+        assertThat(result.getFailed()).isEmpty();
+        assertThat(index.size()).isEqualTo(20);
+        assertThat(threads).hasSize(3);
+        instances.forEach(instance -> verify(instance, atLeastOnce()).gatherReplayInfo(any(), eq(false)));
+    }
+
+    @Test
+    void rescansOnlyNewOrModifiedReplays() throws IOException {
+        List<Path> replays = new ArrayList<>(replays(5));
+        ReplayIndex index = new ReplayIndex();
+        new ReplayScanner(Collections.singletonList(instance(ConcurrentHashMap.newKeySet()))).scan(index, replays);
+
+        Path modified = replays.get(0);
+        Files.write(modified, new byte[]{1, 2});
+        Files.setLastModifiedTime(modified, FileTime.fromMillis(1_000_000L));
+        Path added = replayDir.newFile(Paths.get("replays"), "added.SC2Replay");
+        replays.add(added);
+        ReplayControlInterface instance = instance(ConcurrentHashMap.newKeySet());
+
+        ReplayScanResult result = new ReplayScanner(Collections.singletonList(instance)).scan(index, replays);
+
+        assertThat(result.getIndexed()).isEqualTo(2);
+        assertThat(result.getUnchanged()).isEqualTo(4);
+        verify(instance).gatherReplayInfo(modified.toAbsolutePath(), false);
+        verify(instance).gatherReplayInfo(added.toAbsolutePath(), false);
+        verify(instance, times(2)).gatherReplayInfo(any(), anyBoolean());
+        assertThat(index.getCurrent(modified)).hasValueSatisfying(entry -> assertThat(entry.getSize()).isEqualTo(2));
+    }
+
+    @Test
+    void reportsReplaysThatCannotBeRead() {
+        List<Path> replays = replays(3);
+        Path missing = replayDir.getRootFolder().resolve("missing.SC2Replay");
+        ReplayControlInterface instance = instance(ConcurrentHashMap.newKeySet());
+        when(instance.gatherReplayInfo(replays.get(1).toAbsolutePath(), false)).thenReturn(false);
+        ReplayIndex index = new ReplayIndex();
+
+        ReplayScanResult result = new ReplayScanner(Collections.singletonList(instance))
+                .scan(index, Arrays.asList(replays.get(0), replays.get(1), replays.get(2), missing));
+
+        assertThat(result.getIndexed()).isEqualTo(2);
+        assertThat(result.getFailed()).containsExactlyInAnyOrder(replays.get(1), missing);
+        assertThat(index.select(entry -> true)).containsExactly(replays.get(0), replays.get(2));
+    }
+
+    private List<Path> replays(int count) {
+        List<Path> replays = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            replays.add(replayDir.newFile(Paths.get("replays"), String.format("replay%02d.SC2Replay", i)));
+        }
+        return replays;
+    }
+
+    private static ReplayControlInterface instance(Set<String> threads) {
+        ReplayControlInterface instance = mock(ReplayControlInterface.class);
+        when(instance.gatherReplayInfo(any(), anyBoolean())).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            // Keeps each request busy for a while, so every instance gets some replays.
+            Thread.sleep(5);
+            return true;
+        });
+        when(instance.getReplayInfo()).thenReturn(ReplayIndexTest.replayInfo(4000, 3500));
+        return instance;
+    }
+}
@@ -0,0 +1,186 @@
+package com.github.ocraft.s2client.bot.score;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.ScoreOuterClass;
+import com.github.ocraft.s2client.bot.gateway.ObservationInterface;
+import com.github.ocraft.s2client.protocol.score.Score;
+import com.github.ocraft.s2client.test.TemporaryFolder;
+import com.github.ocraft.s2client.test.TemporaryFolderExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(TemporaryFolderExtension.class)
+class ScoreRecorderTest {
+
+    private static final int STEP = 16;
+
+    private TemporaryFolder scoreDir;
+
+    private final ObservationInterface observation = mock(ObservationInterface.class);
+
+    @Test
+    void recordsScoreAndEconomyColumns() {
+        ScoreRecorder recorder = new ScoreRecorder(2);
+
+        for (int step = 0; step < 5; step++) record(recorder, step);
+
+        assertThat(recorder.size()).isEqualTo(5);
+        assertThat(recorder.getGameLoop(4)).isEqualTo(4 * STEP);
+        assertThat(recorder.last(ScoreColumn.SCORE)).isEqualTo(400.0f);
+        assertThat(recorder.last(ScoreColumn.COLLECTED_MINERALS)).isEqualTo(200.0f);
+        assertThat(recorder.last(ScoreColumn.LOST_VESPENE_ARMY)).isEqualTo(12.0f);
+        assertThat(recorder.last(ScoreColumn.TOTAL_DAMAGE_DEALT_SHIELDS)).isEqualTo(16.0f);
+        assertThat(recorder.last(ScoreColumn.CURRENT_MINERALS)).isEqualTo(54.0f);
+        assertThat(recorder.getColumn(ScoreColumn.FOOD_WORKERS)).containsExactly(12.0f, 13.0f, 14.0f, 15.0f, 16.0f);
+        assertThat(ScoreColumn.COLLECTED_MINERALS.isCumulative()).isTrue();
+        assertThat(ScoreColumn.COLLECTION_RATE_MINERALS.isCumulative()).isFalse();
+    }
+
+    @Test
+    void computesDeltasAndRollingWindows() {
+        ScoreRecorder recorder = new ScoreRecorder();
+        for (int step = 0; step < 10; step++) record(recorder, step);
+
+        assertThat(recorder.lastDelta(ScoreColumn.COLLECTED_MINERALS)).isEqualTo(50.0f);
+        assertThat(recorder.delta(ScoreColumn.COLLECTED_MINERALS, 0)).isEqualTo(0.0f);
+        assertThat(recorder.windowDelta(ScoreColumn.COLLECTED_MINERALS, 3 * STEP)).isEqualTo(150.0f);
+        assertThat(recorder.windowDelta(ScoreColumn.COLLECTED_MINERALS, 3 * STEP + 1)).isEqualTo(200.0f);
+        assertThat(recorder.windowDelta(ScoreColumn.COLLECTED_MINERALS, 1000 * STEP)).isEqualTo(450.0f);
+        assertThat(recorder.windowRate(ScoreColumn.COLLECTED_MINERALS, 3 * STEP))
+                .isCloseTo(50.0f / STEP, within(1e-6f));
+        assertThat(recorder.windowMean(ScoreColumn.FOOD_WORKERS, 3)).isEqualTo(20.0f);
+        assertThat(recorder.windowMax(ScoreColumn.CURRENT_MINERALS, 4)).isEqualTo(59.0f);
+        assertThat(recorder.windowMin(ScoreColumn.CURRENT_MINERALS, 100)).isEqualTo(50.0f);
+        assertThat(recorder.rowAt(5 * STEP + 3)).isEqualTo(5);
+        assertThat(recorder.rowAt(-1)).isEqualTo(-1);
+    }
+
+    @Test
+    void overwritesRepeatedGameLoopAndRejectsOlderOne() {
+        ScoreRecorder recorder = new ScoreRecorder();
+        record(recorder, 1);
+        record(recorder, 2);
+        when(observation.getMinerals()).thenReturn(1000);
+
+        assertThat(recorder.record(observation)).isTrue();
+        assertThat(recorder.size()).isEqualTo(2);
+        assertThat(recorder.last(ScoreColumn.CURRENT_MINERALS)).isEqualTo(1000.0f);
+
+        when(observation.getGameLoop()).thenReturn((long) STEP);
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> recorder.record(observation))
+                .withMessage("game loop 16 is before the last recorded 32");
+    }
+
+    @Test
+    void skipsObservationWithoutScore() {
+        ScoreRecorder recorder = new ScoreRecorder();
+
+        assertThat(recorder.record(observation)).isFalse();
+        assertThat(recorder.isEmpty()).isTrue();
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> recorder.last(ScoreColumn.SCORE))
+                .withMessage("nothing recorded");
+    }
+
+    @Test
+    void writesAndReadsColumnarFile() throws IOException {
+        ScoreRecorder recorder = new ScoreRecorder();
+        for (int step = 0; step < 100; step++) record(recorder, step);
+        Path file = scoreDir.getRootFolder().resolve("game").resolve("score.bin");
+
+        recorder.write(file);
+        ScoreRecorder loaded = ScoreRecorder.read(file);
+
+        assertThat(loaded.size()).isEqualTo(100);
+        assertThat(loaded.getGameLoops()).containsExactly(recorder.getGameLoops());
+        for (ScoreColumn column : ScoreColumn.values()) {
+            assertThat(loaded.getColumn(column)).as(column.getColumnName()).containsExactly(recorder.getColumn(column));
+        }
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            assertThat(files).containsExactly(file);
+        }
+    }
+
+    private void record(ScoreRecorder recorder, int step) {
+        when(observation.getGameLoop()).thenReturn((long) step * STEP);
+        when(observation.getScore()).thenReturn(score(step));
+        when(observation.getMinerals()).thenReturn(50 + step);
+        when(observation.getFoodWorkers()).thenReturn(12 + step);
+        assertThat(recorder.record(observation)).isTrue();
+    }
+
+    private static Score score(int step) {
+        ScoreOuterClass.CategoryScoreDetails category = ScoreOuterClass.CategoryScoreDetails.newBuilder()
+                .setNone(step).setArmy(3 * step).setEconomy(0).setTechnology(0).setUpgrade(0).build();
+        ScoreOuterClass.VitalScoreDetails vital = ScoreOuterClass.VitalScoreDetails.newBuilder()
+                .setLife(2 * step).setShields(4 * step).setEnergy(0).build();
+        return Score.from(ScoreOuterClass.Score.newBuilder()
+                .setScoreType(ScoreOuterClass.Score.ScoreType.Melee)
+                .setScore(100 * step)
+                .setScoreDetails(ScoreOuterClass.ScoreDetails.newBuilder()
+                        .setIdleProductionTime(step)
+                        .setIdleWorkerTime(step)
+                        .setTotalValueUnits(step)
+                        .setTotalValueStructures(step)
+                        .setKilledValueUnits(step)
+                        .setKilledValueStructures(step)
+                        .setCollectedMinerals(50 * step)
+                        .setCollectedVespene(step)
+                        .setCollectionRateMinerals(step)
+                        .setCollectionRateVespene(step)
+                        .setSpentMinerals(step)
+                        .setSpentVespene(step)
+                        .setFoodUsed(category)
+                        .setKilledMinerals(category)
+                        .setKilledVespene(category)
+                        .setLostMinerals(category)
+                        .setLostVespene(category)
+                        .setFriendlyFireMinerals(category)
+                        .setFriendlyFireVespene(category)
+                        .setUsedMinerals(category)
+                        .setUsedVespene(category)
+                        .setTotalUsedMinerals(category)
+                        .setTotalUsedVespene(category)
+                        .setTotalDamageDealt(vital)
+                        .setTotalDamageTaken(vital)
+                        .setTotalHealed(vital))
+                .build());
+    }
+}
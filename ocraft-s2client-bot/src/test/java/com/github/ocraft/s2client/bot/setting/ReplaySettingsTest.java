@@ -26,6 +26,10 @@ package com.github.ocraft.s2client.bot.setting;
  * #L%
  */
 
+import SC2APIProtocol.Sc2Api;
+import com.github.ocraft.s2client.bot.replay.ReplayIndex;
+import com.github.ocraft.s2client.bot.replay.ReplayIndexEntry;
+import com.github.ocraft.s2client.protocol.game.ReplayInfo;
 import com.github.ocraft.s2client.test.TemporaryFolder;
 import com.github.ocraft.s2client.test.TemporaryFolderExtension;
 import nl.jqno.equalsverifier.EqualsVerifier;
@@ -115,6 +119,36 @@ class ReplaySettingsTest {
                 .containsExactly(REPLAY_PATH_01.toAbsolutePath(), REPLAY_PATH_02.toAbsolutePath());
     }
 
+    @Test
+    void selectsIndexedReplaysAcceptedByFilter() throws IOException {
+        Path long01 = replayDir.newFile(REPLAYS_DIR_PATH, REPLAY_PATH_01.getFileName().toString());
+        Path short02 = replayDir.newFile(REPLAYS_DIR_PATH, REPLAY_PATH_02.getFileName().toString());
+        replayDir.newFile(REPLAYS_DIR_PATH, REPLAY_PATH_03.getFileName().toString());
+        ReplayIndex replayIndex = new ReplayIndex();
+        replayIndex.put(entryOf(long01, 600.0f));
+        replayIndex.put(entryOf(short02, 20.0f));
+
+        ReplaySettings replaySettings = new ReplaySettings()
+                .setReplayPath(replayDir.getRootFolder().resolve(REPLAYS_DIR_PATH))
+                .selectReplays(replayIndex, entry -> entry.getGameDurationSeconds() > 60.0f);
+
+        assertThat(replaySettings.getReplayFiles()).containsExactly(long01);
+    }
+
+    private static ReplayIndexEntry entryOf(Path replay, float durationSeconds) throws IOException {
+        ReplayInfo replayInfo = ReplayInfo.from(Sc2Api.ResponseReplayInfo.newBuilder()
+                .setMapName("Acropolis LE")
+                .setGameDurationLoops((int) (durationSeconds * 22.4f))
+                .setGameDurationSeconds(durationSeconds)
+                .setGameVersion("4.10.0.75689")
+                .setDataVersion("B89B5D6FA7CBF6452E721311BFBC6CB2")
+                .setDataBuild(75689)
+                .setBaseBuild(75689)
+                .build());
+        return ReplayIndexEntry.of(
+                replay, Files.size(replay), Files.getLastModifiedTime(replay).toMillis(), replayInfo);
+    }
+
     @Test
     void fulfillsEqualsContract() {
         EqualsVerifier.forClass(ReplaySettings.class)
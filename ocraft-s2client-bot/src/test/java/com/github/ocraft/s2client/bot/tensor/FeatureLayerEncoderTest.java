@@ -0,0 +1,164 @@
+package com.github.ocraft.s2client.bot.tensor;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Spatial;
+import com.github.ocraft.s2client.protocol.observation.spatial.FeatureLayersMinimap;
+import com.github.ocraft.s2client.protocol.observation.spatial.ImageData;
+import com.github.ocraft.s2client.protocol.spatial.Point2d;
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.within;
+
+class FeatureLayerEncoderTest {
+
+    private static final int WIDTH = 12;
+    private static final int HEIGHT = 2;
+    private static final int PIXELS = WIDTH * HEIGHT;
+
+    private final FeatureLayersMinimap minimap = minimap();
+
+    @Test
+    void encodesLayersChannelsFirst() {
+        FeatureLayerEncoder<FeatureLayersMinimap> encoder = encoder(Layout.CHANNELS_FIRST);
+
+        FloatBuffer tensor = encoder.encode(minimap);
+
+        assertThat(encoder.getChannels()).isEqualTo(10);
+        assertThat(tensor.remaining()).isEqualTo(10 * PIXELS);
+        assertThat(tensor.isDirect()).isTrue();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int i = y * WIDTH + x;
+                assertThat(tensor.get(i)).isCloseTo(sample(minimap.getHeightMap(), x, y) / 255.0f, within(1e-6f));
+                assertThat(tensor.get(PIXELS + i)).isEqualTo(sample(minimap.getCreep(), x, y));
+                int relative = sample(minimap.getPlayerRelative(), x, y);
+                for (int k = 0; k < 5; k++) {
+                    assertThat(tensor.get((2 + k) * PIXELS + i)).isEqualTo(k == relative ? 1.0f : 0.0f);
+                }
+                assertThat(tensor.get(7 * PIXELS + i)).isEqualTo(i * 1000.0f);
+                assertThat(tensor.get(8 * PIXELS + i)).isZero();
+                assertThat(tensor.get(9 * PIXELS + i)).isEqualTo(sample(minimap.getCamera(), x, y));
+            }
+        }
+    }
+
+    @Test
+    void encodesLayersChannelsLast() {
+        FloatBuffer channelsFirst = copy(encoder(Layout.CHANNELS_FIRST).encode(minimap));
+        FloatBuffer channelsLast = encoder(Layout.CHANNELS_LAST).encode(minimap);
+
+        for (int c = 0; c < 10; c++) {
+            for (int i = 0; i < PIXELS; i++) {
+                assertThat(channelsLast.get(i * 10 + c)).isEqualTo(channelsFirst.get(c * PIXELS + i));
+            }
+        }
+    }
+
+    @Test
+    void reusesBufferAcrossSteps() {
+        FeatureLayerEncoder<FeatureLayersMinimap> encoder = encoder(Layout.CHANNELS_FIRST);
+
+        FloatBuffer first = copy(encoder.encode(minimap));
+        FloatBuffer second = encoder.encode(minimap);
+
+        assertThat(second).isSameAs(encoder.encode(minimap)).isEqualTo(first);
+        assertThat(encoder.getBuffer().asFloatBuffer().get(PIXELS)).isEqualTo(second.get(PIXELS));
+    }
+
+    @Test
+    void throwsExceptionWhenLayerSizeDoesNotMatch() {
+        FeatureLayerEncoder<FeatureLayersMinimap> encoder = FeatureLayerEncoder.<FeatureLayersMinimap>builder(8, 8)
+                .layer(FeatureLayersMinimap::getHeightMap, LayerEncoding.raw())
+                .build();
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> encoder.encode(minimap))
+                .withMessageContaining("expected 8x8");
+    }
+
+    private static FeatureLayerEncoder<FeatureLayersMinimap> encoder(Layout layout) {
+        return FeatureLayerEncoder.<FeatureLayersMinimap>builder(WIDTH, HEIGHT)
+                .layer(FeatureLayersMinimap::getHeightMap, LayerEncoding.normalized(255.0f))
+                .layer(FeatureLayersMinimap::getCreep, LayerEncoding.raw())
+                .layer(FeatureLayersMinimap::getPlayerRelative, LayerEncoding.oneHot(5))
+                .optionalLayer(FeatureLayersMinimap::getUnitType, LayerEncoding.raw())
+                .optionalLayer(FeatureLayersMinimap::getAlerts, LayerEncoding.raw())
+                .layer(FeatureLayersMinimap::getCamera, LayerEncoding.raw())
+                .layout(layout)
+                .build();
+    }
+
+    private static int sample(ImageData image, int x, int y) {
+        return image.sample(Point2d.of(x, HEIGHT - 1 - y));
+    }
+
+    private static FloatBuffer copy(FloatBuffer tensor) {
+        FloatBuffer copy = FloatBuffer.allocate(tensor.remaining());
+        copy.put(tensor.duplicate()).flip();
+        return copy;
+    }
+
+    private static FeatureLayersMinimap minimap() {
+        byte[] heights = new byte[PIXELS];
+        byte[] relative = new byte[PIXELS];
+        ByteBuffer unitTypes = ByteBuffer.allocate(PIXELS * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < PIXELS; i++) {
+            heights[i] = (byte) (i * 8);
+            relative[i] = (byte) (i % 6);
+            unitTypes.putInt(i * 1000);
+        }
+        byte[] creep = {(byte) 0b10110001, (byte) 0xFF, (byte) 0b00101010};
+        byte[] camera = {0x0F, 0x00, (byte) 0xF0};
+        return FeatureLayersMinimap.from(Spatial.FeatureLayersMinimap.newBuilder()
+                .setHeightMap(image(8, heights))
+                .setVisibilityMap(image(8, heights))
+                .setCreep(image(1, creep))
+                .setCamera(image(1, camera))
+                .setPlayerId(image(8, relative))
+                .setPlayerRelative(image(8, relative))
+                .setSelected(image(1, creep))
+                .setUnitType(image(32, unitTypes.array()))
+                .build());
+    }
+
+    private static Common.ImageData image(int bitsPerPixel, byte[] data) {
+        return Common.ImageData.newBuilder()
+                .setBitsPerPixel(bitsPerPixel)
+                .setSize(Common.Size2DI.newBuilder().setX(WIDTH).setY(HEIGHT))
+                .setData(ByteString.copyFrom(data))
+                .build();
+    }
+}
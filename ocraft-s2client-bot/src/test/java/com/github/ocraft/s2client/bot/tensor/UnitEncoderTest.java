@@ -0,0 +1,133 @@
+package com.github.ocraft.s2client.bot.tensor;
+
+/*-
+ * #%L
+ * ocraft-s2client-bot
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Common;
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.bot.GameServerResponses;
+import com.github.ocraft.s2client.protocol.unit.Alliance;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.within;
+
+class UnitEncoderTest {
+
+    @Test
+    void encodesUnitFeatures() {
+        UnitEncoder encoder = UnitEncoder.builder(4)
+                .features(UnitFeature.TYPE, UnitFeature.ALLIANCE, UnitFeature.X, UnitFeature.HEALTH_RATIO,
+                        UnitFeature.ORDER_ABILITY, UnitFeature.ORDER_PROGRESS, UnitFeature.BUFF_COUNT,
+                        UnitFeature.BUFF_0, UnitFeature.BUFF_1, UnitFeature.FLYING)
+                .build();
+        Unit enemy = unit(7L, Raw.Alliance.Enemy, true, 20.0f, 40.0f);
+
+        assertThat(encoder.encode(Collections.singletonList(enemy))).isEqualTo(1);
+
+        float[] row = Arrays.copyOf(encoder.getMatrix(), encoder.getFeatureCount());
+        assertThat(row[0]).isEqualTo(2.0f);
+        assertThat(row[1]).isEqualTo(4.0f);
+        assertThat(row[2]).isEqualTo(20.0f);
+        assertThat(row[3]).isCloseTo(0.5f, within(1e-6f));
+        assertThat(row[4]).isEqualTo(2.0f);
+        assertThat(row[5]).isEqualTo(2.0f);
+        assertThat(row[6]).isEqualTo(2.0f);
+        assertThat(row[7]).isEqualTo(16.0f);
+        assertThat(row[8]).isEqualTo(17.0f);
+        assertThat(row[9]).isEqualTo(1.0f);
+        assertThat(encoder.getColumn(UnitFeature.X)).isEqualTo(2);
+        assertThat(encoder.getColumn(UnitFeature.Y)).isEqualTo(-1);
+    }
+
+    @Test
+    void ordersRowsByTagAndTruncates() {
+        List<Unit> units = new ArrayList<>();
+        Random random = new Random(1);
+        for (long tag = 1; tag <= 100; tag++) units.add(unit(tag, Raw.Alliance.Self, false, tag, 1.0f));
+        Collections.shuffle(units, random);
+        UnitEncoder encoder = UnitEncoder.builder(64).features(UnitFeature.X).build();
+
+        assertThat(encoder.encode(units)).isEqualTo(64);
+
+        for (int row = 0; row < 64; row++) {
+            assertThat(encoder.getTags()[row]).isEqualTo(row + 1L);
+            assertThat(encoder.getMatrix()[row]).isEqualTo(row + 1.0f);
+        }
+    }
+
+    @Test
+    void clearsUnusedRowsAndFillsDirectBuffer() {
+        UnitEncoder encoder = UnitEncoder.builder(3)
+                .features(UnitFeature.X, UnitFeature.HEALTH)
+                .filter(unit -> unit.getAlliance() == Alliance.SELF)
+                .directBuffer()
+                .build();
+        List<Unit> units = new ArrayList<>();
+        units.add(unit(3L, Raw.Alliance.Self, false, 3.0f, 10.0f));
+        units.add(unit(2L, Raw.Alliance.Enemy, false, 2.0f, 10.0f));
+        units.add(unit(1L, Raw.Alliance.Self, false, 1.0f, 10.0f));
+        encoder.encode(units);
+
+        assertThat(encoder.encode(units.subList(0, 1))).isEqualTo(1);
+
+        FloatBuffer buffer = encoder.getBuffer();
+        assertThat(buffer.isDirect()).isTrue();
+        assertThat(buffer.remaining()).isEqualTo(6);
+        assertThat(buffer.get(0)).isEqualTo(3.0f);
+        assertThat(buffer.get(1)).isEqualTo(5.0f);
+        for (int i = 2; i < 6; i++) assertThat(buffer.get(i)).isZero();
+        assertThat(encoder.getTags()).containsExactly(3L, 0L, 0L);
+    }
+
+    @Test
+    void throwsExceptionWhenBufferIsNotEnabled() {
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> UnitEncoder.builder(1).build().getBuffer())
+                .withMessage("encoder was built without direct buffer");
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> UnitEncoder.builder(0))
+                .withMessage("max units must be positive");
+    }
+
+    private static Unit unit(long tag, Raw.Alliance alliance, boolean withOrders, float x, float healthMax) {
+        return Unit.from(GameServerResponses.sc2ApiUnit(tag, alliance, withOrders, 1.0f).toBuilder()
+                .setPos(Common.Point.newBuilder().setX(x).setY(1.0f).setZ(0.0f))
+                .setHealth(healthMax / 2)
+                .setHealthMax(healthMax)
+                .setIsFlying(withOrders)
+                .build());
+    }
+}
@@ -0,0 +1,246 @@
+package com.github.ocraft.s2client.protocol;
+
+/*-
+ * #%L
+ * ocraft-s2client-protocol
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.google.protobuf.ByteString;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compact, bounded text form of protocol objects used by their {@code toString()}: nested objects are written up to
+ * {@link #MAX_DEPTH} levels, collections are summarized by size and the first {@link #MAX_ELEMENTS} elements, binary
+ * payloads by their size only, and the whole text is cut at {@link #MAX_LENGTH} characters. Empty and unset values are
+ * skipped. Fields of every class are resolved once and cached, the text is written into a single builder.
+ */
+final class CompactFormatter {
+
+    static final int MAX_DEPTH = 4;
+    static final int MAX_ELEMENTS = 8;
+    static final int MAX_LENGTH = 1024;
+
+    private static final String PROTOCOL_PACKAGE = "com.github.ocraft.s2client";
+    private static final String TRUNCATED = "...";
+
+    private static final ClassValue<Layout> LAYOUTS = new ClassValue<Layout>() {
+        @Override
+        protected Layout computeValue(Class<?> type) {
+            return new Layout(type);
+        }
+    };
+
+    private CompactFormatter() {
+        throw new AssertionError("private constructor");
+    }
+
+    static String format(Object o) {
+        StringBuilder text = new StringBuilder(128);
+        append(text, o, 0);
+        if (text.length() > MAX_LENGTH) {
+            text.setLength(MAX_LENGTH - TRUNCATED.length());
+            text.append(TRUNCATED);
+        }
+        return text.toString();
+    }
+
+    private static void append(StringBuilder text, Object value, int depth) {
+        if (text.length() > MAX_LENGTH) return;
+        if (value == null) {
+            text.append("null");
+        } else if (value instanceof CharSequence) {
+            text.append('"').append((CharSequence) value).append('"');
+        } else if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            text.append(value);
+        } else if (value instanceof Enum) {
+            text.append(((Enum<?>) value).name());
+        } else if (value instanceof Optional) {
+            append(text, ((Optional<?>) value).orElse(null), depth);
+        } else if (value instanceof ByteString) {
+            text.append("bytes[").append(((ByteString) value).size()).append(']');
+        } else if (value instanceof byte[]) {
+            text.append("bytes[").append(((byte[]) value).length).append(']');
+        } else if (value instanceof Collection) {
+            appendElements(text, (Collection<?>) value, depth);
+        } else if (value instanceof Map) {
+            appendEntries(text, (Map<?, ?>) value, depth);
+        } else if (value.getClass().isArray()) {
+            appendArray(text, value, depth);
+        } else if (value.getClass().getName().startsWith(PROTOCOL_PACKAGE)) {
+            appendObject(text, value, depth);
+        } else {
+            text.append(value);
+        }
+    }
+
+    private static void appendObject(StringBuilder text, Object value, int depth) {
+        Layout layout = LAYOUTS.get(value.getClass());
+        text.append(layout.name).append('{');
+        if (depth >= MAX_DEPTH) {
+            text.append(TRUNCATED).append('}');
+            return;
+        }
+        boolean first = true;
+        for (Field field : layout.fields) {
+            if (text.length() > MAX_LENGTH) return;
+            Object fieldValue = field.getType().isPrimitive() ? null : read(field, value);
+            if (!field.getType().isPrimitive() && isEmpty(fieldValue)) continue;
+            if (!first) text.append(", ");
+            first = false;
+            text.append(field.getName()).append('=');
+            if (field.getType().isPrimitive()) {
+                appendPrimitive(text, field, value);
+            } else {
+                append(text, fieldValue, depth + 1);
+            }
+        }
+        text.append('}');
+    }
+
+    // Primitive fields are appended without boxing.
+    private static void appendPrimitive(StringBuilder text, Field field, Object owner) {
+        try {
+            Class<?> type = field.getType();
+            if (type == int.class) text.append(field.getInt(owner));
+            else if (type == float.class) text.append(field.getFloat(owner));
+            else if (type == long.class) text.append(field.getLong(owner));
+            else if (type == boolean.class) text.append(field.getBoolean(owner));
+            else if (type == double.class) text.append(field.getDouble(owner));
+            else if (type == short.class) text.append(field.getShort(owner));
+            else if (type == byte.class) text.append(field.getByte(owner));
+            else text.append(field.getChar(owner));
+        } catch (IllegalAccessException e) {
+            text.append('?');
+        }
+    }
+
+    private static Object read(Field field, Object owner) {
+        try {
+            return field.get(owner);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static boolean isEmpty(Object value) {
+        return value == null ||
+                (value instanceof Optional && !((Optional<?>) value).isPresent()) ||
+                (value instanceof Collection && ((Collection<?>) value).isEmpty()) ||
+                (value instanceof Map && ((Map<?, ?>) value).isEmpty()) ||
+                (value instanceof CharSequence && ((CharSequence) value).length() == 0);
+    }
+
+    private static void appendElements(StringBuilder text, Collection<?> elements, int depth) {
+        text.append('[');
+        appendSize(text, elements.size());
+        int i = 0;
+        for (Object element : elements) {
+            if (i == MAX_ELEMENTS || text.length() > MAX_LENGTH) {
+                text.append(", ").append(TRUNCATED);
+                break;
+            }
+            text.append(i == 0 ? "" : ", ");
+            append(text, element, depth + 1);
+            i++;
+        }
+        text.append(']');
+    }
+
+    private static void appendEntries(StringBuilder text, Map<?, ?> entries, int depth) {
+        text.append('{');
+        appendSize(text, entries.size());
+        int i = 0;
+        for (Map.Entry<?, ?> entry : entries.entrySet()) {
+            if (i == MAX_ELEMENTS || text.length() > MAX_LENGTH) {
+                text.append(", ").append(TRUNCATED);
+                break;
+            }
+            text.append(i == 0 ? "" : ", ");
+            append(text, entry.getKey(), depth + 1);
+            text.append('=');
+            append(text, entry.getValue(), depth + 1);
+            i++;
+        }
+        text.append('}');
+    }
+
+    private static void appendArray(StringBuilder text, Object array, int depth) {
+        int length = Array.getLength(array);
+        if (array.getClass().getComponentType().isPrimitive()) {
+            text.append(array.getClass().getComponentType().getName()).append('[').append(length).append(']');
+            return;
+        }
+        text.append('[');
+        appendSize(text, length);
+        for (int i = 0; i < length; i++) {
+            if (i == MAX_ELEMENTS || text.length() > MAX_LENGTH) {
+                text.append(", ").append(TRUNCATED);
+                break;
+            }
+            text.append(i == 0 ? "" : ", ");
+            append(text, Array.get(array, i), depth + 1);
+        }
+        text.append(']');
+    }
+
+    // Size is written only for collections that do not fit, the short ones are written whole.
+    private static void appendSize(StringBuilder text, int size) {
+        if (size > MAX_ELEMENTS) text.append(size).append(" items: ");
+    }
+
+    private static final class Layout {
+        private final String name;
+        private final Field[] fields;
+
+        private Layout(Class<?> type) {
+            name = type.getSimpleName();
+            List<Field> instanceFields = new ArrayList<>();
+            List<Class<?>> hierarchy = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) hierarchy.add(0, c);
+            for (Class<?> c : hierarchy) {
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                        continue;
+                    }
+                    try {
+                        field.setAccessible(true);
+                        instanceFields.add(field);
+                    } catch (RuntimeException e) {
+                        // Inaccessible field is left out of the text.
+                    }
+                }
+            }
+            fields = instanceFields.toArray(new Field[0]);
+        }
+    }
+}
@@ -110,6 +110,10 @@ public final class GameVersion implements Serializable {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
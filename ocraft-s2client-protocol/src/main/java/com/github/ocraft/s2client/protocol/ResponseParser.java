@@ -36,8 +36,15 @@ import java.util.function.Function;
 public class ResponseParser implements Function<byte[], Response> {
     @Override
     public Response apply(byte[] responseBytes) {
+        return new ResponseConverter().apply(parse(responseBytes));
+    }
+
+    /**
+     * Parses protobuf message without conversion, allows to measure both stages separately.
+     */
+    public Sc2Api.Response parse(byte[] responseBytes) {
         try {
-            return new ResponseConverter().apply(Sc2Api.Response.parseFrom(responseBytes));
+            return Sc2Api.Response.parseFrom(responseBytes);
         } catch (InvalidProtocolBufferException e) {
             throw new ProtocolException(e);
         }
@@ -50,6 +50,10 @@ public final class Strings {
         throw new AssertionError("private constructor");
     }
 
+    /**
+     * Full JSON form of the object (with the whole object graph), for the compact text form used by
+     * {@code toString()} see {@link #toCompactString(Object)}.
+     */
     public static String toJson(Object o) {
         try {
             return writer.writeValueAsString(o);
@@ -57,4 +61,12 @@ public final class Strings {
             throw new ProtocolException(e);
         }
     }
+
+    /**
+     * Compact text form of the object with bounded depth and length, large collections and binary payloads are
+     * summarized. Cheap enough to be used by {@code toString()} of protocol objects which are logged.
+     */
+    public static String toCompactString(Object o) {
+        return CompactFormatter.format(o);
+    }
 }
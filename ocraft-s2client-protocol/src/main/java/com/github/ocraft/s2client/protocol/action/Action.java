@@ -451,6 +451,10 @@ public final class Action implements Sc2ApiSerializable<Sc2Api.Action> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
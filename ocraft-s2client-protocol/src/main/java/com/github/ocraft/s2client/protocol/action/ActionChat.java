@@ -166,6 +166,10 @@ public final class ActionChat implements Sc2ApiSerializable<Sc2Api.ActionChat> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -101,6 +101,10 @@ public final class ActionError implements Serializable {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -187,6 +187,10 @@ public final class ObserverAction implements Sc2ApiSerializable<Sc2Api.ObserverA
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -95,6 +95,10 @@ public final class ActionObserverCameraFollowPlayer
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -114,6 +114,10 @@ public final class ActionObserverCameraMove implements Sc2ApiSerializable<Sc2Api
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -103,6 +103,10 @@ public final class ActionObserverPlayerPerspective
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -172,6 +172,10 @@ public final class ActionRaw implements Sc2ApiSerializable<Raw.ActionRaw>, Gener
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
@@ -112,6 +112,10 @@ public final class ActionRawCameraMove implements Sc2ApiSerializable<Raw.ActionR
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -163,6 +163,10 @@ public final class ActionRawToggleAutocast
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
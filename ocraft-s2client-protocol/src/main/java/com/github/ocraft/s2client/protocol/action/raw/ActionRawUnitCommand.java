@@ -245,6 +245,10 @@ public final class ActionRawUnitCommand
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
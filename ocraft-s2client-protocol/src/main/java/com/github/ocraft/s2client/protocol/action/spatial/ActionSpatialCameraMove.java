@@ -105,6 +105,10 @@ public final class ActionSpatialCameraMove implements Sc2ApiSerializable<Spatial
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
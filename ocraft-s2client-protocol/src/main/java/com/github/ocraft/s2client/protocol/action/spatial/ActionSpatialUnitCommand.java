@@ -201,6 +201,10 @@ public final class ActionSpatialUnitCommand implements
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
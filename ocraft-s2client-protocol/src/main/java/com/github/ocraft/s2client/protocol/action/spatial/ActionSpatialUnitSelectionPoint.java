@@ -176,6 +176,10 @@ public final class ActionSpatialUnitSelectionPoint
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -144,6 +144,10 @@ public final class ActionSpatialUnitSelectionRect
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
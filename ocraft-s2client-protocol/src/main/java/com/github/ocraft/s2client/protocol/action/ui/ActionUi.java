@@ -353,6 +353,10 @@ public final class ActionUi implements Sc2ApiSerializable<Ui.ActionUI> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
@@ -104,6 +104,10 @@ public final class ActionUiCargoPanelUnload implements Sc2ApiSerializable<Ui.Act
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
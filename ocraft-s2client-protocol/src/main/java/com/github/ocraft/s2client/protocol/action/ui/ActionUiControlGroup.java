@@ -177,6 +177,10 @@ public final class ActionUiControlGroup implements Sc2ApiSerializable<Ui.ActionC
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
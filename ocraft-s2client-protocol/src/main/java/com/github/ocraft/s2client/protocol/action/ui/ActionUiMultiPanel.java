@@ -165,6 +165,10 @@ public final class ActionUiMultiPanel implements Sc2ApiSerializable<Ui.ActionMul
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
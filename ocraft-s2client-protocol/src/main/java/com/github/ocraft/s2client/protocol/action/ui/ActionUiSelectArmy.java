@@ -105,6 +105,10 @@ public final class ActionUiSelectArmy implements Sc2ApiSerializable<Ui.ActionSel
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
@@ -142,6 +142,10 @@ public final class ActionUiSelectIdleWorker implements Sc2ApiSerializable<Ui.Act
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
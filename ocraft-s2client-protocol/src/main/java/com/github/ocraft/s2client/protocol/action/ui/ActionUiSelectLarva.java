@@ -66,6 +66,10 @@ public final class ActionUiSelectLarva implements Sc2ApiSerializable<Ui.ActionSe
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
@@ -105,6 +105,10 @@ public final class ActionUiSelectWarpGates implements Sc2ApiSerializable<Ui.Acti
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
@@ -105,6 +105,10 @@ public final class ActionUiToggleAutocast implements Sc2ApiSerializable<Ui.Actio
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
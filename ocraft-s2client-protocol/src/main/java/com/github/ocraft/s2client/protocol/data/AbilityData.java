@@ -219,6 +219,10 @@ public final class AbilityData implements Serializable {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
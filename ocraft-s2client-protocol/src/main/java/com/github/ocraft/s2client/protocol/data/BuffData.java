@@ -82,6 +82,10 @@ public final class BuffData implements Serializable {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -101,6 +101,10 @@ public final class Color implements Sc2ApiSerializable<Debug.Color> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
@@ -124,6 +124,10 @@ public final class DebugBox implements Sc2ApiSerializable<Debug.DebugBox> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -300,6 +300,10 @@ public final class DebugCommand implements Sc2ApiSerializable<Debug.DebugCommand
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -147,6 +147,10 @@ public final class DebugCreateUnit implements Sc2ApiSerializable<Debug.DebugCrea
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -172,6 +172,10 @@ public final class DebugDraw implements Sc2ApiSerializable<Debug.DebugDraw> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -109,6 +109,10 @@ public final class DebugEndGame implements Sc2ApiSerializable<Debug.DebugEndGame
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -109,6 +109,10 @@ public final class DebugKillUnit implements Sc2ApiSerializable<Debug.DebugKillUn
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
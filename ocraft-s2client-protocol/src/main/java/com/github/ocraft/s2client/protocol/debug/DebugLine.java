@@ -116,6 +116,10 @@ public final class DebugLine implements Sc2ApiSerializable<Debug.DebugLine> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -92,6 +92,10 @@ public final class DebugSetScore implements Sc2ApiSerializable<Debug.DebugSetSco
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -157,6 +157,10 @@ public final class DebugSetUnitValue implements Sc2ApiSerializable<Debug.DebugSe
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
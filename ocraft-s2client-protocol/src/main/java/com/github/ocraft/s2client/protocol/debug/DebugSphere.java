@@ -131,6 +131,10 @@ public final class DebugSphere implements Sc2ApiSerializable<Debug.DebugSphere>
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
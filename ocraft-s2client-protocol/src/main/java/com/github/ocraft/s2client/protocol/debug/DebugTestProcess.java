@@ -128,6 +128,10 @@ public final class DebugTestProcess implements Sc2ApiSerializable<Debug.DebugTes
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -173,6 +173,10 @@ public final class DebugText implements Sc2ApiSerializable<Debug.DebugText> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -83,6 +83,10 @@ public final class Line implements Sc2ApiSerializable<Debug.Line> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
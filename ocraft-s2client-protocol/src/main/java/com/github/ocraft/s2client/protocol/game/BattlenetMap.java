@@ -72,6 +72,10 @@ public final class BattlenetMap implements Sc2ApiSerializable<String> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
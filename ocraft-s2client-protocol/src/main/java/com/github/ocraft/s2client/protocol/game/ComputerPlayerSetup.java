@@ -134,6 +134,10 @@ public final class ComputerPlayerSetup extends PlayerSetup {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -261,6 +261,10 @@ public final class InterfaceOptions implements Sc2ApiSerializable<Sc2Api.Interfa
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -133,6 +133,10 @@ public final class LocalMap implements Sc2ApiSerializable<Sc2Api.LocalMap> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
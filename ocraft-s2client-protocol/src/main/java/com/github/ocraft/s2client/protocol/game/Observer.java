@@ -71,6 +71,10 @@ public final class Observer implements Sc2ApiSerializable<Integer> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
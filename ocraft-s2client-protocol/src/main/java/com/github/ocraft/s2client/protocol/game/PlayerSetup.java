@@ -80,6 +80,10 @@ public class PlayerSetup implements Sc2ApiSerializable<Sc2Api.PlayerSetup> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
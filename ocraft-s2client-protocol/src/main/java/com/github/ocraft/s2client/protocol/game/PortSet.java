@@ -87,6 +87,10 @@ public final class PortSet implements Sc2ApiSerializable<Sc2Api.PortSet> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
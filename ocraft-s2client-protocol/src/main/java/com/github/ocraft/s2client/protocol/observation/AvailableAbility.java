@@ -100,6 +100,10 @@ public final class AvailableAbility implements Serializable, GeneralizableAbilit
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
@@ -28,14 +28,12 @@ package com.github.ocraft.s2client.protocol.observation.raw;
 
 import SC2APIProtocol.Raw;
 import com.github.ocraft.s2client.protocol.Strings;
+import com.github.ocraft.s2client.protocol.unit.Tag;
 import com.github.ocraft.s2client.protocol.unit.Unit;
 import com.github.ocraft.s2client.protocol.unit.UnitSnapshot;
 
 import java.io.Serializable;
-import java.util.Collections;
-import java.util.Objects;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
 
 import static com.github.ocraft.s2client.protocol.Constants.nothing;
 import static com.github.ocraft.s2client.protocol.DataExtractor.tryGet;
@@ -44,31 +42,40 @@ import static com.github.ocraft.s2client.protocol.Preconditions.require;
 import static java.util.stream.Collectors.collectingAndThen;
 import static java.util.stream.Collectors.toSet;
 
+/**
+ * Raw part of the observation. Units and snapshots are kept in the order sent by the game, without hashing every
+ * unit; lookup by tag is built on first use.
+ */
 public final class ObservationRaw implements Serializable {
 
     private static final long serialVersionUID = -2220809398131692734L;
 
     private final PlayerRaw player;
-    private final Set<Unit> units;
-    private final Set<UnitSnapshot> unitSnapshots;
+    private final List<Unit> units;
+    private final List<UnitSnapshot> unitSnapshots;
     private final MapState mapState;
     private final Event event;
     private final Set<EffectLocations> effects;
 
+    private transient volatile Map<Tag, Unit> unitsByTag;
+
     private ObservationRaw(Raw.ObservationRaw sc2ApiObservationRaw) {
         player = tryGet(
                 Raw.ObservationRaw::getPlayer, Raw.ObservationRaw::hasPlayer
         ).apply(sc2ApiObservationRaw).map(PlayerRaw::from).orElseThrow(required("player"));
 
-        units = sc2ApiObservationRaw.getUnitsList().stream()
-                .filter(Raw.Unit::hasTag)
-                .map(Unit::from)
-                .collect(collectingAndThen(toSet(), Collections::unmodifiableSet));
-
-        unitSnapshots = sc2ApiObservationRaw.getUnitsList().stream()
-                .filter(rawUnit -> !rawUnit.hasTag())
-                .map(UnitSnapshot::from)
-                .collect(collectingAndThen(toSet(), Collections::unmodifiableSet));
+        List<Raw.Unit> sc2ApiUnits = sc2ApiObservationRaw.getUnitsList();
+        List<Unit> unitList = new ArrayList<>(sc2ApiUnits.size());
+        List<UnitSnapshot> snapshotList = new ArrayList<>();
+        for (Raw.Unit sc2ApiUnit : sc2ApiUnits) {
+            if (sc2ApiUnit.hasTag()) {
+                unitList.add(Unit.from(sc2ApiUnit));
+            } else {
+                snapshotList.add(UnitSnapshot.from(sc2ApiUnit));
+            }
+        }
+        units = Collections.unmodifiableList(unitList);
+        unitSnapshots = Collections.unmodifiableList(snapshotList);
 
         mapState = tryGet(
                 Raw.ObservationRaw::getMapState, Raw.ObservationRaw::hasMapState
@@ -91,11 +98,35 @@ public final class ObservationRaw implements Serializable {
         return player;
     }
 
-    public Set<Unit> getUnits() {
+    /**
+     * @return units in the order sent by the game.
+     */
+    public List<Unit> getUnits() {
         return units;
     }
 
-    public Set<UnitSnapshot> getUnitSnapshots() {
+    /**
+     * @return unit with given tag if it is in this observation.
+     */
+    public Optional<Unit> getUnit(Tag tag) {
+        require("tag", tag);
+        return Optional.ofNullable(unitsByTag().get(tag));
+    }
+
+    private Map<Tag, Unit> unitsByTag() {
+        Map<Tag, Unit> byTag = unitsByTag;
+        if (byTag == null) {
+            byTag = new HashMap<>(units.size() * 4 / 3 + 1);
+            for (Unit unit : units) byTag.put(unit.getTag(), unit);
+            unitsByTag = byTag = Collections.unmodifiableMap(byTag);
+        }
+        return byTag;
+    }
+
+    /**
+     * @return units without a tag, in the order sent by the game.
+     */
+    public List<UnitSnapshot> getUnitSnapshots() {
         return unitSnapshots;
     }
 
@@ -139,6 +170,10 @@ public final class ObservationRaw implements Serializable {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
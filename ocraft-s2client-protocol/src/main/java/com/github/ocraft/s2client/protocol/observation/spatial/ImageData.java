@@ -36,6 +36,7 @@ import com.google.protobuf.ByteString;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferByte;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 
 import static com.github.ocraft.s2client.protocol.DataExtractor.tryGet;
 import static com.github.ocraft.s2client.protocol.Errors.required;
@@ -121,6 +122,14 @@ public final class ImageData implements Serializable {
         return data.toByteArray();
     }
 
+    /**
+     * @return read-only view of the image bytes without copying them, unlike {@link #getData()}.
+     */
+    @JsonIgnore
+    public ByteBuffer getDataBuffer() {
+        return data.asReadOnlyByteBuffer();
+    }
+
     @JsonIgnore
     public BufferedImage getImage() {
         return convertToImage(getData());
@@ -177,6 +186,10 @@ public final class ImageData implements Serializable {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
\ No newline at end of file
@@ -122,6 +122,10 @@ public final class AvailableAbilities implements Serializable, GeneralizableAbil
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
@@ -99,6 +99,10 @@ public final class QueryAvailableAbilities implements Sc2ApiSerializable<Query.R
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
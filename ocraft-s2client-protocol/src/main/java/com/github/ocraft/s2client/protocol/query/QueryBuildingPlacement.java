@@ -143,6 +143,10 @@ public final class QueryBuildingPlacement implements Sc2ApiSerializable<Query.Re
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -136,6 +136,10 @@ public final class QueryPathing implements Sc2ApiSerializable<Query.RequestQuery
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
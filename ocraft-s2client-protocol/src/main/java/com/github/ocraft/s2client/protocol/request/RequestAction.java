@@ -118,6 +118,10 @@ public final class RequestAction extends Request {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
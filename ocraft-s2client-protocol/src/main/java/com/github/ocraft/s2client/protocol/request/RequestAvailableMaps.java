@@ -55,6 +55,10 @@ public final class RequestAvailableMaps extends Request {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -204,6 +204,10 @@ public final class RequestCreateGame extends Request {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
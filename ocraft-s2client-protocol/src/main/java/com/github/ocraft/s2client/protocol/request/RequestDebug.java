@@ -111,6 +111,10 @@ public final class RequestDebug extends Request {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
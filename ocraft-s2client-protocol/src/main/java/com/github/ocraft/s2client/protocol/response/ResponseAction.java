@@ -90,6 +90,10 @@ public final class ResponseAction extends Response {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -114,6 +114,10 @@ public final class ResponseAvailableMaps extends Response {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
@@ -143,6 +143,10 @@ public final class ResponseCreateGame extends Response {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
@@ -127,6 +127,10 @@ public final class ResponseData extends Response {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
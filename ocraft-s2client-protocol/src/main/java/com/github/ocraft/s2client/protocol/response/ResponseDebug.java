@@ -69,6 +69,10 @@ public final class ResponseDebug extends Response {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
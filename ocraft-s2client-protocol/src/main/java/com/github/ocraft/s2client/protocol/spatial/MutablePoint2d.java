@@ -0,0 +1,121 @@
+package com.github.ocraft.s2client.protocol.spatial;
+
+/*-
+ * #%L
+ * ocraft-s2client-protocol
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+/**
+ * Mutable 2d vector to be reused as a scratch value in hot geometry code, where {@link Point2d} would allocate a new
+ * object on every operation. All operations modify and return this vector. Not thread safe, not a value object (does
+ * not override equals).
+ */
+public final class MutablePoint2d {
+
+    private float x;
+    private float y;
+
+    public MutablePoint2d() {
+    }
+
+    public MutablePoint2d(float x, float y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public MutablePoint2d set(float x, float y) {
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    public MutablePoint2d set(Point2d point) {
+        return set(point.getX(), point.getY());
+    }
+
+    public MutablePoint2d set(Point point) {
+        return set(point.getX(), point.getY());
+    }
+
+    public MutablePoint2d add(float addX, float addY) {
+        x += addX;
+        y += addY;
+        return this;
+    }
+
+    public MutablePoint2d sub(float subX, float subY) {
+        x -= subX;
+        y -= subY;
+        return this;
+    }
+
+    public MutablePoint2d mul(float mulBy) {
+        x *= mulBy;
+        y *= mulBy;
+        return this;
+    }
+
+    /**
+     * Scales the vector to the unit length, the zero vector is left unchanged.
+     */
+    public MutablePoint2d normalize() {
+        float length = length();
+        if (length > 0.0f) {
+            x /= length;
+            y /= length;
+        }
+        return this;
+    }
+
+    public float length() {
+        return (float) Math.sqrt(x * x + y * y);
+    }
+
+    public float distanceSquared(float toX, float toY) {
+        float dx = x - toX;
+        float dy = y - toY;
+        return dx * dx + dy * dy;
+    }
+
+    public float distance(float toX, float toY) {
+        return (float) Math.sqrt(distanceSquared(toX, toY));
+    }
+
+    public Point2d toPoint2d() {
+        return Point2d.of(x, y);
+    }
+
+    @Override
+    public String toString() {
+        return "MutablePoint2d{x=" + x + ", y=" + y + '}';
+    }
+}
@@ -159,6 +159,10 @@ public final class Point implements Sc2ApiSerializable<Common.Point> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
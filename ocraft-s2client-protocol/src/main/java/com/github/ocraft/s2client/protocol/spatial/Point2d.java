@@ -140,6 +140,10 @@ public final class Point2d implements Sc2ApiSerializable<Common.Point2D> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
@@ -0,0 +1,250 @@
+package com.github.ocraft.s2client.protocol.spatial;
+
+/*-
+ * #%L
+ * ocraft-s2client-protocol
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.unit.UnitSnapshot;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static com.github.ocraft.s2client.protocol.Preconditions.require;
+
+/**
+ * Growable list of 2d points stored in two primitive float arrays, for bulk geometry on unit positions (distance
+ * matrices, nearest neighbour, centroid, convex hull) without a {@link Point2d} per point. The array can be cleared and
+ * refilled on every step without allocation once it reaches the needed capacity. Not thread safe.
+ */
+public final class PointArray {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private float[] xs;
+    private float[] ys;
+    private int size;
+
+    public PointArray() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PointArray(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("capacity must not be negative");
+        xs = new float[capacity];
+        ys = new float[capacity];
+    }
+
+    /**
+     * @return positions of given units, in the iteration order of the collection.
+     */
+    public static PointArray of(Collection<? extends UnitSnapshot> units) {
+        require("units", units);
+        return new PointArray(units.size()).addAll(units);
+    }
+
+    public PointArray add(float x, float y) {
+        if (size == xs.length) {
+            int capacity = Math.max(DEFAULT_CAPACITY, size * 2);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+        }
+        xs[size] = x;
+        ys[size++] = y;
+        return this;
+    }
+
+    public PointArray add(Point2d point) {
+        return add(point.getX(), point.getY());
+    }
+
+    public PointArray addAll(Collection<? extends UnitSnapshot> units) {
+        require("units", units);
+        for (UnitSnapshot unit : units) add(unit.getX(), unit.getY());
+        return this;
+    }
+
+    public void set(int index, float x, float y) {
+        checkIndex(index);
+        xs[index] = x;
+        ys[index] = y;
+    }
+
+    public float getX(int index) {
+        checkIndex(index);
+        return xs[index];
+    }
+
+    public float getY(int index) {
+        checkIndex(index);
+        return ys[index];
+    }
+
+    public Point2d get(int index) {
+        return Point2d.of(getX(index), getY(index));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all points, keeps the capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Writes the mean of the points to given vector.
+     *
+     * @return the vector with the centroid.
+     * @throws IllegalStateException if there are no points.
+     */
+    public MutablePoint2d centroid(MutablePoint2d out) {
+        require("output point", out);
+        if (size == 0) throw new IllegalStateException("no points");
+        double sumX = 0.0;
+        double sumY = 0.0;
+        for (int i = 0; i < size; i++) {
+            sumX += xs[i];
+            sumY += ys[i];
+        }
+        return out.set((float) (sumX / size), (float) (sumY / size));
+    }
+
+    /**
+     * @return index of the point nearest to given location or -1 if there are no points.
+     */
+    public int nearest(float x, float y) {
+        int nearest = -1;
+        float nearestDistance = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            float dx = xs[i] - x;
+            float dy = ys[i] - y;
+            float distance = dx * dx + dy * dy;
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Writes squared distances between every point of this array (rows) and every point of the other array (columns)
+     * into a row major matrix.
+     *
+     * @param out matrix with at least {@code size() * other.size()} elements, allocated if null or too small.
+     * @return the matrix.
+     */
+    public float[] distanceSquaredMatrix(PointArray other, float[] out) {
+        require("other points", other);
+        int columns = other.size;
+        float[] matrix = out != null && out.length >= size * columns ? out : new float[size * columns];
+        float[] otherXs = other.xs;
+        float[] otherYs = other.ys;
+        for (int row = 0, offset = 0; row < size; row++, offset += columns) {
+            float x = xs[row];
+            float y = ys[row];
+            for (int column = 0; column < columns; column++) {
+                float dx = otherXs[column] - x;
+                float dy = otherYs[column] - y;
+                matrix[offset + column] = dx * dx + dy * dy;
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Same as {@link #distanceSquaredMatrix(PointArray, float[])} with the distances.
+     */
+    public float[] distanceMatrix(PointArray other, float[] out) {
+        float[] matrix = distanceSquaredMatrix(other, out);
+        for (int i = 0, n = size * other.size; i < n; i++) matrix[i] = (float) Math.sqrt(matrix[i]);
+        return matrix;
+    }
+
+    /**
+     * Computes the convex hull of the points (monotone chain).
+     *
+     * @return indices of the hull points in counter clockwise order, collinear points on the hull edges are left out.
+     */
+    public int[] convexHull() {
+        if (size < 3) {
+            int[] all = new int[size];
+            for (int i = 0; i < size; i++) all[i] = i;
+            return all;
+        }
+        int[] order = sortedIndices();
+        int[] hull = new int[size * 2];
+        int k = 0;
+        for (int i = 0; i < size; i++) {
+            while (k >= 2 && cross(hull[k - 2], hull[k - 1], order[i]) <= 0) k--;
+            hull[k++] = order[i];
+        }
+        for (int i = size - 2, lower = k + 1; i >= 0; i--) {
+            while (k >= lower && cross(hull[k - 2], hull[k - 1], order[i]) <= 0) k--;
+            hull[k++] = order[i];
+        }
+        return Arrays.copyOf(hull, k - 1);
+    }
+
+    private float cross(int origin, int a, int b) {
+        return (xs[a] - xs[origin]) * (ys[b] - ys[origin]) - (ys[a] - ys[origin]) * (xs[b] - xs[origin]);
+    }
+
+    // Indices sorted by x, then y; insertion sort is enough for the unit counts of a game.
+    private int[] sortedIndices() {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            int j = i;
+            while (j > 0 && isBefore(i, order[j - 1])) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = i;
+        }
+        return order;
+    }
+
+    private boolean isBefore(int a, int b) {
+        return xs[a] < xs[b] || (xs[a] == xs[b] && ys[a] < ys[b]);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PointArray{size=" + size + '}';
+    }
+}
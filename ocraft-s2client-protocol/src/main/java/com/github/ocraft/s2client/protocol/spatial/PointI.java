@@ -134,6 +134,10 @@ public final class PointI implements Sc2ApiSerializable<Common.PointI> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
@@ -96,6 +96,10 @@ public final class RectangleI implements Sc2ApiSerializable<Common.RectangleI> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
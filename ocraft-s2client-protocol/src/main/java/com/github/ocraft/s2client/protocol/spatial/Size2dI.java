@@ -98,6 +98,10 @@ public final class Size2dI implements Sc2ApiSerializable<Common.Size2DI> {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
@@ -214,6 +214,10 @@ public final class SpatialCameraSetup implements Sc2ApiSerializable<Sc2Api.Spati
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 }
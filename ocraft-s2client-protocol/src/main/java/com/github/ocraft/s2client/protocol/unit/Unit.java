@@ -150,6 +150,10 @@ public final class Unit extends UnitSnapshot {
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
@@ -94,6 +94,10 @@ public final class UnitOrder implements Serializable, GeneralizableAbility<UnitO
         return Optional.ofNullable(progress);
     }
 
+    public float getProgressOr(float defaultValue) {
+        return progress != null ? progress : defaultValue;
+    }
+
     @Override
     public UnitOrder generalizeAbility(UnaryOperator<Ability> generalize) {
         return new UnitOrder(generalize.apply(getAbility()), targetedUnitTag, targetedWorldSpacePosition, progress);
@@ -127,6 +131,10 @@ public final class UnitOrder implements Serializable, GeneralizableAbility<UnitO
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
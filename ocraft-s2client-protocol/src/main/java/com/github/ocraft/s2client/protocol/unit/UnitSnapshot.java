@@ -27,6 +27,8 @@ package com.github.ocraft.s2client.protocol.unit;
  */
 
 import SC2APIProtocol.Raw;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.github.ocraft.s2client.protocol.GeneralizableAbility;
 import com.github.ocraft.s2client.protocol.Strings;
 import com.github.ocraft.s2client.protocol.data.Ability;
@@ -250,6 +252,33 @@ public class UnitSnapshot implements Serializable, GeneralizableAbility<UnitSnap
         return position;
     }
 
+    /**
+     * Same as {@code getPosition().getX()}, for geometry code working with primitive coordinates.
+     */
+    @JsonIgnore
+    public float getX() {
+        return position.getX();
+    }
+
+    @JsonIgnore
+    public float getY() {
+        return position.getY();
+    }
+
+    @JsonIgnore
+    public float getZ() {
+        return position.getZ();
+    }
+
+    /**
+     * @return squared distance in the xy plane between this unit and given location.
+     */
+    public float distanceSquared(float x, float y) {
+        float dx = position.getX() - x;
+        float dy = position.getY() - y;
+        return dx * dx + dy * dy;
+    }
+
     public Optional<CloakState> getCloakState() {
         return Optional.ofNullable(cloakState);
     }
@@ -308,6 +337,35 @@ public class UnitSnapshot implements Serializable, GeneralizableAbility<UnitSnap
         return Optional.ofNullable(energyMax);
     }
 
+    /**
+     * Primitive variants of the optional vitals for hot loops (i.e. feature encoding), no boxing or Optional wrapping.
+     *
+     * @return value or given default if the game did not send it.
+     */
+    public float getHealthOr(float defaultValue) {
+        return health != null ? health : defaultValue;
+    }
+
+    public float getHealthMaxOr(float defaultValue) {
+        return healthMax != null ? healthMax : defaultValue;
+    }
+
+    public float getShieldOr(float defaultValue) {
+        return shield != null ? shield : defaultValue;
+    }
+
+    public float getShieldMaxOr(float defaultValue) {
+        return shieldMax != null ? shieldMax : defaultValue;
+    }
+
+    public float getEnergyOr(float defaultValue) {
+        return energy != null ? energy : defaultValue;
+    }
+
+    public float getEnergyMaxOr(float defaultValue) {
+        return energyMax != null ? energyMax : defaultValue;
+    }
+
     public Optional<Integer> getMineralContents() {
         return Optional.ofNullable(mineralContents);
     }
@@ -316,14 +374,34 @@ public class UnitSnapshot implements Serializable, GeneralizableAbility<UnitSnap
         return Optional.ofNullable(vespeneContents);
     }
 
+    // Jackson sees getFlying and isFlying as one property, the explicit annotation keeps it despite the ignored
+    // primitive accessor.
+    @JsonProperty("flying")
     public Optional<Boolean> getFlying() {
         return Optional.ofNullable(flying);
     }
 
+    @JsonProperty("burrowed")
     public Optional<Boolean> getBurrowed() {
         return Optional.ofNullable(burrowed);
     }
 
+    /**
+     * @return true if the game reported the unit as flying, false if not or unknown.
+     */
+    @JsonIgnore
+    public boolean isFlying() {
+        return Boolean.TRUE.equals(flying);
+    }
+
+    /**
+     * @return true if the game reported the unit as burrowed, false if not or unknown.
+     */
+    @JsonIgnore
+    public boolean isBurrowed() {
+        return Boolean.TRUE.equals(burrowed);
+    }
+
     public List<UnitOrder> getOrders() {
         return orders;
     }
@@ -516,6 +594,10 @@ public class UnitSnapshot implements Serializable, GeneralizableAbility<UnitSnap
 
     @Override
     public String toString() {
+        return Strings.toCompactString(this);
+    }
+
+    public String toJson() {
         return Strings.toJson(this);
     }
 
@@ -0,0 +1,96 @@
+package com.github.ocraft.s2client.protocol;
+
+/*-
+ * #%L
+ * ocraft-s2client-protocol
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.protocol.observation.raw.ObservationRaw;
+import com.github.ocraft.s2client.protocol.observation.spatial.ImageData;
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static com.github.ocraft.s2client.protocol.Fixtures.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StringsTest {
+
+    @Test
+    void writesCompactTextOfProtocolObject() {
+        Unit unit = Unit.from(sc2ApiUnit());
+
+        String text = unit.toString();
+
+        assertThat(text)
+                .startsWith("Unit{")
+                .contains("tag=Tag{value=" + sc2ApiUnit().getTag() + "}")
+                .contains("alliance=" + unit.getAlliance().name())
+                .doesNotContain("\"Unit\" :");
+    }
+
+    @Test
+    void keepsFullJsonAvailable() {
+        Unit unit = Unit.from(sc2ApiUnit());
+
+        assertThat(unit.toJson()).isEqualTo(Strings.toJson(unit)).startsWith("{\"Unit\":");
+    }
+
+    @Test
+    void summarizesBinaryPayloads() {
+        ImageData imageData = ImageData.from(sc2ApiImageData());
+
+        assertThat(imageData.toString()).contains("data=bytes[" + sc2ApiImageData().getData().size() + "]");
+    }
+
+    @Test
+    void summarizesLargeCollections() {
+        Raw.ObservationRaw.Builder raw = sc2ApiObservationRaw().toBuilder().clearUnits();
+        for (int i = 0; i < 500; i++) raw.addUnits(sc2ApiUnit().toBuilder().setTag(i + 1));
+
+        String text = ObservationRaw.from(raw.build()).toString();
+
+        assertThat(text).contains("units=[500 items: ");
+        assertThat(text.length()).isLessThanOrEqualTo(CompactFormatter.MAX_LENGTH);
+    }
+
+    @Test
+    void limitsDepthOfNestedObjects() {
+        Raw.ObservationRaw raw = sc2ApiObservationRaw().toBuilder().clearUnits().addUnits(sc2ApiUnit()).build();
+
+        String text = ObservationRaw.from(raw).toString();
+
+        assertThat(text).contains("orders=[UnitOrder{...}]");
+        assertThat(text.length()).isLessThanOrEqualTo(CompactFormatter.MAX_LENGTH);
+    }
+
+    @Test
+    void writesShortCollectionsWholeAndPrimitiveArraysBySize() {
+        assertThat(Strings.toCompactString(Arrays.asList("a", null))).isEqualTo("[\"a\", null]");
+        assertThat(Strings.toCompactString(new Object[0])).isEqualTo("[]");
+        assertThat(Strings.toCompactString(new int[3])).isEqualTo("int[3]");
+    }
+}
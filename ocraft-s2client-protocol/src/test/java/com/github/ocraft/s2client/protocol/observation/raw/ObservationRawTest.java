@@ -27,6 +27,8 @@ package com.github.ocraft.s2client.protocol.observation.raw;
  */
 
 import SC2APIProtocol.Raw;
+import com.github.ocraft.s2client.protocol.unit.Tag;
+import com.github.ocraft.s2client.protocol.unit.Unit;
 import com.google.protobuf.ByteString;
 import nl.jqno.equalsverifier.EqualsVerifier;
 import org.junit.jupiter.api.Test;
@@ -35,6 +37,7 @@ import java.io.UnsupportedEncodingException;
 
 import static com.github.ocraft.s2client.protocol.Constants.nothing;
 import static com.github.ocraft.s2client.protocol.Fixtures.sc2ApiObservationRaw;
+import static com.github.ocraft.s2client.protocol.Fixtures.sc2ApiUnit;
 import static com.github.ocraft.s2client.protocol.Fixtures.without;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -77,6 +80,22 @@ class ObservationRawTest {
         ).getUnits()).as("observation raw: empty unit set").isEmpty();
     }
 
+    @Test
+    void keepsUnitsInProtocolOrderAndFindsThemByTag() {
+        Raw.ObservationRaw.Builder sc2ApiObservationRaw = sc2ApiObservationRaw().toBuilder().clearUnits();
+        for (long tag : new long[]{30L, 10L, 20L}) sc2ApiObservationRaw.addUnits(sc2ApiUnit().toBuilder().setTag(tag));
+        sc2ApiObservationRaw.addUnits(sc2ApiUnit().toBuilder().clearTag());
+
+        ObservationRaw observation = ObservationRaw.from(sc2ApiObservationRaw.build());
+
+        assertThat(observation.getUnits()).extracting(Unit::getTag)
+                .containsExactly(Tag.of(30L), Tag.of(10L), Tag.of(20L));
+        assertThat(observation.getUnitSnapshots()).hasSize(1);
+        assertThat(observation.getUnit(Tag.of(10L))).hasValueSatisfying(
+                unit -> assertThat(unit).isSameAs(observation.getUnits().get(1)));
+        assertThat(observation.getUnit(Tag.of(40L))).isEmpty();
+    }
+
     @Test
     void throwsExceptionWhenMapStateIsNotProvided() {
         assertThatExceptionOfType(IllegalArgumentException.class)
@@ -58,6 +58,8 @@ class ImageDataTest {
         assertThat(imageData.getBitsPerPixel()).as("image data: bits per pixel").isEqualTo(BITS_PER_PIXEL);
         assertThat(imageData.getSize()).as("image data: size").isNotNull();
         assertThat(imageData.getData()).as("image data: data").isEqualTo(Images.HEIGHT_MAP.toByteArray());
+        assertThat(imageData.getDataBuffer()).as("image data: data buffer")
+                .isEqualTo(Images.HEIGHT_MAP.asReadOnlyByteBuffer());
         assertThatRenderedImageHasValidParameters(imageData);
     }
 
@@ -0,0 +1,119 @@
+package com.github.ocraft.s2client.protocol.spatial;
+
+/*-
+ * #%L
+ * ocraft-s2client-protocol
+ * %%
+ * Copyright (C) 2017 - 2018 Ocraft Project
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.github.ocraft.s2client.protocol.unit.Unit;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static com.github.ocraft.s2client.protocol.Fixtures.sc2ApiUnit;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.within;
+
+class PointArrayTest {
+
+    @Test
+    void growsAndKeepsCoordinates() {
+        PointArray points = new PointArray(1);
+        for (int i = 0; i < 100; i++) points.add(i, 2 * i);
+
+        assertThat(points.size()).isEqualTo(100);
+        assertThat(points.getX(99)).isEqualTo(99.0f);
+        assertThat(points.getY(99)).isEqualTo(198.0f);
+        assertThat(points.get(3)).isEqualTo(Point2d.of(3.0f, 6.0f));
+
+        points.clear();
+
+        assertThat(points.isEmpty()).isTrue();
+        assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> points.getX(0));
+    }
+
+    @Test
+    void readsUnitPositions() {
+        Unit unit = Unit.from(sc2ApiUnit());
+
+        PointArray points = PointArray.of(Arrays.asList(unit, unit));
+
+        assertThat(points.size()).isEqualTo(2);
+        assertThat(points.getX(1)).isEqualTo(unit.getPosition().getX());
+        assertThat(points.getY(1)).isEqualTo(unit.getPosition().getY());
+        assertThat(unit.getZ()).isEqualTo(unit.getPosition().getZ());
+    }
+
+    @Test
+    void computesDistanceMatrix() {
+        PointArray own = new PointArray().add(0.0f, 0.0f).add(10.0f, 10.0f);
+        PointArray enemy = new PointArray().add(3.0f, 4.0f).add(10.0f, 10.0f).add(0.0f, 1.0f);
+        float[] reused = new float[6];
+
+        float[] matrix = own.distanceMatrix(enemy, reused);
+
+        assertThat(matrix).isSameAs(reused);
+        float[] expected = {
+                5.0f, (float) Math.sqrt(200.0), 1.0f,
+                (float) Math.sqrt(85.0), 0.0f, (float) Math.sqrt(181.0)};
+        assertThat(matrix).containsExactly(expected, within(1e-5f));
+        assertThat(own.distanceSquaredMatrix(enemy, null)).containsExactly(25.0f, 200.0f, 1.0f, 85.0f, 0.0f, 181.0f);
+    }
+
+    @Test
+    void findsNearestPointAndCentroid() {
+        PointArray points = new PointArray().add(0.0f, 0.0f).add(4.0f, 0.0f).add(4.0f, 4.0f).add(0.0f, 4.0f);
+
+        assertThat(points.nearest(3.5f, 3.0f)).isEqualTo(2);
+        assertThat(new PointArray().nearest(1.0f, 1.0f)).isEqualTo(-1);
+        MutablePoint2d centroid = points.centroid(new MutablePoint2d());
+        assertThat(centroid.getX()).isEqualTo(2.0f);
+        assertThat(centroid.getY()).isEqualTo(2.0f);
+    }
+
+    @Test
+    void computesConvexHull() {
+        PointArray points = new PointArray()
+                .add(2.0f, 2.0f)
+                .add(0.0f, 0.0f)
+                .add(4.0f, 0.0f)
+                .add(1.0f, 1.0f)
+                .add(4.0f, 4.0f)
+                .add(2.0f, 0.0f)
+                .add(0.0f, 4.0f);
+
+        assertThat(points.convexHull()).containsExactly(1, 2, 4, 6);
+    }
+
+    @Test
+    void reusesScratchVector() {
+        MutablePoint2d vector = new MutablePoint2d(3.0f, 4.0f);
+
+        assertThat(vector.length()).isEqualTo(5.0f);
+        assertThat(vector.normalize().mul(10.0f).add(1.0f, 1.0f).sub(0.0f, 2.0f).toPoint2d())
+                .isEqualTo(Point2d.of(7.0f, 7.0f));
+        assertThat(vector.set(Point2d.of(1.0f, 1.0f)).distance(4.0f, 5.0f)).isEqualTo(5.0f);
+    }
+}
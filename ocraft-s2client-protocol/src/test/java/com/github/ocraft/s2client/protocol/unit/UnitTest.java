@@ -100,6 +100,17 @@ class UnitTest {
         assertThat(unit.getBuffDurationMax()).as("unit: buff duration max").hasValue(UNIT_BUFF_MAX);
     }
 
+    @Test
+    void writesFlyingAndBurrowedToJson() {
+        Unit unit = Unit.from(sc2ApiUnit());
+
+        assertThat(unit.isFlying()).isEqualTo(UNIT_FLYING);
+        assertThat(unit.isBurrowed()).isEqualTo(UNIT_BURROWED);
+        assertThat(unit.toJson())
+                .contains("\"flying\":" + UNIT_FLYING)
+                .contains("\"burrowed\":" + UNIT_BURROWED);
+    }
+
     @Test
     void throwsExceptionWhenDisplayTypeIsNotProvided() {
         assertThatExceptionOfType(IllegalArgumentException.class)